@@ -0,0 +1,36 @@
+package es.tfg.tu_curso.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mide {@link BCryptPasswordEncoder#matches} con varios costes, es decir, el tiempo de CPU que
+ * consume cada inicio de sesión. Cada unidad de coste debería duplicar el tiempo.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class BCryptBenchmark {
+
+    @Param({"8", "10", "12"})
+    private int coste;
+
+    private BCryptPasswordEncoder encoder;
+    private String hash;
+
+    @Setup
+    public void preparar() {
+        encoder = new BCryptPasswordEncoder(coste);
+        hash = encoder.encode("secreta");
+    }
+
+    @Benchmark
+    public boolean matches() {
+        return encoder.matches("secreta", hash);
+    }
+}
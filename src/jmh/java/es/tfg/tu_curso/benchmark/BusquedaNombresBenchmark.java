@@ -0,0 +1,78 @@
+package es.tfg.tu_curso.benchmark;
+
+import es.tfg.tu_curso.servicio.implementaciones.IndiceAmistadesServicioImpl;
+import es.tfg.tu_curso.servicio.implementaciones.IndiceNombresServicioImpl;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mide la búsqueda de usuarios por nombre en el índice de trigramas con 100.000 usuarios de nombres
+ * aleatorios: una búsqueda nueva de tres y de cinco caracteres, una de un carácter por prefijo de palabra
+ * y la secuencia de búsquedas de alguien que escribe un nombre letra a letra.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+public class BusquedaNombresBenchmark {
+
+    private static final int USUARIOS = 100_000;
+
+    private static final String[] NOMBRES = {"María", "José", "Lucía", "Javier", "Carmen", "Antonio", "Sofía",
+            "Manuel", "Elena", "Francisco", "Laura", "David", "Marta", "Pablo", "Paula", "Sergio", "Andrea", "Jorge"};
+
+    private static final String[] APELLIDOS = {"García", "Rodríguez", "González", "Fernández", "López", "Martínez",
+            "Sánchez", "Pérez", "Gómez", "Martín", "Jiménez", "Ruiz", "Hernández", "Díaz", "Moreno", "Muñoz"};
+
+    private IndiceNombresServicioImpl indice;
+
+    private long usuarioIncremental;
+
+    @Setup
+    public void preparar() {
+        indice = new IndiceNombresServicioImpl();
+        ReflectionTestUtils.setField(indice, "indiceAmistades", new IndiceAmistadesServicioImpl());
+        ReflectionTestUtils.setField(indice, "maxCandidatos", 20_000);
+        ReflectionTestUtils.setField(indice, "cacheMaximo", 1_000);
+        Random aleatorio = new Random(42);
+        for (long id = 1; id <= USUARIOS; id++) {
+            indice.registrarUsuario(id, NOMBRES[aleatorio.nextInt(NOMBRES.length)] + " "
+                    + APELLIDOS[aleatorio.nextInt(APELLIDOS.length)] + " " + aleatorio.nextInt(1000));
+        }
+    }
+
+    @Benchmark
+    public List<Long> buscarTresCaracteres() {
+        return indice.buscar(-1, "mar", 20);
+    }
+
+    @Benchmark
+    public List<Long> buscarCincoCaracteres() {
+        return indice.buscar(-2, "fernan", 20);
+    }
+
+    @Benchmark
+    public List<Long> buscarUnCaracter() {
+        return indice.buscar(-3, "j", 20);
+    }
+
+    /**
+     * Búsquedas de "p", "pa", "pab", "pabl" y "pablo" de un mismo usuario, cada vez uno distinto
+     * para empezar sin búsqueda previa.
+     */
+    @Benchmark
+    public List<Long> escribirNombre() {
+        long usuario = -100 - (usuarioIncremental++ % 500);
+        List<Long> resultado = null;
+        for (String texto : new String[]{"p", "pa", "pab", "pabl", "pablo"}) {
+            resultado = indice.buscar(usuario, texto, 20);
+        }
+        return resultado;
+    }
+}
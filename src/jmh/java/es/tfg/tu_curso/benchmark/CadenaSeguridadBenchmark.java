@@ -0,0 +1,108 @@
+package es.tfg.tu_curso.benchmark;
+
+import es.tfg.tu_curso.ProyectoGrupalApplication;
+import es.tfg.tu_curso.dto.CredencialesDTO;
+import es.tfg.tu_curso.seguridad.JwtUtil;
+import es.tfg.tu_curso.servicio.interfaces.UsuarioServicio;
+import jakarta.servlet.Filter;
+import jakarta.servlet.FilterChain;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.FileOutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mide la cadena de seguridad completa configurada en SecurityConfig (el bean springSecurityFilterChain,
+ * con {@link es.tfg.tu_curso.seguridad.JwtRequestFilter}, la lista de revocación, la autorización y el
+ * punto de entrada de errores) para un GET con un token válido, sin token y con un token de firma inválida.
+ * El contexto de la aplicación se arranca una vez por fork con una base de datos H2 en memoria y la solicitud
+ * termina en una cadena vacía, de modo que solo se mide la seguridad.
+ * La salida estándar se redirige a target/jmh-cadena-seguridad.log para no mezclar los logs con la de JMH.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(4)
+@Fork(1)
+public class CadenaSeguridadBenchmark {
+
+    private static final String EMAIL = "benchmark@example.com";
+
+    private static final FilterChain FINAL = (request, response) -> { };
+
+    private ConfigurableApplicationContext contexto;
+    private Filter cadenaSeguridad;
+    private String cabeceraValida;
+    private String cabeceraFirmaInvalida;
+    private PrintStream salidaOriginal;
+
+    @Setup
+    public void preparar() throws Exception {
+        salidaOriginal = System.out;
+        System.setOut(new PrintStream(new FileOutputStream("target/jmh-cadena-seguridad.log"), true));
+
+        contexto = new SpringApplicationBuilder(ProyectoGrupalApplication.class)
+                .properties(
+                        "server.port=0",
+                        "spring.datasource.url=jdbc:h2:mem:benchmark;DB_CLOSE_DELAY=-1",
+                        "spring.jpa.hibernate.ddl-auto=create-drop",
+                        "spring.jpa.show-sql=false",
+                        "seguridad.bcrypt.coste=4")
+                .run();
+        cadenaSeguridad = contexto.getBean("springSecurityFilterChain", Filter.class);
+
+        UsuarioServicio usuarioServicio = contexto.getBean(UsuarioServicio.class);
+        usuarioServicio.crear("Benchmark", EMAIL, "secreta", "", "");
+        CredencialesDTO credenciales = usuarioServicio.obtenerCredenciales(EMAIL).orElseThrow();
+        String token = contexto.getBean(JwtUtil.class).generateToken(EMAIL, credenciales.getRol(),
+                credenciales.getId(), credenciales.getSelloSeguridad());
+
+        cabeceraValida = "Bearer " + token;
+        cabeceraFirmaInvalida = "Bearer " + token.substring(0, token.length() - 4) + (token.endsWith("AAAA") ? "BBBB" : "AAAA");
+
+        // Cada variante debe medir el camino que indica su nombre
+        if (filtrar(cabeceraValida) != 200 || filtrar(null) != 401 || filtrar(cabeceraFirmaInvalida) != 401) {
+            throw new IllegalStateException("La cadena de seguridad no responde como se espera");
+        }
+    }
+
+    @TearDown
+    public void cerrar() {
+        contexto.close();
+        System.out.close();
+        System.setOut(salidaOriginal);
+    }
+
+    @Benchmark
+    public int getAutenticado() throws Exception {
+        return filtrar(cabeceraValida);
+    }
+
+    @Benchmark
+    public int getSinToken() throws Exception {
+        return filtrar(null);
+    }
+
+    @Benchmark
+    public int getFirmaInvalida() throws Exception {
+        return filtrar(cabeceraFirmaInvalida);
+    }
+
+    private int filtrar(String cabecera) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/usuarios/1/amigos");
+        request.setServletPath("/usuarios/1/amigos");
+        if (cabecera != null) {
+            request.addHeader("Authorization", cabecera);
+        }
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        cadenaSeguridad.doFilter(request, response, FINAL);
+        return response.getStatus();
+    }
+}
@@ -0,0 +1,88 @@
+package es.tfg.tu_curso.benchmark;
+
+import es.tfg.tu_curso.seguridad.CodecTokenHmac;
+import es.tfg.tu_curso.seguridad.DatosToken;
+import es.tfg.tu_curso.seguridad.JwtUtil;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compara {@link CodecTokenHmac} con la implementación anterior basada en jjwt 0.9.1
+ * para la firma, la verificación y la extracción de claims de un token.
+ * La variante jjwt reproduce lo que hacía JwtUtil: derivar la clave y crear un parser en cada llamada.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CodecTokenBenchmark {
+
+    private static final String SECRETO = "miClaveSecretaSuperSegura123";
+    private static final long EXPIRACION = 3_600_000L;
+
+    private CodecTokenHmac codec;
+    private String token;
+
+    @Setup
+    public void preparar() {
+        codec = new CodecTokenHmac(SECRETO);
+        token = firmarJjwt();
+    }
+
+    @Benchmark
+    public String firmarCodec() {
+        long ahora = System.currentTimeMillis();
+        return codec.firmar("usuario@example.com", "USER", 42L, "sello", ahora, ahora + EXPIRACION);
+    }
+
+    @Benchmark
+    public String firmarJjwt() {
+        return Jwts.builder()
+                .setSubject("usuario@example.com")
+                .claim(JwtUtil.CLAIM_ROL, "USER")
+                .claim(JwtUtil.CLAIM_USUARIO_ID, 42L)
+                .claim(JwtUtil.CLAIM_SELLO, "sello")
+                .setIssuedAt(new Date())
+                .setExpiration(new Date(System.currentTimeMillis() + EXPIRACION))
+                .signWith(SignatureAlgorithm.HS512, SECRETO)
+                .compact();
+    }
+
+    @Benchmark
+    public DatosToken verificarCodec() {
+        return codec.verificar(token);
+    }
+
+    @Benchmark
+    public Claims verificarJjwt() {
+        return Jwts.parser().setSigningKey(SECRETO).parseClaimsJws(token).getBody();
+    }
+
+    /**
+     * Usuario y rol con el codec: una única verificación.
+     */
+    @Benchmark
+    public void extraerClaimsCodec(Blackhole bh) {
+        DatosToken datos = codec.verificar(token);
+        bh.consume(datos.getSubject());
+        bh.consume(datos.getRol());
+    }
+
+    /**
+     * Usuario y rol como los obtenía JwtUtil con getUsernameFromToken y getRoleFromToken:
+     * cada método volvía a verificar el token.
+     */
+    @Benchmark
+    public void extraerClaimsJjwt(Blackhole bh) {
+        bh.consume(Jwts.parser().setSigningKey(SECRETO).parseClaimsJws(token).getBody().getSubject());
+        bh.consume(Jwts.parser().setSigningKey(SECRETO).parseClaimsJws(token).getBody().get(JwtUtil.CLAIM_ROL, String.class));
+    }
+}
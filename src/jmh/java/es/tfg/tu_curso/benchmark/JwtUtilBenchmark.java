@@ -0,0 +1,66 @@
+package es.tfg.tu_curso.benchmark;
+
+import es.tfg.tu_curso.repositorio.RepositorioTokenRevocado;
+import es.tfg.tu_curso.seguridad.CacheTokensVerificados;
+import es.tfg.tu_curso.seguridad.CodecTokenHmac;
+import es.tfg.tu_curso.seguridad.DatosToken;
+import es.tfg.tu_curso.seguridad.JwtUtil;
+import es.tfg.tu_curso.seguridad.ListaRevocacion;
+import es.tfg.tu_curso.seguridad.TokenEmitido;
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mide la emisión y la verificación de tokens a través de {@link JwtUtil}, incluyendo la caché de
+ * tokens verificados y la comprobación de la lista de revocación que realiza en cada solicitud.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtUtilBenchmark {
+
+    private static final String SECRETO = "miClaveSecretaSuperSegura123";
+
+    private JwtUtil jwtUtil;
+    private String token;
+
+    @Setup
+    public void preparar() {
+        CacheTokensVerificados cache = new CacheTokensVerificados();
+        ReflectionTestUtils.setField(cache, "tamanoMaximo", 10_000);
+        ReflectionTestUtils.setField(cache, "ttl", 300_000L);
+
+        ListaRevocacion listaRevocacion = new ListaRevocacion(Mockito.mock(RepositorioTokenRevocado.class), 100_000, 0.01);
+        // Algunos tokens revocados para que el filtro de Bloom no esté vacío
+        for (long jti = 1; jti <= 1_000; jti++) {
+            listaRevocacion.revocar(jti, 42L, System.currentTimeMillis() + 3_600_000L);
+        }
+
+        jwtUtil = new JwtUtil();
+        ReflectionTestUtils.setField(jwtUtil, "expiration", 3_600_000L);
+        ReflectionTestUtils.setField(jwtUtil, "codec", new CodecTokenHmac(SECRETO));
+        ReflectionTestUtils.setField(jwtUtil, "cacheTokens", cache);
+        ReflectionTestUtils.setField(jwtUtil, "listaRevocacion", listaRevocacion);
+
+        token = jwtUtil.generateToken("usuario@example.com", "USER", 42L, "sello");
+    }
+
+    @Benchmark
+    public TokenEmitido emitirToken() {
+        return jwtUtil.emitirToken("usuario@example.com", "USER", 42L, "sello");
+    }
+
+    /**
+     * Verificación de un token reutilizado, que se resuelve con la caché y la lista de revocación.
+     */
+    @Benchmark
+    public DatosToken verificarToken() {
+        return jwtUtil.verificarToken(token);
+    }
+}
@@ -0,0 +1,67 @@
+package es.tfg.tu_curso.benchmark;
+
+import es.tfg.tu_curso.servicio.implementaciones.IndiceAmistadesServicioImpl;
+import es.tfg.tu_curso.servicio.interfaces.IndiceAmistadesServicio.AmigoSugerido;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mide el cálculo de sugerencias de amistad, sin la caché, para un usuario con miles de amigos
+ * en un grafo aleatorio de 50.000 usuarios con unos 100 amigos de media, en secuencial y en paralelo.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+public class SugerenciasAmistadBenchmark {
+
+    private static final int USUARIOS = 50_000;
+    private static final long USUARIO_POPULAR = USUARIOS + 1;
+
+    /**
+     * Número de amigos a partir del cual se calcula en paralelo; el máximo equivale a siempre secuencial.
+     */
+    @Param({"512", "2147483647"})
+    private int umbralParalelo;
+
+    @Param({"3000"})
+    private int amigosUsuario;
+
+    private IndiceAmistadesServicioImpl indice;
+
+    @Setup
+    public void preparar() {
+        indice = new IndiceAmistadesServicioImpl();
+        ReflectionTestUtils.setField(indice, "maxVisitas", 1_000_000);
+        ReflectionTestUtils.setField(indice, "umbralParalelo", umbralParalelo);
+        ReflectionTestUtils.setField(indice, "cacheMaximo", 0);
+
+        Random aleatorio = new Random(42);
+        for (int i = 0; i < USUARIOS * 50; i++) {
+            long a = aleatorio.nextInt(USUARIOS);
+            long b = aleatorio.nextInt(USUARIOS);
+            if (a != b) {
+                indice.registrarAmistad(a, b);
+            }
+        }
+        while (indice.contarAmigos(USUARIO_POPULAR) < amigosUsuario) {
+            indice.registrarAmistad(USUARIO_POPULAR, aleatorio.nextInt(USUARIOS));
+        }
+    }
+
+    @Benchmark
+    public List<AmigoSugerido> sugerirUsuarioPopular() {
+        return indice.sugerirAmigos(USUARIO_POPULAR, 10);
+    }
+
+    @Benchmark
+    public List<AmigoSugerido> sugerirUsuarioMedio() {
+        return indice.sugerirAmigos(7, 10);
+    }
+}
@@ -0,0 +1,142 @@
+package es.tfg.tu_curso.benchmark;
+
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.joran.JoranConfigurator;
+import es.tfg.tu_curso.repositorio.RepositorioTokenRevocado;
+import es.tfg.tu_curso.repositorio.RepositorioUsuario;
+import es.tfg.tu_curso.seguridad.AuditoriaSeguridad;
+import es.tfg.tu_curso.seguridad.CacheTokensVerificados;
+import es.tfg.tu_curso.seguridad.CodecTokenHmac;
+import es.tfg.tu_curso.seguridad.JwtRequestFilter;
+import es.tfg.tu_curso.seguridad.JwtUtil;
+import es.tfg.tu_curso.seguridad.ListaRevocacion;
+import es.tfg.tu_curso.seguridad.VerificadorSelloSeguridad;
+import jakarta.servlet.FilterChain;
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.*;
+import org.slf4j.LoggerFactory;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.FileOutputStream;
+import java.io.PrintStream;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mide el rendimiento de {@link JwtRequestFilter} en un GET autenticado con la auditoría
+ * asíncrona y muestreada, frente a la misma solicitud precedida de las trazas con System.out
+ * que escribía antes el filtro (ocho líneas por solicitud).
+ * La salida estándar se redirige a target/jmh-trazas-filtro.log para no mezclarla con la de JMH,
+ * y el logger de auditoría se configura con logback-spring.xml como en la aplicación.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(4)
+@Fork(1)
+public class TrazasFiltroBenchmark {
+
+    private static final String SECRETO = "miClaveSecretaSuperSegura123";
+
+    private JwtRequestFilter filtro;
+    private String cabecera;
+    private PrintStream salidaOriginal;
+
+    private final FilterChain cadena = (request, response) -> { };
+
+    @Setup
+    public void preparar() throws Exception {
+        configurarLogback();
+        salidaOriginal = System.out;
+        System.setOut(new PrintStream(new FileOutputStream("target/jmh-trazas-filtro.log"), true));
+
+        CodecTokenHmac codec = new CodecTokenHmac(SECRETO);
+        CacheTokensVerificados cache = new CacheTokensVerificados();
+        ReflectionTestUtils.setField(cache, "tamanoMaximo", 10_000);
+        ReflectionTestUtils.setField(cache, "ttl", 300_000L);
+
+        JwtUtil jwtUtil = new JwtUtil();
+        ReflectionTestUtils.setField(jwtUtil, "expiration", 3_600_000L);
+        ReflectionTestUtils.setField(jwtUtil, "codec", codec);
+        ReflectionTestUtils.setField(jwtUtil, "cacheTokens", cache);
+        ReflectionTestUtils.setField(jwtUtil, "listaRevocacion",
+                new ListaRevocacion(Mockito.mock(RepositorioTokenRevocado.class), 100_000, 0.01));
+
+        RepositorioUsuario repositorio = Mockito.mock(RepositorioUsuario.class);
+        Mockito.when(repositorio.findSelloSeguridadById(42L)).thenReturn(Optional.of("sello"));
+        VerificadorSelloSeguridad verificador = new VerificadorSelloSeguridad();
+        ReflectionTestUtils.setField(verificador, "usuarioRepositorio", repositorio);
+        ReflectionTestUtils.setField(verificador, "intervaloRevalidacion", 300_000L);
+
+        AuditoriaSeguridad auditoria = new AuditoriaSeguridad();
+        ReflectionTestUtils.setField(auditoria, "muestreoAceptados", 100);
+        ReflectionTestUtils.setField(auditoria, "limitePorSegundo", 20);
+
+        filtro = new JwtRequestFilter(username -> {
+            throw new UsernameNotFoundException(username);
+        }, jwtUtil, verificador, auditoria);
+        ReflectionTestUtils.setField(filtro, "modoSinEstado", true);
+
+        cabecera = "Bearer " + jwtUtil.generateToken("usuario@example.com", "USER", 42L, "sello");
+    }
+
+    @TearDown
+    public void restaurar() {
+        System.out.close();
+        System.setOut(salidaOriginal);
+        ((LoggerContext) LoggerFactory.getILoggerFactory()).stop();
+    }
+
+    @Benchmark
+    public int getConAuditoria() throws Exception {
+        return filtrar(crearSolicitud());
+    }
+
+    /**
+     * Reproduce las trazas que el filtro escribía con System.out en cada solicitud autenticada.
+     */
+    @Benchmark
+    public int getConTrazasSincronas() throws Exception {
+        MockHttpServletRequest request = crearSolicitud();
+        String authorizationHeader = request.getHeader("Authorization");
+        System.out.println("=== JWT Filter Debug ===");
+        System.out.println("URL solicitada: " + request.getRequestURL());
+        System.out.println("Authorization Header: " + authorizationHeader);
+        System.out.println("Token JWT extraído: " + authorizationHeader.substring(7));
+        System.out.println("Username extraído del token: usuario@example.com");
+        System.out.println("Autoridades del usuario: [ROLE_USER]");
+        System.out.println("Autenticación establecida correctamente");
+        System.out.println("============================");
+        return filtrar(request);
+    }
+
+    private MockHttpServletRequest crearSolicitud() {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/usuarios/42/amigos");
+        request.addHeader("Authorization", cabecera);
+        return request;
+    }
+
+    private int filtrar(MockHttpServletRequest request) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        try {
+            filtro.doFilter(request, response, cadena);
+            return SecurityContextHolder.getContext().getAuthentication() != null ? response.getStatus() : -1;
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+    }
+
+    private static void configurarLogback() throws Exception {
+        LoggerContext contexto = (LoggerContext) LoggerFactory.getILoggerFactory();
+        contexto.reset();
+        JoranConfigurator configurador = new JoranConfigurator();
+        configurador.setContext(contexto);
+        configurador.doConfigure(TrazasFiltroBenchmark.class.getResource("/logback-spring.xml"));
+    }
+}
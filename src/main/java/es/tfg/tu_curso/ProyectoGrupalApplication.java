@@ -5,10 +5,12 @@ import es.tfg.tu_curso.modelo.Usuario;
 import es.tfg.tu_curso.servicio.interfaces.UsuarioServicio;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 import java.util.List;
 
 @SpringBootApplication(scanBasePackages = "es.tfg.tu_curso")
+@EnableScheduling
 public class ProyectoGrupalApplication {
 
     public static void main(String[] args) {
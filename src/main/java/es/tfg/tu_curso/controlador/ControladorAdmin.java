@@ -1,8 +1,13 @@
 package es.tfg.tu_curso.controlador;
 
+import es.tfg.tu_curso.dto.ProgresoBorradoDTO;
+import es.tfg.tu_curso.dto.UsuarioDTO;
 import es.tfg.tu_curso.seguridad.JwtUtil;
+import es.tfg.tu_curso.seguridad.ServicioSaturadoException;
 import es.tfg.tu_curso.seguridad.LoginRequest;
+import es.tfg.tu_curso.servicio.interfaces.BorradoUsuariosServicio;
 import es.tfg.tu_curso.servicio.interfaces.CursoServicio;
+import es.tfg.tu_curso.servicio.interfaces.ImportacionUsuariosServicio;
 import es.tfg.tu_curso.servicio.interfaces.UsuarioServicio;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -11,7 +16,10 @@ import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -22,20 +30,34 @@ import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 
 @Controller
 @RequestMapping("/admin")
 @Tag(name = "Administración", description = "API para la gestión del panel de administración")
 public class ControladorAdmin {
 
+    private static final MediaType TIPO_CSV = MediaType.parseMediaType("text/csv");
+
+    private static final MediaType TIPO_NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
     @Autowired
     private UsuarioServicio usuarioServicio;
 
     @Autowired
     private CursoServicio cursoServicio;
 
+    @Autowired
+    private ImportacionUsuariosServicio importacionUsuarios;
+
+    @Autowired
+    private BorradoUsuariosServicio borradoUsuarios;
+
     @Autowired
     private JwtUtil jwtUtil;
 
@@ -77,23 +99,72 @@ public class ControladorAdmin {
     }
 
     /**
-     * Muestra la lista de usuarios del sistema
+     * Muestra una página de la lista de usuarios del sistema, ordenada por ID
      *
+     * @param despues ID del último usuario de la página anterior; se omite para la primera página
      * @param model Modelo para pasar datos a la vista
      * @return Vista con la lista de usuarios
      */
     @GetMapping("/usuarios")
-    @Operation(summary = "Listar usuarios", description = "Muestra la lista completa de usuarios del sistema")
+    @Operation(summary = "Listar usuarios", description = "Muestra una página de la lista de usuarios del sistema")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Lista de usuarios mostrada correctamente"),
             @ApiResponse(responseCode = "403", description = "Acceso denegado")
     })
     @SecurityRequirement(name = "bearerAuth")
-    public String listarUsuarios(Model model) {
-        model.addAttribute("usuarios", usuarioServicio.obtenerUsuarios());
+    public String listarUsuarios(
+            @Parameter(description = "ID del último usuario de la página anterior")
+            @RequestParam(required = false) Long despues,
+            Model model) {
+        List<UsuarioDTO> usuarios = usuarioServicio.obtenerUsuarios(despues, UsuarioServicio.TAMANO_PAGINA_USUARIOS);
+        model.addAttribute("usuarios", usuarios);
+        model.addAttribute("despues", despues);
+        model.addAttribute("siguiente", usuarios.size() < UsuarioServicio.TAMANO_PAGINA_USUARIOS
+                ? null : usuarios.get(usuarios.size() - 1).getId());
         return "admin/usuarios";
     }
 
+    /**
+     * Importa usuarios desde un fichero CSV o NDJSON enviado como cuerpo de la solicitud.
+     * El fichero se lee a medida que llega, sin guardarlo completo en memoria ni en disco.
+     *
+     * @param tipo    Tipo de contenido del cuerpo: text/csv o application/x-ndjson
+     * @param entrada Contenido del fichero en UTF-8
+     * @return ResponseEntity con el informe del resultado de cada fila
+     */
+    @PostMapping("/usuarios/importar")
+    @ResponseBody
+    @Operation(summary = "Importar usuarios",
+            description = "Crea usuarios a partir de un fichero CSV con cabecera (nombre,email,pass,descripcion,icono) " +
+                    "o NDJSON con un objeto por línea, y devuelve el resultado de cada fila")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Fichero procesado; el informe indica el resultado de cada fila"),
+            @ApiResponse(responseCode = "400", description = "Tipo de contenido no admitido o cabecera CSV incorrecta"),
+            @ApiResponse(responseCode = "403", description = "Acceso denegado")
+    })
+    @SecurityRequirement(name = "bearerAuth")
+    public ResponseEntity<?> importarUsuarios(
+            @RequestHeader(value = HttpHeaders.CONTENT_TYPE, required = false) String tipo,
+            InputStream entrada) throws IOException {
+        MediaType tipoContenido;
+        try {
+            tipoContenido = tipo == null ? null : MediaType.parseMediaType(tipo);
+        } catch (InvalidMediaTypeException e) {
+            tipoContenido = null;
+        }
+        try {
+            if (tipoContenido != null && tipoContenido.isCompatibleWith(TIPO_CSV)) {
+                return ResponseEntity.ok(importacionUsuarios.importarCsv(entrada));
+            }
+            if (tipoContenido != null && tipoContenido.isCompatibleWith(TIPO_NDJSON)) {
+                return ResponseEntity.ok(importacionUsuarios.importarNdjson(entrada));
+            }
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+        return ResponseEntity.badRequest().body(Map.of("error", "El fichero debe enviarse como text/csv o application/x-ndjson"));
+    }
+
     /**
      * Muestra el formulario para cambiar la contraseña de un usuario
      *
@@ -118,23 +189,39 @@ public class ControladorAdmin {
     }
 
     /**
-     * Procesa la eliminación de un usuario
+     * Procesa la eliminación de un usuario y de todos sus datos.
+     * En modo asíncrono, pensado para cuentas con muchos datos, el borrado continúa en segundo plano
+     * y su progreso se consulta en /admin/usuarios/borrados/{tarea}.
      *
      * @param id ID del usuario a eliminar
-     * @return ResponseEntity con el resultado de la operación
+     * @param asincrono true para borrar en segundo plano
+     * @return ResponseEntity con el resultado de la operación, o con el progreso inicial en modo asíncrono
      */
     @PostMapping("/usuarios/{id}/eliminar")
     @ResponseBody
-    @Operation(summary = "Eliminar usuario", description = "Elimina un usuario del sistema")
+    @Operation(summary = "Eliminar usuario", description = "Elimina un usuario del sistema junto con sus datos")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Usuario eliminado correctamente"),
+            @ApiResponse(responseCode = "202", description = "Borrado iniciado en segundo plano"),
             @ApiResponse(responseCode = "404", description = "Usuario no encontrado"),
             @ApiResponse(responseCode = "403", description = "Acceso denegado")
     })
     @SecurityRequirement(name = "bearerAuth")
-    public ResponseEntity<?> eliminarUsuario(@PathVariable Long id) {
+    public ResponseEntity<?> eliminarUsuario(
+            @PathVariable Long id,
+            @Parameter(description = "Borrar en segundo plano, por lotes")
+            @RequestParam(defaultValue = "false") boolean asincrono) {
         try {
-            usuarioServicio.borrar(id);
+            if (asincrono) {
+                Optional<ProgresoBorradoDTO> progreso = borradoUsuarios.iniciarBorrado(id);
+                if (progreso.isEmpty()) {
+                    return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", "Usuario no encontrado"));
+                }
+                return ResponseEntity.status(HttpStatus.ACCEPTED).body(progreso.get());
+            }
+            if (!usuarioServicio.borrar(id)) {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", "Usuario no encontrado"));
+            }
             return ResponseEntity.ok(Map.of("mensaje", "Usuario eliminado correctamente"));
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -142,6 +229,27 @@ public class ControladorAdmin {
         }
     }
 
+    /**
+     * Consulta el progreso de un borrado de usuario en segundo plano.
+     *
+     * @param tarea Identificador de la tarea devuelto al iniciar el borrado
+     * @return ResponseEntity con el estado, el paso actual y las filas borradas
+     */
+    @GetMapping("/usuarios/borrados/{tarea}")
+    @ResponseBody
+    @Operation(summary = "Progreso de borrado", description = "Devuelve el progreso de un borrado de usuario en segundo plano")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Progreso obtenido correctamente"),
+            @ApiResponse(responseCode = "404", description = "Tarea no encontrada"),
+            @ApiResponse(responseCode = "403", description = "Acceso denegado")
+    })
+    @SecurityRequirement(name = "bearerAuth")
+    public ResponseEntity<?> progresoBorrado(@PathVariable String tarea) {
+        return borradoUsuarios.obtenerProgreso(tarea)
+                .<ResponseEntity<?>>map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", "Tarea no encontrada")));
+    }
+
     /**
      * Procesa el cambio de contraseña de un usuario
      *
@@ -169,6 +277,8 @@ public class ControladorAdmin {
 
             usuarioServicio.cambiarContrasena(id, nuevaContrasena);
             return ResponseEntity.ok(Map.of("mensaje", "Contraseña cambiada correctamente"));
+        } catch (ServicioSaturadoException e) {
+            throw e;
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body(Map.of("error", "Error al cambiar la contraseña: " + e.getMessage()));
@@ -0,0 +1,245 @@
+package es.tfg.tu_curso.controlador;
+
+import es.tfg.tu_curso.dto.CosteHashDTO;
+import es.tfg.tu_curso.seguridad.CacheTokensVerificados;
+import es.tfg.tu_curso.seguridad.CalibradorBCrypt;
+import es.tfg.tu_curso.seguridad.EjecutorHashContrasenas;
+import es.tfg.tu_curso.seguridad.FiltroLimiteTasa;
+import es.tfg.tu_curso.seguridad.ListaRevocacion;
+import es.tfg.tu_curso.servicio.interfaces.IndiceAmistadesServicio;
+import es.tfg.tu_curso.servicio.interfaces.IndiceNombresServicio;
+import es.tfg.tu_curso.servicio.interfaces.NotificacionesServicio;
+import es.tfg.tu_curso.servicio.interfaces.SolicitudAmistadServicio;
+import es.tfg.tu_curso.servicio.interfaces.UsuarioServicio;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Controlador REST que expone métricas internas de la aplicación para el panel de administración.
+ * Todos sus endpoints quedan bajo /admin, por lo que requieren rol de administrador.
+ */
+@RestController
+@RequestMapping("/admin/metricas")
+@Tag(name = "Métricas", description = "API para consultar métricas internas de la aplicación")
+public class ControladorMetricas {
+
+    @Autowired
+    private CacheTokensVerificados cacheTokens;
+
+    @Autowired
+    private EjecutorHashContrasenas ejecutorHash;
+
+    @Autowired
+    private CalibradorBCrypt calibradorBCrypt;
+
+    @Autowired
+    private UsuarioServicio usuarioServicio;
+
+    @Autowired
+    private FiltroLimiteTasa filtroLimiteTasa;
+
+    @Autowired
+    private ListaRevocacion listaRevocacion;
+
+    @Autowired
+    private IndiceAmistadesServicio indiceAmistades;
+
+    @Autowired
+    private IndiceNombresServicio indiceNombres;
+
+    @Autowired
+    private NotificacionesServicio notificaciones;
+
+    @Autowired
+    private SolicitudAmistadServicio solicitudAmistadServicio;
+
+    /**
+     * Obtiene las métricas de la caché de tokens verificados.
+     *
+     * @return ResponseEntity con los aciertos, fallos, expulsiones y tamaño actual de la caché
+     */
+    @GetMapping("/tokens")
+    @Operation(summary = "Métricas de la caché de tokens", description = "Devuelve los contadores de la caché de tokens JWT verificados")
+    @ApiResponse(responseCode = "200", description = "Métricas obtenidas correctamente",
+            content = @Content(mediaType = "application/json",
+                    schema = @Schema(type = "object", example = "{\"aciertos\": 120, \"fallos\": 4, \"expulsiones\": 0, \"tamano\": 4}")))
+    @SecurityRequirement(name = "bearerAuth")
+    public ResponseEntity<Map<String, Long>> metricasTokens() {
+        Map<String, Long> response = new LinkedHashMap<>();
+        response.put("aciertos", cacheTokens.getAciertos());
+        response.put("fallos", cacheTokens.getFallos());
+        response.put("expulsiones", cacheTokens.getExpulsiones());
+        response.put("tamano", (long) cacheTokens.getTamano());
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Obtiene las métricas del ejecutor dedicado al cálculo de hashes de contraseñas.
+     *
+     * @return ResponseEntity con la ocupación de la cola, las operaciones completadas y rechazadas y las latencias
+     */
+    @GetMapping("/hash")
+    @Operation(summary = "Métricas del ejecutor de hashes", description = "Devuelve la ocupación y las latencias del ejecutor de BCrypt")
+    @ApiResponse(responseCode = "200", description = "Métricas obtenidas correctamente",
+            content = @Content(mediaType = "application/json",
+                    schema = @Schema(type = "object", example = "{\"hilos\": 4, \"activas\": 1, \"enCola\": 0, \"capacidadCola\": 64, \"completadas\": 250, \"rechazadas\": 0, \"latenciaMediaMs\": 71.4, \"latenciaMaximaMs\": 95.2, \"esperaMediaMs\": 0.3}")))
+    @SecurityRequirement(name = "bearerAuth")
+    public ResponseEntity<Map<String, Number>> metricasHash() {
+        Map<String, Number> response = new LinkedHashMap<>();
+        response.put("hilos", ejecutorHash.getHilos());
+        response.put("activas", ejecutorHash.getActivas());
+        response.put("enCola", ejecutorHash.getEnCola());
+        response.put("capacidadCola", ejecutorHash.getCapacidadCola());
+        response.put("completadas", ejecutorHash.getCompletadas());
+        response.put("rechazadas", ejecutorHash.getRechazadas());
+        response.put("latenciaMediaMs", ejecutorHash.getLatenciaMediaMs());
+        response.put("latenciaMaximaMs", ejecutorHash.getLatenciaMaximaMs());
+        response.put("esperaMediaMs", ejecutorHash.getEsperaMediaMs());
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Obtiene la distribución de costes de los hashes de contraseña almacenados y el coste actual de BCrypt.
+     *
+     * @return ResponseEntity con el coste actual, el tiempo objetivo y estimado, y el número de usuarios por formato y coste
+     */
+    @GetMapping("/costes-hash")
+    @Operation(summary = "Distribución de costes de hash", description = "Devuelve el coste de BCrypt elegido al arrancar y el número de usuarios por formato y coste de su hash")
+    @ApiResponse(responseCode = "200", description = "Informe obtenido correctamente",
+            content = @Content(mediaType = "application/json",
+                    schema = @Schema(type = "object", example = "{\"costeActual\": 11, \"objetivoMs\": 250, \"tiempoEstimadoMs\": 180.5, \"distribucion\": [{\"formato\": \"bcrypt\", \"coste\": 11, \"usuarios\": 40}, {\"formato\": \"bcrypt (sin prefijo)\", \"coste\": 10, \"usuarios\": 12}]}")))
+    @SecurityRequirement(name = "bearerAuth")
+    public ResponseEntity<Map<String, Object>> costesHash() {
+        List<CosteHashDTO> distribucion = usuarioServicio.obtenerDistribucionCostesHash();
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("costeActual", calibradorBCrypt.getCoste());
+        response.put("objetivoMs", calibradorBCrypt.getObjetivoMs());
+        response.put("tiempoEstimadoMs", Math.round(calibradorBCrypt.getTiempoEstimadoMs() * 10) / 10.0);
+        response.put("distribucion", distribucion);
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Obtiene las métricas del limitador de tasa de los endpoints públicos de autenticación.
+     *
+     * @return ResponseEntity con las claves registradas y las solicitudes rechazadas por dirección y por email
+     */
+    @GetMapping("/limite-tasa")
+    @Operation(summary = "Métricas del limitador de tasa", description = "Devuelve las claves activas y las solicitudes rechazadas por dirección y por email")
+    @ApiResponse(responseCode = "200", description = "Métricas obtenidas correctamente",
+            content = @Content(mediaType = "application/json",
+                    schema = @Schema(type = "object", example = "{\"clavesIp\": 12, \"rechazadasIp\": 3, \"clavesEmail\": 20, \"rechazadasEmail\": 7}")))
+    @SecurityRequirement(name = "bearerAuth")
+    public ResponseEntity<Map<String, Long>> metricasLimiteTasa() {
+        Map<String, Long> response = new LinkedHashMap<>();
+        response.put("clavesIp", (long) filtroLimiteTasa.getLimitadorIp().getClaves());
+        response.put("rechazadasIp", filtroLimiteTasa.getLimitadorIp().getRechazadas());
+        response.put("clavesEmail", (long) filtroLimiteTasa.getLimitadorEmail().getClaves());
+        response.put("rechazadasEmail", filtroLimiteTasa.getLimitadorEmail().getRechazadas());
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Obtiene las métricas de la lista de tokens revocados.
+     *
+     * @return ResponseEntity con los tokens revocados vigentes, el tamaño del filtro y sus positivos y falsos positivos
+     */
+    @GetMapping("/revocacion")
+    @Operation(summary = "Métricas de la lista de revocación", description = "Devuelve los tokens revocados vigentes y la eficacia del filtro de Bloom")
+    @ApiResponse(responseCode = "200", description = "Métricas obtenidas correctamente",
+            content = @Content(mediaType = "application/json",
+                    schema = @Schema(type = "object", example = "{\"revocados\": 35, \"bitsFiltro\": 1048576, \"positivosFiltro\": 40, \"falsosPositivosFiltro\": 1}")))
+    @SecurityRequirement(name = "bearerAuth")
+    public ResponseEntity<Map<String, Long>> metricasRevocacion() {
+        Map<String, Long> response = new LinkedHashMap<>();
+        response.put("revocados", (long) listaRevocacion.getRevocados());
+        response.put("bitsFiltro", listaRevocacion.getBitsFiltro());
+        response.put("positivosFiltro", listaRevocacion.getPositivosFiltro());
+        response.put("falsosPositivosFiltro", listaRevocacion.getFalsosPositivosFiltro());
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Obtiene el tamaño del índice de amistades en memoria.
+     *
+     * @return ResponseEntity con los usuarios con amigos y el número de entradas del índice
+     */
+    @GetMapping("/amistades")
+    @Operation(summary = "Métricas del índice de amistades", description = "Devuelve el número de usuarios con amigos y de entradas del índice en memoria")
+    @ApiResponse(responseCode = "200", description = "Métricas obtenidas correctamente",
+            content = @Content(mediaType = "application/json",
+                    schema = @Schema(type = "object", example = "{\"usuarios\": 120, \"entradas\": 860}")))
+    @SecurityRequirement(name = "bearerAuth")
+    public ResponseEntity<Map<String, Long>> metricasAmistades() {
+        Map<String, Long> response = new LinkedHashMap<>();
+        response.put("usuarios", (long) indiceAmistades.contarUsuarios());
+        response.put("entradas", indiceAmistades.contarEntradas());
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Obtiene el tamaño del índice de nombres usado en la búsqueda de usuarios.
+     *
+     * @return ResponseEntity con los usuarios indexados y el número de trigramas distintos
+     */
+    @GetMapping("/busqueda")
+    @Operation(summary = "Métricas del índice de nombres", description = "Devuelve el número de usuarios y de trigramas del índice de búsqueda en memoria")
+    @ApiResponse(responseCode = "200", description = "Métricas obtenidas correctamente",
+            content = @Content(mediaType = "application/json",
+                    schema = @Schema(type = "object", example = "{\"usuarios\": 120, \"trigramas\": 1450}")))
+    @SecurityRequirement(name = "bearerAuth")
+    public ResponseEntity<Map<String, Long>> metricasBusqueda() {
+        Map<String, Long> response = new LinkedHashMap<>();
+        response.put("usuarios", (long) indiceNombres.contarUsuarios());
+        response.put("trigramas", (long) indiceNombres.contarTrigramas());
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Obtiene las métricas del canal SSE de notificaciones.
+     *
+     * @return ResponseEntity con las conexiones abiertas y los eventos descartados por buffers llenos
+     */
+    @GetMapping("/notificaciones")
+    @Operation(summary = "Métricas de notificaciones", description = "Devuelve las conexiones SSE abiertas y los eventos descartados por tener lleno el buffer de su conexión")
+    @ApiResponse(responseCode = "200", description = "Métricas obtenidas correctamente",
+            content = @Content(mediaType = "application/json",
+                    schema = @Schema(type = "object", example = "{\"conexiones\": 42, \"descartados\": 0}")))
+    @SecurityRequirement(name = "bearerAuth")
+    public ResponseEntity<Map<String, Long>> metricasNotificaciones() {
+        Map<String, Long> response = new LinkedHashMap<>();
+        response.put("conexiones", (long) notificaciones.contarSuscriptores());
+        response.put("descartados", notificaciones.getDescartados());
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Obtiene las métricas de la purga de solicitudes de amistad caducadas.
+     *
+     * @return ResponseEntity con el número de solicitudes caducadas eliminadas desde el arranque
+     */
+    @GetMapping("/solicitudes")
+    @Operation(summary = "Métricas de solicitudes de amistad", description = "Devuelve el número de solicitudes caducadas eliminadas desde el arranque")
+    @ApiResponse(responseCode = "200", description = "Métricas obtenidas correctamente",
+            content = @Content(mediaType = "application/json",
+                    schema = @Schema(type = "object", example = "{\"purgadas\": 1250}")))
+    @SecurityRequirement(name = "bearerAuth")
+    public ResponseEntity<Map<String, Long>> metricasSolicitudes() {
+        Map<String, Long> response = new LinkedHashMap<>();
+        response.put("purgadas", solicitudAmistadServicio.getSolicitudesPurgadas());
+        return ResponseEntity.ok(response);
+    }
+}
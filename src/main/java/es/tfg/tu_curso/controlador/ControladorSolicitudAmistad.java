@@ -1,7 +1,12 @@
 package es.tfg.tu_curso.controlador;
 
+import es.tfg.tu_curso.dto.CredencialesDTO;
+import es.tfg.tu_curso.dto.NotificacionSolicitudDTO;
 import es.tfg.tu_curso.dto.SolicitudAmistadDTO;
+import es.tfg.tu_curso.seguridad.UsuarioAutenticado;
+import es.tfg.tu_curso.servicio.interfaces.NotificacionesServicio;
 import es.tfg.tu_curso.servicio.interfaces.SolicitudAmistadServicio;
+import es.tfg.tu_curso.servicio.interfaces.UsuarioServicio;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
@@ -11,13 +16,22 @@ import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * Controlador REST para gestionar las solicitudes de amistad
@@ -31,6 +45,12 @@ public class ControladorSolicitudAmistad {
     @Autowired
     private SolicitudAmistadServicio solicitudAmistadServicio;
 
+    @Autowired
+    private NotificacionesServicio notificacionesServicio;
+
+    @Autowired
+    private UsuarioServicio usuarioServicio;
+
     /**
      * Envía una solicitud de amistad desde un usuario a otro
      *
@@ -103,41 +123,99 @@ public class ControladorSolicitudAmistad {
     }
 
     /**
-     * Obtiene todas las solicitudes de amistad recibidas por un usuario
+     * Acepta en una sola operación varias solicitudes de amistad recibidas por el usuario autenticado.
+     *
+     * @param principal    Usuario autenticado
+     * @param solicitudIds IDs de las solicitudes a aceptar
+     * @return IDs de las solicitudes aceptadas e ignoradas por no existir o no haberlas recibido el usuario
+     */
+    @PostMapping("/aceptar")
+    @Operation(summary = "Aceptar varias solicitudes", description = "Acepta en una sola transacción varias solicitudes recibidas por el usuario autenticado")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Solicitudes procesadas",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(type = "object", example = "{\"procesadas\": [12, 15], \"ignoradas\": [99]}"))),
+            @ApiResponse(responseCode = "400", description = "Lista vacía o demasiado larga", content = @Content)
+    })
+    @SecurityRequirement(name = "bearerAuth")
+    public ResponseEntity<Map<String, Object>> aceptarSolicitudes(
+            @AuthenticationPrincipal UserDetails principal,
+            @RequestBody List<Long> solicitudIds) {
+        return procesarLote(principal, solicitudIds, true);
+    }
+
+    /**
+     * Rechaza en una sola operación varias solicitudes de amistad recibidas por el usuario autenticado.
+     *
+     * @param principal    Usuario autenticado
+     * @param solicitudIds IDs de las solicitudes a rechazar
+     * @return IDs de las solicitudes rechazadas e ignoradas por no existir o no haberlas recibido el usuario
+     */
+    @PostMapping("/rechazar")
+    @Operation(summary = "Rechazar varias solicitudes", description = "Rechaza en una sola transacción varias solicitudes recibidas por el usuario autenticado")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Solicitudes procesadas",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(type = "object", example = "{\"procesadas\": [12, 15], \"ignoradas\": [99]}"))),
+            @ApiResponse(responseCode = "400", description = "Lista vacía o demasiado larga", content = @Content)
+    })
+    @SecurityRequirement(name = "bearerAuth")
+    public ResponseEntity<Map<String, Object>> rechazarSolicitudes(
+            @AuthenticationPrincipal UserDetails principal,
+            @RequestBody List<Long> solicitudIds) {
+        return procesarLote(principal, solicitudIds, false);
+    }
+
+    /**
+     * Obtiene una página de las solicitudes de amistad recibidas por un usuario, ordenadas por ID.
+     * Si la página está completa, la cabecera Link indica la URL de la siguiente.
      *
      * @param receptorId ID del usuario receptor
+     * @param despues ID de la última solicitud de la página anterior; se omite para la primera página
+     * @param tamano Número de solicitudes por página
      * @return Lista de solicitudes recibidas
      */
     @GetMapping("/recibidas/{receptorId}")
-    @Operation(summary = "Obtener solicitudes recibidas", description = "Retorna todas las solicitudes de amistad recibidas por un usuario")
+    @Operation(summary = "Obtener solicitudes recibidas", description = "Retorna una página de las solicitudes de amistad recibidas por un usuario, ordenadas por ID")
     @ApiResponse(responseCode = "200", description = "Lista de solicitudes obtenida con éxito",
             content = @Content(mediaType = "application/json",
                     schema = @Schema(implementation = SolicitudAmistadDTO.class)))
     @SecurityRequirement(name = "bearerAuth")
     public ResponseEntity<List<SolicitudAmistadDTO>> obtenerSolicitudesRecibidas(
-            @Parameter(description = "ID del usuario receptor") @PathVariable Long receptorId) {
+            @Parameter(description = "ID del usuario receptor") @PathVariable Long receptorId,
+            @Parameter(description = "ID de la última solicitud de la página anterior")
+            @RequestParam(required = false) Long despues,
+            @Parameter(description = "Número de solicitudes por página (máximo " + SolicitudAmistadServicio.MAX_TAMANO_PAGINA_SOLICITUDES + ")")
+            @RequestParam(defaultValue = "" + SolicitudAmistadServicio.TAMANO_PAGINA_SOLICITUDES) int tamano) {
 
-        List<SolicitudAmistadDTO> solicitudes = solicitudAmistadServicio.obtenerSolicitudesRecibidasDTO(receptorId);
-        return new ResponseEntity<>(solicitudes, HttpStatus.OK);
+        List<SolicitudAmistadDTO> solicitudes = solicitudAmistadServicio.obtenerSolicitudesRecibidasDTO(receptorId, despues, tamano);
+        return conEnlaceSiguiente(solicitudes, tamano);
     }
 
     /**
-     * Obtiene todas las solicitudes de amistad enviadas por un usuario
+     * Obtiene una página de las solicitudes de amistad enviadas por un usuario, ordenadas por ID.
+     * Si la página está completa, la cabecera Link indica la URL de la siguiente.
      *
      * @param emisorId ID del usuario emisor
+     * @param despues ID de la última solicitud de la página anterior; se omite para la primera página
+     * @param tamano Número de solicitudes por página
      * @return Lista de solicitudes enviadas
      */
     @GetMapping("/enviadas/{emisorId}")
-    @Operation(summary = "Obtener solicitudes enviadas", description = "Retorna todas las solicitudes de amistad enviadas por un usuario")
+    @Operation(summary = "Obtener solicitudes enviadas", description = "Retorna una página de las solicitudes de amistad enviadas por un usuario, ordenadas por ID")
     @ApiResponse(responseCode = "200", description = "Lista de solicitudes obtenida con éxito",
             content = @Content(mediaType = "application/json",
                     schema = @Schema(implementation = SolicitudAmistadDTO.class)))
     @SecurityRequirement(name = "bearerAuth")
     public ResponseEntity<List<SolicitudAmistadDTO>> obtenerSolicitudesEnviadas(
-            @Parameter(description = "ID del usuario emisor") @PathVariable Long emisorId) {
+            @Parameter(description = "ID del usuario emisor") @PathVariable Long emisorId,
+            @Parameter(description = "ID de la última solicitud de la página anterior")
+            @RequestParam(required = false) Long despues,
+            @Parameter(description = "Número de solicitudes por página (máximo " + SolicitudAmistadServicio.MAX_TAMANO_PAGINA_SOLICITUDES + ")")
+            @RequestParam(defaultValue = "" + SolicitudAmistadServicio.TAMANO_PAGINA_SOLICITUDES) int tamano) {
 
-        List<SolicitudAmistadDTO> solicitudes = solicitudAmistadServicio.obtenerSolicitudesEnviadasDTO(emisorId);
-        return new ResponseEntity<>(solicitudes, HttpStatus.OK);
+        List<SolicitudAmistadDTO> solicitudes = solicitudAmistadServicio.obtenerSolicitudesEnviadasDTO(emisorId, despues, tamano);
+        return conEnlaceSiguiente(solicitudes, tamano);
     }
 
     /**
@@ -183,4 +261,83 @@ public class ControladorSolicitudAmistad {
         response.put("cantidadSolicitudes", cantidadSolicitudes);
         return ResponseEntity.ok(response);
     }
-}
\ No newline at end of file
+
+    /**
+     * Abre un canal de eventos enviados por el servidor (SSE) con el que el usuario autenticado recibe un evento
+     * "solicitud" cada vez que envía o recibe una solicitud de amistad, o se acepta o rechaza una en la que participa.
+     * Cada evento incluye las solicitudes pendientes del receptor, por lo que el cliente no necesita consultar
+     * el contador. Mientras no hay eventos se envía un comentario de latido periódico.
+     *
+     * @param principal Usuario autenticado
+     * @return Emisor SSE de la conexión
+     */
+    @GetMapping(value = "/eventos", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(summary = "Notificaciones de solicitudes", description = "Abre un canal SSE con las notificaciones de solicitudes de amistad del usuario autenticado")
+    @ApiResponse(responseCode = "200", description = "Canal abierto",
+            content = @Content(mediaType = MediaType.TEXT_EVENT_STREAM_VALUE,
+                    schema = @Schema(implementation = NotificacionSolicitudDTO.class)))
+    @SecurityRequirement(name = "bearerAuth")
+    public ResponseEntity<SseEmitter> suscribirNotificaciones(@AuthenticationPrincipal UserDetails principal) {
+        Long usuarioId = idUsuarioAutenticado(principal);
+        if (usuarioId == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CACHE_CONTROL, "no-cache")
+                .header("X-Accel-Buffering", "no")
+                .body(notificacionesServicio.suscribir(usuarioId));
+    }
+
+    /**
+     * Construye la respuesta con una página de solicitudes y, si la página está completa,
+     * la cabecera Link con la URL de la siguiente.
+     */
+    private ResponseEntity<List<SolicitudAmistadDTO>> conEnlaceSiguiente(List<SolicitudAmistadDTO> solicitudes, int tamano) {
+        ResponseEntity.BodyBuilder respuesta = ResponseEntity.ok();
+        if (!solicitudes.isEmpty() && solicitudes.size() >= Math.min(tamano, SolicitudAmistadServicio.MAX_TAMANO_PAGINA_SOLICITUDES)) {
+            String siguiente = ServletUriComponentsBuilder.fromCurrentRequest()
+                    .replaceQueryParam("despues", solicitudes.get(solicitudes.size() - 1).getId())
+                    .toUriString();
+            respuesta.header(HttpHeaders.LINK, "<" + siguiente + ">; rel=\"next\"");
+        }
+        return respuesta.body(solicitudes);
+    }
+
+    /**
+     * Acepta o rechaza un lote de solicitudes del usuario autenticado y construye la respuesta
+     * con las solicitudes procesadas y las ignoradas.
+     */
+    private ResponseEntity<Map<String, Object>> procesarLote(UserDetails principal, List<Long> solicitudIds, boolean aceptar) {
+        if (solicitudIds == null || solicitudIds.isEmpty() || solicitudIds.size() > SolicitudAmistadServicio.MAX_SOLICITUDES_LOTE) {
+            return ResponseEntity.badRequest().body(Map.of("error",
+                    "Debe indicar entre 1 y " + SolicitudAmistadServicio.MAX_SOLICITUDES_LOTE + " solicitudes"));
+        }
+        Long receptorId = idUsuarioAutenticado(principal);
+        if (receptorId == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        Set<Long> ids = new LinkedHashSet<>(solicitudIds);
+        ids.remove(null);
+        List<Long> procesadas = aceptar
+                ? solicitudAmistadServicio.aceptarSolicitudes(receptorId, ids)
+                : solicitudAmistadServicio.rechazarSolicitudes(receptorId, ids);
+        ids.removeAll(procesadas);
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("procesadas", procesadas);
+        response.put("ignoradas", ids);
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Obtiene el ID del usuario autenticado: del principal si se construyó a partir del token
+     * o, si no, buscándolo por su email.
+     *
+     * @return ID del usuario, o null si ya no existe
+     */
+    private Long idUsuarioAutenticado(UserDetails principal) {
+        if (principal instanceof UsuarioAutenticado autenticado) {
+            return autenticado.getId();
+        }
+        return usuarioServicio.obtenerCredenciales(principal.getUsername()).map(CredencialesDTO::getId).orElse(null);
+    }
+}
@@ -1,17 +1,28 @@
 package es.tfg.tu_curso.controlador;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import es.tfg.tu_curso.dto.AmigosComunesDTO;
+import es.tfg.tu_curso.dto.CredencialesDTO;
+import es.tfg.tu_curso.dto.SugerenciaDTO;
 import es.tfg.tu_curso.dto.UsuarioDTO;
 import es.tfg.tu_curso.modelo.Usuario;
 import es.tfg.tu_curso.seguridad.JwtUtil;
+import es.tfg.tu_curso.seguridad.ServicioSaturadoException;
+import es.tfg.tu_curso.seguridad.TokenEmitido;
 import es.tfg.tu_curso.servicio.interfaces.UsuarioServicio;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
-import org.springframework.security.core.userdetails.UserDetails;
-import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -22,6 +33,8 @@ import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.*;
 
 /**
@@ -35,6 +48,21 @@ import java.util.*;
 @Tag(name = "Usuario", description = "API para la gestión de usuarios y amigos")
 public class ControladorUsuario {
 
+    /**
+     * Número máximo de usuarios que se pueden comprobar en una verificación de amistades en lote.
+     */
+    private static final int MAX_VERIFICACIONES = 500;
+
+    /**
+     * Tipo de contenido de la exportación de usuarios, con un objeto JSON por línea.
+     */
+    private static final String MEDIA_TYPE_NDJSON = "application/x-ndjson";
+
+    /**
+     * Número de usuarios exportados tras los que se envía al cliente lo escrito hasta el momento.
+     */
+    private static final int LINEAS_POR_ENVIO = 500;
+
     @Autowired
     private UsuarioServicio usuarioServicio;
 
@@ -46,7 +74,7 @@ public class ControladorUsuario {
     private PasswordEncoder passwordEncoder;
 
     @Autowired
-    private UserDetailsService userDetailsService;
+    private ObjectMapper objectMapper;
 
     /**
      * Crea un nuevo usuario en el sistema.
@@ -101,6 +129,8 @@ public class ControladorUsuario {
             } else {
                 return new ResponseEntity<>("No se pudo crear el administrador", HttpStatus.BAD_REQUEST);
             }
+        } catch (ServicioSaturadoException e) {
+            throw e;
         } catch (Exception e) {
             return new ResponseEntity<>("Error al crear el administrador: " + e.getMessage(),
                     HttpStatus.INTERNAL_SERVER_ERROR);
@@ -141,6 +171,8 @@ public class ControladorUsuario {
             } else {
                 return new ResponseEntity<>("No se pudo crear el administrador", HttpStatus.BAD_REQUEST);
             }
+        } catch (ServicioSaturadoException e) {
+            throw e;
         } catch (Exception e) {
             return new ResponseEntity<>("Error al crear el administrador: " + e.getMessage(),
                     HttpStatus.BAD_REQUEST);
@@ -177,18 +209,70 @@ public class ControladorUsuario {
     }
 
     /**
-     * Obtiene la lista de todos los usuarios registrados en el sistema.
+     * Obtiene una página del listado de usuarios registrados, ordenado por ID.
+     * Si la página está completa, la cabecera Link indica la URL de la siguiente.
      *
+     * @param despues ID del último usuario de la página anterior; se omite para la primera página
+     * @param tamano  Número de usuarios por página
      * @return ResponseEntity con la lista de usuarios en formato DTO
      */
     @GetMapping
-    @Operation(summary = "Obtener usuarios", description = "Recupera la lista de todos los usuarios registrados")
-    @ApiResponse(responseCode = "200", description = "Lista de usuarios recuperada correctamente",
+    @Operation(summary = "Obtener usuarios", description = "Recupera una página de los usuarios registrados, ordenados por ID")
+    @ApiResponse(responseCode = "200", description = "Página de usuarios recuperada correctamente",
             content = @Content(mediaType = "application/json",
                     schema = @Schema(implementation = UsuarioDTO.class)))
     @SecurityRequirement(name = "bearerAuth")
-    public ResponseEntity<List<UsuarioDTO>> obtenerUsuarios() {
-        return new ResponseEntity<>(usuarioServicio.obtenerUsuarios(), HttpStatus.OK);
+    public ResponseEntity<List<UsuarioDTO>> obtenerUsuarios(
+            @Parameter(description = "ID del último usuario de la página anterior")
+            @RequestParam(required = false) Long despues,
+            @Parameter(description = "Número de usuarios por página (máximo " + UsuarioServicio.MAX_TAMANO_PAGINA_USUARIOS + ")")
+            @RequestParam(defaultValue = "" + UsuarioServicio.TAMANO_PAGINA_USUARIOS) int tamano) {
+        List<UsuarioDTO> usuarios = usuarioServicio.obtenerUsuarios(despues, tamano);
+        ResponseEntity.BodyBuilder respuesta = ResponseEntity.ok();
+        if (!usuarios.isEmpty() && usuarios.size() >= Math.min(tamano, UsuarioServicio.MAX_TAMANO_PAGINA_USUARIOS)) {
+            String siguiente = ServletUriComponentsBuilder.fromCurrentRequest()
+                    .replaceQueryParam("despues", usuarios.get(usuarios.size() - 1).getId())
+                    .toUriString();
+            respuesta.header(HttpHeaders.LINK, "<" + siguiente + ">; rel=\"next\"");
+        }
+        return respuesta.body(usuarios);
+    }
+
+    /**
+     * Exporta todos los usuarios registrados en formato NDJSON (un objeto JSON por línea), ordenados por ID.
+     * Cada usuario se escribe en la respuesta a medida que se lee de la base de datos, por lo que la memoria
+     * usada no depende del número de usuarios.
+     *
+     * @return ResponseEntity con el cuerpo que escribe los usuarios
+     */
+    @GetMapping(produces = MEDIA_TYPE_NDJSON)
+    @Operation(summary = "Exportar usuarios", description = "Escribe todos los usuarios registrados en formato NDJSON a medida que se leen")
+    @ApiResponse(responseCode = "200", description = "Usuarios exportados correctamente",
+            content = @Content(mediaType = MEDIA_TYPE_NDJSON,
+                    schema = @Schema(implementation = UsuarioDTO.class)))
+    @SecurityRequirement(name = "bearerAuth")
+    public ResponseEntity<StreamingResponseBody> exportarUsuarios() {
+        ObjectWriter escritor = objectMapper.writerFor(UsuarioDTO.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        StreamingResponseBody cuerpo = salida -> {
+            try (JsonGenerator generador = objectMapper.getFactory().createGenerator(salida)) {
+                generador.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+                generador.setRootValueSeparator(null);
+                int[] escritos = {0};
+                usuarioServicio.recorrerUsuarios(usuario -> {
+                    try {
+                        escritor.writeValue(generador, usuario);
+                        generador.writeRaw('\n');
+                        if (++escritos[0] % LINEAS_POR_ENVIO == 0) {
+                            generador.flush();
+                        }
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.parseMediaType(MEDIA_TYPE_NDJSON)).body(cuerpo);
     }
 
     /**
@@ -208,25 +292,29 @@ public class ControladorUsuario {
     public ResponseEntity<Map<String, String>> login(
             @Parameter(description = "Credenciales del usuario", required = true)
             @RequestBody Usuario loginRequest) {
-        UserDetails userDetails = userDetailsService.loadUserByUsername(loginRequest.getEmail());
-        if (passwordEncoder.matches(loginRequest.getPass(), userDetails.getPassword())) {
-            String token = jwtUtil.generateToken(loginRequest.getEmail());
-            Date expiration = jwtUtil.getExpirationDateFromToken(token); // Método para obtener la fecha de expiración
+        // Id, hash, rol y sello del usuario en una única consulta
+        Optional<CredencialesDTO> credenciales = usuarioServicio.obtenerCredenciales(loginRequest.getEmail());
+        if (credenciales.isPresent() && passwordEncoder.matches(loginRequest.getPass(), credenciales.get().getPass())) {
+            CredencialesDTO usuario = credenciales.get();
+
+            // Si el hash se calculó con otro coste o sin prefijo de algoritmo, se recalcula con el actual
+            usuarioServicio.actualizarHashSiObsoleto(usuario.getId(), usuario.getPass(), loginRequest.getPass());
 
-            // Obtener el usuario desde el servicio
-            Usuario usuario = usuarioServicio.obtenerPorEmail(loginRequest.getEmail());
+            // El token incluye rol, id y sello para que el filtro JWT no tenga que consultar la base de datos
+            TokenEmitido token = jwtUtil.emitirToken(loginRequest.getEmail(), usuario.getRol(),
+                    usuario.getId(), usuario.getSelloSeguridad());
 
             Map<String, String> response = new HashMap<>();
             response.put("id", usuario.getId().toString()); // Agregar el ID del usuario
-            response.put("token", token);
-            response.put("expiration", expiration.toString());
+            response.put("token", token.getToken());
+            response.put("expiration", token.getExpiracion().toString());
             return ResponseEntity.ok(response);
         }
         return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Collections.singletonMap("error", "Credenciales inválidas"));
     }
 
     /**
-     * Refresca un token JWT válido antes de que expire.
+     * Refresca un token JWT válido antes de que expire. El token actual queda revocado.
      *
      * @param token Token JWT actual en el encabezado de autorización
      * @return ResponseEntity con el nuevo token JWT
@@ -237,7 +325,7 @@ public class ControladorUsuario {
             @ApiResponse(responseCode = "200", description = "Token refrescado correctamente",
                     content = @Content(mediaType = "application/json",
                             schema = @Schema(type = "string", example = "eyJhbGciOiJIUzI1NiJ9..."))),
-            @ApiResponse(responseCode = "401", description = "Token inválido o expirado")
+            @ApiResponse(responseCode = "401", description = "Token inválido, expirado o ya refrescado")
     })
     @SecurityRequirement(name = "bearerAuth")
     public ResponseEntity<String> refreshToken(
@@ -247,6 +335,28 @@ public class ControladorUsuario {
         return ResponseEntity.ok(newToken);
     }
 
+    /**
+     * Cierra la sesión revocando el token JWT con el que se realiza la solicitud.
+     *
+     * @param token Token JWT actual en el encabezado de autorización
+     * @return ResponseEntity con mensaje de confirmación
+     */
+    @PostMapping("/logout")
+    @Operation(summary = "Cerrar sesión", description = "Revoca el token JWT actual, que deja de aceptarse aunque no haya expirado")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Sesión cerrada correctamente",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(type = "object", example = "{\"mensaje\": \"Sesión cerrada correctamente\"}"))),
+            @ApiResponse(responseCode = "401", description = "Token inválido, expirado o ya revocado")
+    })
+    @SecurityRequirement(name = "bearerAuth")
+    public ResponseEntity<Map<String, String>> logout(
+            @Parameter(description = "Token JWT actual", required = true)
+            @RequestHeader("Authorization") String token) {
+        jwtUtil.revocarToken(token);
+        return ResponseEntity.ok(Collections.singletonMap("mensaje", "Sesión cerrada correctamente"));
+    }
+
     // ENDPOINTS PARA GESTIÓN DE AMIGOS
 
     /**
@@ -326,10 +436,11 @@ public class ControladorUsuario {
      *
      * @param usuarioId ID del usuario actual
      * @param nombre Nombre a buscar
+     * @param limite Número máximo de usuarios devueltos
      * @return ResponseEntity con lista de usuarios que coinciden con la búsqueda
      */
     @GetMapping("/{usuarioId}/buscar-amigos")
-    @Operation(summary = "Buscar usuarios para agregar", description = "Busca usuarios que no son amigos y coinciden con el nombre")
+    @Operation(summary = "Buscar usuarios para agregar", description = "Busca usuarios que no son amigos y cuyo nombre contiene el texto, sin distinguir mayúsculas ni acentos")
     @ApiResponse(responseCode = "200", description = "Búsqueda realizada correctamente",
             content = @Content(mediaType = "application/json",
                     schema = @Schema(implementation = UsuarioDTO.class)))
@@ -338,8 +449,58 @@ public class ControladorUsuario {
             @Parameter(description = "ID del usuario actual", required = true)
             @PathVariable Long usuarioId,
             @Parameter(description = "Nombre a buscar", required = true)
-            @RequestParam String nombre) {
-        return new ResponseEntity<>(usuarioServicio.buscarUsuariosParaAgregar(usuarioId, nombre), HttpStatus.OK);
+            @RequestParam String nombre,
+            @Parameter(description = "Número máximo de usuarios (hasta 50)")
+            @RequestParam(defaultValue = "20") int limite) {
+        return new ResponseEntity<>(usuarioServicio.buscarUsuariosParaAgregar(usuarioId, nombre, limite), HttpStatus.OK);
+    }
+
+    /**
+     * Obtiene sugerencias de amistad ordenadas por el número de amigos en común.
+     *
+     * @param usuarioId ID del usuario actual
+     * @param limite Número máximo de sugerencias
+     * @return ResponseEntity con la lista de usuarios sugeridos y sus amigos en común
+     */
+    @GetMapping("/{usuarioId}/sugerencias")
+    @Operation(summary = "Sugerencias de amistad", description = "Devuelve los amigos de amigos que aún no son amigos del usuario, ordenados por el número de amigos en común")
+    @ApiResponse(responseCode = "200", description = "Sugerencias obtenidas correctamente",
+            content = @Content(mediaType = "application/json",
+                    schema = @Schema(implementation = SugerenciaDTO.class)))
+    @SecurityRequirement(name = "bearerAuth")
+    public ResponseEntity<List<SugerenciaDTO>> sugerirAmigos(
+            @Parameter(description = "ID del usuario actual", required = true)
+            @PathVariable Long usuarioId,
+            @Parameter(description = "Número máximo de sugerencias (hasta 50)")
+            @RequestParam(defaultValue = "10") int limite) {
+        return new ResponseEntity<>(usuarioServicio.sugerirAmigos(usuarioId, limite), HttpStatus.OK);
+    }
+
+    /**
+     * Obtiene los amigos en común de dos usuarios, paginados y ordenados por ID.
+     *
+     * @param usuarioId ID del primer usuario
+     * @param otroId ID del segundo usuario
+     * @param pagina Número de página, empezando en 0
+     * @param tamano Número de amigos por página
+     * @return ResponseEntity con el número total de amigos en común y los de la página solicitada
+     */
+    @GetMapping("/{usuarioId}/amigos/comunes/{otroId}")
+    @Operation(summary = "Amigos en común", description = "Devuelve el número de amigos en común de dos usuarios y una página de ellos")
+    @ApiResponse(responseCode = "200", description = "Amigos en común obtenidos correctamente",
+            content = @Content(mediaType = "application/json",
+                    schema = @Schema(implementation = AmigosComunesDTO.class)))
+    @SecurityRequirement(name = "bearerAuth")
+    public ResponseEntity<AmigosComunesDTO> obtenerAmigosComunes(
+            @Parameter(description = "ID del primer usuario", required = true)
+            @PathVariable Long usuarioId,
+            @Parameter(description = "ID del segundo usuario", required = true)
+            @PathVariable Long otroId,
+            @Parameter(description = "Número de página, empezando en 0")
+            @RequestParam(defaultValue = "0") int pagina,
+            @Parameter(description = "Número de amigos por página (hasta 100)")
+            @RequestParam(defaultValue = "20") int tamano) {
+        return new ResponseEntity<>(usuarioServicio.obtenerAmigosComunes(usuarioId, otroId, pagina, tamano), HttpStatus.OK);
     }
 
     /**
@@ -366,6 +527,34 @@ public class ControladorUsuario {
         return ResponseEntity.ok(response);
     }
 
+    /**
+     * Verifica en una sola solicitud si varios usuarios son amigos de un usuario.
+     *
+     * @param usuarioId ID del usuario
+     * @param candidatos IDs de los usuarios a comprobar
+     * @return ResponseEntity con el estado de amistad de cada candidato
+     */
+    @PostMapping("/{usuarioId}/amigos/verificar")
+    @Operation(summary = "Verificar amistades en lote", description = "Indica para cada ID recibido si es amigo del usuario")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Verificación realizada correctamente",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(type = "object", example = "{\"2\": true, \"7\": false}"))),
+            @ApiResponse(responseCode = "400", description = "Lista vacía o con más IDs de los permitidos")
+    })
+    @SecurityRequirement(name = "bearerAuth")
+    public ResponseEntity<?> verificarAmistades(
+            @Parameter(description = "ID del usuario", required = true)
+            @PathVariable Long usuarioId,
+            @Parameter(description = "IDs de los usuarios a comprobar (hasta 500)", required = true)
+            @RequestBody List<Long> candidatos) {
+        if (candidatos == null || candidatos.isEmpty() || candidatos.size() > MAX_VERIFICACIONES) {
+            return ResponseEntity.badRequest().body(Map.of("error",
+                    "Se deben indicar entre 1 y " + MAX_VERIFICACIONES + " usuarios"));
+        }
+        return ResponseEntity.ok(usuarioServicio.verificarAmistades(usuarioId, candidatos));
+    }
+
     /**
      * Obtiene el número de amigos de un usuario.
      *
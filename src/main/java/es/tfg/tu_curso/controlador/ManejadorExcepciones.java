@@ -0,0 +1,44 @@
+package es.tfg.tu_curso.controlador;
+
+import es.tfg.tu_curso.seguridad.ServicioSaturadoException;
+import es.tfg.tu_curso.seguridad.TokenInvalidoException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Manejador global de excepciones de los controladores REST.
+ */
+@RestControllerAdvice
+public class ManejadorExcepciones {
+
+    /**
+     * Responde con 503 y la cabecera Retry-After cuando una operación se rechaza por saturación.
+     *
+     * @param e Excepción lanzada
+     * @return ResponseEntity con el mensaje de error
+     */
+    @ExceptionHandler(ServicioSaturadoException.class)
+    public ResponseEntity<Map<String, String>> servicioSaturado(ServicioSaturadoException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getReintentarEn()))
+                .body(Collections.singletonMap("error", e.getMessage()));
+    }
+
+    /**
+     * Responde con 401 cuando el token recibido por un endpoint no es válido o ya ha sido revocado.
+     *
+     * @param e Excepción lanzada
+     * @return ResponseEntity con el mensaje de error
+     */
+    @ExceptionHandler(TokenInvalidoException.class)
+    public ResponseEntity<Map<String, String>> tokenInvalido(TokenInvalidoException e) {
+        return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                .body(Collections.singletonMap("error", e.getMessage()));
+    }
+}
@@ -0,0 +1,53 @@
+package es.tfg.tu_curso.dto;
+
+import java.util.List;
+
+public class AmigosComunesDTO {
+
+    private int total;
+    private int pagina;
+    private int tamano;
+    private List<UsuarioDTO> amigos;
+
+    public AmigosComunesDTO(int total, int pagina, int tamano, List<UsuarioDTO> amigos) {
+        this.total = total;
+        this.pagina = pagina;
+        this.tamano = tamano;
+        this.amigos = amigos;
+    }
+
+    public AmigosComunesDTO() {}
+
+    // Getters and Setters
+    public int getTotal() {
+        return total;
+    }
+
+    public void setTotal(int total) {
+        this.total = total;
+    }
+
+    public int getPagina() {
+        return pagina;
+    }
+
+    public void setPagina(int pagina) {
+        this.pagina = pagina;
+    }
+
+    public int getTamano() {
+        return tamano;
+    }
+
+    public void setTamano(int tamano) {
+        this.tamano = tamano;
+    }
+
+    public List<UsuarioDTO> getAmigos() {
+        return amigos;
+    }
+
+    public void setAmigos(List<UsuarioDTO> amigos) {
+        this.amigos = amigos;
+    }
+}
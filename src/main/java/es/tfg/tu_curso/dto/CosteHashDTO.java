@@ -0,0 +1,44 @@
+package es.tfg.tu_curso.dto;
+
+/**
+ * Número de usuarios cuyo hash de contraseña tiene un formato y coste determinados.
+ */
+public class CosteHashDTO {
+
+    private String formato;
+    private Integer coste;
+    private long usuarios;
+
+    public CosteHashDTO(String formato, Integer coste, long usuarios) {
+        this.formato = formato;
+        this.coste = coste;
+        this.usuarios = usuarios;
+    }
+
+    public CosteHashDTO() {}
+
+    // Getters and Setters
+    public String getFormato() {
+        return formato;
+    }
+
+    public void setFormato(String formato) {
+        this.formato = formato;
+    }
+
+    public Integer getCoste() {
+        return coste;
+    }
+
+    public void setCoste(Integer coste) {
+        this.coste = coste;
+    }
+
+    public long getUsuarios() {
+        return usuarios;
+    }
+
+    public void setUsuarios(long usuarios) {
+        this.usuarios = usuarios;
+    }
+}
@@ -0,0 +1,55 @@
+package es.tfg.tu_curso.dto;
+
+/**
+ * Datos de un usuario necesarios para iniciar sesión: identificador, hash de la contraseña,
+ * rol y sello de seguridad. Se obtienen con una única consulta por email.
+ */
+public class CredencialesDTO {
+
+    private Long id;
+    private String pass;
+    private String rol;
+    private String selloSeguridad;
+
+    public CredencialesDTO(Long id, String pass, String rol, String selloSeguridad) {
+        this.id = id;
+        this.pass = pass;
+        this.rol = rol;
+        this.selloSeguridad = selloSeguridad;
+    }
+
+    public CredencialesDTO() {}
+
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getPass() {
+        return pass;
+    }
+
+    public void setPass(String pass) {
+        this.pass = pass;
+    }
+
+    public String getRol() {
+        return rol;
+    }
+
+    public void setRol(String rol) {
+        this.rol = rol;
+    }
+
+    public String getSelloSeguridad() {
+        return selloSeguridad;
+    }
+
+    public void setSelloSeguridad(String selloSeguridad) {
+        this.selloSeguridad = selloSeguridad;
+    }
+}
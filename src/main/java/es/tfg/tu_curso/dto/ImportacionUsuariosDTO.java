@@ -0,0 +1,53 @@
+package es.tfg.tu_curso.dto;
+
+import java.util.List;
+
+public class ImportacionUsuariosDTO {
+
+    private int procesadas;
+    private int creadas;
+    private int rechazadas;
+    private List<ResultadoImportacionDTO> filas;
+
+    public ImportacionUsuariosDTO(int procesadas, int creadas, int rechazadas, List<ResultadoImportacionDTO> filas) {
+        this.procesadas = procesadas;
+        this.creadas = creadas;
+        this.rechazadas = rechazadas;
+        this.filas = filas;
+    }
+
+    public ImportacionUsuariosDTO() {}
+
+    // Getters and Setters
+    public int getProcesadas() {
+        return procesadas;
+    }
+
+    public void setProcesadas(int procesadas) {
+        this.procesadas = procesadas;
+    }
+
+    public int getCreadas() {
+        return creadas;
+    }
+
+    public void setCreadas(int creadas) {
+        this.creadas = creadas;
+    }
+
+    public int getRechazadas() {
+        return rechazadas;
+    }
+
+    public void setRechazadas(int rechazadas) {
+        this.rechazadas = rechazadas;
+    }
+
+    public List<ResultadoImportacionDTO> getFilas() {
+        return filas;
+    }
+
+    public void setFilas(List<ResultadoImportacionDTO> filas) {
+        this.filas = filas;
+    }
+}
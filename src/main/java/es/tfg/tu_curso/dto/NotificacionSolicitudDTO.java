@@ -0,0 +1,69 @@
+package es.tfg.tu_curso.dto;
+
+/**
+ * Notificación de un cambio en una solicitud de amistad, enviada al emisor y al receptor.
+ */
+public class NotificacionSolicitudDTO {
+
+    private String tipo;
+    private Long solicitudId;
+    private Long emisorId;
+    private Long receptorId;
+
+    /**
+     * Solicitudes pendientes del receptor después del cambio.
+     */
+    private int pendientes;
+
+    public NotificacionSolicitudDTO(String tipo, Long solicitudId, Long emisorId, Long receptorId, int pendientes) {
+        this.tipo = tipo;
+        this.solicitudId = solicitudId;
+        this.emisorId = emisorId;
+        this.receptorId = receptorId;
+        this.pendientes = pendientes;
+    }
+
+    public NotificacionSolicitudDTO() {
+    }
+
+    // Getters and Setters
+    public String getTipo() {
+        return tipo;
+    }
+
+    public void setTipo(String tipo) {
+        this.tipo = tipo;
+    }
+
+    public Long getSolicitudId() {
+        return solicitudId;
+    }
+
+    public void setSolicitudId(Long solicitudId) {
+        this.solicitudId = solicitudId;
+    }
+
+    public Long getEmisorId() {
+        return emisorId;
+    }
+
+    public void setEmisorId(Long emisorId) {
+        this.emisorId = emisorId;
+    }
+
+    public Long getReceptorId() {
+        return receptorId;
+    }
+
+    public void setReceptorId(Long receptorId) {
+        this.receptorId = receptorId;
+    }
+
+    public int getPendientes() {
+        return pendientes;
+    }
+
+    public void setPendientes(int pendientes) {
+        this.pendientes = pendientes;
+    }
+}
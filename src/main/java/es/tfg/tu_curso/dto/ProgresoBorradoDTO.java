@@ -0,0 +1,81 @@
+package es.tfg.tu_curso.dto;
+
+public class ProgresoBorradoDTO {
+
+    private String tarea;
+    private Long usuarioId;
+    private String estado;
+    private String paso;
+    private long filasBorradas;
+    private long totalFilas;
+    private String error;
+
+    public ProgresoBorradoDTO(String tarea, Long usuarioId, String estado, String paso, long filasBorradas, long totalFilas, String error) {
+        this.tarea = tarea;
+        this.usuarioId = usuarioId;
+        this.estado = estado;
+        this.paso = paso;
+        this.filasBorradas = filasBorradas;
+        this.totalFilas = totalFilas;
+        this.error = error;
+    }
+
+    public ProgresoBorradoDTO() {}
+
+    // Getters and Setters
+    public String getTarea() {
+        return tarea;
+    }
+
+    public void setTarea(String tarea) {
+        this.tarea = tarea;
+    }
+
+    public Long getUsuarioId() {
+        return usuarioId;
+    }
+
+    public void setUsuarioId(Long usuarioId) {
+        this.usuarioId = usuarioId;
+    }
+
+    public String getEstado() {
+        return estado;
+    }
+
+    public void setEstado(String estado) {
+        this.estado = estado;
+    }
+
+    public String getPaso() {
+        return paso;
+    }
+
+    public void setPaso(String paso) {
+        this.paso = paso;
+    }
+
+    public long getFilasBorradas() {
+        return filasBorradas;
+    }
+
+    public void setFilasBorradas(long filasBorradas) {
+        this.filasBorradas = filasBorradas;
+    }
+
+    public long getTotalFilas() {
+        return totalFilas;
+    }
+
+    public void setTotalFilas(long totalFilas) {
+        this.totalFilas = totalFilas;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+}
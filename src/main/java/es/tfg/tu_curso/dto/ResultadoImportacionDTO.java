@@ -0,0 +1,51 @@
+package es.tfg.tu_curso.dto;
+
+public class ResultadoImportacionDTO {
+
+    private int fila;
+    private String email;
+    private String resultado;
+    private String detalle;
+
+    public ResultadoImportacionDTO(int fila, String email, String resultado, String detalle) {
+        this.fila = fila;
+        this.email = email;
+        this.resultado = resultado;
+        this.detalle = detalle;
+    }
+
+    public ResultadoImportacionDTO() {}
+
+    // Getters and Setters
+    public int getFila() {
+        return fila;
+    }
+
+    public void setFila(int fila) {
+        this.fila = fila;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public void setEmail(String email) {
+        this.email = email;
+    }
+
+    public String getResultado() {
+        return resultado;
+    }
+
+    public void setResultado(String resultado) {
+        this.resultado = resultado;
+    }
+
+    public String getDetalle() {
+        return detalle;
+    }
+
+    public void setDetalle(String detalle) {
+        this.detalle = detalle;
+    }
+}
@@ -18,6 +18,13 @@ public class SolicitudAmistadDTO {
         this.receptor = receptor;
     }
 
+    public SolicitudAmistadDTO(Long id, Long emisorId, String emisorNombre, String emisorDescripcion, String emisorIcono,
+                               Long receptorId, String receptorNombre, String receptorDescripcion, String receptorIcono) {
+        this.id = id;
+        this.emisor = new UsuarioDTO(emisorId, emisorNombre, emisorDescripcion, emisorIcono);
+        this.receptor = new UsuarioDTO(receptorId, receptorNombre, receptorDescripcion, receptorIcono);
+    }
+
     public SolicitudAmistadDTO(SolicitudAmistad solicitud) {
         this.id = solicitud.getId();
         this.emisor = new UsuarioDTO(solicitud.getEmisor());
@@ -0,0 +1,61 @@
+package es.tfg.tu_curso.dto;
+
+public class SugerenciaDTO {
+
+    private Long id;
+    private String nombre;
+    private String descripcion;
+    private String icono;
+    private int amigosComunes;
+
+    public SugerenciaDTO(UsuarioDTO usuario, int amigosComunes) {
+        this.id = usuario.getId();
+        this.nombre = usuario.getNombre();
+        this.descripcion = usuario.getDescripcion();
+        this.icono = usuario.getIcono();
+        this.amigosComunes = amigosComunes;
+    }
+
+    public SugerenciaDTO() {}
+
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getNombre() {
+        return nombre;
+    }
+
+    public void setNombre(String nombre) {
+        this.nombre = nombre;
+    }
+
+    public String getDescripcion() {
+        return descripcion;
+    }
+
+    public void setDescripcion(String descripcion) {
+        this.descripcion = descripcion;
+    }
+
+    public String getIcono() {
+        return icono;
+    }
+
+    public void setIcono(String icono) {
+        this.icono = icono;
+    }
+
+    public int getAmigosComunes() {
+        return amigosComunes;
+    }
+
+    public void setAmigosComunes(int amigosComunes) {
+        this.amigosComunes = amigosComunes;
+    }
+}
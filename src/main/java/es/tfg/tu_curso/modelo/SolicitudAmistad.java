@@ -1,8 +1,14 @@
 package es.tfg.tu_curso.modelo;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.ColumnDefault;
+
+import java.time.LocalDateTime;
 
 @Entity
+@Table(uniqueConstraints = @UniqueConstraint(name = "uk_solicitud_amistad_par",
+        columnNames = {"usuario_menor_id", "usuario_mayor_id"}),
+        indexes = @Index(name = "idx_solicitud_amistad_fecha_creacion", columnList = "fecha_creacion"))
 public class SolicitudAmistad {
     @Id
     @GeneratedValue(strategy = GenerationType.SEQUENCE)
@@ -16,6 +22,27 @@ public class SolicitudAmistad {
     @JoinColumn(name = "receptor_id", nullable = false)
     private Usuario receptor;
 
+    /**
+     * Menor de los IDs del emisor y el receptor. Junto con {@link #usuarioMayorId} identifica el par de usuarios
+     * sin importar el sentido de la solicitud, de modo que el índice único impide dos solicitudes entre los mismos.
+     */
+    @Column(name = "usuario_menor_id")
+    private Long usuarioMenorId;
+
+    /**
+     * Mayor de los IDs del emisor y el receptor.
+     */
+    @Column(name = "usuario_mayor_id")
+    private Long usuarioMayorId;
+
+    /**
+     * Fecha de envío de la solicitud. Las solicitudes anteriores a su introducción toman la fecha en que se añadió
+     * la columna. Las que superan la caducidad las elimina una tarea periódica.
+     */
+    @ColumnDefault("CURRENT_TIMESTAMP")
+    @Column(name = "fecha_creacion", nullable = false, updatable = false)
+    private LocalDateTime fechaCreacion;
+
     // Constructores
     public SolicitudAmistad() {
     }
@@ -50,6 +77,43 @@ public class SolicitudAmistad {
         this.receptor = receptor;
     }
 
+    public Long getUsuarioMenorId() {
+        return usuarioMenorId;
+    }
+
+    public Long getUsuarioMayorId() {
+        return usuarioMayorId;
+    }
+
+    public LocalDateTime getFechaCreacion() {
+        return fechaCreacion;
+    }
+
+    public void setFechaCreacion(LocalDateTime fechaCreacion) {
+        this.fechaCreacion = fechaCreacion;
+    }
+
+    /**
+     * Asigna la fecha de creación, si no se ha indicado, y calcula el par de usuarios al guardar la solicitud
+     * por primera vez.
+     */
+    @PrePersist
+    private void antesDeInsertar() {
+        if (fechaCreacion == null) {
+            fechaCreacion = LocalDateTime.now();
+        }
+        calcularPar();
+    }
+
+    /**
+     * Calcula el par de usuarios a partir del emisor y el receptor antes de guardar la solicitud.
+     */
+    @PreUpdate
+    private void calcularPar() {
+        this.usuarioMenorId = Math.min(emisor.getId(), receptor.getId());
+        this.usuarioMayorId = Math.max(emisor.getId(), receptor.getId());
+    }
+
     @Override
     public boolean equals(Object obj) {
         if (this == obj) return true;
@@ -0,0 +1,52 @@
+package es.tfg.tu_curso.modelo;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Token JWT revocado antes de su expiración, identificado por su claim "jti".
+ * Se conserva hasta la fecha de expiración del token, a partir de la cual ya no es necesario.
+ */
+@Entity
+@Table(indexes = @Index(name = "idx_token_revocado_expiracion", columnList = "expiracion"))
+public class TokenRevocado {
+
+    @Id
+    private Long jti;
+    private Long usuarioId;
+    private LocalDateTime expiracion;
+
+    public TokenRevocado() {
+    }
+
+    public TokenRevocado(Long jti, Long usuarioId, LocalDateTime expiracion) {
+        this.jti = jti;
+        this.usuarioId = usuarioId;
+        this.expiracion = expiracion;
+    }
+
+    public Long getJti() {
+        return jti;
+    }
+
+    public void setJti(Long jti) {
+        this.jti = jti;
+    }
+
+    public Long getUsuarioId() {
+        return usuarioId;
+    }
+
+    public void setUsuarioId(Long usuarioId) {
+        this.usuarioId = usuarioId;
+    }
+
+    public LocalDateTime getExpiracion() {
+        return expiracion;
+    }
+
+    public void setExpiracion(LocalDateTime expiracion) {
+        this.expiracion = expiracion;
+    }
+}
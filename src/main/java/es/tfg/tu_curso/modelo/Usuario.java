@@ -1,10 +1,12 @@
 package es.tfg.tu_curso.modelo;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.ColumnDefault;
 
 import java.util.List;
 import java.util.Set;
 import java.util.HashSet;
+import java.util.UUID;
 
 @Entity
 public class Usuario {
@@ -18,6 +20,19 @@ public class Usuario {
     private String icono;
     private String rol;
 
+    // Sello que se incluye en los tokens emitidos; al cambiarlo se invalidan los tokens anteriores
+    private String selloSeguridad;
+
+    // Contadores mantenidos con sentencias UPDATE en la misma transacción que los cambios que los afectan;
+    // guardar la entidad no los modifica, para no sobrescribir incrementos simultáneos
+    @ColumnDefault("0")
+    @Column(nullable = false, insertable = false, updatable = false)
+    private int numeroAmigos;
+
+    @ColumnDefault("0")
+    @Column(nullable = false, insertable = false, updatable = false)
+    private int solicitudesPendientes;
+
     @OneToMany(mappedBy = "usuario", cascade = CascadeType.ALL, orphanRemoval = true)
     private List<Curso> listaCursos;
 
@@ -66,6 +81,33 @@ public class Usuario {
         this.listaPomodoros = listaPomodoros;
     }
 
+    /**
+     * Prefijo del sello de seguridad de un usuario cuyo borrado está en curso. Con él, el usuario no puede
+     * iniciar sesión y sus tokens dejan de aceptarse, de modo que no crea datos nuevos mientras se borran los suyos.
+     */
+    public static final String PREFIJO_SELLO_BORRADO = "borrado:";
+
+    @PrePersist
+    private void inicializarSelloSeguridad() {
+        if (selloSeguridad == null) {
+            renovarSelloSeguridad();
+        }
+    }
+
+    /**
+     * Genera un nuevo sello de seguridad, invalidando los tokens emitidos con el anterior.
+     */
+    public void renovarSelloSeguridad() {
+        this.selloSeguridad = UUID.randomUUID().toString();
+    }
+
+    /**
+     * Indica si el borrado del usuario está en curso.
+     */
+    public boolean enBorrado() {
+        return selloSeguridad != null && selloSeguridad.startsWith(PREFIJO_SELLO_BORRADO);
+    }
+
     // Métodos para gestionar amigos
     public void agregarAmigo(Usuario amigo) {
         if (amigo != null && !amigo.equals(this)) {
@@ -142,6 +184,22 @@ public class Usuario {
         this.rol = rol;
     }
 
+    public String getSelloSeguridad() {
+        return selloSeguridad;
+    }
+
+    public void setSelloSeguridad(String selloSeguridad) {
+        this.selloSeguridad = selloSeguridad;
+    }
+
+    public int getNumeroAmigos() {
+        return numeroAmigos;
+    }
+
+    public int getSolicitudesPendientes() {
+        return solicitudesPendientes;
+    }
+
     public List<Curso> getListaCursos() {
         return listaCursos;
     }
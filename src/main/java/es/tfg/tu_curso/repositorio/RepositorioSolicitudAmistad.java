@@ -1,12 +1,19 @@
 package es.tfg.tu_curso.repositorio;
 
+import es.tfg.tu_curso.dto.SolicitudAmistadDTO;
 import es.tfg.tu_curso.modelo.SolicitudAmistad;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -46,6 +53,81 @@ public interface RepositorioSolicitudAmistad extends JpaRepository<SolicitudAmis
     @Query("SELECT s FROM SolicitudAmistad s WHERE s.emisor.id = :emisorId")
     List<SolicitudAmistad> findByEmisorId(@Param("emisorId") Long emisorId);
 
+    /**
+     * Obtiene en formato DTO las solicitudes recibidas por un usuario con ID mayor que el indicado, ordenadas por ID.
+     * El emisor y el receptor se leen en la misma consulta, sin cargar las entidades.
+     *
+     * @param receptorId ID del usuario receptor
+     * @param despues    ID a partir del cual se devuelven solicitudes, sin incluirlo
+     * @param limite     Número máximo de solicitudes devueltas
+     * @return Lista de solicitudes recibidas en formato DTO
+     */
+    @Query("SELECT new es.tfg.tu_curso.dto.SolicitudAmistadDTO(s.id, e.id, e.nombre, e.descripcion, e.icono, " +
+            "r.id, r.nombre, r.descripcion, r.icono) FROM SolicitudAmistad s JOIN s.emisor e JOIN s.receptor r " +
+            "WHERE r.id = :receptorId AND s.id > :despues ORDER BY s.id")
+    List<SolicitudAmistadDTO> findRecibidasDTODespuesDe(@Param("receptorId") Long receptorId,
+                                                        @Param("despues") Long despues, Limit limite);
+
+    /**
+     * Obtiene en formato DTO las solicitudes enviadas por un usuario con ID mayor que el indicado, ordenadas por ID.
+     * El emisor y el receptor se leen en la misma consulta, sin cargar las entidades.
+     *
+     * @param emisorId ID del usuario emisor
+     * @param despues  ID a partir del cual se devuelven solicitudes, sin incluirlo
+     * @param limite   Número máximo de solicitudes devueltas
+     * @return Lista de solicitudes enviadas en formato DTO
+     */
+    @Query("SELECT new es.tfg.tu_curso.dto.SolicitudAmistadDTO(s.id, e.id, e.nombre, e.descripcion, e.icono, " +
+            "r.id, r.nombre, r.descripcion, r.icono) FROM SolicitudAmistad s JOIN s.emisor e JOIN s.receptor r " +
+            "WHERE e.id = :emisorId AND s.id > :despues ORDER BY s.id")
+    List<SolicitudAmistadDTO> findEnviadasDTODespuesDe(@Param("emisorId") Long emisorId,
+                                                       @Param("despues") Long despues, Limit limite);
+
+    /**
+     * Obtiene, de entre las solicitudes indicadas, las recibidas por un usuario junto con su emisor,
+     * sin cargar las entidades. Las solicitudes que no existen o no son del receptor no se devuelven.
+     *
+     * @param receptorId   ID del usuario receptor
+     * @param solicitudIds IDs de las solicitudes
+     * @return Lista de pares [ID de la solicitud, ID del emisor]
+     */
+    @Query("SELECT s.id, s.emisor.id FROM SolicitudAmistad s WHERE s.receptor.id = :receptorId AND s.id IN :solicitudIds")
+    List<Object[]> findEmisoresDeRecibidas(@Param("receptorId") Long receptorId,
+                                           @Param("solicitudIds") Collection<Long> solicitudIds);
+
+    /**
+     * Elimina con una sola sentencia las solicitudes indicadas que haya recibido un usuario.
+     *
+     * @param receptorId   ID del usuario receptor
+     * @param solicitudIds IDs de las solicitudes
+     * @return El número de solicitudes eliminadas
+     */
+    @Modifying
+    @Query("DELETE FROM SolicitudAmistad s WHERE s.receptor.id = :receptorId AND s.id IN :solicitudIds")
+    int deleteRecibidas(@Param("receptorId") Long receptorId, @Param("solicitudIds") Collection<Long> solicitudIds);
+
+    /**
+     * Obtiene, ordenadas por ID, las solicitudes creadas antes de la fecha indicada junto con su receptor,
+     * y bloquea sus filas hasta el final de la transacción para que nadie las acepte ni rechace mientras se borran.
+     *
+     * @param limite Fecha de creación a partir de la cual una solicitud sigue vigente
+     * @param lote   Número máximo de solicitudes devueltas
+     * @return Lista de pares [ID de la solicitud, ID del receptor]
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s.id, s.receptor.id FROM SolicitudAmistad s WHERE s.fechaCreacion < :limite ORDER BY s.id")
+    List<Object[]> bloquearCaducadas(@Param("limite") LocalDateTime limite, Limit lote);
+
+    /**
+     * Elimina con una sola sentencia las solicitudes indicadas.
+     *
+     * @param solicitudIds IDs de las solicitudes
+     * @return El número de solicitudes eliminadas
+     */
+    @Modifying
+    @Query("DELETE FROM SolicitudAmistad s WHERE s.id IN :solicitudIds")
+    int deleteByIds(@Param("solicitudIds") Collection<Long> solicitudIds);
+
     /**
      * Verifica si existe una solicitud entre dos usuarios (en cualquier dirección).
      *
@@ -53,10 +135,19 @@ public interface RepositorioSolicitudAmistad extends JpaRepository<SolicitudAmis
      * @param usuario2Id ID del segundo usuario
      * @return true si existe una solicitud pendiente, false en caso contrario
      */
-    @Query("SELECT COUNT(s) > 0 FROM SolicitudAmistad s WHERE " +
-            "(s.emisor.id = :usuario1Id AND s.receptor.id = :usuario2Id) OR " +
-            "(s.emisor.id = :usuario2Id AND s.receptor.id = :usuario1Id)")
-    boolean existeSolicitudPendiente(@Param("usuario1Id") Long usuario1Id, @Param("usuario2Id") Long usuario2Id);
+    default boolean existeSolicitudPendiente(Long usuario1Id, Long usuario2Id) {
+        return existsByPar(Math.min(usuario1Id, usuario2Id), Math.max(usuario1Id, usuario2Id));
+    }
+
+    /**
+     * Verifica si existe una solicitud para un par de usuarios con una búsqueda en el índice único del par.
+     *
+     * @param menorId Menor de los IDs de los dos usuarios
+     * @param mayorId Mayor de los IDs de los dos usuarios
+     * @return true si existe la solicitud
+     */
+    @Query("SELECT COUNT(s) > 0 FROM SolicitudAmistad s WHERE s.usuarioMenorId = :menorId AND s.usuarioMayorId = :mayorId")
+    boolean existsByPar(@Param("menorId") Long menorId, @Param("mayorId") Long mayorId);
 
     /**
      * Cuenta el número de solicitudes recibidas por un usuario.
@@ -73,9 +164,42 @@ public interface RepositorioSolicitudAmistad extends JpaRepository<SolicitudAmis
      * @param usuario1Id ID del primer usuario
      * @param usuario2Id ID del segundo usuario
      */
+    default void deleteByUsuarios(Long usuario1Id, Long usuario2Id) {
+        deleteByPar(Math.min(usuario1Id, usuario2Id), Math.max(usuario1Id, usuario2Id));
+    }
+
+    /**
+     * Elimina la solicitud de un par de usuarios, localizándola por el índice único del par.
+     *
+     * @param menorId Menor de los IDs de los dos usuarios
+     * @param mayorId Mayor de los IDs de los dos usuarios
+     */
+    @Modifying
+    @Query("DELETE FROM SolicitudAmistad s WHERE s.usuarioMenorId = :menorId AND s.usuarioMayorId = :mayorId")
+    void deleteByPar(@Param("menorId") Long menorId, @Param("mayorId") Long mayorId);
+
+    /**
+     * Elimina las solicitudes anteriores a la columna del par que repiten un par de usuarios ya presente con un
+     * ID menor, que impedirían completar el par de las demás.
+     *
+     * @return El número de solicitudes eliminadas
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "DELETE FROM solicitud_amistad s WHERE s.usuario_menor_id IS NULL AND EXISTS (" +
+            "SELECT 1 FROM solicitud_amistad o WHERE o.id < s.id " +
+            "AND LEAST(o.emisor_id, o.receptor_id) = LEAST(s.emisor_id, s.receptor_id) " +
+            "AND GREATEST(o.emisor_id, o.receptor_id) = GREATEST(s.emisor_id, s.receptor_id))", nativeQuery = true)
+    int eliminarParesRepetidos();
+
+    /**
+     * Calcula el par de usuarios de las solicitudes guardadas antes de existir la columna del par.
+     *
+     * @return El número de solicitudes actualizadas
+     */
     @Modifying
-    @Query("DELETE FROM SolicitudAmistad s WHERE " +
-            "(s.emisor.id = :usuario1Id AND s.receptor.id = :usuario2Id) OR " +
-            "(s.emisor.id = :usuario2Id AND s.receptor.id = :usuario1Id)")
-    void   deleteByUsuarios(@Param("usuario1Id") Long usuario1Id, @Param("usuario2Id") Long usuario2Id);
-}
\ No newline at end of file
+    @Transactional
+    @Query(value = "UPDATE solicitud_amistad SET usuario_menor_id = LEAST(emisor_id, receptor_id), " +
+            "usuario_mayor_id = GREATEST(emisor_id, receptor_id) WHERE usuario_menor_id IS NULL", nativeQuery = true)
+    int completarPares();
+}
@@ -0,0 +1,39 @@
+package es.tfg.tu_curso.repositorio;
+
+import es.tfg.tu_curso.modelo.TokenRevocado;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Repositorio para la entidad TokenRevocado.
+ * Persiste la lista de tokens revocados para poder reconstruirla al arrancar la aplicación.
+ */
+@Repository
+public interface RepositorioTokenRevocado extends JpaRepository<TokenRevocado, Long> {
+
+    /**
+     * Encuentra los tokens revocados que todavía no han expirado.
+     *
+     * @param fecha Fecha actual
+     * @return Lista de tokens revocados cuya expiración es posterior a la fecha indicada
+     */
+    List<TokenRevocado> findByExpiracionAfter(LocalDateTime fecha);
+
+    /**
+     * Elimina en una única sentencia los tokens revocados que ya han expirado.
+     *
+     * @param fecha Fecha actual
+     * @return Número de tokens eliminados
+     */
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM TokenRevocado t WHERE t.expiracion <= :fecha")
+    int eliminarExpirados(@Param("fecha") LocalDateTime fecha);
+}
@@ -1,15 +1,23 @@
 package es.tfg.tu_curso.repositorio;
 
+import es.tfg.tu_curso.dto.CredencialesDTO;
 import es.tfg.tu_curso.dto.UsuarioDTO;
 import es.tfg.tu_curso.modelo.Usuario;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
+import java.util.stream.Stream;
 
 /**
  * Repositorio para la entidad Usuario.
@@ -89,15 +97,216 @@ public interface RepositorioUsuario extends JpaRepository<Usuario,Long> {
     void deleteByEmail(String email);
 
     /**
-     * Obtiene todos los usuarios en formato DTO.
+     * Obtiene el sello de seguridad vigente de un usuario.
+     * Los usuarios anteriores a la introducción del sello devuelven una cadena vacía.
      *
-     * @return Lista de todos los usuarios en formato DTO
+     * @param id ID del usuario
+     * @return Un Optional con el sello, vacío si el usuario no existe
      */
-    @Query("SELECT new es.tfg.tu_curso.dto.UsuarioDTO(u.id, u.nombre, u.descripcion, u.icono) FROM Usuario u")
-    List<UsuarioDTO> findAllUsuariosDTO();
+    @Query("SELECT COALESCE(u.selloSeguridad, '') FROM Usuario u WHERE u.id = :id")
+    Optional<String> findSelloSeguridadById(@Param("id") Long id);
+
+    /**
+     * Obtiene en una única consulta los datos necesarios para iniciar sesión.
+     * Los usuarios cuyo borrado está en curso se tratan como inexistentes.
+     *
+     * @param email El email del usuario
+     * @return Un Optional con el id, el hash de la contraseña, el rol y el sello del usuario
+     */
+    @Query("SELECT new es.tfg.tu_curso.dto.CredencialesDTO(u.id, u.pass, u.rol, COALESCE(u.selloSeguridad, '')) " +
+            "FROM Usuario u WHERE u.email = :email " +
+            "AND (u.selloSeguridad IS NULL OR u.selloSeguridad NOT LIKE '" + Usuario.PREFIJO_SELLO_BORRADO + "%')")
+    Optional<CredencialesDTO> findCredencialesByEmail(@Param("email") String email);
+
+    /**
+     * Sustituye el hash de la contraseña de un usuario solo si sigue siendo el indicado,
+     * para no sobrescribir un cambio de contraseña concurrente.
+     *
+     * @param id           ID del usuario
+     * @param hashAnterior Hash que se espera encontrar
+     * @param hashNuevo    Hash que se guardará
+     * @return El número de filas actualizadas (0 o 1)
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE Usuario u SET u.pass = :hashNuevo WHERE u.id = :id AND u.pass = :hashAnterior")
+    int actualizarHashContrasena(@Param("id") Long id, @Param("hashAnterior") String hashAnterior,
+                                 @Param("hashNuevo") String hashNuevo);
+
+    /**
+     * Cuenta los usuarios agrupados por la parte del hash de la contraseña que precede a la sal:
+     * el prefijo del identificador del algoritmo, si lo hay, y la versión y el coste de BCrypt
+     * (por ejemplo "{bcrypt}$2a$12$" o "$2a$10$"). No se cargan los hashes completos.
+     *
+     * @return Lista de pares [prefijo, número de usuarios]
+     */
+    @Query("SELECT SUBSTRING(u.pass, 1, LOCATE('$', u.pass) + 6), COUNT(u) FROM Usuario u " +
+            "GROUP BY SUBSTRING(u.pass, 1, LOCATE('$', u.pass) + 6)")
+    List<Object[]> contarPorPrefijoHash();
+
+    /**
+     * Obtiene en formato DTO los usuarios con ID mayor que el indicado, ordenados por ID.
+     * Al filtrar por la clave en lugar de saltar filas, el coste de cada página no depende de su posición.
+     *
+     * @param despues ID a partir del cual se devuelven usuarios, sin incluirlo
+     * @param limite  Número máximo de usuarios devueltos
+     * @return Lista de usuarios en formato DTO
+     */
+    @Query("SELECT new es.tfg.tu_curso.dto.UsuarioDTO(u.id, u.nombre, u.descripcion, u.icono) FROM Usuario u " +
+            "WHERE u.id > :despues ORDER BY u.id")
+    List<UsuarioDTO> findUsuariosDTODespuesDe(@Param("despues") Long despues, Limit limite);
+
+    /**
+     * Recorre todos los usuarios en formato DTO, ordenados por ID, leyéndolos de la base de datos por bloques
+     * a medida que se consumen. El flujo debe cerrarse y consumirse dentro de una transacción.
+     *
+     * @return Flujo con todos los usuarios en formato DTO
+     */
+    @QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = "500"))
+    @Query("SELECT new es.tfg.tu_curso.dto.UsuarioDTO(u.id, u.nombre, u.descripcion, u.icono) FROM Usuario u ORDER BY u.id")
+    Stream<UsuarioDTO> streamUsuariosDTO();
+
+    /**
+     * Obtiene en formato DTO los usuarios con los IDs indicados, en cualquier orden.
+     *
+     * @param ids IDs de los usuarios
+     * @return Lista de los usuarios existentes en formato DTO
+     */
+    @Query("SELECT new es.tfg.tu_curso.dto.UsuarioDTO(u.id, u.nombre, u.descripcion, u.icono) FROM Usuario u WHERE u.id IN :ids")
+    List<UsuarioDTO> findUsuariosDTOByIds(@Param("ids") Collection<Long> ids);
 
     // Métodos para gestión de amigos
 
+    /**
+     * Inserta la amistad entre dos usuarios en ambos sentidos con una sola sentencia, sin cargar las entidades
+     * ni sus colecciones de amigos. Solo se insertan los sentidos que aún no existen y solo si ambos usuarios existen.
+     *
+     * @param usuarioId ID del primer usuario
+     * @param amigoId   ID del segundo usuario
+     * @return El número de filas insertadas (0 si ya eran amigos o alguno de los usuarios no existe)
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "MERGE INTO usuario_amigos ua " +
+            "USING (SELECT u.id AS usuario_id, a.id AS amigo_id FROM usuario u JOIN usuario a " +
+            "ON (u.id = :usuarioId AND a.id = :amigoId) OR (u.id = :amigoId AND a.id = :usuarioId)) par " +
+            "ON (ua.usuario_id = par.usuario_id AND ua.amigo_id = par.amigo_id) " +
+            "WHEN NOT MATCHED THEN INSERT (usuario_id, amigo_id) VALUES (par.usuario_id, par.amigo_id)",
+            nativeQuery = true)
+    int insertarAmistad(@Param("usuarioId") Long usuarioId, @Param("amigoId") Long amigoId);
+
+    /**
+     * Elimina la amistad entre dos usuarios en ambos sentidos con una sola sentencia, sin cargar las entidades.
+     *
+     * @param usuarioId ID del primer usuario
+     * @param amigoId   ID del segundo usuario
+     * @return El número de filas eliminadas (0 si no eran amigos)
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "DELETE FROM usuario_amigos WHERE (usuario_id = :usuarioId AND amigo_id = :amigoId) " +
+            "OR (usuario_id = :amigoId AND amigo_id = :usuarioId)", nativeQuery = true)
+    int eliminarAmistad(@Param("usuarioId") Long usuarioId, @Param("amigoId") Long amigoId);
+
+    /**
+     * Bloquea hasta el final de la transacción las filas de dos usuarios, en orden de ID para que dos
+     * transacciones que bloquean el mismo par no se esperen mutuamente. Serializa los cambios simultáneos
+     * sobre la amistad entre ambos usuarios.
+     *
+     * @param usuarioId ID del primer usuario
+     * @param amigoId   ID del segundo usuario
+     * @return IDs de los usuarios que existen
+     */
+    @Query(value = "SELECT id FROM usuario WHERE id IN (:usuarioId, :amigoId) ORDER BY id FOR UPDATE", nativeQuery = true)
+    List<Long> bloquearUsuarios(@Param("usuarioId") Long usuarioId, @Param("amigoId") Long amigoId);
+
+    /**
+     * Bloquea hasta el final de la transacción las filas de varios usuarios, en orden de ID como
+     * {@link #bloquearUsuarios(Long, Long)}, para serializar los cambios simultáneos sobre sus amistades.
+     *
+     * @param ids IDs de los usuarios
+     * @return IDs de los usuarios que existen
+     */
+    @Query(value = "SELECT id FROM usuario WHERE id IN (:ids) ORDER BY id FOR UPDATE", nativeQuery = true)
+    List<Long> bloquearUsuariosPorIds(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Suma una cantidad al contador de amigos de dos usuarios.
+     *
+     * @param usuarioId ID del primer usuario
+     * @param amigoId   ID del segundo usuario
+     * @param delta     Cantidad que se suma; negativa para restar
+     * @return El número de filas actualizadas
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE usuario SET numero_amigos = numero_amigos + :delta WHERE id IN (:usuarioId, :amigoId)",
+            nativeQuery = true)
+    int sumarNumeroAmigos(@Param("usuarioId") Long usuarioId, @Param("amigoId") Long amigoId, @Param("delta") int delta);
+
+    /**
+     * Suma una cantidad al contador de amigos de varios usuarios con una sola sentencia.
+     *
+     * @param ids   IDs de los usuarios
+     * @param delta Cantidad que se suma; negativa para restar
+     * @return El número de filas actualizadas
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE usuario SET numero_amigos = numero_amigos + :delta WHERE id IN (:ids)", nativeQuery = true)
+    int sumarNumeroAmigosPorIds(@Param("ids") Collection<Long> ids, @Param("delta") int delta);
+
+    /**
+     * Suma una cantidad al contador de solicitudes de amistad pendientes recibidas por un usuario.
+     *
+     * @param usuarioId ID del usuario receptor
+     * @param delta     Cantidad que se suma; negativa para restar
+     * @return El número de filas actualizadas
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE usuario SET solicitudes_pendientes = solicitudes_pendientes + :delta WHERE id = :usuarioId",
+            nativeQuery = true)
+    int sumarSolicitudesPendientes(@Param("usuarioId") Long usuarioId, @Param("delta") int delta);
+
+    /**
+     * Obtiene el contador de solicitudes de amistad pendientes recibidas por un usuario.
+     *
+     * @param usuarioId ID del usuario
+     * @return Un Optional con el contador, vacío si el usuario no existe
+     */
+    @Query("SELECT u.solicitudesPendientes FROM Usuario u WHERE u.id = :usuarioId")
+    Optional<Integer> findSolicitudesPendientesById(@Param("usuarioId") Long usuarioId);
+
+    /**
+     * Obtiene los IDs de los usuarios con ID mayor que el indicado, ordenados.
+     *
+     * @param despues ID a partir del cual se devuelven usuarios, sin incluirlo
+     * @param limite  Número máximo de IDs devueltos
+     * @return Lista de IDs
+     */
+    @Query("SELECT u.id FROM Usuario u WHERE u.id > :despues ORDER BY u.id")
+    List<Long> findIdsDespuesDe(@Param("despues") Long despues, Limit limite);
+
+    /**
+     * Recalcula los contadores de amigos y de solicitudes pendientes de los usuarios de un rango de IDs
+     * y corrige los que no coinciden con las filas de usuario_amigos y solicitud_amistad.
+     *
+     * @param desde Primer ID del rango
+     * @param hasta Último ID del rango
+     * @return El número de usuarios corregidos
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE usuario u SET " +
+            "numero_amigos = (SELECT COUNT(*) FROM usuario_amigos ua WHERE ua.usuario_id = u.id), " +
+            "solicitudes_pendientes = (SELECT COUNT(*) FROM solicitud_amistad s WHERE s.receptor_id = u.id) " +
+            "WHERE u.id BETWEEN :desde AND :hasta " +
+            "AND (u.numero_amigos <> (SELECT COUNT(*) FROM usuario_amigos ua WHERE ua.usuario_id = u.id) " +
+            "OR u.solicitudes_pendientes <> (SELECT COUNT(*) FROM solicitud_amistad s WHERE s.receptor_id = u.id))",
+            nativeQuery = true)
+    int repararContadores(@Param("desde") Long desde, @Param("hasta") Long hasta);
+
     /**
      * Obtiene la lista de amigos de un usuario en formato DTO.
      *
@@ -108,19 +317,6 @@ public interface RepositorioUsuario extends JpaRepository<Usuario,Long> {
             "FROM Usuario u JOIN u.amigos a WHERE u.id = :usuarioId")
     List<UsuarioDTO> findAmigosByUsuarioId(@Param("usuarioId") Long usuarioId);
 
-    /**
-     * Busca usuarios que no son amigos del usuario actual y que coincidan con el nombre.
-     *
-     * @param usuarioId ID del usuario actual
-     * @param nombre Nombre a buscar
-     * @return Lista de usuarios que coinciden con la búsqueda y no son amigos
-     */
-    @Query("SELECT new es.tfg.tu_curso.dto.UsuarioDTO(u.id, u.nombre, u.descripcion, u.icono) " +
-            "FROM Usuario u WHERE u.id != :usuarioId " +
-            "AND u.nombre LIKE %:nombre% " +
-            "AND u.id NOT IN (SELECT a.id FROM Usuario usr JOIN usr.amigos a WHERE usr.id = :usuarioId)")
-    List<UsuarioDTO> findUsuariosNoAmigosByNombre(@Param("usuarioId") Long usuarioId, @Param("nombre") String nombre);
-
     /**
      * Verifica si dos usuarios son amigos.
      *
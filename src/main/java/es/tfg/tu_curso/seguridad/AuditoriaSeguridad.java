@@ -0,0 +1,205 @@
+package es.tfg.tu_curso.seguridad;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.EnumMap;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Registro de eventos de auditoría de la cadena de seguridad.
+ * Los eventos se escriben en el logger "es.tfg.tu_curso.seguridad.auditoria", que se envía a un
+ * appender asíncrono (ver logback-spring.xml), con formato clave=valor. Las autenticaciones correctas
+ * se muestrean y cada tipo de evento tiene un límite de líneas por segundo; los tokens nunca se
+ * registran, solo su huella (prefijo del SHA-256).
+ */
+@Component
+public class AuditoriaSeguridad {
+
+    private static final Logger LOG = LoggerFactory.getLogger("es.tfg.tu_curso.seguridad.auditoria");
+
+    private static final HexFormat HEX = HexFormat.of();
+
+    /**
+     * Tipos de evento registrados por la cadena de seguridad.
+     */
+    public enum Evento {
+        TOKEN_ACEPTADO,
+        TOKEN_RECHAZADO,
+        SELLO_NO_VIGENTE,
+        ACCESO_NO_AUTENTICADO,
+        LIMITE_SUPERADO
+    }
+
+    /**
+     * Se registra una de cada N autenticaciones correctas.
+     */
+    @Value("${seguridad.auditoria.muestreo-aceptados:100}")
+    private int muestreoAceptados;
+
+    /**
+     * Número máximo de líneas por segundo para cada tipo de evento.
+     */
+    @Value("${seguridad.auditoria.limite-por-segundo:20}")
+    private int limitePorSegundo;
+
+    private final AtomicLong aceptados = new AtomicLong();
+
+    private final Map<Evento, Ventana> ventanas = new EnumMap<>(Evento.class);
+
+    /**
+     * Constructor que inicializa la ventana de limitación de cada tipo de evento.
+     */
+    public AuditoriaSeguridad() {
+        for (Evento evento : Evento.values()) {
+            ventanas.put(evento, new Ventana());
+        }
+    }
+
+    /**
+     * Registra una autenticación correcta a partir de un token. Solo se registra una de cada
+     * {@code seguridad.auditoria.muestreo-aceptados}.
+     *
+     * @param request Solicitud autenticada
+     * @param token   Token JWT utilizado
+     * @param datos   Datos verificados del token
+     */
+    public void tokenAceptado(HttpServletRequest request, String token, DatosToken datos) {
+        if (!LOG.isInfoEnabled() || aceptados.incrementAndGet() % Math.max(1, muestreoAceptados) != 0) {
+            return;
+        }
+        int suprimidos = admitir(Evento.TOKEN_ACEPTADO);
+        if (suprimidos >= 0) {
+            LOG.info("evento={} metodo={} uri={} usuario={} huella={} muestreo=1/{} suprimidos={}",
+                    Evento.TOKEN_ACEPTADO, request.getMethod(), request.getRequestURI(),
+                    datos.getUsuarioId(), huella(token), muestreoAceptados, suprimidos);
+        }
+    }
+
+    /**
+     * Registra un token rechazado por estar mal formado, tener una firma inválida o haber expirado.
+     *
+     * @param request Solicitud que contenía el token
+     * @param token   Token JWT rechazado
+     * @param motivo  Motivo del rechazo
+     */
+    public void tokenRechazado(HttpServletRequest request, String token, String motivo) {
+        int suprimidos = admitir(Evento.TOKEN_RECHAZADO);
+        if (suprimidos >= 0 && LOG.isWarnEnabled()) {
+            LOG.warn("evento={} metodo={} uri={} ip={} huella={} motivo=\"{}\" suprimidos={}",
+                    Evento.TOKEN_RECHAZADO, request.getMethod(), request.getRequestURI(),
+                    request.getRemoteAddr(), huella(token), motivo, suprimidos);
+        }
+    }
+
+    /**
+     * Registra un token válido cuyo sello de seguridad ya no coincide con el del usuario.
+     *
+     * @param request Solicitud que contenía el token
+     * @param token   Token JWT rechazado
+     * @param datos   Datos verificados del token
+     */
+    public void selloNoVigente(HttpServletRequest request, String token, DatosToken datos) {
+        int suprimidos = admitir(Evento.SELLO_NO_VIGENTE);
+        if (suprimidos >= 0 && LOG.isWarnEnabled()) {
+            LOG.warn("evento={} metodo={} uri={} usuario={} huella={} suprimidos={}",
+                    Evento.SELLO_NO_VIGENTE, request.getMethod(), request.getRequestURI(),
+                    datos.getUsuarioId(), huella(token), suprimidos);
+        }
+    }
+
+    /**
+     * Registra un acceso a un recurso protegido sin una autenticación válida.
+     *
+     * @param request Solicitud rechazada
+     * @param motivo  Mensaje de la excepción de autenticación
+     */
+    public void accesoNoAutenticado(HttpServletRequest request, String motivo) {
+        int suprimidos = admitir(Evento.ACCESO_NO_AUTENTICADO);
+        if (suprimidos >= 0 && LOG.isInfoEnabled()) {
+            String authorization = request.getHeader("Authorization");
+            LOG.info("evento={} metodo={} uri={} ip={} huella={} motivo=\"{}\" suprimidos={}",
+                    Evento.ACCESO_NO_AUTENTICADO, request.getMethod(), request.getRequestURI(),
+                    request.getRemoteAddr(), huella(authorization), motivo, suprimidos);
+        }
+    }
+
+    /**
+     * Registra una solicitud rechazada por superar el límite de tasa.
+     *
+     * @param request Solicitud rechazada
+     * @param tipo    Límite superado: "ip" o "email"
+     */
+    public void limiteSuperado(HttpServletRequest request, String tipo) {
+        int suprimidos = admitir(Evento.LIMITE_SUPERADO);
+        if (suprimidos >= 0 && LOG.isWarnEnabled()) {
+            LOG.warn("evento={} metodo={} uri={} ip={} limite={} suprimidos={}",
+                    Evento.LIMITE_SUPERADO, request.getMethod(), request.getRequestURI(),
+                    request.getRemoteAddr(), tipo, suprimidos);
+        }
+    }
+
+    /**
+     * Calcula la huella de un token: los primeros 6 bytes de su SHA-256 en hexadecimal.
+     * Permite correlacionar eventos de un mismo token sin registrar el token.
+     *
+     * @param token Token JWT, con o sin el prefijo "Bearer "
+     * @return La huella del token, o "-" si no hay token
+     */
+    public static String huella(String token) {
+        if (token == null || token.isEmpty()) {
+            return "-";
+        }
+        if (token.startsWith("Bearer ")) {
+            token = token.substring(7);
+        }
+        try {
+            byte[] resumen = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+            return HEX.formatHex(resumen, 0, 6);
+        } catch (NoSuchAlgorithmException e) {
+            return "-";
+        }
+    }
+
+    /**
+     * Aplica el límite por segundo de un tipo de evento.
+     *
+     * @param evento Tipo de evento
+     * @return El número de eventos suprimidos en la ventana anterior si el evento debe registrarse, o -1 si no
+     */
+    private int admitir(Evento evento) {
+        return ventanas.get(evento).admitir(System.currentTimeMillis() / 1000, limitePorSegundo);
+    }
+
+    /**
+     * Ventana de un segundo con el número de eventos registrados y suprimidos.
+     */
+    private static final class Ventana {
+        private final AtomicLong segundo = new AtomicLong();
+        private final AtomicInteger registrados = new AtomicInteger();
+        private final AtomicInteger suprimidos = new AtomicInteger();
+        private volatile int suprimidosAnterior;
+
+        int admitir(long segundoActual, int limite) {
+            long actual = segundo.get();
+            if (actual != segundoActual && segundo.compareAndSet(actual, segundoActual)) {
+                suprimidosAnterior = suprimidos.getAndSet(0);
+                registrados.set(0);
+            }
+            if (registrados.incrementAndGet() <= limite) {
+                return suprimidosAnterior;
+            }
+            suprimidos.incrementAndGet();
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package es.tfg.tu_curso.seguridad;
+
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+/**
+ * Codificador BCrypt que considera obsoleto cualquier hash cuyo coste sea distinto del configurado,
+ * tanto si es menor como si es mayor. {@link BCryptPasswordEncoder} solo actualiza los hashes de
+ * coste inferior, lo que impediría reducir el coste en un servidor más lento.
+ */
+public class BCryptCosteAdaptativo extends BCryptPasswordEncoder {
+
+    /**
+     * Coste (log2 del número de rondas) con el que se calculan los hashes nuevos.
+     */
+    private final int coste;
+
+    /**
+     * Constructor con el coste de los hashes nuevos.
+     *
+     * @param coste Coste BCrypt, entre 4 y 31
+     */
+    public BCryptCosteAdaptativo(int coste) {
+        super(coste);
+        this.coste = coste;
+    }
+
+    /**
+     * Indica si el hash se calculó con un coste distinto del actual.
+     * Los valores que no tienen formato BCrypt no se consideran obsoletos, ya que no pueden verificarse.
+     */
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        int costeHash = costeDe(encodedPassword);
+        return costeHash > 0 && costeHash != coste;
+    }
+
+    public int getCoste() {
+        return coste;
+    }
+
+    /**
+     * Obtiene el coste de un hash BCrypt con formato $2a$NN$..., $2b$NN$... o $2y$NN$...
+     *
+     * @param hash Hash BCrypt sin prefijo de identificador
+     * @return El coste del hash, o -1 si no tiene formato BCrypt
+     */
+    public static int costeDe(String hash) {
+        if (hash == null || hash.length() < 7 || hash.charAt(0) != '$' || hash.charAt(1) != '2'
+                || hash.charAt(3) != '$' || hash.charAt(6) != '$'
+                || !Character.isDigit(hash.charAt(4)) || !Character.isDigit(hash.charAt(5))) {
+            return -1;
+        }
+        return (hash.charAt(4) - '0') * 10 + (hash.charAt(5) - '0');
+    }
+}
@@ -0,0 +1,144 @@
+package es.tfg.tu_curso.seguridad;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Caché acotada de tokens JWT ya verificados.
+ * Asocia el resumen SHA-256 de cada token con sus datos verificados, de forma que las solicitudes
+ * que reutilizan un mismo token no tienen que volver a comprobar su firma ni procesar sus claims.
+ * Las lecturas no bloquean; las entradas caducan con el token o tras un tiempo máximo, y
+ * al alcanzar el tamaño máximo se eliminan primero las caducadas y después entradas arbitrarias.
+ */
+@Component
+public class CacheTokensVerificados {
+
+    /**
+     * Número máximo de tokens almacenados en la caché.
+     */
+    @Value("${jwt.cache.tamano-maximo:10000}")
+    private int tamanoMaximo;
+
+    /**
+     * Tiempo máximo en milisegundos que un token permanece en la caché.
+     */
+    @Value("${jwt.cache.ttl:300000}")
+    private long ttl;
+
+    /**
+     * Entradas de la caché indexadas por el resumen del token.
+     */
+    private final Map<String, Entrada> entradas = new ConcurrentHashMap<>();
+
+    /**
+     * Instancia de SHA-256 reutilizada por cada hilo.
+     */
+    private static final ThreadLocal<MessageDigest> SHA256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no disponible", e);
+        }
+    });
+
+    private final LongAdder aciertos = new LongAdder();
+    private final LongAdder fallos = new LongAdder();
+    private final LongAdder expulsiones = new LongAdder();
+
+    /**
+     * Calcula la clave de caché de un token.
+     *
+     * @param token El token JWT
+     * @return El resumen SHA-256 del token codificado en Base64
+     */
+    public String clave(String token) {
+        byte[] resumen = SHA256.get().digest(token.getBytes(StandardCharsets.US_ASCII));
+        return Base64.getEncoder().withoutPadding().encodeToString(resumen);
+    }
+
+    /**
+     * Obtiene los datos verificados asociados a una clave si siguen vigentes.
+     *
+     * @param clave Clave calculada con {@link #clave(String)}
+     * @return Los datos del token, o null si no están en la caché o han caducado
+     */
+    public DatosToken obtener(String clave) {
+        Entrada entrada = entradas.get(clave);
+        if (entrada != null) {
+            if (entrada.caducaEn() > System.currentTimeMillis()) {
+                aciertos.increment();
+                return entrada.datos();
+            }
+            entradas.remove(clave, entrada);
+        }
+        fallos.increment();
+        return null;
+    }
+
+    /**
+     * Almacena los datos de un token recién verificado.
+     *
+     * @param clave Clave calculada con {@link #clave(String)}
+     * @param datos Datos verificados del token
+     */
+    public void guardar(String clave, DatosToken datos) {
+        long ahora = System.currentTimeMillis();
+        long caducaEn = Math.min(datos.getExpiracion(), ahora + ttl);
+        if (caducaEn <= ahora) {
+            return;
+        }
+        if (entradas.size() >= tamanoMaximo) {
+            liberarEspacio(ahora);
+        }
+        entradas.put(clave, new Entrada(datos, caducaEn));
+    }
+
+    /**
+     * Elimina las entradas caducadas y, si no es suficiente, entradas arbitrarias hasta
+     * dejar la caché al 90% de su capacidad.
+     *
+     * @param ahora Instante actual en milisegundos
+     */
+    private void liberarEspacio(long ahora) {
+        entradas.values().removeIf(entrada -> entrada.caducaEn() <= ahora);
+
+        int objetivo = tamanoMaximo - tamanoMaximo / 10 - 1;
+        Iterator<Entrada> it = entradas.values().iterator();
+        while (entradas.size() > objetivo && it.hasNext()) {
+            it.next();
+            it.remove();
+            expulsiones.increment();
+        }
+    }
+
+    public long getAciertos() {
+        return aciertos.sum();
+    }
+
+    public long getFallos() {
+        return fallos.sum();
+    }
+
+    public long getExpulsiones() {
+        return expulsiones.sum();
+    }
+
+    public int getTamano() {
+        return entradas.size();
+    }
+
+    /**
+     * Datos de un token y momento en que deja de ser válida la entrada.
+     */
+    private record Entrada(DatosToken datos, long caducaEn) {
+    }
+}
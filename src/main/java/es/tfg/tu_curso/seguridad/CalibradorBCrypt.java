@@ -0,0 +1,100 @@
+package es.tfg.tu_curso.seguridad;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.bcrypt.BCrypt;
+import org.springframework.stereotype.Component;
+
+/**
+ * Elige al arrancar el coste de BCrypt de este servidor.
+ * Mide el tiempo de un hash con un coste de referencia y, como cada unidad de coste duplica el tiempo,
+ * selecciona el mayor coste cuyo tiempo estimado no supera el objetivo configurado, dentro de los límites.
+ * Si se configura un coste fijo no se realiza la medición.
+ */
+@Component
+public class CalibradorBCrypt {
+
+    private static final Logger LOG = LoggerFactory.getLogger(CalibradorBCrypt.class);
+
+    /**
+     * Coste con el que se mide el tiempo de referencia.
+     */
+    private static final int COSTE_REFERENCIA = 8;
+
+    /**
+     * Número de mediciones del coste de referencia; se toma la menor.
+     */
+    private static final int MEDICIONES = 3;
+
+    private final int coste;
+
+    private final long objetivoMs;
+
+    /**
+     * Tiempo estimado de un hash con el coste elegido, en milisegundos.
+     */
+    private final double tiempoEstimadoMs;
+
+    /**
+     * Constructor que realiza la calibración.
+     *
+     * @param costeFijo   Coste a utilizar sin calibrar; 0 para calibrar
+     * @param objetivoMs  Tiempo objetivo de un hash en milisegundos
+     * @param costeMinimo Coste mínimo permitido
+     * @param costeMaximo Coste máximo permitido
+     */
+    public CalibradorBCrypt(@Value("${seguridad.bcrypt.coste:0}") int costeFijo,
+                            @Value("${seguridad.bcrypt.objetivo-ms:250}") long objetivoMs,
+                            @Value("${seguridad.bcrypt.coste-minimo:10}") int costeMinimo,
+                            @Value("${seguridad.bcrypt.coste-maximo:14}") int costeMaximo) {
+        this.objetivoMs = objetivoMs;
+        double referenciaMs = medirReferencia();
+        if (costeFijo > 0) {
+            this.coste = costeFijo;
+        } else {
+            int elegido = costeMinimo;
+            while (elegido < costeMaximo && estimar(referenciaMs, elegido + 1) <= objetivoMs) {
+                elegido++;
+            }
+            this.coste = elegido;
+        }
+        this.tiempoEstimadoMs = estimar(referenciaMs, coste);
+        LOG.info("Coste de BCrypt: {} (tiempo estimado {} ms, objetivo {} ms{})", coste,
+                Math.round(tiempoEstimadoMs), objetivoMs, costeFijo > 0 ? ", coste fijo" : "");
+    }
+
+    public int getCoste() {
+        return coste;
+    }
+
+    public long getObjetivoMs() {
+        return objetivoMs;
+    }
+
+    public double getTiempoEstimadoMs() {
+        return tiempoEstimadoMs;
+    }
+
+    private static double estimar(double referenciaMs, int coste) {
+        return referenciaMs * Math.pow(2, coste - COSTE_REFERENCIA);
+    }
+
+    /**
+     * Mide el tiempo de un hash con el coste de referencia tras calentar la implementación.
+     */
+    private static double medirReferencia() {
+        String sal = BCrypt.gensalt(4);
+        for (int i = 0; i < 5; i++) {
+            BCrypt.hashpw("calibracion", sal);
+        }
+        sal = BCrypt.gensalt(COSTE_REFERENCIA);
+        long mejor = Long.MAX_VALUE;
+        for (int i = 0; i < MEDICIONES; i++) {
+            long inicio = System.nanoTime();
+            BCrypt.hashpw("calibracion", sal);
+            mejor = Math.min(mejor, System.nanoTime() - inicio);
+        }
+        return mejor / 1_000_000.0;
+    }
+}
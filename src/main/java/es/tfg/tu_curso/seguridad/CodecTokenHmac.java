@@ -0,0 +1,298 @@
+package es.tfg.tu_curso.seguridad;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import io.jsonwebtoken.impl.TextCodec;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.Base64;
+
+/**
+ * Codificador y verificador de tokens JWS compactos firmados con HMAC-SHA512.
+ * Genera tokens con el mismo formato que jjwt (cabecera {"alg":"HS512"} y fechas en segundos),
+ * de modo que los tokens emitidos por ambas implementaciones son intercambiables.
+ * La clave se deriva una única vez, cada hilo reutiliza su propia instancia de {@link Mac}
+ * y los claims se leen directamente del JSON sin construir un mapa genérico.
+ */
+@Component
+public class CodecTokenHmac {
+
+    /**
+     * Algoritmo HMAC utilizado para firmar los tokens.
+     */
+    private static final String ALGORITMO = "HmacSHA512";
+
+    /**
+     * Cabecera de los tokens emitidos, ya codificada en Base64URL.
+     */
+    private static final String CABECERA = Base64.getUrlEncoder().withoutPadding()
+            .encodeToString("{\"alg\":\"HS512\"}".getBytes(StandardCharsets.US_ASCII));
+
+    private static final Base64.Encoder CODIFICADOR = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODIFICADOR = Base64.getUrlDecoder();
+    private static final JsonFactory JSON = new JsonFactory();
+
+    /**
+     * Clave de firma derivada de la propiedad jwt.secret.
+     */
+    private final SecretKeySpec clave;
+
+    /**
+     * Instancia de {@link Mac} inicializada con la clave para cada hilo.
+     */
+    private final ThreadLocal<Mac> macs;
+
+    /**
+     * Constructor que deriva la clave de firma a partir del secreto configurado.
+     * El secreto se interpreta en Base64, igual que hace jjwt al firmar con una cadena.
+     *
+     * @param secreto Secreto configurado en la propiedad jwt.secret
+     */
+    public CodecTokenHmac(@Value("${jwt.secret}") String secreto) {
+        this.clave = new SecretKeySpec(TextCodec.BASE64.decode(secreto), ALGORITMO);
+        this.macs = ThreadLocal.withInitial(this::crearMac);
+    }
+
+    /**
+     * Genera un token firmado con los claims indicados y sin identificador. Los claims nulos se omiten.
+     *
+     * @param subject        Nombre de usuario (claim "sub")
+     * @param rol            Rol del usuario
+     * @param usuarioId      Identificador del usuario
+     * @param selloSeguridad Sello de seguridad del usuario
+     * @param emision        Fecha de emisión en milisegundos desde epoch
+     * @param expiracion     Fecha de expiración en milisegundos desde epoch
+     * @return El token JWS compacto
+     */
+    public String firmar(String subject, String rol, Long usuarioId, String selloSeguridad,
+                         long emision, long expiracion) {
+        return firmar(subject, rol, usuarioId, selloSeguridad, emision, expiracion, 0);
+    }
+
+    /**
+     * Genera un token firmado con los claims indicados. Los claims nulos se omiten.
+     *
+     * @param subject        Nombre de usuario (claim "sub")
+     * @param rol            Rol del usuario
+     * @param usuarioId      Identificador del usuario
+     * @param selloSeguridad Sello de seguridad del usuario
+     * @param emision        Fecha de emisión en milisegundos desde epoch
+     * @param expiracion     Fecha de expiración en milisegundos desde epoch
+     * @param jti            Identificador del token (claim "jti"), o 0 para omitirlo
+     * @return El token JWS compacto
+     */
+    public String firmar(String subject, String rol, Long usuarioId, String selloSeguridad,
+                         long emision, long expiracion, long jti) {
+        StringBuilder json = new StringBuilder(192).append('{');
+        if (jti != 0) {
+            agregarTexto(json, "jti", codificarJti(jti));
+        }
+        agregarTexto(json, "sub", subject);
+        agregarTexto(json, JwtUtil.CLAIM_ROL, rol);
+        if (usuarioId != null) {
+            json.append('"').append(JwtUtil.CLAIM_USUARIO_ID).append("\":").append(usuarioId.longValue()).append(',');
+        }
+        agregarTexto(json, JwtUtil.CLAIM_SELLO, selloSeguridad);
+        json.append("\"iat\":").append(emision / 1000)
+                .append(",\"exp\":").append(expiracion / 1000)
+                .append('}');
+
+        String contenido = CABECERA + '.' + CODIFICADOR.encodeToString(json.toString().getBytes(StandardCharsets.UTF_8));
+        byte[] firma = macs.get().doFinal(contenido.getBytes(StandardCharsets.US_ASCII));
+        return contenido + '.' + CODIFICADOR.encodeToString(firma);
+    }
+
+    /**
+     * Verifica la firma y la vigencia de un token y extrae sus claims.
+     *
+     * @param token El token JWS compacto
+     * @return Los datos contenidos en el token
+     * @throws TokenInvalidoException Si el token está mal formado, su firma no coincide o ha expirado
+     */
+    public DatosToken verificar(String token) {
+        if (token == null) {
+            throw new TokenInvalidoException("Token vacío");
+        }
+        int primerPunto = token.indexOf('.');
+        int segundoPunto = primerPunto < 0 ? -1 : token.indexOf('.', primerPunto + 1);
+        if (primerPunto <= 0 || segundoPunto < 0 || token.indexOf('.', segundoPunto + 1) >= 0) {
+            throw new TokenInvalidoException("Token mal formado");
+        }
+
+        byte[] bytes = token.getBytes(StandardCharsets.US_ASCII);
+        comprobarCabecera(token, bytes, primerPunto);
+
+        Mac mac = macs.get();
+        mac.update(bytes, 0, segundoPunto);
+        byte[] firmaEsperada = mac.doFinal();
+        byte[] firmaRecibida = decodificar(bytes, segundoPunto + 1, bytes.length);
+        if (!MessageDigest.isEqual(firmaEsperada, firmaRecibida)) {
+            throw new TokenInvalidoException("La firma del token no es válida");
+        }
+
+        return leerClaims(decodificar(bytes, primerPunto + 1, segundoPunto));
+    }
+
+    /**
+     * Comprueba que la cabecera del token declara el algoritmo HS512.
+     * La cabecera de los tokens emitidos por esta aplicación se reconoce sin decodificarla.
+     */
+    private void comprobarCabecera(String token, byte[] bytes, int primerPunto) {
+        if (primerPunto == CABECERA.length() && token.startsWith(CABECERA)) {
+            return;
+        }
+        byte[] cabecera = decodificar(bytes, 0, primerPunto);
+        try (JsonParser parser = JSON.createParser(cabecera)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new TokenInvalidoException("Cabecera mal formada");
+            }
+            String algoritmo = null;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String campo = parser.currentName();
+                parser.nextToken();
+                if ("alg".equals(campo)) {
+                    algoritmo = parser.getValueAsString();
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            if (!"HS512".equals(algoritmo)) {
+                throw new TokenInvalidoException("Algoritmo de firma no soportado: " + algoritmo);
+            }
+        } catch (IOException e) {
+            throw new TokenInvalidoException("Cabecera mal formada", e);
+        }
+    }
+
+    /**
+     * Lee los claims del contenido del token y comprueba sus fechas.
+     */
+    private DatosToken leerClaims(byte[] contenido) {
+        String subject = null;
+        String rol = null;
+        Long usuarioId = null;
+        String sello = null;
+        long expiracion = Long.MAX_VALUE;
+        long noAntesDe = Long.MIN_VALUE;
+        long jti = 0;
+
+        try (JsonParser parser = JSON.createParser(contenido)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new TokenInvalidoException("Contenido del token mal formado");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String campo = parser.currentName();
+                JsonToken valor = parser.nextToken();
+                if (valor == JsonToken.VALUE_NULL) {
+                    continue;
+                }
+                switch (campo) {
+                    case "sub" -> subject = parser.getValueAsString();
+                    case JwtUtil.CLAIM_ROL -> rol = parser.getValueAsString();
+                    case JwtUtil.CLAIM_USUARIO_ID -> usuarioId = parser.getValueAsLong();
+                    case JwtUtil.CLAIM_SELLO -> sello = parser.getValueAsString();
+                    case "exp" -> expiracion = parser.getValueAsLong() * 1000;
+                    case "nbf" -> noAntesDe = parser.getValueAsLong() * 1000;
+                    case "jti" -> jti = decodificarJti(parser.getValueAsString());
+                    default -> parser.skipChildren();
+                }
+            }
+        } catch (IOException e) {
+            throw new TokenInvalidoException("Contenido del token mal formado", e);
+        }
+
+        long ahora = System.currentTimeMillis();
+        if (expiracion <= ahora) {
+            throw new TokenInvalidoException("El token ha expirado");
+        }
+        if (noAntesDe > ahora) {
+            throw new TokenInvalidoException("El token todavía no es válido");
+        }
+        return new DatosToken(subject, rol, usuarioId, sello, expiracion, jti);
+    }
+
+    /**
+     * Representa el identificador de un token como 16 dígitos hexadecimales.
+     */
+    private static String codificarJti(long jti) {
+        String hex = Long.toHexString(jti);
+        return "0".repeat(16 - hex.length()) + hex;
+    }
+
+    /**
+     * Obtiene el identificador numérico de un claim "jti" emitido por esta aplicación.
+     *
+     * @return El identificador, o 0 si el claim no tiene el formato de esta aplicación
+     */
+    private static long decodificarJti(String jti) {
+        if (jti == null || jti.length() != 16) {
+            return 0;
+        }
+        try {
+            return Long.parseUnsignedLong(jti, 16);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Decodifica un fragmento Base64URL del token.
+     */
+    private static byte[] decodificar(byte[] bytes, int desde, int hasta) {
+        try {
+            ByteBuffer decodificado = DECODIFICADOR.decode(ByteBuffer.wrap(bytes, desde, hasta - desde));
+            byte[] resultado = decodificado.array();
+            return resultado.length == decodificado.remaining() ? resultado : Arrays.copyOf(resultado, decodificado.remaining());
+        } catch (IllegalArgumentException e) {
+            throw new TokenInvalidoException("Token mal codificado", e);
+        }
+    }
+
+    /**
+     * Agrega un claim de texto al JSON en construcción, escapando su valor.
+     */
+    private static void agregarTexto(StringBuilder json, String nombre, String valor) {
+        if (valor == null) {
+            return;
+        }
+        json.append('"').append(nombre).append("\":\"");
+        for (int i = 0; i < valor.length(); i++) {
+            char c = valor.charAt(i);
+            switch (c) {
+                case '"' -> json.append("\\\"");
+                case '\\' -> json.append("\\\\");
+                default -> {
+                    if (c < 0x20) {
+                        json.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        json.append(c);
+                    }
+                }
+            }
+        }
+        json.append("\",");
+    }
+
+    /**
+     * Crea una instancia de {@link Mac} inicializada con la clave de firma.
+     */
+    private Mac crearMac() {
+        try {
+            Mac mac = Mac.getInstance(ALGORITMO);
+            mac.init(clave);
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("No se pudo inicializar " + ALGORITMO, e);
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package es.tfg.tu_curso.seguridad;
+
+/**
+ * Datos ya verificados de un token JWT.
+ * Se construye una única vez tras comprobar la firma del token, de forma que el resto
+ * de la cadena de seguridad puede trabajar con los claims sin volver a procesar el token.
+ */
+public class DatosToken {
+
+    /**
+     * Nombre de usuario (email) contenido en el claim "sub".
+     */
+    private final String subject;
+
+    /**
+     * Rol del usuario, o {@code null} si el token no lo incluye.
+     */
+    private final String rol;
+
+    /**
+     * Identificador del usuario, o {@code null} si el token no lo incluye.
+     */
+    private final Long usuarioId;
+
+    /**
+     * Sello de seguridad del usuario en el momento de emitir el token.
+     */
+    private final String selloSeguridad;
+
+    /**
+     * Fecha de expiración del token en milisegundos desde epoch.
+     */
+    private final long expiracion;
+
+    /**
+     * Identificador del token (claim "jti"), o 0 si el token no lo incluye.
+     */
+    private final long jti;
+
+    /**
+     * Constructor para tokens sin identificador.
+     *
+     * @param subject        Nombre de usuario contenido en el token
+     * @param rol            Rol del usuario
+     * @param usuarioId      Identificador del usuario
+     * @param selloSeguridad Sello de seguridad del usuario
+     * @param expiracion     Fecha de expiración en milisegundos desde epoch
+     */
+    public DatosToken(String subject, String rol, Long usuarioId, String selloSeguridad, long expiracion) {
+        this(subject, rol, usuarioId, selloSeguridad, expiracion, 0);
+    }
+
+    /**
+     * Constructor que inicializa todos los datos del token.
+     *
+     * @param subject        Nombre de usuario contenido en el token
+     * @param rol            Rol del usuario
+     * @param usuarioId      Identificador del usuario
+     * @param selloSeguridad Sello de seguridad del usuario
+     * @param expiracion     Fecha de expiración en milisegundos desde epoch
+     * @param jti            Identificador del token, o 0 si no lo incluye
+     */
+    public DatosToken(String subject, String rol, Long usuarioId, String selloSeguridad, long expiracion, long jti) {
+        this.subject = subject;
+        this.rol = rol;
+        this.usuarioId = usuarioId;
+        this.selloSeguridad = selloSeguridad;
+        this.expiracion = expiracion;
+        this.jti = jti;
+    }
+
+    public String getSubject() {
+        return subject;
+    }
+
+    public String getRol() {
+        return rol;
+    }
+
+    public Long getUsuarioId() {
+        return usuarioId;
+    }
+
+    public String getSelloSeguridad() {
+        return selloSeguridad;
+    }
+
+    public long getExpiracion() {
+        return expiracion;
+    }
+
+    public long getJti() {
+        return jti;
+    }
+
+    /**
+     * Indica si el token contiene los claims necesarios para construir la autenticación
+     * sin consultar la base de datos.
+     *
+     * @return true si el token incluye rol e identificador de usuario
+     */
+    public boolean permiteAutenticacionSinEstado() {
+        return rol != null && usuarioId != null;
+    }
+}
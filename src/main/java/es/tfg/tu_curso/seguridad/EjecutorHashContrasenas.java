@@ -0,0 +1,159 @@
+package es.tfg.tu_curso.seguridad;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Ejecutor dedicado para el cálculo y la verificación de hashes de contraseñas.
+ * BCrypt consume CPU de forma intensiva, por lo que se ejecuta en un número fijo de hilos
+ * (por defecto uno por núcleo) con una cola acotada. Si la cola está llena la operación se
+ * rechaza inmediatamente con {@link ServicioSaturadoException} en lugar de acumular solicitudes
+ * y dejar sin CPU al resto de endpoints.
+ */
+@Component
+public class EjecutorHashContrasenas {
+
+    /**
+     * Segundos que se indican en la cabecera Retry-After cuando se rechaza una operación.
+     */
+    private final long reintentarEn;
+
+    private final ThreadPoolExecutor ejecutor;
+
+    private final LongAdder completadas = new LongAdder();
+    private final LongAdder rechazadas = new LongAdder();
+    private final LongAdder nanosEjecucion = new LongAdder();
+    private final LongAdder nanosEspera = new LongAdder();
+    private final LongAccumulator maxNanosEjecucion = new LongAccumulator(Long::max, 0);
+
+    /**
+     * Constructor que crea el ejecutor con la configuración indicada.
+     *
+     * @param hilos        Número de hilos; 0 para usar uno por procesador disponible
+     * @param capacidadCola Número máximo de operaciones en espera
+     * @param reintentarEn Segundos indicados en Retry-After al rechazar una operación
+     */
+    public EjecutorHashContrasenas(@Value("${seguridad.hash.hilos:0}") int hilos,
+                                   @Value("${seguridad.hash.cola:64}") int capacidadCola,
+                                   @Value("${seguridad.hash.retry-after:1}") long reintentarEn) {
+        int numeroHilos = hilos > 0 ? hilos : Runtime.getRuntime().availableProcessors();
+        AtomicInteger contador = new AtomicInteger();
+        this.reintentarEn = reintentarEn;
+        this.ejecutor = new ThreadPoolExecutor(numeroHilos, numeroHilos, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(capacidadCola), tarea -> {
+                    Thread hilo = new Thread(tarea, "hash-contrasenas-" + contador.incrementAndGet());
+                    hilo.setDaemon(true);
+                    return hilo;
+                }, new ThreadPoolExecutor.AbortPolicy());
+        this.ejecutor.prestartAllCoreThreads();
+    }
+
+    /**
+     * Ejecuta una operación de hash en el ejecutor dedicado y espera su resultado.
+     *
+     * @param operacion Operación a ejecutar
+     * @return El resultado de la operación
+     * @throws ServicioSaturadoException Si la cola del ejecutor está llena
+     */
+    public <T> T ejecutar(Callable<T> operacion) {
+        long encolada = System.nanoTime();
+        Future<T> resultado;
+        try {
+            resultado = ejecutor.submit(() -> {
+                long inicio = System.nanoTime();
+                nanosEspera.add(inicio - encolada);
+                try {
+                    return operacion.call();
+                } finally {
+                    long duracion = System.nanoTime() - inicio;
+                    nanosEjecucion.add(duracion);
+                    maxNanosEjecucion.accumulate(duracion);
+                    completadas.increment();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rechazadas.increment();
+            throw new ServicioSaturadoException("Demasiadas solicitudes de autenticación, inténtelo más tarde", reintentarEn);
+        }
+
+        try {
+            return resultado.get();
+        } catch (InterruptedException e) {
+            resultado.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Operación de hash interrumpida", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IllegalStateException("Error al calcular el hash de la contraseña", e.getCause());
+        }
+    }
+
+    /**
+     * Detiene los hilos del ejecutor al cerrar la aplicación.
+     */
+    @PreDestroy
+    public void cerrar() {
+        ejecutor.shutdownNow();
+    }
+
+    public int getHilos() {
+        return ejecutor.getMaximumPoolSize();
+    }
+
+    public int getActivas() {
+        return ejecutor.getActiveCount();
+    }
+
+    public int getEnCola() {
+        return ejecutor.getQueue().size();
+    }
+
+    public int getCapacidadCola() {
+        return ejecutor.getQueue().size() + ejecutor.getQueue().remainingCapacity();
+    }
+
+    public long getCompletadas() {
+        return completadas.sum();
+    }
+
+    public long getRechazadas() {
+        return rechazadas.sum();
+    }
+
+    /**
+     * @return Tiempo medio de cálculo de un hash en milisegundos
+     */
+    public double getLatenciaMediaMs() {
+        long total = completadas.sum();
+        return total == 0 ? 0 : nanosEjecucion.sum() / (total * 1_000_000.0);
+    }
+
+    /**
+     * @return Tiempo máximo de cálculo de un hash en milisegundos
+     */
+    public double getLatenciaMaximaMs() {
+        return maxNanosEjecucion.get() / 1_000_000.0;
+    }
+
+    /**
+     * @return Tiempo medio de espera en cola en milisegundos
+     */
+    public double getEsperaMediaMs() {
+        long total = completadas.sum();
+        return total == 0 ? 0 : nanosEspera.sum() / (total * 1_000_000.0);
+    }
+}
@@ -0,0 +1,99 @@
+package es.tfg.tu_curso.seguridad;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Filtro de Bloom de claves de tipo long.
+ * Responde sin falsos negativos si una clave puede estar en el conjunto; un resultado negativo
+ * es definitivo y se obtiene con unas pocas lecturas del array de bits, sin crear objetos.
+ * Las posiciones se derivan de dos mezclas de la clave (doble hashing). No admite eliminaciones:
+ * para descartar claves se construye un filtro nuevo.
+ */
+public class FiltroBloom {
+
+    /**
+     * Bits del filtro agrupados en palabras de 64 bits.
+     */
+    private final AtomicLongArray palabras;
+
+    /**
+     * Máscara para reducir un hash al número de bits, que es potencia de dos.
+     */
+    private final long mascara;
+
+    /**
+     * Número de posiciones comprobadas por cada clave.
+     */
+    private final int funciones;
+
+    /**
+     * Constructor que dimensiona el filtro para el número de claves y la tasa de falsos positivos indicados.
+     *
+     * @param capacidad       Número de claves previsto
+     * @param falsosPositivos Probabilidad de falso positivo deseada con esa capacidad
+     */
+    public FiltroBloom(int capacidad, double falsosPositivos) {
+        int n = Math.max(1, capacidad);
+        double ln2 = Math.log(2);
+        long bitsNecesarios = (long) Math.ceil(-n * Math.log(falsosPositivos) / (ln2 * ln2));
+        long bits = Math.max(64, Long.highestOneBit(Math.max(1, bitsNecesarios - 1)) << 1);
+        this.palabras = new AtomicLongArray((int) (bits >>> 6));
+        this.mascara = bits - 1;
+        this.funciones = (int) Math.max(1, Math.round((double) bits / n * ln2));
+    }
+
+    /**
+     * Añade una clave al filtro.
+     *
+     * @param clave Clave a añadir
+     */
+    public void agregar(long clave) {
+        long h1 = mezclar(clave);
+        long h2 = mezclar(h1) | 1;
+        for (int i = 0; i < funciones; i++) {
+            long bit = (h1 + i * h2) & mascara;
+            int palabra = (int) (bit >>> 6);
+            long marca = 1L << bit;
+            long actual = palabras.get(palabra);
+            while ((actual & marca) == 0 && !palabras.compareAndSet(palabra, actual, actual | marca)) {
+                actual = palabras.get(palabra);
+            }
+        }
+    }
+
+    /**
+     * Comprueba si una clave puede estar en el filtro.
+     *
+     * @param clave Clave a comprobar
+     * @return false si la clave no se ha añadido nunca; true si puede haberse añadido
+     */
+    public boolean puedeContener(long clave) {
+        long h1 = mezclar(clave);
+        long h2 = mezclar(h1) | 1;
+        for (int i = 0; i < funciones; i++) {
+            long bit = (h1 + i * h2) & mascara;
+            if ((palabras.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public long getBits() {
+        return mascara + 1;
+    }
+
+    public int getFunciones() {
+        return funciones;
+    }
+
+    /**
+     * Función de mezcla de SplitMix64, que reparte uniformemente los bits de la clave.
+     */
+    private static long mezclar(long x) {
+        x += 0x9E3779B97F4A7C15L;
+        x = (x ^ (x >>> 30)) * 0xBF58476D1CE4E5B9L;
+        x = (x ^ (x >>> 27)) * 0x94D049BB133111EBL;
+        return x ^ (x >>> 31);
+    }
+}
@@ -0,0 +1,259 @@
+package es.tfg.tu_curso.seguridad;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Filtro que limita la tasa de solicitudes a los endpoints públicos de autenticación y registro,
+ * por dirección del cliente y por el email indicado en el cuerpo. Se ejecuta antes de
+ * {@link JwtRequestFilter} para rechazar el tráfico abusivo antes de llegar a BCrypt o a la base de datos.
+ * Las solicitudes rechazadas reciben 429 con la cabecera Retry-After.
+ * <p>
+ * Para que el límite por email no pueda eludirse, se rechazan con 413 los cuerpos de más de {@value #MAX_CUERPO}
+ * bytes y con 400 los que no contienen un único campo "email" de tipo texto en el primer nivel.
+ * </p>
+ */
+@Component
+public class FiltroLimiteTasa extends OncePerRequestFilter {
+
+    /**
+     * Endpoints limitados; todos reciben un POST con el email en el cuerpo JSON.
+     */
+    private static final Set<String> RUTAS = Set.of("/usuarios/login", "/usuarios/crear", "/usuarios/crear-admin-dev");
+
+    /**
+     * Tamaño máximo del cuerpo admitido en los endpoints limitados.
+     */
+    private static final int MAX_CUERPO = 16 * 1024;
+
+    private static final JsonFactory JSON = new JsonFactory();
+
+    /**
+     * Limitador por dirección del cliente.
+     */
+    private final LimitadorTasa limitadorIp;
+
+    /**
+     * Limitador por email de destino.
+     */
+    private final LimitadorTasa limitadorEmail;
+
+    /**
+     * Registro de auditoría de las solicitudes rechazadas.
+     */
+    private final AuditoriaSeguridad auditoria;
+
+    /**
+     * Constructor que crea los limitadores con la configuración indicada.
+     *
+     * @param capacidadIp    Solicitudes seguidas admitidas por dirección
+     * @param porMinutoIp    Solicitudes por minuto repuestas por dirección
+     * @param capacidadEmail Solicitudes seguidas admitidas por email
+     * @param porMinutoEmail Solicitudes por minuto repuestas por email
+     * @param maxClaves      Número máximo de claves de cada limitador
+     * @param auditoria      Registro de auditoría de las solicitudes rechazadas
+     */
+    public FiltroLimiteTasa(@Value("${seguridad.limite.ip.capacidad:20}") int capacidadIp,
+                            @Value("${seguridad.limite.ip.por-minuto:30}") int porMinutoIp,
+                            @Value("${seguridad.limite.email.capacidad:5}") int capacidadEmail,
+                            @Value("${seguridad.limite.email.por-minuto:5}") int porMinutoEmail,
+                            @Value("${seguridad.limite.max-claves:100000}") int maxClaves,
+                            AuditoriaSeguridad auditoria) {
+        this.limitadorIp = new LimitadorTasa(capacidadIp, porMinutoIp, maxClaves);
+        this.limitadorEmail = new LimitadorTasa(capacidadEmail, porMinutoEmail, maxClaves);
+        this.auditoria = auditoria;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        if (!"POST".equals(request.getMethod())) {
+            return true;
+        }
+        String ruta = request.getRequestURI().substring(request.getContextPath().length());
+        return !RUTAS.contains(ruta);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        long ahora = System.nanoTime();
+
+        long espera = limitadorIp.intentar(request.getRemoteAddr(), ahora);
+        if (espera > 0) {
+            rechazar(request, response, espera, "ip");
+            return;
+        }
+
+        byte[] cuerpo = request.getInputStream().readNBytes(MAX_CUERPO + 1);
+        if (cuerpo.length > MAX_CUERPO) {
+            responderError(response, HttpStatus.PAYLOAD_TOO_LARGE, "El cuerpo de la solicitud es demasiado grande");
+            return;
+        }
+        String email = leerEmail(cuerpo);
+        if (email == null) {
+            responderError(response, HttpStatus.BAD_REQUEST, "El cuerpo debe ser un objeto JSON con un campo email");
+            return;
+        }
+        espera = limitadorEmail.intentar(email, ahora);
+        if (espera > 0) {
+            rechazar(request, response, espera, "email");
+            return;
+        }
+
+        chain.doFilter(new CuerpoLeido(request, cuerpo), response);
+    }
+
+    /**
+     * Elimina periódicamente las claves cuyo cubo se ha repuesto por completo.
+     */
+    @Scheduled(fixedDelayString = "${seguridad.limite.purga-ms:60000}")
+    public void purgarInactivas() {
+        long ahora = System.nanoTime();
+        limitadorIp.purgarInactivas(ahora);
+        limitadorEmail.purgarInactivas(ahora);
+    }
+
+    public LimitadorTasa getLimitadorIp() {
+        return limitadorIp;
+    }
+
+    public LimitadorTasa getLimitadorEmail() {
+        return limitadorEmail;
+    }
+
+    private void rechazar(HttpServletRequest request, HttpServletResponse response, long esperaNanos, String tipo)
+            throws IOException {
+        auditoria.limiteSuperado(request, tipo);
+        long segundos = Math.max(1, (esperaNanos + 999_999_999L) / 1_000_000_000L);
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(segundos));
+        responderError(response, HttpStatus.TOO_MANY_REQUESTS, "Demasiadas solicitudes, inténtelo de nuevo más tarde");
+    }
+
+    private static void responderError(HttpServletResponse response, HttpStatus estado, String mensaje) throws IOException {
+        response.setStatus(estado.value());
+        response.setContentType("application/json");
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.getWriter().write("{\"error\": \"" + mensaje + "\"}");
+    }
+
+    /**
+     * Obtiene el campo "email" del primer nivel del cuerpo JSON, normalizado en minúsculas. Se recorre el objeto
+     * completo: si el campo aparece más de una vez no se sabe cuál usará Jackson al deserializar y se descarta.
+     *
+     * @return El email, o null si el cuerpo no es un objeto JSON válido con un único campo email de tipo texto
+     */
+    private static String leerEmail(byte[] cuerpo) {
+        try (JsonParser parser = JSON.createParser(cuerpo)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return null;
+            }
+            String email = null;
+            boolean encontrado = false;
+            JsonToken token;
+            while ((token = parser.nextToken()) == JsonToken.FIELD_NAME) {
+                String campo = parser.currentName();
+                JsonToken valor = parser.nextToken();
+                if ("email".equals(campo)) {
+                    if (encontrado || valor != JsonToken.VALUE_STRING) {
+                        return null;
+                    }
+                    encontrado = true;
+                    email = parser.getText().trim().toLowerCase(Locale.ROOT);
+                }
+                parser.skipChildren();
+            }
+            return token == JsonToken.END_OBJECT && parser.nextToken() == null ? email : null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Solicitud cuyo cuerpo, ya leído por completo por el filtro, puede volver a leerse.
+     */
+    private static final class CuerpoLeido extends HttpServletRequestWrapper {
+
+        private final byte[] cuerpo;
+
+        private ServletInputStream flujo;
+
+        CuerpoLeido(HttpServletRequest request, byte[] cuerpo) {
+            super(request);
+            this.cuerpo = cuerpo;
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            if (flujo == null) {
+                flujo = crearFlujo(new ByteArrayInputStream(cuerpo));
+            }
+            return flujo;
+        }
+
+        private static ServletInputStream crearFlujo(InputStream cuerpo) {
+            return new ServletInputStream() {
+                private boolean terminado;
+
+                @Override
+                public int read() throws IOException {
+                    int b = cuerpo.read();
+                    terminado = b < 0;
+                    return b;
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) throws IOException {
+                    int leidos = cuerpo.read(b, off, len);
+                    terminado = leidos < 0;
+                    return leidos;
+                }
+
+                @Override
+                public boolean isFinished() {
+                    return terminado;
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                @Override
+                public void setReadListener(ReadListener readListener) {
+                    throw new UnsupportedOperationException();
+                }
+            };
+        }
+
+        @Override
+        public BufferedReader getReader() throws IOException {
+            String codificacion = getCharacterEncoding();
+            Charset charset = codificacion != null ? Charset.forName(codificacion) : StandardCharsets.UTF_8;
+            return new BufferedReader(new InputStreamReader(getInputStream(), charset));
+        }
+    }
+}
@@ -1,7 +1,5 @@
 package es.tfg.tu_curso.seguridad;
 
-import io.jsonwebtoken.Claims;
-import io.jsonwebtoken.Jwts;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -27,24 +25,47 @@ import java.io.IOException;
 public class JwtRequestFilter extends OncePerRequestFilter {
 
     /**
-     * Clave secreta utilizada para validar la firma de los tokens JWT.
-     * Se inyecta desde el archivo de propiedades de la aplicación.
+     * Indica si la autenticación se construye únicamente a partir de los claims del token,
+     * sin cargar el usuario desde la base de datos en cada solicitud.
      */
-    @Value("${jwt.secret}")
-    private String secret;
+    @Value("${jwt.sin-estado:true}")
+    private boolean modoSinEstado;
 
     /**
      * Servicio utilizado para cargar los detalles del usuario basándose en su nombre de usuario.
+     * Solo se utiliza con tokens que no incluyen rol e identificador, o si el modo sin estado está desactivado.
      */
     private final UserDetailsService userDetailsService;
 
     /**
-     * Constructor que inicializa el filtro con el servicio de detalles de usuario necesario.
+     * Utilidad para verificar los tokens JWT y extraer sus datos.
+     */
+    private final JwtUtil jwtUtil;
+
+    /**
+     * Componente que comprueba periódicamente que el sello de seguridad del token sigue vigente.
+     */
+    private final VerificadorSelloSeguridad verificadorSello;
+
+    /**
+     * Registro de auditoría de los eventos de autenticación.
+     */
+    private final AuditoriaSeguridad auditoria;
+
+    /**
+     * Constructor que inicializa el filtro con los componentes necesarios.
      *
      * @param userDetailsService Servicio para cargar los detalles del usuario
+     * @param jwtUtil Utilidad para verificar los tokens JWT
+     * @param verificadorSello Verificador del sello de seguridad de los tokens
+     * @param auditoria Registro de auditoría de los eventos de autenticación
      */
-    public JwtRequestFilter(UserDetailsService userDetailsService) {
+    public JwtRequestFilter(UserDetailsService userDetailsService, JwtUtil jwtUtil,
+                            VerificadorSelloSeguridad verificadorSello, AuditoriaSeguridad auditoria) {
         this.userDetailsService = userDetailsService;
+        this.jwtUtil = jwtUtil;
+        this.verificadorSello = verificadorSello;
+        this.auditoria = auditoria;
     }
 
     /**
@@ -64,58 +85,53 @@ public class JwtRequestFilter extends OncePerRequestFilter {
 
         final String authorizationHeader = request.getHeader("Authorization");
 
-        // Log para debugging
-        System.out.println("=== JWT Filter Debug ===");
-        System.out.println("URL solicitada: " + request.getRequestURL());
-        System.out.println("Authorization Header: " + authorizationHeader);
-
-        String username = null;
         String jwt = null;
+        DatosToken datosToken = null;
 
         if (authorizationHeader != null && authorizationHeader.startsWith("Bearer ")) {
             jwt = authorizationHeader.substring(7);
-            System.out.println("Token JWT extraído: " + jwt);
             try {
-                Claims claims = Jwts.parser()
-                        .setSigningKey(secret)
-                        .parseClaimsJws(jwt)
-                        .getBody();
-                username = claims.getSubject();
-                System.out.println("Username extraído del token: " + username);
+                datosToken = jwtUtil.verificarToken(jwt);
             } catch (Exception e) {
-                System.out.println("Error al procesar el token JWT: " + e.getMessage());
-                logger.error("Error al procesar el token JWT: " + e.getMessage());
+                auditoria.tokenRechazado(request, jwt, e.getMessage());
             }
-        } else {
-            System.out.println("No se encontró token JWT válido en el header");
         }
 
-        if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-            UserDetails userDetails = this.userDetailsService.loadUserByUsername(username);
-            System.out.println("Autoridades del usuario: " + userDetails.getAuthorities());
+        if (datosToken != null && datosToken.getSubject() != null
+                && SecurityContextHolder.getContext().getAuthentication() == null) {
+            UserDetails userDetails = obtenerUsuario(datosToken);
 
-            try {
-                Claims claims = Jwts.parser()
-                        .setSigningKey(secret)
-                        .parseClaimsJws(jwt)
-                        .getBody();
-
-                if (claims.getSubject().equals(userDetails.getUsername())) {
-                    UsernamePasswordAuthenticationToken authentication =
-                        new UsernamePasswordAuthenticationToken(
-                            userDetails, null, userDetails.getAuthorities());
-
-                    authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
-                    SecurityContextHolder.getContext().setAuthentication(authentication);
-                    System.out.println("Autenticación establecida correctamente");
-                }
-            } catch (Exception e) {
-                System.out.println("Error validando el token JWT: " + e.getMessage());
-                logger.error("Error validando el token JWT: " + e.getMessage());
+            if (userDetails != null) {
+                UsernamePasswordAuthenticationToken authentication =
+                    new UsernamePasswordAuthenticationToken(
+                        userDetails, null, userDetails.getAuthorities());
+
+                authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+                SecurityContextHolder.getContext().setAuthentication(authentication);
+                auditoria.tokenAceptado(request, jwt, datosToken);
+            } else {
+                auditoria.selloNoVigente(request, jwt, datosToken);
             }
         }
-        System.out.println("============================");
 
         chain.doFilter(request, response);
     }
-}
\ No newline at end of file
+
+    /**
+     * Obtiene los detalles del usuario asociado a un token ya verificado.
+     * En modo sin estado el usuario se construye a partir de los claims del token y solo se
+     * revalida su sello de seguridad de forma periódica; en otro caso se carga desde la base de datos.
+     *
+     * @param datosToken Datos del token verificado
+     * @return Los detalles del usuario, o null si el sello del token ya no es vigente
+     */
+    private UserDetails obtenerUsuario(DatosToken datosToken) {
+        if (modoSinEstado && datosToken.permiteAutenticacionSinEstado()) {
+            if (!verificadorSello.esVigente(datosToken.getUsuarioId(), datosToken.getSelloSeguridad())) {
+                return null;
+            }
+            return new UsuarioAutenticado(datosToken.getUsuarioId(), datosToken.getSubject(), datosToken.getRol());
+        }
+        return this.userDetailsService.loadUserByUsername(datosToken.getSubject());
+    }
+}
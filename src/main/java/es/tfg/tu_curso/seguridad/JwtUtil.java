@@ -1,25 +1,35 @@
 package es.tfg.tu_curso.seguridad;
 
-import io.jsonwebtoken.*;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import java.util.Date;
+import java.util.concurrent.ThreadLocalRandom;
 
 /**
  * Clase de utilidad para la gestión de tokens JWT.
  * Proporciona métodos para generar, validar y manipular tokens JWT utilizados
  * para la autenticación y autorización de usuarios en la aplicación.
+ * La firma y verificación de los tokens se delega en {@link CodecTokenHmac}.
  */
 @Component
 public class JwtUtil {
 
     /**
-     * Clave secreta utilizada para firmar los tokens JWT.
-     * Se inyecta desde el archivo de propiedades de la aplicación.
+     * Nombre del claim que contiene el rol del usuario.
+     */
+    public static final String CLAIM_ROL = "role";
+
+    /**
+     * Nombre del claim que contiene el identificador del usuario.
+     */
+    public static final String CLAIM_USUARIO_ID = "uid";
+
+    /**
+     * Nombre del claim que contiene el sello de seguridad del usuario.
      */
-    @Value("${jwt.secret}")
-    private String secret;
+    public static final String CLAIM_SELLO = "sello";
 
     /**
      * Tiempo de expiración del token JWT en milisegundos.
@@ -28,6 +38,24 @@ public class JwtUtil {
     @Value("${jwt.expiration}")
     private Long expiration;
 
+    /**
+     * Codificador que firma y verifica los tokens con la clave precalculada.
+     */
+    @Autowired
+    private CodecTokenHmac codec;
+
+    /**
+     * Caché de tokens ya verificados, para no repetir la verificación de un token reutilizado.
+     */
+    @Autowired
+    private CacheTokensVerificados cacheTokens;
+
+    /**
+     * Lista de tokens revocados antes de su expiración.
+     */
+    @Autowired
+    private ListaRevocacion listaRevocacion;
+
     /**
      * Genera un nuevo token JWT para el nombre de usuario especificado.
      *
@@ -35,12 +63,7 @@ public class JwtUtil {
      * @return Un token JWT válido
      */
     public String generateToken(String username) {
-        return Jwts.builder()
-                .setSubject(username)
-                .setIssuedAt(new Date())
-                .setExpiration(new Date(System.currentTimeMillis() + expiration))
-                .signWith(SignatureAlgorithm.HS512, secret)
-                .compact();
+        return generateToken(username, null, null, null);
     }
 
     /**
@@ -51,13 +74,64 @@ public class JwtUtil {
      * @return Un token JWT válido
      */
     public String generateToken(String username, String role) {
-        return Jwts.builder()
-                .setSubject(username)
-                .claim("role", role)
-                .setIssuedAt(new Date())
-                .setExpiration(new Date(System.currentTimeMillis() + expiration))
-                .signWith(SignatureAlgorithm.HS512, secret)
-                .compact();
+        return generateToken(username, role, null, null);
+    }
+
+    /**
+     * Genera un nuevo token JWT que incluye todos los datos necesarios para autenticar
+     * al usuario sin consultar la base de datos: rol, identificador y sello de seguridad.
+     *
+     * @param username       El nombre de usuario para el cual se generará el token
+     * @param role           El rol del usuario
+     * @param usuarioId      El identificador del usuario
+     * @param selloSeguridad El sello de seguridad vigente del usuario
+     * @return Un token JWT válido
+     */
+    public String generateToken(String username, String role, Long usuarioId, String selloSeguridad) {
+        return emitirToken(username, role, usuarioId, selloSeguridad).getToken();
+    }
+
+    /**
+     * Genera un nuevo token JWT igual que {@link #generateToken(String, String, Long, String)}
+     * y devuelve también su fecha de expiración, sin tener que volver a verificar el token para leerla.
+     *
+     * @param username       El nombre de usuario para el cual se generará el token
+     * @param role           El rol del usuario
+     * @param usuarioId      El identificador del usuario
+     * @param selloSeguridad El sello de seguridad vigente del usuario
+     * @return El token JWT y su fecha de expiración
+     */
+    public TokenEmitido emitirToken(String username, String role, Long usuarioId, String selloSeguridad) {
+        long ahora = System.currentTimeMillis();
+        long expiracion = ahora + expiration;
+        String sello = usuarioId != null && selloSeguridad == null ? "" : selloSeguridad;
+        String token = codec.firmar(username, role, usuarioId, sello, ahora, expiracion, nuevoJti());
+        // El claim exp se expresa en segundos, por lo que la fecha se trunca igual que en el token
+        return new TokenEmitido(token, new Date(expiracion / 1000 * 1000));
+    }
+
+    /**
+     * Verifica la firma, la expiración y la revocación de un token JWT y devuelve sus datos.
+     * Si el token ya se verificó previamente y sigue vigente, sus datos se obtienen de la caché.
+     *
+     * @param token El token JWT a verificar
+     * @return Los datos contenidos en el token
+     * @throws TokenInvalidoException Si el token no es válido, ha expirado o ha sido revocado
+     */
+    public DatosToken verificarToken(String token) {
+        if (token == null) {
+            throw new TokenInvalidoException("Token vacío");
+        }
+        String clave = cacheTokens.clave(token);
+        DatosToken datos = cacheTokens.obtener(clave);
+        if (datos == null) {
+            datos = codec.verificar(token);
+            cacheTokens.guardar(clave, datos);
+        }
+        if (listaRevocacion.estaRevocado(datos.getJti())) {
+            throw new TokenInvalidoException("El token ha sido revocado");
+        }
+        return datos;
     }
 
     /**
@@ -67,35 +141,41 @@ public class JwtUtil {
      * @return La fecha de expiración del token
      */
     public Date getExpirationDateFromToken(String token) {
-        Claims claims = Jwts.parser()
-                .setSigningKey(secret)
-                .parseClaimsJws(token)
-                .getBody();
-
-        return claims.getExpiration();
+        return new Date(verificarToken(token).getExpiracion());
     }
 
     /**
      * Refresca un token JWT existente, manteniendo los claims originales
-     * pero actualizando las fechas de emisión y expiración.
+     * pero actualizando las fechas de emisión y expiración. El token original queda revocado,
+     * por lo que solo puede refrescarse una vez.
      *
-     * @param token El token JWT a refrescar
+     * @param token El token JWT a refrescar, con o sin el prefijo "Bearer "
      * @return Un nuevo token JWT con fechas actualizadas
+     * @throws TokenInvalidoException Si el token no es válido o ya ha sido revocado
      */
     public String refreshToken(String token) {
-        // Extrae los claims del token existente
-        Claims claims = Jwts.parser()
-                .setSigningKey(secret)
-                .parseClaimsJws(token)
-                .getBody();
-
-        // Genera un nuevo token con los mismos claims pero con una nueva fecha de expiración
-        return Jwts.builder()
-                .setClaims(claims) // Usa los claims del token original
-                .setIssuedAt(new Date()) // Nueva fecha de emisión
-                .setExpiration(new Date(System.currentTimeMillis() + expiration)) // Nueva fecha de expiración
-                .signWith(SignatureAlgorithm.HS512, secret) // Firma el token
-                .compact();
+        DatosToken datos = verificarToken(sinPrefijo(token));
+        if (datos.getJti() != 0
+                && !listaRevocacion.revocar(datos.getJti(), datos.getUsuarioId(), datos.getExpiracion())) {
+            // Otra solicitud ya refrescó o revocó este token
+            throw new TokenInvalidoException("El token ha sido revocado");
+        }
+        long ahora = System.currentTimeMillis();
+        return codec.firmar(datos.getSubject(), datos.getRol(), datos.getUsuarioId(),
+                datos.getSelloSeguridad(), ahora, ahora + expiration, nuevoJti());
+    }
+
+    /**
+     * Revoca un token JWT hasta su expiración, de forma que deja de aceptarse.
+     *
+     * @param token El token JWT a revocar, con o sin el prefijo "Bearer "
+     * @return true si el token se ha revocado, false si no tiene identificador o si otra solicitud lo revocó a la vez
+     * @throws TokenInvalidoException Si el token no es válido o ya ha sido revocado
+     */
+    public boolean revocarToken(String token) {
+        DatosToken datos = verificarToken(sinPrefijo(token));
+        return datos.getJti() != 0
+                && listaRevocacion.revocar(datos.getJti(), datos.getUsuarioId(), datos.getExpiracion());
     }
 
     /**
@@ -106,35 +186,12 @@ public class JwtUtil {
      */
     public boolean validateToken(String token) {
         try {
-            Jwts.parser()
-                    .setSigningKey(secret)
-                    .parseClaimsJws(token);
+            verificarToken(token);
             return true;
-        } catch (SignatureException e) {
-            // Firma inválida
-        } catch (MalformedJwtException e) {
-            // Token mal formado
-        } catch (ExpiredJwtException e) {
-            // Token expirado
-        } catch (UnsupportedJwtException e) {
-            // Token no soportado
-        } catch (IllegalArgumentException e) {
-            // Claims vacíos
+        } catch (TokenInvalidoException e) {
+            // Token vacío, mal formado, con firma inválida o expirado
+            return false;
         }
-        return false;
-    }
-
-    /**
-     * Método auxiliar para extraer los claims del token JWT.
-     *
-     * @param token El token JWT del cual se extraerán los claims
-     * @return Los claims contenidos en el token
-     */
-    private Claims getClaimsFromToken(String token) {
-        return Jwts.parser()
-                .setSigningKey(secret)
-                .parseClaimsJws(token)
-                .getBody();
     }
 
     /**
@@ -144,7 +201,7 @@ public class JwtUtil {
      * @return El nombre de usuario contenido en el token
      */
     public String getUsernameFromToken(String token) {
-        return getClaimsFromToken(token).getSubject();
+        return verificarToken(token).getSubject();
     }
 
     /**
@@ -154,10 +211,24 @@ public class JwtUtil {
      * @return El rol del usuario
      */
     public String getRoleFromToken(String token) {
-        Claims claims = Jwts.parser()
-                .setSigningKey(secret)
-                .parseClaimsJws(token)
-                .getBody();
-        return claims.get("role", String.class);
+        return verificarToken(token).getRol();
+    }
+
+    /**
+     * Elimina el prefijo "Bearer " del valor de la cabecera de autorización, si lo tiene.
+     */
+    private static String sinPrefijo(String token) {
+        return token != null && token.startsWith("Bearer ") ? token.substring(7) : token;
+    }
+
+    /**
+     * Genera un identificador aleatorio de token distinto de 0.
+     */
+    private static long nuevoJti() {
+        long jti;
+        do {
+            jti = ThreadLocalRandom.current().nextLong();
+        } while (jti == 0);
+        return jti;
     }
-}
\ No newline at end of file
+}
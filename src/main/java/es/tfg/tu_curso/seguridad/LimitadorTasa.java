@@ -0,0 +1,131 @@
+package es.tfg.tu_curso.seguridad;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Limitador de tasa por clave equivalente a un cubo de fichas (token bucket), implementado con el
+ * algoritmo GCRA: cada clave guarda en un único {@link AtomicLong} el instante teórico de la siguiente
+ * llegada y se actualiza con compare-and-set, sin bloqueos. El mapa de claves es un
+ * {@link ConcurrentHashMap}, cuyas particiones internas reparten la contención entre hilos.
+ * <p>
+ * Las claves cuyo cubo ya está lleno de nuevo no aportan información y se eliminan con {@link #purgarInactivas}.
+ * Si se alcanza el máximo de claves, antes de registrar una nueva se purgan las inactivas, como mucho una vez por
+ * segundo; si sigue sin haber espacio, la solicitud se rechaza. Así, llenar el mapa con claves inventadas no desactiva
+ * el límite de las demás.
+ * </p>
+ */
+public class LimitadorTasa {
+
+    /**
+     * Tiempo en nanosegundos que tarda en reponerse una ficha.
+     */
+    private final long intervaloNanos;
+
+    /**
+     * Adelanto máximo permitido sobre el instante actual; equivale a la capacidad del cubo menos una ficha.
+     */
+    private final long toleranciaNanos;
+
+    /**
+     * Número máximo de claves registradas.
+     */
+    private final int maxClaves;
+
+    /**
+     * Tiempo mínimo en nanosegundos entre dos purgas hechas al encontrar el mapa de claves lleno.
+     */
+    private static final long INTERVALO_PURGA_LLENO_NANOS = 1_000_000_000L;
+
+    private final Map<String, AtomicLong> cubos = new ConcurrentHashMap<>();
+
+    /**
+     * Instante de la última purga hecha al encontrar el mapa de claves lleno.
+     */
+    private final AtomicLong ultimaPurgaLleno;
+
+    private final LongAdder rechazadas = new LongAdder();
+
+    /**
+     * Constructor con la capacidad y la tasa de reposición de cada cubo.
+     *
+     * @param capacidad Número de solicitudes que se admiten seguidas
+     * @param porMinuto Solicitudes por minuto que se reponen
+     * @param maxClaves Número máximo de claves; si no se puede liberar espacio, las claves nuevas se rechazan
+     */
+    public LimitadorTasa(int capacidad, int porMinuto, int maxClaves) {
+        this.intervaloNanos = 60_000_000_000L / Math.max(1, porMinuto);
+        this.toleranciaNanos = intervaloNanos * (Math.max(1, capacidad) - 1);
+        this.maxClaves = maxClaves;
+        this.ultimaPurgaLleno = new AtomicLong(System.nanoTime() - INTERVALO_PURGA_LLENO_NANOS);
+    }
+
+    /**
+     * Intenta consumir una ficha del cubo de una clave.
+     *
+     * @param clave Clave del cliente
+     * @param ahora Instante actual según {@link System#nanoTime()}
+     * @return 0 si la solicitud se admite, o los nanosegundos que faltan para que se admita
+     */
+    public long intentar(String clave, long ahora) {
+        AtomicLong siguiente = cubos.get(clave);
+        if (siguiente == null) {
+            if (cubos.size() >= maxClaves && !liberarEspacio(ahora)) {
+                // Sin espacio para la clave: se rechaza en lugar de admitirla sin límite
+                rechazadas.increment();
+                return intervaloNanos;
+            }
+            siguiente = cubos.computeIfAbsent(clave, k -> new AtomicLong(ahora));
+        }
+        while (true) {
+            long actual = siguiente.get();
+            long base = actual - ahora > 0 ? actual : ahora;
+            long espera = base - ahora - toleranciaNanos;
+            if (espera > 0) {
+                rechazadas.increment();
+                return espera;
+            }
+            if (siguiente.compareAndSet(actual, base + intervaloNanos)) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * Elimina las claves cuyo cubo se ha repuesto por completo, que equivalen a una clave nueva.
+     * Una solicitud concurrente con la eliminación puede perder su consumo, lo que solo hace el límite
+     * algo más permisivo en ese instante.
+     *
+     * @param ahora Instante actual según {@link System#nanoTime()}
+     * @return Número de claves eliminadas
+     */
+    public int purgarInactivas(long ahora) {
+        int antes = cubos.size();
+        cubos.values().removeIf(siguiente -> siguiente.get() - ahora <= 0);
+        return Math.max(0, antes - cubos.size());
+    }
+
+    /**
+     * Purga las claves inactivas si no se ha hecho en el último segundo, para no recorrer el mapa en cada
+     * solicitud mientras está lleno de claves activas.
+     *
+     * @return true si hay espacio para una clave nueva
+     */
+    private boolean liberarEspacio(long ahora) {
+        long ultima = ultimaPurgaLleno.get();
+        if (ahora - ultima >= INTERVALO_PURGA_LLENO_NANOS && ultimaPurgaLleno.compareAndSet(ultima, ahora)) {
+            purgarInactivas(ahora);
+        }
+        return cubos.size() < maxClaves;
+    }
+
+    public int getClaves() {
+        return cubos.size();
+    }
+
+    public long getRechazadas() {
+        return rechazadas.sum();
+    }
+}
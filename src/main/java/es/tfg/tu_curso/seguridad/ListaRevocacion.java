@@ -0,0 +1,186 @@
+package es.tfg.tu_curso.seguridad;
+
+import es.tfg.tu_curso.modelo.TokenRevocado;
+import es.tfg.tu_curso.repositorio.RepositorioTokenRevocado;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lista de tokens JWT revocados antes de su expiración, identificados por su claim "jti".
+ * <p>
+ * La comprobación de cada solicitud consulta primero un {@link FiltroBloom}: como casi ningún token
+ * está revocado, la respuesta suele ser negativa y se obtiene sin bloqueos ni creación de objetos.
+ * Solo si el filtro da positivo se consulta el conjunto exacto, que descarta los falsos positivos.
+ * </p>
+ * <p>
+ * Los tokens revocados se persisten para recuperar la lista al arrancar, y los ya expirados se
+ * eliminan periódicamente, reconstruyendo el filtro sin ellos. Si los tokens revocados vigentes superan
+ * aquellos para los que se dimensionó el filtro, se reconstruye al revocar con el doble de capacidad,
+ * para que la tasa de falsos positivos no supere la configurada.
+ * </p>
+ */
+@Component
+public class ListaRevocacion {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ListaRevocacion.class);
+
+    private final RepositorioTokenRevocado repositorio;
+
+    /**
+     * Número de tokens revocados vigentes para el que se dimensiona el filtro.
+     */
+    private final int capacidad;
+
+    /**
+     * Probabilidad de falso positivo del filtro con la capacidad configurada.
+     */
+    private final double falsosPositivos;
+
+    /**
+     * Conjunto exacto de tokens revocados, con su expiración en milisegundos desde epoch.
+     */
+    private final Map<Long, Long> revocados = new ConcurrentHashMap<>();
+
+    /**
+     * Filtro de Bloom con los tokens revocados; se sustituye completo al purgar.
+     */
+    private volatile FiltroBloom filtro;
+
+    /**
+     * Número de tokens para el que se dimensionó el filtro actual. Se protege con el monitor de la lista.
+     */
+    private int capacidadFiltro;
+
+    private final LongAdder positivosFiltro = new LongAdder();
+    private final LongAdder falsosPositivosFiltro = new LongAdder();
+
+    /**
+     * Constructor que dimensiona el filtro con la configuración indicada.
+     *
+     * @param repositorio     Repositorio donde se persisten los tokens revocados
+     * @param capacidad       Número de tokens revocados vigentes previsto
+     * @param falsosPositivos Probabilidad de falso positivo deseada
+     */
+    public ListaRevocacion(RepositorioTokenRevocado repositorio,
+                           @Value("${seguridad.revocacion.capacidad:100000}") int capacidad,
+                           @Value("${seguridad.revocacion.falsos-positivos:0.01}") double falsosPositivos) {
+        this.repositorio = repositorio;
+        this.capacidad = capacidad;
+        this.falsosPositivos = falsosPositivos;
+        this.filtro = new FiltroBloom(capacidad, falsosPositivos);
+        this.capacidadFiltro = capacidad;
+    }
+
+    /**
+     * Carga los tokens revocados que aún no han expirado.
+     */
+    @PostConstruct
+    public void cargar() {
+        for (TokenRevocado token : repositorio.findByExpiracionAfter(LocalDateTime.now())) {
+            revocados.put(token.getJti(), aMilisegundos(token.getExpiracion()));
+        }
+        reconstruirFiltro();
+        LOG.info("Lista de revocación cargada con {} tokens", revocados.size());
+    }
+
+    /**
+     * Indica si un token está revocado.
+     *
+     * @param jti Identificador del token; 0 si el token no tiene identificador
+     * @return true si el token está revocado
+     */
+    public boolean estaRevocado(long jti) {
+        if (jti == 0 || !filtro.puedeContener(jti)) {
+            return false;
+        }
+        positivosFiltro.increment();
+        if (revocados.containsKey(jti)) {
+            return true;
+        }
+        falsosPositivosFiltro.increment();
+        return false;
+    }
+
+    /**
+     * Revoca un token hasta su expiración.
+     *
+     * @param jti        Identificador del token
+     * @param usuarioId  Identificador del usuario del token, o null si no lo incluye
+     * @param expiracion Expiración del token en milisegundos desde epoch
+     * @return true si el token se ha revocado, false si ya lo estaba
+     */
+    public boolean revocar(long jti, Long usuarioId, long expiracion) {
+        synchronized (this) {
+            if (revocados.putIfAbsent(jti, expiracion) != null) {
+                return false;
+            }
+            if (revocados.size() > capacidadFiltro) {
+                reconstruirFiltro();
+            } else {
+                filtro.agregar(jti);
+            }
+        }
+        repositorio.save(new TokenRevocado(jti, usuarioId,
+                LocalDateTime.ofInstant(Instant.ofEpochMilli(expiracion), ZoneId.systemDefault())));
+        return true;
+    }
+
+    /**
+     * Elimina periódicamente los tokens revocados que ya han expirado y reconstruye el filtro sin ellos.
+     */
+    @Scheduled(fixedDelayString = "${seguridad.revocacion.purga-ms:600000}")
+    public void purgarExpirados() {
+        long ahora = System.currentTimeMillis();
+        int antes = revocados.size();
+        revocados.values().removeIf(expiracion -> expiracion <= ahora);
+        if (revocados.size() != antes || revocados.size() > capacidadFiltro) {
+            reconstruirFiltro();
+        }
+        repositorio.eliminarExpirados(LocalDateTime.now());
+    }
+
+    public int getRevocados() {
+        return revocados.size();
+    }
+
+    public long getBitsFiltro() {
+        return filtro.getBits();
+    }
+
+    public long getPositivosFiltro() {
+        return positivosFiltro.sum();
+    }
+
+    public long getFalsosPositivosFiltro() {
+        return falsosPositivosFiltro.sum();
+    }
+
+    /**
+     * Sustituye el filtro por uno nuevo con los tokens revocados actuales.
+     * Si superan la capacidad configurada, el filtro se dimensiona para el doble de tokens.
+     */
+    private synchronized void reconstruirFiltro() {
+        int nuevaCapacidad = Math.max(capacidad, revocados.size() * 2);
+        FiltroBloom nuevo = new FiltroBloom(nuevaCapacidad, falsosPositivos);
+        for (Long jti : revocados.keySet()) {
+            nuevo.agregar(jti);
+        }
+        filtro = nuevo;
+        capacidadFiltro = nuevaCapacidad;
+    }
+
+    private static long aMilisegundos(LocalDateTime fecha) {
+        return fecha.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
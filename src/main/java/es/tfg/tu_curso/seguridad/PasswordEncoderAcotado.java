@@ -0,0 +1,44 @@
+package es.tfg.tu_curso.seguridad;
+
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+/**
+ * Codificador de contraseñas que ejecuta el cálculo y la verificación de hashes en
+ * {@link EjecutorHashContrasenas} en lugar de en el hilo de la solicitud.
+ * Cuando el ejecutor está saturado, {@link #encode} y {@link #matches} lanzan {@link ServicioSaturadoException}.
+ */
+public class PasswordEncoderAcotado implements PasswordEncoder {
+
+    private final PasswordEncoder delegado;
+
+    private final EjecutorHashContrasenas ejecutor;
+
+    /**
+     * Constructor que envuelve un codificador de contraseñas.
+     *
+     * @param delegado Codificador que calcula los hashes
+     * @param ejecutor Ejecutor en el que se realizan los cálculos
+     */
+    public PasswordEncoderAcotado(PasswordEncoder delegado, EjecutorHashContrasenas ejecutor) {
+        this.delegado = delegado;
+        this.ejecutor = ejecutor;
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return ejecutor.ejecutar(() -> delegado.encode(rawPassword));
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return ejecutor.ejecutar(() -> delegado.matches(rawPassword, encodedPassword));
+    }
+
+    /**
+     * Solo analiza el formato del hash, por lo que no se envía al ejecutor.
+     */
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        return delegado.upgradeEncoding(encodedPassword);
+    }
+}
@@ -1,5 +1,6 @@
 package es.tfg.tu_curso.seguridad;
 
+import jakarta.servlet.DispatcherType;
 import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
@@ -10,11 +11,13 @@ import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.core.userdetails.UserDetailsService;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 
+import java.util.Map;
+
 
 
 /**
@@ -32,12 +35,24 @@ public class SecurityConfig {
     @Autowired
     private JwtRequestFilter jwtRequestFilter;
 
+    /**
+     * Filtro que limita la tasa de solicitudes a los endpoints públicos de autenticación.
+     */
+    @Autowired
+    private FiltroLimiteTasa filtroLimiteTasa;
+
     /**
      * Servicio para cargar los detalles del usuario desde la base de datos.
      */
     @Autowired
     private UserDetailsService userDetailsService;
 
+    /**
+     * Registro de auditoría de los accesos no autenticados.
+     */
+    @Autowired
+    private AuditoriaSeguridad auditoria;
+
     /**
      * Configura la cadena de filtros de seguridad para la aplicación.
      * Define qué endpoints están protegidos, qué tipo de autenticación se requiere,
@@ -52,6 +67,8 @@ public class SecurityConfig {
         http
                 .csrf(csrf -> csrf.disable())
                 .authorizeHttpRequests(auth -> auth
+                        // El despacho asíncrono que cierra una respuesta SSE o en streaming ya se autorizó en la petición original
+                        .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
                         .requestMatchers("/api-docs/**", "/swagger-docs/**",
                                 "/swagger-ui/**", "/swagger-ui.html",
                                 "/v3/api-docs/**", "/webjars/**").permitAll()
@@ -65,14 +82,10 @@ public class SecurityConfig {
                         .sessionCreationPolicy(SessionCreationPolicy.STATELESS)
                 )
                 .addFilterBefore(jwtRequestFilter, UsernamePasswordAuthenticationFilter.class)
+                .addFilterBefore(filtroLimiteTasa, JwtRequestFilter.class)
                 .exceptionHandling(handling -> handling
                         .authenticationEntryPoint((request, response, authException) -> {
-                            System.out.println("=== Security Debug ===");
-                            System.out.println("Request URL: " + request.getRequestURL());
-                            System.out.println("Method: " + request.getMethod());
-                            System.out.println("Auth Header: " + request.getHeader("Authorization"));
-                            System.out.println("Error: " + authException.getMessage());
-                            System.out.println("===================");
+                            auditoria.accesoNoAutenticado(request, authException.getMessage());
 
                             response.setContentType("application/json");
                             response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
@@ -88,22 +101,31 @@ public class SecurityConfig {
      * Establece el servicio de detalles de usuario y el codificador de contraseñas.
      *
      * @param auth Objeto AuthenticationManagerBuilder para configurar la autenticación
+     * @param passwordEncoder Codificador de contraseñas de la aplicación
      * @throws Exception Si ocurre un error durante la configuración
      */
     @Autowired
-    public void configureGlobal(AuthenticationManagerBuilder auth) throws Exception {
-        auth.userDetailsService(userDetailsService).passwordEncoder(passwordEncoder());
+    public void configureGlobal(AuthenticationManagerBuilder auth, PasswordEncoder passwordEncoder) throws Exception {
+        auth.userDetailsService(userDetailsService).passwordEncoder(passwordEncoder);
     }
 
     /**
      * Define el codificador de contraseñas a utilizar en la aplicación.
-     * Se utiliza BCrypt para el hash seguro de contraseñas.
+     * Se utiliza BCrypt con el coste elegido por {@link CalibradorBCrypt}, ejecutado en un pool de hilos
+     * dedicado y acotado para que una ráfaga de inicios de sesión no deje sin CPU al resto de la API.
+     * Los hashes nuevos se guardan con el prefijo {bcrypt}; los hashes anteriores, sin prefijo,
+     * se siguen verificando como BCrypt y se actualizan al iniciar sesión.
      *
+     * @param ejecutor Ejecutor dedicado al cálculo de hashes
+     * @param calibrador Calibrador que determina el coste de BCrypt
      * @return Un codificador de contraseñas BCrypt
      */
     @Bean
-    public static PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public static PasswordEncoder passwordEncoder(EjecutorHashContrasenas ejecutor, CalibradorBCrypt calibrador) {
+        BCryptCosteAdaptativo bcrypt = new BCryptCosteAdaptativo(calibrador.getCoste());
+        DelegatingPasswordEncoder delegado = new DelegatingPasswordEncoder("bcrypt", Map.of("bcrypt", bcrypt));
+        delegado.setDefaultPasswordEncoderForMatches(bcrypt);
+        return new PasswordEncoderAcotado(delegado, ejecutor);
     }
 
     /**
@@ -111,14 +133,15 @@ public class SecurityConfig {
      * Establece el servicio de detalles de usuario y el codificador de contraseñas.
      *
      * @param http Objeto HttpSecurity para configurar las reglas de seguridad
+     * @param passwordEncoder Codificador de contraseñas de la aplicación
      * @return El gestor de autenticación configurado
      * @throws Exception Si ocurre un error durante la configuración
      */
     @Bean
-    public AuthenticationManager authenticationManager(HttpSecurity http) throws Exception {
+    public AuthenticationManager authenticationManager(HttpSecurity http, PasswordEncoder passwordEncoder) throws Exception {
         return http.getSharedObject(AuthenticationManagerBuilder.class)
                 .userDetailsService(userDetailsService)
-                .passwordEncoder(passwordEncoder())
+                .passwordEncoder(passwordEncoder)
                 .and()
                 .build();
     }
@@ -0,0 +1,28 @@
+package es.tfg.tu_curso.seguridad;
+
+/**
+ * Excepción lanzada cuando una operación no se admite porque el recurso que la ejecuta está saturado.
+ * Se responde con 503 y la cabecera Retry-After indicando cuándo volver a intentarlo.
+ */
+public class ServicioSaturadoException extends RuntimeException {
+
+    /**
+     * Segundos tras los cuales el cliente puede volver a intentar la operación.
+     */
+    private final long reintentarEn;
+
+    /**
+     * Constructor con el mensaje de error y el tiempo de espera recomendado.
+     *
+     * @param mensaje      Descripción del motivo del rechazo
+     * @param reintentarEn Segundos tras los cuales se puede reintentar
+     */
+    public ServicioSaturadoException(String mensaje, long reintentarEn) {
+        super(mensaje);
+        this.reintentarEn = reintentarEn;
+    }
+
+    public long getReintentarEn() {
+        return reintentarEn;
+    }
+}
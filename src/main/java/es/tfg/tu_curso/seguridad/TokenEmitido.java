@@ -0,0 +1,26 @@
+package es.tfg.tu_curso.seguridad;
+
+import java.util.Date;
+
+/**
+ * Token JWT recién emitido junto con su fecha de expiración, que se calcula al firmarlo
+ * en lugar de volver a leerla del token.
+ */
+public class TokenEmitido {
+
+    private final String token;
+    private final Date expiracion;
+
+    public TokenEmitido(String token, Date expiracion) {
+        this.token = token;
+        this.expiracion = expiracion;
+    }
+
+    public String getToken() {
+        return token;
+    }
+
+    public Date getExpiracion() {
+        return expiracion;
+    }
+}
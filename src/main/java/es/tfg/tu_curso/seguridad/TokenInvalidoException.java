@@ -0,0 +1,27 @@
+package es.tfg.tu_curso.seguridad;
+
+/**
+ * Excepción lanzada cuando un token JWT no tiene un formato válido, su firma no coincide
+ * o ha expirado.
+ */
+public class TokenInvalidoException extends RuntimeException {
+
+    /**
+     * Constructor que crea la excepción con el motivo del rechazo.
+     *
+     * @param mensaje Motivo por el que el token no es válido
+     */
+    public TokenInvalidoException(String mensaje) {
+        super(mensaje);
+    }
+
+    /**
+     * Constructor que crea la excepción con el motivo del rechazo y su causa.
+     *
+     * @param mensaje Motivo por el que el token no es válido
+     * @param causa   Excepción que originó el rechazo
+     */
+    public TokenInvalidoException(String mensaje, Throwable causa) {
+        super(mensaje, causa);
+    }
+}
@@ -0,0 +1,67 @@
+package es.tfg.tu_curso.seguridad;
+
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Principal construido a partir de los claims de un token JWT verificado.
+ * Permite autenticar la solicitud sin cargar el usuario desde la base de datos.
+ */
+public class UsuarioAutenticado implements UserDetails {
+
+    /**
+     * Identificador del usuario autenticado.
+     */
+    private final Long id;
+
+    /**
+     * Email del usuario autenticado, utilizado como nombre de usuario.
+     */
+    private final String email;
+
+    /**
+     * Autoridades derivadas del rol contenido en el token.
+     */
+    private final List<GrantedAuthority> autoridades;
+
+    /**
+     * Constructor que crea el principal a partir de los datos del token.
+     *
+     * @param id    Identificador del usuario
+     * @param email Email del usuario
+     * @param rol   Rol del usuario sin el prefijo "ROLE_"
+     */
+    public UsuarioAutenticado(Long id, String email, String rol) {
+        this.id = id;
+        this.email = email;
+        this.autoridades = List.of(new SimpleGrantedAuthority("ROLE_" + rol));
+    }
+
+    /**
+     * Obtiene el identificador del usuario autenticado.
+     *
+     * @return El ID del usuario
+     */
+    public Long getId() {
+        return id;
+    }
+
+    @Override
+    public Collection<? extends GrantedAuthority> getAuthorities() {
+        return autoridades;
+    }
+
+    @Override
+    public String getPassword() {
+        return null;
+    }
+
+    @Override
+    public String getUsername() {
+        return email;
+    }
+}
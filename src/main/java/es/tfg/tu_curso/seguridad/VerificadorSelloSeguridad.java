@@ -0,0 +1,76 @@
+package es.tfg.tu_curso.seguridad;
+
+import es.tfg.tu_curso.repositorio.RepositorioUsuario;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Comprueba que el sello de seguridad incluido en un token sigue siendo el vigente del usuario.
+ * El sello consultado en la base de datos se recuerda durante un intervalo configurable,
+ * de modo que solo una solicitud por usuario y periodo llega a la base de datos.
+ */
+@Component
+public class VerificadorSelloSeguridad {
+
+    /**
+     * Repositorio para consultar el sello vigente de cada usuario.
+     */
+    @Autowired
+    private RepositorioUsuario usuarioRepositorio;
+
+    /**
+     * Tiempo en milisegundos durante el cual se confía en el sello consultado.
+     */
+    @Value("${jwt.sello.revalidacion:300000}")
+    private long intervaloRevalidacion;
+
+    /**
+     * Último sello consultado para cada usuario.
+     */
+    private final Map<Long, Comprobacion> comprobaciones = new ConcurrentHashMap<>();
+
+    /**
+     * Verifica si el sello de un token coincide con el sello vigente del usuario.
+     *
+     * @param usuarioId ID del usuario contenido en el token
+     * @param sello     Sello de seguridad contenido en el token
+     * @return true si el sello es vigente, false si ha cambiado o el usuario ya no existe
+     */
+    public boolean esVigente(Long usuarioId, String sello) {
+        long ahora = System.currentTimeMillis();
+        Comprobacion comprobacion = comprobaciones.get(usuarioId);
+
+        if (comprobacion == null || ahora - comprobacion.instante() > intervaloRevalidacion) {
+            Optional<String> selloActual = usuarioRepositorio.findSelloSeguridadById(usuarioId);
+            if (selloActual.isEmpty()) {
+                comprobaciones.remove(usuarioId);
+                return false;
+            }
+            comprobacion = new Comprobacion(selloActual.get(), ahora);
+            comprobaciones.put(usuarioId, comprobacion);
+        }
+
+        return comprobacion.sello().equals(sello == null ? "" : sello);
+    }
+
+    /**
+     * Descarta el sello recordado de un usuario para que la siguiente solicitud lo vuelva a consultar.
+     * Debe invocarse cuando el sello del usuario cambia o el usuario se elimina.
+     *
+     * @param usuarioId ID del usuario
+     */
+    public void invalidar(Long usuarioId) {
+        comprobaciones.remove(usuarioId);
+    }
+
+    /**
+     * Sello consultado y momento de la consulta.
+     */
+    private record Comprobacion(String sello, long instante) {
+    }
+}
@@ -0,0 +1,353 @@
+package es.tfg.tu_curso.servicio.implementaciones;
+
+import es.tfg.tu_curso.dto.ProgresoBorradoDTO;
+import es.tfg.tu_curso.modelo.Usuario;
+import es.tfg.tu_curso.seguridad.VerificadorSelloSeguridad;
+import es.tfg.tu_curso.servicio.interfaces.BorradoUsuariosServicio;
+import es.tfg.tu_curso.servicio.interfaces.IndiceAmistadesServicio;
+import es.tfg.tu_curso.servicio.interfaces.IndiceNombresServicio;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+
+/**
+ * Implementación del borrado de usuarios con sentencias por conjuntos.
+ * <p>
+ * Cada paso borra las filas de una tabla que dependen del usuario, antes que las filas de las que dependen:
+ * solicitudes de amistad, amistades, puntos de control de sus cursos, cursos y pomodoros, y por último el usuario.
+ * Antes de borrar las solicitudes enviadas y las amistades en las que el usuario es el amigo se restan de los
+ * contadores de los otros usuarios, en la misma transacción.
+ * </p>
+ * <p>
+ * El borrado síncrono ejecuta una sentencia por paso en una única transacción. El asíncrono limita cada sentencia
+ * a un lote de filas con una subconsulta {@code FETCH FIRST}, y confirma cada lote por separado para no mantener
+ * bloqueadas durante mucho tiempo las filas de las cuentas muy grandes.
+ * </p>
+ * <p>
+ * Al iniciar un borrado asíncrono se marca el sello de seguridad del usuario con
+ * {@link Usuario#PREFIJO_SELLO_BORRADO}, de modo que no puede iniciar sesión ni usar sus tokens mientras se borran
+ * sus datos. Las amistades de cada lote se quitan del índice al confirmarse el lote, igual que sus contadores.
+ * La última transacción repite todos los pasos, sin límite, para borrar lo que otros usuarios hayan creado
+ * entretanto, y después borra el usuario.
+ * </p>
+ */
+@Service
+public class BorradoUsuariosServicioImpl implements BorradoUsuariosServicio {
+
+    private static final Logger LOG = LoggerFactory.getLogger(BorradoUsuariosServicioImpl.class);
+
+    /**
+     * Milisegundos durante los que se conserva el progreso de un borrado asíncrono terminado.
+     */
+    private static final long RETENCION_TERMINADOS_MS = 3_600_000;
+
+    /**
+     * Pasos del borrado en orden de dependencia. Todos los parámetros de sus sentencias son el ID del usuario.
+     */
+    private static final List<Paso> PASOS = List.of(
+            new Paso("solicitudes enviadas", "solicitud_amistad", "emisor_id = ?", "receptor_id",
+                    "UPDATE usuario u SET solicitudes_pendientes = solicitudes_pendientes - " +
+                            "(SELECT COUNT(*) FROM solicitud_amistad s WHERE s.emisor_id = ? AND s.receptor_id = u.id) " +
+                            "WHERE u.id IN (%s)", false),
+            new Paso("solicitudes recibidas", "solicitud_amistad", "receptor_id = ?", "emisor_id", null, false),
+            new Paso("amistades", "usuario_amigos", "amigo_id = ?", "usuario_id",
+                    "UPDATE usuario SET numero_amigos = numero_amigos - 1 WHERE id IN (%s)", true),
+            new Paso("amigos", "usuario_amigos", "usuario_id = ?", "amigo_id", null, false),
+            new Paso("puntos de control", "punto_de_control", "curso_id IN (SELECT c.id FROM curso c WHERE c.usuario_id = ?)", "id", null, false),
+            new Paso("cursos", "curso", "usuario_id = ?", "id", null, false),
+            new Paso("pomodoros", "pomodoro", "usuario_id = ?", "id", null, false)
+    );
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private VerificadorSelloSeguridad verificadorSello;
+
+    @Autowired
+    private IndiceAmistadesServicio indiceAmistades;
+
+    @Autowired
+    private IndiceNombresServicio indiceNombres;
+
+    /**
+     * Número máximo de filas borradas por transacción en el borrado asíncrono.
+     */
+    @Value("${usuarios.borrado.lote:1000}")
+    private int lote;
+
+    /**
+     * Borrados asíncronos en curso o terminados recientemente, por identificador de tarea.
+     */
+    private final Map<String, Progreso> tareas = new ConcurrentHashMap<>();
+
+    /**
+     * Hilo en el que se ejecutan los borrados asíncronos, de uno en uno.
+     */
+    private final ExecutorService ejecutor = Executors.newSingleThreadExecutor(tarea -> {
+        Thread hilo = new Thread(tarea, "borrado-usuarios");
+        hilo.setDaemon(true);
+        return hilo;
+    });
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Esta implementación ejecuta una sentencia por paso, sin límite de filas. Los índices en memoria y la caché
+     * de sellos se actualizan al confirmarse la transacción.
+     * </p>
+     */
+    @Override
+    @Transactional
+    public boolean borrar(Long usuarioId) {
+        for (Paso paso : PASOS) {
+            ejecutarPaso(paso, usuarioId, 0);
+        }
+        return borrarUsuario(usuarioId);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Si el usuario ya se está borrando se devuelve el progreso del borrado en curso.
+     * </p>
+     */
+    @Override
+    public Optional<ProgresoBorradoDTO> iniciarBorrado(Long usuarioId) {
+        purgarTerminados();
+        Integer existe = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM usuario WHERE id = ?", Integer.class, usuarioId);
+        if (existe == null || existe == 0) {
+            return Optional.empty();
+        }
+        synchronized (tareas) {
+            for (Progreso progreso : tareas.values()) {
+                if (progreso.usuarioId.equals(usuarioId) && EN_CURSO.equals(progreso.estado)) {
+                    return Optional.of(progreso.aDTO());
+                }
+            }
+            long total = 0;
+            for (Paso paso : PASOS) {
+                Long filas = jdbcTemplate.queryForObject(
+                        "SELECT COUNT(*) FROM " + paso.tabla + " WHERE " + paso.filtro, Long.class, usuarioId);
+                total += filas == null ? 0 : filas;
+            }
+            bloquearCuenta(usuarioId);
+            Progreso progreso = new Progreso(UUID.randomUUID().toString(), usuarioId, total + 1);
+            tareas.put(progreso.tarea, progreso);
+            ejecutor.execute(() -> borrarPorLotes(progreso));
+            return Optional.of(progreso.aDTO());
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Optional<ProgresoBorradoDTO> obtenerProgreso(String tarea) {
+        Progreso progreso = tareas.get(tarea);
+        return progreso == null ? Optional.empty() : Optional.of(progreso.aDTO());
+    }
+
+    /**
+     * Detiene el hilo de borrado al cerrar la aplicación.
+     */
+    @PreDestroy
+    public void cerrar() {
+        ejecutor.shutdownNow();
+    }
+
+    /**
+     * Ejecuta los pasos de un borrado asíncrono, lote a lote, y borra el usuario al final.
+     */
+    private void borrarPorLotes(Progreso progreso) {
+        long inicio = System.currentTimeMillis();
+        try {
+            for (Paso paso : PASOS) {
+                progreso.paso = paso.nombre;
+                int borradas;
+                do {
+                    Integer resultado = transactionTemplate.execute(estado -> ejecutarPaso(paso, progreso.usuarioId, lote));
+                    borradas = resultado == null ? 0 : resultado;
+                    progreso.filasBorradas += borradas;
+                } while (borradas >= lote);
+            }
+            progreso.paso = "usuario";
+            Integer ultimas = transactionTemplate.execute(estado -> {
+                // Lo que otros usuarios hayan creado durante los lotes, como solicitudes o amistades nuevas
+                int filas = 0;
+                for (Paso paso : PASOS) {
+                    filas += ejecutarPaso(paso, progreso.usuarioId, 0);
+                }
+                return borrarUsuario(progreso.usuarioId) ? filas + 1 : filas;
+            });
+            progreso.filasBorradas += ultimas == null ? 0 : ultimas;
+            progreso.estado = COMPLETADO;
+            LOG.info("Usuario {} borrado en segundo plano: {} filas en {} ms",
+                    progreso.usuarioId, progreso.filasBorradas, System.currentTimeMillis() - inicio);
+        } catch (RuntimeException e) {
+            LOG.error("Error al borrar en segundo plano el usuario {}", progreso.usuarioId, e);
+            progreso.error = e.getMessage();
+            progreso.estado = ERROR;
+        } finally {
+            progreso.terminado = System.currentTimeMillis();
+        }
+    }
+
+    /**
+     * Ejecuta un paso del borrado: ajusta los contadores afectados, si el paso lo requiere, y borra las filas.
+     * <p>
+     * En un lote de amistades se obtienen antes los IDs de los amigos, que se usan tanto en el ajuste y el borrado
+     * como para quitar las amistades del índice al confirmarse el lote. Sin límite no hace falta: el borrado
+     * termina en la misma transacción con {@link IndiceAmistadesServicio#eliminarUsuario}.
+     * </p>
+     *
+     * @param paso      Paso a ejecutar
+     * @param usuarioId ID del usuario
+     * @param limite    Número máximo de filas que se borran; 0 para borrarlas todas
+     * @return Número de filas borradas
+     */
+    private int ejecutarPaso(Paso paso, Long usuarioId, int limite) {
+        String seleccion = "SELECT " + paso.clave + " FROM " + paso.tabla + " WHERE " + paso.filtro;
+        if (limite > 0) {
+            seleccion += " ORDER BY " + paso.clave + " FETCH FIRST " + limite + " ROWS ONLY";
+        }
+        if (limite > 0 && paso.amistades) {
+            List<Long> amigos = jdbcTemplate.queryForList(seleccion, Long.class, usuarioId);
+            if (amigos.isEmpty()) {
+                return 0;
+            }
+            amigos.forEach(amigo -> indiceAmistades.eliminarAmistad(usuarioId, amigo));
+            seleccion = amigos.stream().map(String::valueOf).collect(Collectors.joining(", "));
+        }
+        if (paso.ajuste != null) {
+            String ajuste = String.format(paso.ajuste, seleccion);
+            jdbcTemplate.update(ajuste, parametros(ajuste, usuarioId));
+        }
+        String borrado = "DELETE FROM " + paso.tabla + " WHERE " + paso.filtro + " AND " + paso.clave + " IN (" + seleccion + ")";
+        return jdbcTemplate.update(borrado, parametros(borrado, usuarioId));
+    }
+
+    /**
+     * Borra la fila del usuario y lo elimina de los índices y de la caché de sellos al confirmarse la transacción.
+     *
+     * @return true si el usuario existía
+     */
+    private boolean borrarUsuario(Long usuarioId) {
+        if (jdbcTemplate.update("DELETE FROM usuario WHERE id = ?", usuarioId) == 0) {
+            return false;
+        }
+        indiceAmistades.eliminarUsuario(usuarioId);
+        indiceNombres.eliminarUsuario(usuarioId);
+        UtilidadesIndice.alConfirmar(() -> verificadorSello.invalidar(usuarioId));
+        return true;
+    }
+
+    /**
+     * Marca el sello de seguridad del usuario como en borrado, lo que invalida sus tokens e impide que inicie sesión.
+     */
+    private void bloquearCuenta(Long usuarioId) {
+        jdbcTemplate.update("UPDATE usuario SET sello_seguridad = ? WHERE id = ?",
+                Usuario.PREFIJO_SELLO_BORRADO + UUID.randomUUID(), usuarioId);
+        verificadorSello.invalidar(usuarioId);
+    }
+
+    /**
+     * Elimina el progreso de los borrados asíncronos que terminaron hace más de una hora.
+     */
+    private void purgarTerminados() {
+        long limite = System.currentTimeMillis() - RETENCION_TERMINADOS_MS;
+        tareas.values().removeIf(progreso -> progreso.terminado > 0 && progreso.terminado < limite);
+    }
+
+    /**
+     * Repite el ID del usuario tantas veces como parámetros tiene la sentencia.
+     */
+    private static Object[] parametros(String sentencia, Long usuarioId) {
+        Object[] parametros = new Object[(int) sentencia.chars().filter(c -> c == '?').count()];
+        Arrays.fill(parametros, usuarioId);
+        return parametros;
+    }
+
+    /**
+     * Paso del borrado que elimina las filas de una tabla que cumplen un filtro sobre el usuario.
+     */
+    private static final class Paso {
+
+        private final String nombre;
+        private final String tabla;
+
+        /**
+         * Condición que selecciona las filas del usuario, con el ID del usuario como parámetro.
+         */
+        private final String filtro;
+
+        /**
+         * Columna por la que se ordenan y limitan los lotes.
+         */
+        private final String clave;
+
+        /**
+         * Sentencia que ajusta los contadores de los usuarios afectados antes de borrar, con %s en el lugar de la
+         * subconsulta que selecciona las claves del lote; null si el paso no afecta a ningún contador.
+         */
+        private final String ajuste;
+
+        /**
+         * Indica si las filas del paso son amistades que hay que quitar del índice en cada lote.
+         */
+        private final boolean amistades;
+
+        private Paso(String nombre, String tabla, String filtro, String clave, String ajuste, boolean amistades) {
+            this.nombre = nombre;
+            this.tabla = tabla;
+            this.filtro = filtro;
+            this.clave = clave;
+            this.ajuste = ajuste;
+            this.amistades = amistades;
+        }
+    }
+
+    /**
+     * Progreso de un borrado asíncrono. Solo lo modifica el hilo de borrado.
+     */
+    private static final class Progreso {
+
+        private final String tarea;
+        private final Long usuarioId;
+        private final long totalFilas;
+        private volatile String estado = EN_CURSO;
+        private volatile String paso;
+        private volatile long filasBorradas;
+        private volatile String error;
+        private volatile long terminado;
+
+        private Progreso(String tarea, Long usuarioId, long totalFilas) {
+            this.tarea = tarea;
+            this.usuarioId = usuarioId;
+            this.totalFilas = totalFilas;
+        }
+
+        private ProgresoBorradoDTO aDTO() {
+            return new ProgresoBorradoDTO(tarea, usuarioId, estado, paso, filasBorradas, totalFilas, error);
+        }
+    }
+}
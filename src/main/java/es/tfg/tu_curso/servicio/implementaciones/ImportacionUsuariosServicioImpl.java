@@ -0,0 +1,407 @@
+package es.tfg.tu_curso.servicio.implementaciones;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import es.tfg.tu_curso.dto.ImportacionUsuariosDTO;
+import es.tfg.tu_curso.dto.ResultadoImportacionDTO;
+import es.tfg.tu_curso.modelo.Usuario;
+import es.tfg.tu_curso.seguridad.EjecutorHashContrasenas;
+import es.tfg.tu_curso.seguridad.ServicioSaturadoException;
+import es.tfg.tu_curso.servicio.interfaces.ImportacionUsuariosServicio;
+import es.tfg.tu_curso.servicio.interfaces.IndiceNombresServicio;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
+import org.hibernate.Transaction;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Implementación de la importación masiva de usuarios.
+ * <p>
+ * Los emails existentes se cargan al empezar en un conjunto en memoria con una sola consulta, con el que se
+ * descartan los duplicados sin consultar la base de datos por cada fila. Las filas válidas se agrupan en lotes:
+ * las contraseñas de cada lote se cifran en paralelo, con tantas operaciones en curso como hilos tiene
+ * {@link EjecutorHashContrasenas} para no llenar su cola y rechazar los inicios de sesión, y los usuarios se
+ * insertan con una sesión sin estado de Hibernate que agrupa las sentencias en lotes JDBC.
+ * </p>
+ */
+@Service
+public class ImportacionUsuariosServicioImpl implements ImportacionUsuariosServicio {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ImportacionUsuariosServicioImpl.class);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private EjecutorHashContrasenas ejecutorHash;
+
+    @Autowired
+    private IndiceNombresServicio indiceNombres;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    /**
+     * Número de usuarios que se cifran e insertan juntos, en una transacción.
+     */
+    @Value("${usuarios.importacion.lote:500}")
+    private int lote;
+
+    /**
+     * Número máximo de filas de un fichero; las siguientes no se procesan.
+     */
+    @Value("${usuarios.importacion.max-filas:50000}")
+    private int maxFilas;
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ImportacionUsuariosDTO importarCsv(InputStream entrada) throws IOException {
+        LectorCsv csv = new LectorCsv(new BufferedReader(new InputStreamReader(entrada, StandardCharsets.UTF_8)));
+        List<String> cabecera = csv.leerRegistro();
+        if (cabecera == null) {
+            return new ImportacionUsuariosDTO(0, 0, 0, new ArrayList<>());
+        }
+        List<String> columnas = new ArrayList<>();
+        for (String columna : cabecera) {
+            columnas.add(columna.replace("\uFEFF", "").trim().toLowerCase(Locale.ROOT));
+        }
+        int nombre = columnas.indexOf("nombre");
+        int email = columnas.indexOf("email");
+        int pass = columnas.indexOf("pass");
+        int descripcion = columnas.indexOf("descripcion");
+        int icono = columnas.indexOf("icono");
+        if (nombre < 0 || email < 0 || pass < 0) {
+            throw new IllegalArgumentException("La cabecera debe incluir las columnas nombre, email y pass");
+        }
+
+        return importar(() -> {
+            List<String> campos;
+            do {
+                campos = csv.leerRegistro();
+            } while (campos != null && campos.size() == 1 && campos.get(0).isBlank());
+            if (campos == null) {
+                return null;
+            }
+            return new Fila(campo(campos, nombre), campo(campos, email), campo(campos, pass),
+                    campo(campos, descripcion), campo(campos, icono));
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Cada línea se analiza por separado, de modo que una línea con JSON incorrecto solo invalida esa fila.
+     * </p>
+     */
+    @Override
+    public ImportacionUsuariosDTO importarNdjson(InputStream entrada) throws IOException {
+        BufferedReader lector = new BufferedReader(new InputStreamReader(entrada, StandardCharsets.UTF_8));
+        return importar(() -> {
+            String linea;
+            do {
+                linea = lector.readLine();
+            } while (linea != null && linea.isBlank());
+            if (linea == null) {
+                return null;
+            }
+            try {
+                JsonNode nodo = objectMapper.readTree(linea);
+                if (!nodo.isObject()) {
+                    return Fila.ilegible("La línea no es un objeto JSON");
+                }
+                return new Fila(texto(nodo, "nombre"), texto(nodo, "email"), texto(nodo, "pass"),
+                        texto(nodo, "descripcion"), texto(nodo, "icono"));
+            } catch (IOException e) {
+                return Fila.ilegible("JSON incorrecto");
+            }
+        });
+    }
+
+    /**
+     * Procesa las filas de una fuente, validándolas y descartando duplicados a medida que se leen
+     * y creando las válidas por lotes.
+     *
+     * @param fuente Fuente de filas
+     * @return Informe con el resultado de cada fila, ordenado por número de fila
+     * @throws IOException Si no se puede leer la fuente
+     */
+    private ImportacionUsuariosDTO importar(FuenteFilas fuente) throws IOException {
+        long inicio = System.currentTimeMillis();
+        Set<String> emails = new HashSet<>();
+        jdbcTemplate.query("SELECT email FROM usuario", (RowCallbackHandler) rs -> emails.add(rs.getString(1)));
+
+        List<ResultadoImportacionDTO> resultados = new ArrayList<>();
+        ExecutorService hilos = crearHilosHash();
+        try {
+            List<Fila> pendientes = new ArrayList<>(lote);
+            int numero = 0;
+            Fila fila;
+            while ((fila = fuente.siguiente()) != null) {
+                numero++;
+                if (numero > maxFilas) {
+                    resultados.add(new ResultadoImportacionDTO(numero, null, ERROR,
+                            "Se ha superado el máximo de " + maxFilas + " filas; no se han procesado las siguientes"));
+                    break;
+                }
+                fila.numero = numero;
+                if (fila.error != null) {
+                    resultados.add(new ResultadoImportacionDTO(numero, null, INVALIDO, fila.error));
+                } else if (fila.nombre == null || fila.email == null || fila.pass == null) {
+                    resultados.add(new ResultadoImportacionDTO(numero, fila.email, INVALIDO,
+                            "El nombre, el email y la contraseña son obligatorios"));
+                } else if (!emails.add(fila.email)) {
+                    resultados.add(new ResultadoImportacionDTO(numero, fila.email, DUPLICADO,
+                            "Ya existe un usuario con este email"));
+                } else {
+                    pendientes.add(fila);
+                    if (pendientes.size() == lote) {
+                        crearLote(pendientes, hilos, emails, resultados);
+                        pendientes.clear();
+                    }
+                }
+            }
+            crearLote(pendientes, hilos, emails, resultados);
+        } finally {
+            hilos.shutdownNow();
+        }
+
+        resultados.sort(Comparator.comparingInt(ResultadoImportacionDTO::getFila));
+        int creadas = (int) resultados.stream().filter(r -> CREADO.equals(r.getResultado())).count();
+        LOG.info("Importación de usuarios: {} filas, {} creadas en {} ms",
+                resultados.size(), creadas, System.currentTimeMillis() - inicio);
+        return new ImportacionUsuariosDTO(resultados.size(), creadas, resultados.size() - creadas, resultados);
+    }
+
+    /**
+     * Cifra en paralelo las contraseñas de un lote de filas válidas e inserta sus usuarios en una transacción.
+     * Los emails de las filas que no se crean se liberan para que una fila posterior pueda usarlos.
+     */
+    private void crearLote(List<Fila> filas, ExecutorService hilos, Set<String> emails,
+                           List<ResultadoImportacionDTO> resultados) {
+        if (filas.isEmpty()) {
+            return;
+        }
+        List<Future<String>> hashes = new ArrayList<>(filas.size());
+        for (Fila fila : filas) {
+            hashes.add(hilos.submit(() -> passwordEncoder.encode(fila.pass)));
+        }
+
+        List<Fila> cifradas = new ArrayList<>(filas.size());
+        List<Usuario> usuarios = new ArrayList<>(filas.size());
+        for (int i = 0; i < filas.size(); i++) {
+            Fila fila = filas.get(i);
+            try {
+                Usuario usuario = new Usuario(fila.nombre, fila.descripcion, fila.email, hashes.get(i).get(), fila.icono);
+                usuario.setRol("USER");
+                usuario.renovarSelloSeguridad(); // Las sesiones sin estado no ejecutan @PrePersist
+                usuarios.add(usuario);
+                cifradas.add(fila);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Importación de usuarios interrumpida", e);
+            } catch (ExecutionException e) {
+                String detalle = e.getCause() instanceof ServicioSaturadoException
+                        ? "El servicio de cifrado de contraseñas está saturado, inténtelo más tarde"
+                        : "No se ha podido cifrar la contraseña";
+                emails.remove(fila.email);
+                resultados.add(new ResultadoImportacionDTO(fila.numero, fila.email, ERROR, detalle));
+            }
+        }
+
+        try {
+            insertar(usuarios);
+        } catch (RuntimeException e) {
+            LOG.warn("No se ha podido insertar un lote de {} usuarios importados", usuarios.size(), e);
+            for (Fila fila : cifradas) {
+                emails.remove(fila.email);
+                resultados.add(new ResultadoImportacionDTO(fila.numero, fila.email, ERROR, "No se ha podido guardar el usuario"));
+            }
+            return;
+        }
+        for (int i = 0; i < usuarios.size(); i++) {
+            Usuario usuario = usuarios.get(i);
+            indiceNombres.registrarUsuario(usuario.getId(), usuario.getNombre());
+            resultados.add(new ResultadoImportacionDTO(cifradas.get(i).numero, usuario.getEmail(), CREADO, null));
+        }
+    }
+
+    /**
+     * Inserta los usuarios en una transacción con una sesión sin estado, que obtiene los IDs con el mismo
+     * generador que el resto de la aplicación, no los guarda en un contexto de persistencia y envía las
+     * sentencias en lotes JDBC del tamaño del lote de importación.
+     */
+    private void insertar(List<Usuario> usuarios) {
+        if (usuarios.isEmpty()) {
+            return;
+        }
+        try (StatelessSession sesion = entityManagerFactory.unwrap(SessionFactory.class).openStatelessSession()) {
+            sesion.setJdbcBatchSize(lote);
+            Transaction transaccion = sesion.beginTransaction();
+            try {
+                for (Usuario usuario : usuarios) {
+                    sesion.insert(usuario);
+                }
+                transaccion.commit();
+            } catch (RuntimeException e) {
+                if (transaccion.isActive()) {
+                    transaccion.rollback();
+                }
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Crea los hilos que esperan a los hashes de una importación, tantos como hilos tiene el ejecutor de hashes.
+     */
+    private ExecutorService crearHilosHash() {
+        AtomicInteger contador = new AtomicInteger();
+        return Executors.newFixedThreadPool(ejecutorHash.getHilos(), tarea -> {
+            Thread hilo = new Thread(tarea, "importacion-usuarios-" + contador.incrementAndGet());
+            hilo.setDaemon(true);
+            return hilo;
+        });
+    }
+
+    private static String campo(List<String> campos, int indice) {
+        return indice >= 0 && indice < campos.size() ? limpiar(campos.get(indice)) : null;
+    }
+
+    private static String texto(JsonNode nodo, String campo) {
+        JsonNode valor = nodo.get(campo);
+        return valor == null || valor.isNull() ? null : limpiar(valor.asText());
+    }
+
+    private static String limpiar(String valor) {
+        String limpio = valor.trim();
+        return limpio.isEmpty() ? null : limpio;
+    }
+
+    /**
+     * Fuente de filas de un fichero, que las lee a medida que se piden.
+     */
+    @FunctionalInterface
+    private interface FuenteFilas {
+
+        /**
+         * @return La siguiente fila, o null si no quedan
+         */
+        Fila siguiente() throws IOException;
+    }
+
+    /**
+     * Fila leída de un fichero de importación.
+     */
+    private static final class Fila {
+
+        private final String nombre;
+        private final String email;
+        private final String pass;
+        private final String descripcion;
+        private final String icono;
+
+        /**
+         * Motivo por el que la fila no se ha podido leer, o null si se ha leído.
+         */
+        private String error;
+
+        private int numero;
+
+        private Fila(String nombre, String email, String pass, String descripcion, String icono) {
+            this.nombre = nombre;
+            this.email = email;
+            this.pass = pass;
+            this.descripcion = descripcion;
+            this.icono = icono;
+        }
+
+        private static Fila ilegible(String error) {
+            Fila fila = new Fila(null, null, null, null, null);
+            fila.error = error;
+            return fila;
+        }
+    }
+
+    /**
+     * Lector de registros CSV separados por comas. Los campos pueden ir entre comillas dobles, en cuyo caso pueden
+     * contener comas, saltos de línea y comillas escritas dos veces.
+     */
+    private static final class LectorCsv {
+
+        private final BufferedReader lector;
+
+        private LectorCsv(BufferedReader lector) {
+            this.lector = lector;
+        }
+
+        /**
+         * @return Los campos del siguiente registro, o null si no quedan
+         */
+        private List<String> leerRegistro() throws IOException {
+            int c = lector.read();
+            if (c == -1) {
+                return null;
+            }
+            List<String> campos = new ArrayList<>();
+            StringBuilder campo = new StringBuilder();
+            boolean entreComillas = false;
+            while (c != -1) {
+                if (entreComillas) {
+                    if (c == '"') {
+                        c = lector.read();
+                        if (c != '"') {
+                            entreComillas = false;
+                            continue;
+                        }
+                    }
+                    campo.append((char) c);
+                } else if (c == '"' && campo.isEmpty()) {
+                    entreComillas = true;
+                } else if (c == ',') {
+                    campos.add(campo.toString());
+                    campo.setLength(0);
+                } else if (c == '\n') {
+                    break;
+                } else if (c != '\r') {
+                    campo.append((char) c);
+                }
+                c = lector.read();
+            }
+            campos.add(campo.toString());
+            return campos;
+        }
+    }
+}
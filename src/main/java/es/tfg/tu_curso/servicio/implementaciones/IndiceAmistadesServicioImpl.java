@@ -0,0 +1,441 @@
+package es.tfg.tu_curso.servicio.implementaciones;
+
+import es.tfg.tu_curso.servicio.interfaces.IndiceAmistadesServicio;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+/**
+ * Implementación del índice de amistades.
+ * <p>
+ * Cada usuario tiene un array {@code long[]} ordenado con los IDs de sus amigos, fuera del grafo de
+ * entidades de JPA. Los arrays no se modifican nunca: cada cambio crea uno nuevo y lo sustituye de forma
+ * atómica en el mapa, por lo que las lecturas no se bloquean y siempre ven un array coherente.
+ * La pertenencia se comprueba con una búsqueda binaria y el recuento es la longitud del array.
+ * </p>
+ * <p>
+ * El índice se carga al arrancar leyendo la tabla usuario_amigos con JDBC, sin crear entidades,
+ * y se mantiene con los cambios confirmados de {@code agregarAmigo}, {@code removerAmigo} y {@code borrar}.
+ * </p>
+ * <p>
+ * Las sugerencias de amistad se calculan recorriendo los amigos de los amigos con un presupuesto máximo
+ * de entradas visitadas, contando los amigos en común en una tabla de claves primitivas y eligiendo los
+ * mejores con un montículo acotado. Para usuarios con muchos amigos el recorrido se reparte entre varios hilos.
+ * El resultado se guarda por usuario hasta que cambia alguna amistad que puede afectarle.
+ * </p>
+ */
+@Service
+@DependsOn("entityManagerFactory")
+public class IndiceAmistadesServicioImpl implements IndiceAmistadesServicio {
+
+    private static final Logger LOG = LoggerFactory.getLogger(IndiceAmistadesServicioImpl.class);
+
+    /**
+     * Acceso JDBC para leer la tabla de amistades sin pasar por JPA.
+     */
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Amigos de cada usuario, ordenados de menor a mayor. Los usuarios sin amigos no tienen entrada.
+     */
+    private volatile Map<Long, long[]> adyacencia = new ConcurrentHashMap<>();
+
+    /**
+     * Número máximo de entradas de amigos de amigos que se visitan al calcular las sugerencias de un usuario.
+     */
+    @Value("${amistades.sugerencias.max-visitas:1000000}")
+    private int maxVisitas;
+
+    /**
+     * Número de amigos a partir del cual las sugerencias se calculan en paralelo.
+     */
+    @Value("${amistades.sugerencias.umbral-paralelo:512}")
+    private int umbralParalelo;
+
+    /**
+     * Número máximo de usuarios con sugerencias guardadas; 0 para no guardarlas.
+     */
+    @Value("${amistades.sugerencias.cache-maximo:10000}")
+    private int cacheMaximo;
+
+    /**
+     * Sugerencias calculadas de cada usuario, con {@link #MAX_SUGERENCIAS} como máximo.
+     */
+    private final Map<Long, List<AmigoSugerido>> cacheSugerencias = new ConcurrentHashMap<>();
+
+    /**
+     * Contador de cambios del grafo; una sugerencia solo se guarda si no ha cambiado mientras se calculaba.
+     */
+    private final AtomicLong version = new AtomicLong();
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Esta implementación recorre la tabla ordenada por usuario y amigo y construye cada array sin
+     * ordenar ni crear objetos por fila. El índice cargado sustituye al anterior de una vez.
+     * </p>
+     */
+    @Override
+    @PostConstruct
+    public void cargar() {
+        long inicio = System.nanoTime();
+        Cargador cargador = new Cargador();
+        jdbcTemplate.query("SELECT usuario_id, amigo_id FROM usuario_amigos ORDER BY usuario_id, amigo_id", cargador);
+        Map<Long, long[]> nuevo = cargador.terminar();
+        adyacencia = nuevo;
+        version.incrementAndGet();
+        cacheSugerencias.clear();
+        LOG.info("Índice de amistades cargado: {} usuarios, {} entradas en {} ms",
+                nuevo.size(), contarEntradas(), (System.nanoTime() - inicio) / 1_000_000);
+    }
+
+    @Override
+    public boolean sonAmigos(long usuarioId, long amigoId) {
+        long[] amigos = adyacencia.get(usuarioId);
+        return amigos != null && Arrays.binarySearch(amigos, amigoId) >= 0;
+    }
+
+    @Override
+    public int contarAmigos(long usuarioId) {
+        long[] amigos = adyacencia.get(usuarioId);
+        return amigos == null ? 0 : amigos.length;
+    }
+
+    @Override
+    public long[] obtenerAmigos(long usuarioId) {
+        long[] amigos = adyacencia.get(usuarioId);
+        return amigos == null ? UtilidadesIndice.VACIO : amigos;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Esta implementación interseca las dos listas ordenadas. Si tienen un tamaño parecido las recorre a la vez;
+     * si una es mucho mayor, busca cada amigo de la menor en la mayor con búsqueda exponencial (galope)
+     * a partir de la última posición encontrada, con un coste proporcional a la lista menor.
+     * </p>
+     */
+    @Override
+    public long[] obtenerAmigosComunes(long usuarioId, long otroId) {
+        return UtilidadesIndice.intersecar(obtenerAmigos(usuarioId), obtenerAmigos(otroId));
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Esta implementación devuelve las sugerencias guardadas si el grafo no ha cambiado para este usuario.
+     * </p>
+     */
+    @Override
+    public List<AmigoSugerido> sugerirAmigos(long usuarioId, int limite) {
+        int k = Math.max(0, Math.min(limite, MAX_SUGERENCIAS));
+        List<AmigoSugerido> sugerencias = cacheSugerencias.get(usuarioId);
+        if (sugerencias == null) {
+            long versionInicial = version.get();
+            sugerencias = calcularSugerencias(usuarioId);
+            if (cacheMaximo > 0 && version.get() == versionInicial) {
+                if (cacheSugerencias.size() >= cacheMaximo) {
+                    cacheSugerencias.clear();
+                }
+                cacheSugerencias.put(usuarioId, sugerencias);
+                // Si el grafo cambió justo después de comprobarlo, la invalidación pudo llegar antes que el put
+                if (version.get() != versionInicial) {
+                    cacheSugerencias.remove(usuarioId, sugerencias);
+                }
+            }
+        }
+        return sugerencias.size() <= k ? sugerencias : sugerencias.subList(0, k);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Si hay una transacción activa, el cambio se aplica cuando se confirma y se descarta si se revierte.
+     * </p>
+     */
+    @Override
+    public void registrarAmistad(long usuarioId, long amigoId) {
+        UtilidadesIndice.alConfirmar(() -> {
+            adyacencia.compute(usuarioId, (id, amigos) -> UtilidadesIndice.insertar(amigos, amigoId));
+            adyacencia.compute(amigoId, (id, amigos) -> UtilidadesIndice.insertar(amigos, usuarioId));
+            invalidarSugerencias(usuarioId, amigoId);
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Si hay una transacción activa, el cambio se aplica cuando se confirma y se descarta si se revierte.
+     * </p>
+     */
+    @Override
+    public void eliminarAmistad(long usuarioId, long amigoId) {
+        UtilidadesIndice.alConfirmar(() -> {
+            adyacencia.computeIfPresent(usuarioId, (id, amigos) -> UtilidadesIndice.quitar(amigos, amigoId));
+            adyacencia.computeIfPresent(amigoId, (id, amigos) -> UtilidadesIndice.quitar(amigos, usuarioId));
+            invalidarSugerencias(usuarioId, amigoId);
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Si hay una transacción activa, el cambio se aplica cuando se confirma y se descarta si se revierte.
+     * </p>
+     */
+    @Override
+    public void eliminarUsuario(long usuarioId) {
+        UtilidadesIndice.alConfirmar(() -> {
+            long[] amigos = adyacencia.remove(usuarioId);
+            if (amigos != null) {
+                for (long amigoId : amigos) {
+                    adyacencia.computeIfPresent(amigoId, (id, lista) -> UtilidadesIndice.quitar(lista, usuarioId));
+                }
+            }
+            // El usuario puede aparecer en las sugerencias de cualquiera a dos saltos: se descartan todas
+            version.incrementAndGet();
+            cacheSugerencias.clear();
+        });
+    }
+
+    @Override
+    public int contarUsuarios() {
+        return adyacencia.size();
+    }
+
+    @Override
+    public long contarEntradas() {
+        long total = 0;
+        for (long[] amigos : adyacencia.values()) {
+            total += amigos.length;
+        }
+        return total;
+    }
+
+    /**
+     * Descarta las sugerencias que dependen de la amistad entre dos usuarios: las de ambos y las de sus amigos.
+     */
+    private void invalidarSugerencias(long usuarioId, long amigoId) {
+        version.incrementAndGet();
+        for (long id : new long[]{usuarioId, amigoId}) {
+            cacheSugerencias.remove(id);
+            for (long amigo : obtenerAmigos(id)) {
+                cacheSugerencias.remove(amigo);
+            }
+        }
+    }
+
+    /**
+     * Calcula las mejores sugerencias de un usuario contando, para cada amigo de sus amigos,
+     * cuántos amigos tiene en común con él.
+     */
+    private List<AmigoSugerido> calcularSugerencias(long usuarioId) {
+        long[] amigos = obtenerAmigos(usuarioId);
+        if (amigos.length == 0) {
+            return List.of();
+        }
+        ContadorIds contador;
+        int hilos = ForkJoinPool.getCommonPoolParallelism();
+        if (amigos.length >= umbralParalelo && hilos > 1) {
+            int partes = Math.max(2, Math.min(hilos, amigos.length / Math.max(1, umbralParalelo / 2)));
+            int presupuesto = maxVisitas / partes;
+            contador = IntStream.range(0, partes).parallel()
+                    .mapToObj(parte -> contar(amigos, (int) ((long) amigos.length * parte / partes),
+                            (int) ((long) amigos.length * (parte + 1) / partes), presupuesto))
+                    .reduce(ContadorIds::fusionar)
+                    .orElseThrow();
+        } else {
+            contador = contar(amigos, 0, amigos.length, maxVisitas);
+        }
+        return contador.mejores(usuarioId, amigos, MAX_SUGERENCIAS);
+    }
+
+    /**
+     * Cuenta las apariciones de cada amigo de los amigos comprendidos entre dos posiciones,
+     * hasta agotar el presupuesto de entradas visitadas.
+     */
+    private ContadorIds contar(long[] amigos, int desde, int hasta, int presupuesto) {
+        long previstas = 0;
+        for (int i = desde; i < hasta && previstas < presupuesto; i++) {
+            previstas += contarAmigos(amigos[i]);
+        }
+        // No puede haber más candidatos distintos que usuarios con amigos
+        ContadorIds contador = new ContadorIds((int) Math.min(Math.min(previstas, presupuesto), adyacencia.size()));
+        long visitadas = 0;
+        for (int i = desde; i < hasta && visitadas < presupuesto; i++) {
+            long[] segundos = obtenerAmigos(amigos[i]);
+            for (long candidato : segundos) {
+                contador.incrementar(candidato);
+            }
+            visitadas += segundos.length;
+        }
+        return contador;
+    }
+
+    /**
+     * Construye los arrays de amigos a partir de las filas ordenadas por usuario y amigo,
+     * reutilizando un único buffer para todos los usuarios.
+     */
+    private static final class Cargador implements RowCallbackHandler {
+
+        private final Map<Long, long[]> adyacencia = new ConcurrentHashMap<>();
+        private long[] buffer = new long[16];
+        private long usuarioActual = Long.MIN_VALUE;
+        private int leidos;
+
+        @Override
+        public void processRow(ResultSet rs) throws SQLException {
+            long usuarioId = rs.getLong(1);
+            long amigoId = rs.getLong(2);
+            if (usuarioId != usuarioActual) {
+                guardarActual();
+                usuarioActual = usuarioId;
+            }
+            if (leidos > 0 && buffer[leidos - 1] == amigoId) {
+                return; // Fila duplicada
+            }
+            if (leidos == buffer.length) {
+                buffer = Arrays.copyOf(buffer, leidos * 2);
+            }
+            buffer[leidos++] = amigoId;
+        }
+
+        Map<Long, long[]> terminar() {
+            guardarActual();
+            return adyacencia;
+        }
+
+        private void guardarActual() {
+            if (leidos > 0) {
+                adyacencia.put(usuarioActual, Arrays.copyOf(buffer, leidos));
+                leidos = 0;
+            }
+        }
+    }
+
+    /**
+     * Tabla hash de direccionamiento abierto de IDs a contadores, sin objetos por entrada.
+     */
+    private static final class ContadorIds {
+
+        private long[] claves;
+        private int[] cuentas;
+        private int desplazamiento;
+        private int tamano;
+
+        /**
+         * Crea una tabla con capacidad para el número de entradas previsto sin redimensionarse.
+         *
+         * @param previstas Número máximo de entradas que se van a sumar
+         */
+        ContadorIds(int previstas) {
+            int bits = Math.max(6, 64 - Long.numberOfLeadingZeros(Math.max(1, (long) previstas * 2 - 1)));
+            int capacidad = 1 << Math.min(bits, 30);
+            claves = new long[capacidad];
+            cuentas = new int[capacidad];
+            desplazamiento = 64 - Integer.numberOfTrailingZeros(capacidad);
+        }
+
+        void incrementar(long clave) {
+            sumar(clave, 1);
+        }
+
+        ContadorIds fusionar(ContadorIds otro) {
+            for (int i = 0; i < otro.claves.length; i++) {
+                if (otro.cuentas[i] != 0) {
+                    sumar(otro.claves[i], otro.cuentas[i]);
+                }
+            }
+            return this;
+        }
+
+        /**
+         * Elige los candidatos con más apariciones, excluyendo al propio usuario y a sus amigos.
+         */
+        List<AmigoSugerido> mejores(long usuarioId, long[] amigos, int k) {
+            Comparator<AmigoSugerido> orden = Comparator.comparingInt(AmigoSugerido::amigosComunes).reversed()
+                    .thenComparingLong(AmigoSugerido::usuarioId);
+            // Montículo con el peor candidato en la cima
+            PriorityQueue<AmigoSugerido> monticulo = new PriorityQueue<>(k + 1, orden.reversed());
+            for (int i = 0; i < claves.length; i++) {
+                int comunes = cuentas[i];
+                if (comunes == 0) {
+                    continue;
+                }
+                long candidato = claves[i];
+                if (monticulo.size() == k) {
+                    AmigoSugerido peor = monticulo.peek();
+                    if (comunes < peor.amigosComunes()
+                            || (comunes == peor.amigosComunes() && candidato > peor.usuarioId())) {
+                        continue;
+                    }
+                }
+                if (candidato == usuarioId || Arrays.binarySearch(amigos, candidato) >= 0) {
+                    continue;
+                }
+                monticulo.offer(new AmigoSugerido(candidato, comunes));
+                if (monticulo.size() > k) {
+                    monticulo.poll();
+                }
+            }
+            List<AmigoSugerido> resultado = new ArrayList<>(monticulo);
+            resultado.sort(orden);
+            return List.copyOf(resultado);
+        }
+
+        private void sumar(long clave, int cantidad) {
+            int mascara = claves.length - 1;
+            int i = posicion(clave);
+            while (cuentas[i] != 0) {
+                if (claves[i] == clave) {
+                    cuentas[i] += cantidad;
+                    return;
+                }
+                i = (i + 1) & mascara;
+            }
+            claves[i] = clave;
+            cuentas[i] = cantidad;
+            if (++tamano * 2 > claves.length) {
+                crecer();
+            }
+        }
+
+        private int posicion(long clave) {
+            return (int) ((clave * 0x9E3779B97F4A7C15L) >>> desplazamiento);
+        }
+
+        private void crecer() {
+            long[] clavesAnteriores = claves;
+            int[] cuentasAnteriores = cuentas;
+            claves = new long[clavesAnteriores.length * 2];
+            cuentas = new int[cuentasAnteriores.length * 2];
+            desplazamiento--;
+            tamano = 0;
+            for (int i = 0; i < clavesAnteriores.length; i++) {
+                if (cuentasAnteriores[i] != 0) {
+                    sumar(clavesAnteriores[i], cuentasAnteriores[i]);
+                }
+            }
+        }
+    }
+}
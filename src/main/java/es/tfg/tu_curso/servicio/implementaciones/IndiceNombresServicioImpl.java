@@ -0,0 +1,470 @@
+package es.tfg.tu_curso.servicio.implementaciones;
+
+import es.tfg.tu_curso.servicio.interfaces.IndiceAmistadesServicio;
+import es.tfg.tu_curso.servicio.interfaces.IndiceNombresServicio;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * Implementación del índice de nombres.
+ * <p>
+ * Los nombres se normalizan a minúsculas y sin acentos. Para cada trigrama (secuencia de tres caracteres)
+ * se guarda un array ordenado con los IDs de los usuarios cuyo nombre lo contiene: los candidatos de una
+ * búsqueda son la intersección de las listas de los trigramas del texto buscado, empezando por la más corta,
+ * y se confirman comprobando que el nombre contiene el texto. Con uno o dos caracteres no hay trigramas,
+ * por lo que se buscan las palabras que empiezan por ellos en un mapa ordenado de palabras.
+ * </p>
+ * <p>
+ * Como en el índice de amistades, los arrays no se modifican nunca y las lecturas no se bloquean.
+ * Para la búsqueda mientras se escribe se guarda la última búsqueda de cada usuario: si el nuevo texto
+ * amplía el anterior, sus resultados están entre los candidatos anteriores y basta con filtrarlos.
+ * </p>
+ */
+@Service
+@DependsOn("entityManagerFactory")
+public class IndiceNombresServicioImpl implements IndiceNombresServicio {
+
+    private static final Logger LOG = LoggerFactory.getLogger(IndiceNombresServicioImpl.class);
+
+    private static final Pattern MARCAS = Pattern.compile("\\p{M}+");
+    private static final Pattern ESPACIOS = Pattern.compile("\\s+");
+
+    /**
+     * Tipos de coincidencia de un nombre con el texto buscado, de más a menos relevante.
+     */
+    private static final int EXACTA = 0, PREFIJO = 1, PALABRA = 2, SUBCADENA = 3;
+
+    /**
+     * Número máximo de candidatos de una búsqueda que se guardan para ampliarla después.
+     */
+    private static final int MAX_CANDIDATOS_GUARDADOS = 2048;
+
+    /**
+     * Acceso JDBC para leer los nombres sin pasar por JPA.
+     */
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Índice de amistades, para descartar a los amigos del usuario que busca.
+     */
+    @Autowired
+    private IndiceAmistadesServicio indiceAmistades;
+
+    /**
+     * Número máximo de candidatos que se examinan en una búsqueda por prefijo de palabra.
+     */
+    @Value("${usuarios.busqueda.max-candidatos:20000}")
+    private int maxCandidatos;
+
+    /**
+     * Número máximo de usuarios cuya última búsqueda se guarda; 0 para no guardarlas.
+     */
+    @Value("${usuarios.busqueda.cache-maximo:1000}")
+    private int cacheMaximo;
+
+    /**
+     * Nombre normalizado de cada usuario.
+     */
+    private volatile Map<Long, String> nombres = new ConcurrentHashMap<>();
+
+    /**
+     * Usuarios cuyo nombre contiene cada trigrama, con el trigrama codificado en un long.
+     */
+    private volatile Map<Long, long[]> trigramas = new ConcurrentHashMap<>();
+
+    /**
+     * Usuarios cuyo nombre contiene cada palabra, con las palabras ordenadas para buscar por prefijo.
+     */
+    private volatile ConcurrentNavigableMap<String, long[]> palabras = new ConcurrentSkipListMap<>();
+
+    /**
+     * Contador de cambios del índice; una búsqueda guardada solo se reutiliza si no ha cambiado.
+     */
+    private final AtomicLong version = new AtomicLong();
+
+    /**
+     * Última búsqueda de cada usuario.
+     */
+    private final Map<Long, Busqueda> ultimasBusquedas = new ConcurrentHashMap<>();
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Esta implementación recorre la tabla ordenada por ID, de modo que las listas de cada trigrama
+     * y palabra se construyen ya ordenadas. El índice cargado sustituye al anterior de una vez.
+     * </p>
+     */
+    @Override
+    @PostConstruct
+    public synchronized void cargar() {
+        long inicio = System.nanoTime();
+        Map<Long, String> nuevosNombres = new ConcurrentHashMap<>();
+        Map<Long, ListaIds> porTrigrama = new HashMap<>();
+        Map<String, ListaIds> porPalabra = new HashMap<>();
+        jdbcTemplate.query("SELECT id, nombre FROM usuario ORDER BY id", (RowCallbackHandler) rs -> {
+            long usuarioId = rs.getLong(1);
+            String nombre = normalizar(rs.getString(2));
+            nuevosNombres.put(usuarioId, nombre);
+            for (long trigrama : trigramasDe(nombre)) {
+                porTrigrama.computeIfAbsent(trigrama, t -> new ListaIds()).agregar(usuarioId);
+            }
+            for (String palabra : palabrasDe(nombre)) {
+                porPalabra.computeIfAbsent(palabra, p -> new ListaIds()).agregar(usuarioId);
+            }
+        });
+        Map<Long, long[]> nuevosTrigramas = new ConcurrentHashMap<>(porTrigrama.size() * 2);
+        porTrigrama.forEach((trigrama, ids) -> nuevosTrigramas.put(trigrama, ids.terminar()));
+        ConcurrentNavigableMap<String, long[]> nuevasPalabras = new ConcurrentSkipListMap<>();
+        porPalabra.forEach((palabra, ids) -> nuevasPalabras.put(palabra, ids.terminar()));
+
+        nombres = nuevosNombres;
+        trigramas = nuevosTrigramas;
+        palabras = nuevasPalabras;
+        version.incrementAndGet();
+        ultimasBusquedas.clear();
+        LOG.info("Índice de nombres cargado: {} usuarios, {} trigramas en {} ms",
+                nuevosNombres.size(), nuevosTrigramas.size(), (System.nanoTime() - inicio) / 1_000_000);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Esta implementación reutiliza los candidatos de la búsqueda anterior del mismo usuario si el texto
+     * la amplía y el índice no ha cambiado, y elige los mejores resultados con un montículo acotado.
+     * </p>
+     */
+    @Override
+    public List<Long> buscar(long usuarioId, String consulta, int limite) {
+        String texto = normalizar(consulta);
+        int k = Math.max(0, Math.min(limite, MAX_RESULTADOS));
+        if (texto.isEmpty() || k == 0) {
+            return List.of();
+        }
+        boolean porPalabra = texto.length() < 3;
+        long versionActual = version.get();
+
+        Busqueda busqueda;
+        Busqueda anterior = ultimasBusquedas.get(usuarioId);
+        if (anterior != null && anterior.completa() && anterior.version() == versionActual
+                && anterior.porPalabra() == porPalabra && texto.startsWith(anterior.texto())) {
+            busqueda = new Busqueda(texto, porPalabra, filtrar(anterior.candidatos(), texto, porPalabra), true, versionActual);
+        } else if (porPalabra) {
+            busqueda = buscarPorPalabra(texto, versionActual);
+        } else {
+            busqueda = new Busqueda(texto, false, candidatosPorTrigramas(texto), true, versionActual);
+        }
+        if (cacheMaximo > 0 && busqueda.completa() && busqueda.candidatos().length <= MAX_CANDIDATOS_GUARDADOS) {
+            if (ultimasBusquedas.size() >= cacheMaximo) {
+                ultimasBusquedas.clear();
+            }
+            ultimasBusquedas.put(usuarioId, busqueda);
+        } else {
+            ultimasBusquedas.remove(usuarioId);
+        }
+        return mejores(usuarioId, texto, busqueda.candidatos(), k);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Si hay una transacción activa, el cambio se aplica cuando se confirma y se descarta si se revierte.
+     * </p>
+     */
+    @Override
+    public void registrarUsuario(long usuarioId, String nombre) {
+        String normalizado = normalizar(nombre);
+        UtilidadesIndice.alConfirmar(() -> {
+            synchronized (this) {
+                String anterior = nombres.put(usuarioId, normalizado);
+                if (normalizado.equals(anterior)) {
+                    return;
+                }
+                if (anterior != null) {
+                    quitarEntradas(usuarioId, anterior);
+                }
+                for (long trigrama : trigramasDe(normalizado)) {
+                    trigramas.compute(trigrama, (t, ids) -> UtilidadesIndice.insertar(ids, usuarioId));
+                }
+                for (String palabra : palabrasDe(normalizado)) {
+                    palabras.compute(palabra, (p, ids) -> UtilidadesIndice.insertar(ids, usuarioId));
+                }
+                version.incrementAndGet();
+            }
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Si hay una transacción activa, el cambio se aplica cuando se confirma y se descarta si se revierte.
+     * </p>
+     */
+    @Override
+    public void eliminarUsuario(long usuarioId) {
+        UtilidadesIndice.alConfirmar(() -> {
+            synchronized (this) {
+                String anterior = nombres.remove(usuarioId);
+                if (anterior != null) {
+                    quitarEntradas(usuarioId, anterior);
+                    version.incrementAndGet();
+                }
+                ultimasBusquedas.remove(usuarioId);
+            }
+        });
+    }
+
+    @Override
+    public int contarUsuarios() {
+        return nombres.size();
+    }
+
+    @Override
+    public int contarTrigramas() {
+        return trigramas.size();
+    }
+
+    /**
+     * Normaliza un texto para compararlo: minúsculas, sin acentos ni diacríticos y con los espacios simplificados.
+     */
+    private static String normalizar(String texto) {
+        if (texto == null) {
+            return "";
+        }
+        String sinMarcas = MARCAS.matcher(Normalizer.normalize(texto, Normalizer.Form.NFD)).replaceAll("");
+        return ESPACIOS.matcher(sinMarcas.toLowerCase(Locale.ROOT)).replaceAll(" ").trim();
+    }
+
+    /**
+     * Quita a un usuario de las listas de los trigramas y palabras de su nombre anterior.
+     */
+    private void quitarEntradas(long usuarioId, String nombre) {
+        for (long trigrama : trigramasDe(nombre)) {
+            trigramas.computeIfPresent(trigrama, (t, ids) -> UtilidadesIndice.quitar(ids, usuarioId));
+        }
+        for (String palabra : palabrasDe(nombre)) {
+            palabras.computeIfPresent(palabra, (p, ids) -> UtilidadesIndice.quitar(ids, usuarioId));
+        }
+    }
+
+    /**
+     * Obtiene los usuarios cuyo nombre contiene el texto intersecando las listas de sus trigramas,
+     * de la más corta a la más larga.
+     */
+    private long[] candidatosPorTrigramas(String texto) {
+        long[] codigos = trigramasDe(texto);
+        long[][] listas = new long[codigos.length][];
+        for (int i = 0; i < codigos.length; i++) {
+            listas[i] = trigramas.get(codigos[i]);
+            if (listas[i] == null) {
+                return UtilidadesIndice.VACIO;
+            }
+        }
+        if (listas.length == 1 && texto.length() == 3) {
+            return listas[0]; // El texto es el propio trigrama: todos los de la lista lo contienen
+        }
+        Arrays.sort(listas, Comparator.comparingInt(lista -> lista.length));
+        long[] comunes = listas[0];
+        for (int i = 1; i < listas.length && comunes.length > 0; i++) {
+            comunes = UtilidadesIndice.intersecar(comunes, listas[i]);
+        }
+        // Tener todos los trigramas no garantiza que estén seguidos: se comprueba el nombre
+        long[] candidatos = new long[comunes.length];
+        int n = 0;
+        for (long id : comunes) {
+            if (nombres.getOrDefault(id, "").contains(texto)) {
+                candidatos[n++] = id;
+            }
+        }
+        return Arrays.copyOf(candidatos, n);
+    }
+
+    /**
+     * Obtiene los usuarios con alguna palabra que empieza por el texto, hasta el máximo de candidatos.
+     * Si se alcanza el máximo, la búsqueda queda marcada como incompleta y no se reutiliza.
+     */
+    private Busqueda buscarPorPalabra(String texto, long versionActual) {
+        ListaIds candidatos = new ListaIds();
+        boolean completa = true;
+        for (long[] ids : palabras.subMap(texto, true, texto + Character.MAX_VALUE, false).values()) {
+            if (candidatos.tamano + ids.length > maxCandidatos) {
+                completa = false;
+                break;
+            }
+            for (long id : ids) {
+                candidatos.agregar(id);
+            }
+        }
+        long[] resultado = candidatos.terminar();
+        Arrays.sort(resultado);
+        int n = 0;
+        for (int i = 0; i < resultado.length; i++) {
+            if (n == 0 || resultado[n - 1] != resultado[i]) {
+                resultado[n++] = resultado[i];
+            }
+        }
+        return new Busqueda(texto, true, Arrays.copyOf(resultado, n), completa, versionActual);
+    }
+
+    /**
+     * Conserva los candidatos de una búsqueda anterior cuyo nombre sigue coincidiendo con el texto ampliado.
+     */
+    private long[] filtrar(long[] anteriores, String texto, boolean porPalabra) {
+        long[] candidatos = new long[anteriores.length];
+        int n = 0;
+        for (long id : anteriores) {
+            String nombre = nombres.get(id);
+            if (nombre != null && (porPalabra ? empiezaPalabra(nombre, texto) : nombre.contains(texto))) {
+                candidatos[n++] = id;
+            }
+        }
+        return Arrays.copyOf(candidatos, n);
+    }
+
+    /**
+     * Elige los candidatos más relevantes que no son el propio usuario ni sus amigos.
+     */
+    private List<Long> mejores(long usuarioId, String texto, long[] candidatos, int k) {
+        long[] amigos = indiceAmistades.obtenerAmigos(usuarioId);
+        // Montículo con el peor resultado en la cima, para descartarlo al encontrar uno mejor
+        Comparator<Resultado> orden = Comparator.comparingInt(Resultado::coincidencia)
+                .thenComparingInt(Resultado::longitud)
+                .thenComparingLong(Resultado::usuarioId);
+        PriorityQueue<Resultado> monticulo = new PriorityQueue<>(k + 1, orden.reversed());
+        for (long id : candidatos) {
+            if (id == usuarioId || Arrays.binarySearch(amigos, id) >= 0) {
+                continue;
+            }
+            String nombre = nombres.get(id);
+            if (nombre == null) {
+                continue;
+            }
+            int tipo = coincidencia(nombre, texto);
+            if (monticulo.size() == k && !mejorQue(tipo, nombre.length(), id, monticulo.peek())) {
+                continue; // No mejora al peor de los elegidos: se descarta sin crear el resultado
+            }
+            monticulo.add(new Resultado(id, tipo, nombre.length()));
+            if (monticulo.size() > k) {
+                monticulo.poll();
+            }
+        }
+        List<Resultado> ordenados = new ArrayList<>(monticulo);
+        ordenados.sort(orden);
+        List<Long> ids = new ArrayList<>(ordenados.size());
+        for (Resultado resultado : ordenados) {
+            ids.add(resultado.usuarioId());
+        }
+        return ids;
+    }
+
+    private static boolean mejorQue(int tipo, int longitud, long usuarioId, Resultado otro) {
+        if (tipo != otro.coincidencia()) {
+            return tipo < otro.coincidencia();
+        }
+        if (longitud != otro.longitud()) {
+            return longitud < otro.longitud();
+        }
+        return usuarioId < otro.usuarioId();
+    }
+
+    private static int coincidencia(String nombre, String texto) {
+        if (nombre.equals(texto)) {
+            return EXACTA;
+        }
+        if (nombre.startsWith(texto)) {
+            return PREFIJO;
+        }
+        return empiezaPalabra(nombre, texto) ? PALABRA : SUBCADENA;
+    }
+
+    /**
+     * Indica si alguna palabra del nombre empieza por el texto.
+     */
+    private static boolean empiezaPalabra(String nombre, String texto) {
+        for (int i = nombre.indexOf(texto); i >= 0; i = nombre.indexOf(texto, i + 1)) {
+            if (i == 0 || !Character.isLetterOrDigit(nombre.charAt(i - 1))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Obtiene los trigramas distintos de un texto normalizado, codificando sus tres caracteres en un long.
+     */
+    private static long[] trigramasDe(String texto) {
+        if (texto.length() < 3) {
+            return UtilidadesIndice.VACIO;
+        }
+        long[] codigos = new long[texto.length() - 2];
+        for (int i = 0; i < codigos.length; i++) {
+            codigos[i] = ((long) texto.charAt(i) << 32) | ((long) texto.charAt(i + 1) << 16) | texto.charAt(i + 2);
+        }
+        return Arrays.stream(codigos).distinct().toArray();
+    }
+
+    /**
+     * Obtiene las palabras distintas de un texto normalizado, separadas por cualquier carácter que no sea letra o dígito.
+     */
+    private static String[] palabrasDe(String texto) {
+        return Arrays.stream(texto.split("[^\\p{L}\\p{N}]+")).filter(p -> !p.isEmpty()).distinct().toArray(String[]::new);
+    }
+
+    /**
+     * Resultado candidato de una búsqueda.
+     */
+    private record Resultado(long usuarioId, int coincidencia, int longitud) {
+    }
+
+    /**
+     * Búsqueda de un usuario: el texto normalizado, si se buscó por palabra, los candidatos que coinciden
+     * (sin descartar amigos ni limitar), si están todos y la versión del índice con la que se calcularon.
+     */
+    private record Busqueda(String texto, boolean porPalabra, long[] candidatos, boolean completa, long version) {
+    }
+
+    /**
+     * Lista de IDs que crece sin crear objetos por elemento; descarta un ID igual al último añadido.
+     */
+    private static final class ListaIds {
+
+        private long[] ids = new long[4];
+        private int tamano;
+
+        void agregar(long id) {
+            if (tamano > 0 && ids[tamano - 1] == id) {
+                return;
+            }
+            if (tamano == ids.length) {
+                ids = Arrays.copyOf(ids, tamano * 2);
+            }
+            ids[tamano++] = id;
+        }
+
+        long[] terminar() {
+            return Arrays.copyOf(ids, tamano);
+        }
+    }
+}
@@ -0,0 +1,252 @@
+package es.tfg.tu_curso.servicio.implementaciones;
+
+import es.tfg.tu_curso.servicio.interfaces.NotificacionesServicio;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Implementación del registro de conexiones SSE.
+ * <p>
+ * Una conexión inactiva no ocupa ningún hilo: es solo un {@link SseEmitter} con una cola de eventos pendientes.
+ * Los eventos se escriben en hilos virtuales, uno por conexión mientras tiene eventos en cola, de modo que un
+ * cliente lento no retrasa a los demás ni a quien publica. La cola de cada conexión está acotada y, si se llena,
+ * se descarta el evento más antiguo: cada notificación lleva el estado actual, así que el cliente no necesita
+ * las anteriores. Un único hilo planificador envía periódicamente un comentario de latido a todas las conexiones
+ * para que los proxies no las cierren por inactividad y para detectar las que el cliente ya cerró.
+ * </p>
+ */
+@Service
+public class NotificacionesServicioImpl implements NotificacionesServicio {
+
+    private static final Logger LOG = LoggerFactory.getLogger(NotificacionesServicioImpl.class);
+
+    /**
+     * Milisegundos que puede permanecer abierta una conexión; después el cliente debe reconectar.
+     */
+    @Value("${notificaciones.sse.timeout-ms:1800000}")
+    private long timeoutMs;
+
+    /**
+     * Milisegundos entre dos latidos.
+     */
+    @Value("${notificaciones.sse.latido-ms:25000}")
+    private long latidoMs;
+
+    /**
+     * Número máximo de eventos pendientes de escribir por conexión.
+     */
+    @Value("${notificaciones.sse.buffer:32}")
+    private int capacidadBuffer;
+
+    /**
+     * Número máximo de conexiones por usuario; al superarlo se cierra la más antigua.
+     */
+    @Value("${notificaciones.sse.max-por-usuario:4}")
+    private int maxPorUsuario;
+
+    /**
+     * Conexiones abiertas por ID de usuario.
+     */
+    private final Map<Long, List<Suscriptor>> suscriptores = new ConcurrentHashMap<>();
+
+    private final AtomicLong descartados = new AtomicLong();
+
+    /**
+     * Hilo compartido por todas las conexiones que programa los latidos.
+     */
+    private final ScheduledExecutorService planificador = Executors.newSingleThreadScheduledExecutor(tarea -> {
+        Thread hilo = new Thread(tarea, "notificaciones-latido");
+        hilo.setDaemon(true);
+        return hilo;
+    });
+
+    /**
+     * Ejecutor en el que se escriben los eventos, con un hilo virtual por tarea.
+     */
+    private final ExecutorService envios = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("notificaciones-envio-", 0).factory());
+
+    /**
+     * Programa el envío periódico de latidos.
+     */
+    @PostConstruct
+    public void iniciar() {
+        planificador.scheduleAtFixedRate(this::enviarLatidos, latidoMs, latidoMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Detiene los latidos y cierra todas las conexiones al cerrar la aplicación.
+     */
+    @PreDestroy
+    public void cerrar() {
+        planificador.shutdownNow();
+        suscriptores.values().forEach(lista -> lista.forEach(suscriptor -> suscriptor.emisor.complete()));
+        envios.shutdownNow();
+    }
+
+    @Override
+    public SseEmitter suscribir(Long usuarioId) {
+        Suscriptor suscriptor = new Suscriptor(usuarioId, new SseEmitter(timeoutMs));
+        suscriptor.emisor.onCompletion(() -> eliminar(suscriptor));
+        suscriptor.emisor.onTimeout(() -> eliminar(suscriptor));
+        suscriptor.emisor.onError(error -> eliminar(suscriptor));
+
+        // El alta se hace dentro de compute, como la baja en eliminar, para que una conexión que se cierra a la vez
+        // no pueda quitar del mapa la lista en la que se acaba de añadir la nueva
+        Suscriptor[] expulsado = new Suscriptor[1];
+        suscriptores.compute(usuarioId, (id, lista) -> {
+            List<Suscriptor> conexiones = lista != null ? lista : new CopyOnWriteArrayList<>();
+            conexiones.add(suscriptor);
+            if (conexiones.size() > maxPorUsuario) {
+                expulsado[0] = conexiones.remove(0);
+            }
+            return conexiones;
+        });
+        // Se cierra fuera de compute porque el cierre puede volver a modificar el mapa al eliminar la conexión
+        if (expulsado[0] != null) {
+            expulsado[0].emisor.complete();
+        }
+        // El primer envío confirma la conexión al cliente sin esperar al primer evento
+        suscriptor.encolar(SseEmitter.event().comment("conectado"));
+        return suscriptor.emisor;
+    }
+
+    @Override
+    public void publicar(Long usuarioId, String evento, Object datos) {
+        List<Suscriptor> lista = suscriptores.get(usuarioId);
+        if (lista == null) {
+            return;
+        }
+        for (Suscriptor suscriptor : lista) {
+            suscriptor.encolar(SseEmitter.event().name(evento).data(datos, MediaType.APPLICATION_JSON));
+        }
+    }
+
+    @Override
+    public boolean tieneSuscriptores(Long usuarioId) {
+        List<Suscriptor> lista = suscriptores.get(usuarioId);
+        return lista != null && !lista.isEmpty();
+    }
+
+    @Override
+    public int contarSuscriptores() {
+        return suscriptores.values().stream().mapToInt(List::size).sum();
+    }
+
+    @Override
+    public long getDescartados() {
+        return descartados.get();
+    }
+
+    /**
+     * Encola un latido en las conexiones sin eventos pendientes; las que tienen eventos ya van a escribir.
+     */
+    private void enviarLatidos() {
+        for (List<Suscriptor> lista : suscriptores.values()) {
+            for (Suscriptor suscriptor : lista) {
+                suscriptor.encolarLatido();
+            }
+        }
+    }
+
+    /**
+     * Quita una conexión del registro, y la entrada de su usuario si era la última.
+     */
+    private void eliminar(Suscriptor suscriptor) {
+        suscriptores.computeIfPresent(suscriptor.usuarioId, (id, lista) -> {
+            lista.remove(suscriptor);
+            return lista.isEmpty() ? null : lista;
+        });
+    }
+
+    /**
+     * Conexión de un usuario con su cola acotada de eventos pendientes de escribir.
+     */
+    private final class Suscriptor {
+
+        private final Long usuarioId;
+        private final SseEmitter emisor;
+        private final ArrayDeque<SseEmitter.SseEventBuilder> pendientes = new ArrayDeque<>();
+
+        /**
+         * Indica si hay una tarea escribiendo los eventos de la cola. Se protege con el monitor del suscriptor.
+         */
+        private boolean escribiendo;
+
+        private Suscriptor(Long usuarioId, SseEmitter emisor) {
+            this.usuarioId = usuarioId;
+            this.emisor = emisor;
+        }
+
+        private void encolar(SseEmitter.SseEventBuilder evento) {
+            synchronized (this) {
+                if (pendientes.size() >= capacidadBuffer) {
+                    pendientes.pollFirst();
+                    descartados.incrementAndGet();
+                }
+                pendientes.addLast(evento);
+                if (escribiendo) {
+                    return;
+                }
+                escribiendo = true;
+            }
+            envios.execute(this::escribir);
+        }
+
+        private void encolarLatido() {
+            synchronized (this) {
+                if (!pendientes.isEmpty()) {
+                    return;
+                }
+            }
+            encolar(SseEmitter.event().comment("latido"));
+        }
+
+        /**
+         * Escribe los eventos de la cola hasta vaciarla. Si la escritura falla el cliente se ha desconectado
+         * y la conexión se cierra.
+         */
+        private void escribir() {
+            while (true) {
+                SseEmitter.SseEventBuilder evento;
+                synchronized (this) {
+                    evento = pendientes.pollFirst();
+                    if (evento == null) {
+                        escribiendo = false;
+                        return;
+                    }
+                }
+                try {
+                    emisor.send(evento);
+                } catch (IOException | IllegalStateException e) {
+                    LOG.debug("Conexión de notificaciones del usuario {} cerrada: {}", usuarioId, e.getMessage());
+                    synchronized (this) {
+                        pendientes.clear();
+                        escribiendo = false;
+                    }
+                    eliminar(this);
+                    emisor.completeWithError(e);
+                    return;
+                }
+            }
+        }
+    }
+}
@@ -1,19 +1,38 @@
 package es.tfg.tu_curso.servicio.implementaciones;
 
+import es.tfg.tu_curso.dto.NotificacionSolicitudDTO;
 import es.tfg.tu_curso.dto.SolicitudAmistadDTO;
 import es.tfg.tu_curso.modelo.SolicitudAmistad;
-import es.tfg.tu_curso.modelo.Usuario;
 import es.tfg.tu_curso.repositorio.RepositorioSolicitudAmistad;
 import es.tfg.tu_curso.repositorio.RepositorioUsuario;
+import es.tfg.tu_curso.servicio.interfaces.IndiceAmistadesServicio;
+import es.tfg.tu_curso.servicio.interfaces.NotificacionesServicio;
 import es.tfg.tu_curso.servicio.interfaces.SolicitudAmistadServicio;
 import es.tfg.tu_curso.servicio.interfaces.UsuarioServicio;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
-import java.util.stream.Collectors;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Implementación del servicio de gestión de solicitudes de amistad.
@@ -23,6 +42,18 @@ import java.util.stream.Collectors;
 @Service
 public class SolicitudAmistadServicioImpl implements SolicitudAmistadServicio {
 
+    private static final Logger LOG = LoggerFactory.getLogger(SolicitudAmistadServicioImpl.class);
+
+    /**
+     * Inserta los sentidos que aún no existen de la amistad entre dos usuarios, como
+     * {@link RepositorioUsuario#insertarAmistad(Long, Long)}, con parámetros posicionales para ejecutarla en lote.
+     */
+    private static final String INSERTAR_AMISTAD = "MERGE INTO usuario_amigos ua " +
+            "USING (SELECT u.id AS usuario_id, a.id AS amigo_id FROM usuario u JOIN usuario a " +
+            "ON (u.id = ? AND a.id = ?) OR (u.id = ? AND a.id = ?)) par " +
+            "ON (ua.usuario_id = par.usuario_id AND ua.amigo_id = par.amigo_id) " +
+            "WHEN NOT MATCHED THEN INSERT (usuario_id, amigo_id) VALUES (par.usuario_id, par.amigo_id)";
+
     @Autowired
     private RepositorioSolicitudAmistad solicitudRepositorio;
 
@@ -32,53 +63,98 @@ public class SolicitudAmistadServicioImpl implements SolicitudAmistadServicio {
     @Autowired
     private UsuarioServicio usuarioServicio;
 
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private NotificacionesServicio notificaciones;
+
+    @Autowired
+    private IndiceAmistadesServicio indiceAmistades;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Días tras los que caduca una solicitud que no se ha aceptado ni rechazado.
+     */
+    @Value("${amistades.solicitudes.caducidad-dias:30}")
+    private int diasCaducidad;
+
+    /**
+     * Número máximo de solicitudes caducadas eliminadas por transacción.
+     */
+    @Value("${amistades.solicitudes.purga-lote:1000}")
+    private int lotePurga;
+
+    /**
+     * Milisegundos de pausa entre dos lotes de la purga, para ceder la base de datos al resto de peticiones.
+     */
+    @Value("${amistades.solicitudes.purga-pausa-ms:100}")
+    private long pausaPurgaMs;
+
+    /**
+     * Solicitudes caducadas eliminadas desde el arranque.
+     */
+    private final AtomicLong solicitudesPurgadas = new AtomicLong();
+
+    /**
+     * Completa el par de usuarios de las solicitudes guardadas antes de que existiera, descartando las que repiten
+     * un par. Los contadores de solicitudes pendientes afectados los corrige la reparación periódica.
+     */
+    @PostConstruct
+    public void completarPares() {
+        int repetidas = solicitudRepositorio.eliminarParesRepetidos();
+        int completadas = solicitudRepositorio.completarPares();
+        if (repetidas > 0 || completadas > 0) {
+            LOG.info("Par de usuarios completado en {} solicitudes de amistad; {} repetidas eliminadas", completadas, repetidas);
+        }
+    }
+
     /**
      * {@inheritDoc}
      * <p>
-     * Esta implementación verifica que ambos usuarios existan, que no sean el mismo usuario,
-     * que no sean ya amigos, y que no exista una solicitud pendiente antes de crear la nueva solicitud.
+     * Esta implementación verifica que no sea el mismo usuario y que no sean ya amigos, e inserta la solicitud
+     * sin consultar antes si existe otra: el índice único del par de usuarios rechaza la inserción si ya hay una
+     * solicitud entre ambos en cualquier sentido, y la clave foránea si alguno de los usuarios no existe, aunque
+     * dos envíos lleguen a la vez. La inserción y el incremento del contador de solicitudes pendientes del
+     * receptor se hacen en una transacción que se deshace entera si se rechaza la inserción. Al confirmarse
+     * se notifica a ambos usuarios.
      * </p>
      */
     @Override
-    @Transactional
     public boolean enviarSolicitud(Long emisorId, Long receptorId) {
         // Verificar que no sea el mismo usuario
         if (emisorId.equals(receptorId)) {
             return false;
         }
 
-        // Verificar que ambos usuarios existan
-        Optional<Usuario> emisorOpt = usuarioRepositorio.findById(emisorId);
-        Optional<Usuario> receptorOpt = usuarioRepositorio.findById(receptorId);
-
-        if (emisorOpt.isEmpty() || receptorOpt.isEmpty()) {
-            return false;
-        }
-
-        Usuario emisor = emisorOpt.get();
-        Usuario receptor = receptorOpt.get();
-
         // Verificar que no sean ya amigos
         if (usuarioServicio.sonAmigos(emisorId, receptorId)) {
             return false;
         }
 
-        // Verificar que no exista una solicitud pendiente
-        if (solicitudRepositorio.existeSolicitudPendiente(emisorId, receptorId)) {
+        try {
+            transactionTemplate.executeWithoutResult(estado -> {
+                SolicitudAmistad nuevaSolicitud = new SolicitudAmistad(
+                        usuarioRepositorio.getReferenceById(emisorId), usuarioRepositorio.getReferenceById(receptorId));
+                solicitudRepositorio.saveAndFlush(nuevaSolicitud);
+                usuarioRepositorio.sumarSolicitudesPendientes(receptorId, 1);
+                notificar(RECIBIDA, nuevaSolicitud.getId(), emisorId, receptorId);
+            });
+            return true;
+        } catch (DataIntegrityViolationException e) {
+            // Ya existe una solicitud entre ambos usuarios o alguno no existe
             return false;
         }
-
-        // Crear y guardar la nueva solicitud
-        SolicitudAmistad nuevaSolicitud = new SolicitudAmistad(emisor, receptor);
-        solicitudRepositorio.save(nuevaSolicitud);
-        return true;
     }
 
     /**
      * {@inheritDoc}
      * <p>
      * Esta implementación busca la solicitud, verifica que exista, establece la relación
-     * de amistad entre los usuarios y elimina la solicitud.
+     * de amistad entre los usuarios si aún no existe y elimina la solicitud, decrementando el contador
+     * de solicitudes pendientes del receptor en la misma transacción. Al confirmarse se notifica a ambos usuarios.
      * </p>
      */
     @Override
@@ -94,22 +170,20 @@ public class SolicitudAmistadServicioImpl implements SolicitudAmistadServicio {
         Long emisorId = solicitud.getEmisor().getId();
         Long receptorId = solicitud.getReceptor().getId();
 
-        // Agregar como amigos usando el servicio de usuario
-        boolean amistadEstablecida = usuarioServicio.agregarAmigo(emisorId, receptorId);
-
-        if (amistadEstablecida) {
-            // Eliminar la solicitud después de establecer la amistad
-            solicitudRepositorio.delete(solicitud);
-            return true;
-        }
+        // Agregar como amigos usando el servicio de usuario; si ya lo eran, la solicitud sobra y se elimina igualmente
+        usuarioServicio.agregarAmigo(emisorId, receptorId);
 
-        return false;
+        solicitudRepositorio.delete(solicitud);
+        usuarioRepositorio.sumarSolicitudesPendientes(receptorId, -1);
+        notificar(ACEPTADA, solicitudId, emisorId, receptorId);
+        return true;
     }
 
     /**
      * {@inheritDoc}
      * <p>
-     * Esta implementación simplemente elimina la solicitud del sistema.
+     * Esta implementación elimina la solicitud del sistema y decrementa el contador de solicitudes
+     * pendientes del receptor en la misma transacción. Al confirmarse se notifica a ambos usuarios.
      * </p>
      */
     @Override
@@ -121,10 +195,87 @@ public class SolicitudAmistadServicioImpl implements SolicitudAmistadServicio {
             return false;
         }
 
-        solicitudRepositorio.delete(solicitudOpt.get());
+        SolicitudAmistad solicitud = solicitudOpt.get();
+        solicitudRepositorio.delete(solicitud);
+        usuarioRepositorio.sumarSolicitudesPendientes(solicitud.getReceptor().getId(), -1);
+        notificar(RECHAZADA, solicitudId, solicitud.getEmisor().getId(), solicitud.getReceptor().getId());
         return true;
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Esta implementación, en una transacción y sin cargar entidades, comprueba con una consulta qué solicitudes
+     * son del receptor, bloquea en orden de ID las filas del receptor y los emisores como
+     * {@link UsuarioServicio#agregarAmigo(Long, Long)}, inserta las amistades con un lote JDBC, elimina las
+     * solicitudes con una sola sentencia y actualiza los contadores con una sentencia por grupo de usuarios.
+     * Las solicitudes de emisores que ya eran amigos del receptor también se eliminan y se cuentan como aceptadas.
+     * Al confirmarse se actualiza el índice de amistades y se notifica a los usuarios.
+     * </p>
+     */
+    @Override
+    @Transactional
+    public List<Long> aceptarSolicitudes(Long receptorId, Collection<Long> solicitudIds) {
+        Map<Long, Long> emisores = emisoresDeRecibidas(receptorId, solicitudIds);
+        if (emisores.isEmpty()) {
+            return List.of();
+        }
+        Set<Long> usuarios = new HashSet<>(emisores.values());
+        usuarios.add(receptorId);
+        usuarioRepositorio.bloquearUsuariosPorIds(usuarios);
+
+        List<Long> candidatos = emisores.values().stream().distinct()
+                .filter(emisorId -> !indiceAmistades.sonAmigos(receptorId, emisorId))
+                .toList();
+        List<Long> nuevosAmigos = new ArrayList<>();
+        if (!candidatos.isEmpty()) {
+            int[][] insertadas = jdbcTemplate.batchUpdate(INSERTAR_AMISTAD, candidatos, candidatos.size(),
+                    (sentencia, emisorId) -> {
+                        sentencia.setLong(1, receptorId);
+                        sentencia.setLong(2, emisorId);
+                        sentencia.setLong(3, emisorId);
+                        sentencia.setLong(4, receptorId);
+                    });
+            for (int i = 0; i < candidatos.size(); i++) {
+                // Si otra transacción ya creó la amistad no se inserta ninguna fila
+                if (insertadas[0][i] != 0) {
+                    nuevosAmigos.add(candidatos.get(i));
+                }
+            }
+        }
+
+        int borradas = solicitudRepositorio.deleteRecibidas(receptorId, emisores.keySet());
+        usuarioRepositorio.sumarSolicitudesPendientes(receptorId, -borradas);
+        if (!nuevosAmigos.isEmpty()) {
+            usuarioRepositorio.sumarNumeroAmigosPorIds(nuevosAmigos, 1);
+            usuarioRepositorio.sumarNumeroAmigosPorIds(List.of(receptorId), nuevosAmigos.size());
+            nuevosAmigos.forEach(emisorId -> indiceAmistades.registrarAmistad(receptorId, emisorId));
+        }
+        notificarLote(ACEPTADA, receptorId, emisores);
+        return List.copyOf(emisores.keySet());
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Esta implementación, en una transacción y sin cargar entidades, comprueba con una consulta qué solicitudes
+     * son del receptor, las elimina con una sola sentencia y decrementa su contador de solicitudes pendientes.
+     * Al confirmarse se notifica a los usuarios.
+     * </p>
+     */
+    @Override
+    @Transactional
+    public List<Long> rechazarSolicitudes(Long receptorId, Collection<Long> solicitudIds) {
+        Map<Long, Long> emisores = emisoresDeRecibidas(receptorId, solicitudIds);
+        if (emisores.isEmpty()) {
+            return List.of();
+        }
+        int borradas = solicitudRepositorio.deleteRecibidas(receptorId, emisores.keySet());
+        usuarioRepositorio.sumarSolicitudesPendientes(receptorId, -borradas);
+        notificarLote(RECHAZADA, receptorId, emisores);
+        return List.copyOf(emisores.keySet());
+    }
+
     /**
      * {@inheritDoc}
      * <p>
@@ -150,31 +301,25 @@ public class SolicitudAmistadServicioImpl implements SolicitudAmistadServicio {
     /**
      * {@inheritDoc}
      * <p>
-     * Esta implementación obtiene todas las solicitudes recibidas y las convierte a DTO
-     * para evitar exponer información sensible como contraseñas.
+     * Esta implementación construye los DTO en la consulta, que une la solicitud con su emisor y su receptor,
+     * para evitar exponer información sensible como contraseñas sin cargar las entidades.
      * </p>
      */
     @Override
-    public List<SolicitudAmistadDTO> obtenerSolicitudesRecibidasDTO(Long receptorId) {
-        List<SolicitudAmistad> solicitudes = solicitudRepositorio.findByReceptorId(receptorId);
-        return solicitudes.stream()
-                .map(SolicitudAmistadDTO::new)
-                .collect(Collectors.toList());
+    public List<SolicitudAmistadDTO> obtenerSolicitudesRecibidasDTO(Long receptorId, Long despues, int tamano) {
+        return solicitudRepositorio.findRecibidasDTODespuesDe(receptorId, despues == null ? 0L : despues, limite(tamano));
     }
 
     /**
      * {@inheritDoc}
      * <p>
-     * Esta implementación obtiene todas las solicitudes enviadas y las convierte a DTO
-     * para evitar exponer información sensible como contraseñas.
+     * Esta implementación construye los DTO en la consulta, que une la solicitud con su emisor y su receptor,
+     * para evitar exponer información sensible como contraseñas sin cargar las entidades.
      * </p>
      */
     @Override
-    public List<SolicitudAmistadDTO> obtenerSolicitudesEnviadasDTO(Long emisorId) {
-        List<SolicitudAmistad> solicitudes = solicitudRepositorio.findByEmisorId(emisorId);
-        return solicitudes.stream()
-                .map(SolicitudAmistadDTO::new)
-                .collect(Collectors.toList());
+    public List<SolicitudAmistadDTO> obtenerSolicitudesEnviadasDTO(Long emisorId, Long despues, int tamano) {
+        return solicitudRepositorio.findEnviadasDTODespuesDe(emisorId, despues == null ? 0L : despues, limite(tamano));
     }
 
     /**
@@ -192,11 +337,142 @@ public class SolicitudAmistadServicioImpl implements SolicitudAmistadServicio {
     /**
      * {@inheritDoc}
      * <p>
-     * Esta implementación cuenta el número de solicitudes recibidas por un usuario.
+     * Esta implementación lee el contador de solicitudes pendientes del usuario en lugar de contar las solicitudes.
      * </p>
      */
     @Override
     public long contarSolicitudesRecibidas(Long receptorId) {
-        return solicitudRepositorio.countByReceptorId(receptorId);
+        return usuarioRepositorio.findSolicitudesPendientesById(receptorId).orElse(0);
+    }
+
+    /**
+     * Notifica un cambio en una solicitud a su emisor y su receptor cuando se confirme la transacción.
+     * Si ninguno de los dos tiene conexiones abiertas no se hace nada; si no, se lee el contador de solicitudes
+     * pendientes del receptor dentro de la transacción, ya actualizado.
+     */
+    private void notificar(String tipo, Long solicitudId, Long emisorId, Long receptorId) {
+        if (!notificaciones.tieneSuscriptores(emisorId) && !notificaciones.tieneSuscriptores(receptorId)) {
+            return;
+        }
+        int pendientes = usuarioRepositorio.findSolicitudesPendientesById(receptorId).orElse(0);
+        NotificacionSolicitudDTO notificacion = new NotificacionSolicitudDTO(tipo, solicitudId, emisorId, receptorId, pendientes);
+        UtilidadesIndice.alConfirmar(() -> {
+            notificaciones.publicar(emisorId, NotificacionesServicio.EVENTO_SOLICITUD, notificacion);
+            notificaciones.publicar(receptorId, NotificacionesServicio.EVENTO_SOLICITUD, notificacion);
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Esta implementación se ejecuta periódicamente. Cada lote bloquea como mucho el número configurado de
+     * solicitudes, las elimina con una sentencia y descuenta los contadores con un lote JDBC en su propia
+     * transacción, de modo que los bloqueos duran solo lo que tarda un lote. Entre lotes se hace una pausa.
+     * </p>
+     */
+    @Override
+    @Scheduled(initialDelayString = "${amistades.solicitudes.purga-ms:3600000}",
+            fixedDelayString = "${amistades.solicitudes.purga-ms:3600000}")
+    public int purgarCaducadas() {
+        LocalDateTime limite = LocalDateTime.now().minusDays(diasCaducidad);
+        int purgadas = 0;
+        int borradas;
+        do {
+            Integer resultado = transactionTemplate.execute(estado -> purgarLote(limite));
+            borradas = resultado == null ? 0 : resultado;
+            purgadas += borradas;
+            solicitudesPurgadas.addAndGet(borradas);
+            if (borradas == lotePurga && pausaPurgaMs > 0) {
+                try {
+                    Thread.sleep(pausaPurgaMs);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+        } while (borradas == lotePurga);
+        if (purgadas > 0) {
+            LOG.info("Eliminadas {} solicitudes de amistad anteriores a {}", purgadas, limite);
+        }
+        return purgadas;
+    }
+
+    @Override
+    public long getSolicitudesPurgadas() {
+        return solicitudesPurgadas.get();
+    }
+
+    /**
+     * Elimina un lote de solicitudes caducadas y descuenta de los contadores de pendientes de sus receptores.
+     *
+     * @return Número de solicitudes eliminadas
+     */
+    private int purgarLote(LocalDateTime limite) {
+        List<Object[]> caducadas = solicitudRepositorio.bloquearCaducadas(limite, Limit.of(lotePurga));
+        if (caducadas.isEmpty()) {
+            return 0;
+        }
+        List<Long> ids = new ArrayList<>(caducadas.size());
+        Map<Long, Integer> porReceptor = new HashMap<>();
+        for (Object[] fila : caducadas) {
+            ids.add((Long) fila[0]);
+            porReceptor.merge((Long) fila[1], 1, Integer::sum);
+        }
+        solicitudRepositorio.deleteByIds(ids);
+        jdbcTemplate.batchUpdate("UPDATE usuario SET solicitudes_pendientes = solicitudes_pendientes - ? WHERE id = ?",
+                List.copyOf(porReceptor.entrySet()), porReceptor.size(), (sentencia, receptor) -> {
+                    sentencia.setInt(1, receptor.getValue());
+                    sentencia.setLong(2, receptor.getKey());
+                });
+        return ids.size();
+    }
+
+    /**
+     * Obtiene con una consulta el emisor de cada solicitud indicada que haya recibido el usuario.
+     *
+     * @return Mapa ordenado por ID de solicitud con el ID de su emisor
+     */
+    private Map<Long, Long> emisoresDeRecibidas(Long receptorId, Collection<Long> solicitudIds) {
+        Map<Long, Long> emisores = new TreeMap<>();
+        if (solicitudIds.isEmpty()) {
+            return emisores;
+        }
+        for (Object[] fila : solicitudRepositorio.findEmisoresDeRecibidas(receptorId, solicitudIds)) {
+            emisores.put((Long) fila[0], (Long) fila[1]);
+        }
+        return emisores;
+    }
+
+    /**
+     * Notifica, cuando se confirme la transacción, el cambio de varias solicitudes de un mismo receptor
+     * a sus emisores y al receptor, leyendo una sola vez el contador de solicitudes pendientes.
+     */
+    private void notificarLote(String tipo, Long receptorId, Map<Long, Long> emisores) {
+        int pendientes = -1;
+        List<NotificacionSolicitudDTO> notificacionesLote = new ArrayList<>();
+        for (Map.Entry<Long, Long> solicitud : emisores.entrySet()) {
+            Long emisorId = solicitud.getValue();
+            if (!notificaciones.tieneSuscriptores(emisorId) && !notificaciones.tieneSuscriptores(receptorId)) {
+                continue;
+            }
+            if (pendientes < 0) {
+                pendientes = usuarioRepositorio.findSolicitudesPendientesById(receptorId).orElse(0);
+            }
+            notificacionesLote.add(new NotificacionSolicitudDTO(tipo, solicitud.getKey(), emisorId, receptorId, pendientes));
+        }
+        if (notificacionesLote.isEmpty()) {
+            return;
+        }
+        UtilidadesIndice.alConfirmar(() -> notificacionesLote.forEach(notificacion -> {
+            notificaciones.publicar(notificacion.getEmisorId(), NotificacionesServicio.EVENTO_SOLICITUD, notificacion);
+            notificaciones.publicar(receptorId, NotificacionesServicio.EVENTO_SOLICITUD, notificacion);
+        }));
+    }
+
+    /**
+     * Ajusta el tamaño de página pedido al intervalo permitido.
+     */
+    private static Limit limite(int tamano) {
+        return Limit.of(Math.max(1, Math.min(tamano, MAX_TAMANO_PAGINA_SOLICITUDES)));
     }
 }
\ No newline at end of file
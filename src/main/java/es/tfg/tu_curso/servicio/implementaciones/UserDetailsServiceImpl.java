@@ -34,7 +34,7 @@ public class UserDetailsServiceImpl implements UserDetailsService {
     @Override
     public UserDetails loadUserByUsername(String email) throws UsernameNotFoundException {
         Usuario usuario = usuarioRepository.findByEmail(email).orElse(null);
-        if (usuario == null) {
+        if (usuario == null || usuario.enBorrado()) {
             throw new UsernameNotFoundException("Usuario no encontrado");
         }
         return User.withUsername(usuario.getEmail())
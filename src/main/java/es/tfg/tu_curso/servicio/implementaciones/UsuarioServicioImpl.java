@@ -1,16 +1,41 @@
 package es.tfg.tu_curso.servicio.implementaciones;
 
+import es.tfg.tu_curso.dto.AmigosComunesDTO;
+import es.tfg.tu_curso.dto.CosteHashDTO;
+import es.tfg.tu_curso.dto.CredencialesDTO;
+import es.tfg.tu_curso.dto.SugerenciaDTO;
 import es.tfg.tu_curso.dto.UsuarioDTO;
 import es.tfg.tu_curso.modelo.Usuario;
 import es.tfg.tu_curso.repositorio.RepositorioUsuario;
+import es.tfg.tu_curso.seguridad.BCryptCosteAdaptativo;
+import es.tfg.tu_curso.seguridad.ServicioSaturadoException;
+import es.tfg.tu_curso.seguridad.VerificadorSelloSeguridad;
+import es.tfg.tu_curso.servicio.interfaces.BorradoUsuariosServicio;
+import es.tfg.tu_curso.servicio.interfaces.IndiceAmistadesServicio;
+import es.tfg.tu_curso.servicio.interfaces.IndiceNombresServicio;
 import es.tfg.tu_curso.servicio.interfaces.UsuarioServicio;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 /**
  * Implementación del servicio de gestión de usuarios.
@@ -21,6 +46,19 @@ import java.util.Optional;
 @Service
 public class UsuarioServicioImpl implements UsuarioServicio {
 
+    private static final Logger LOG = LoggerFactory.getLogger(UsuarioServicioImpl.class);
+
+    /**
+     * Número máximo de amigos en común devueltos por página.
+     */
+    private static final int MAX_TAMANO_PAGINA = 100;
+
+    /**
+     * Número de usuarios cuyos contadores se reparan en cada transacción.
+     */
+    @Value("${usuarios.contadores.lote:1000}")
+    private int loteReparacion;
+
     /**
      * Repositorio para acceder a los datos de usuarios.
      */
@@ -33,6 +71,30 @@ public class UsuarioServicioImpl implements UsuarioServicio {
     @Autowired
     private PasswordEncoder passwordEncoder;
 
+    /**
+     * Verificador del sello de seguridad, que debe olvidar el sello de un usuario cuando este cambia.
+     */
+    @Autowired
+    private VerificadorSelloSeguridad verificadorSello;
+
+    /**
+     * Índice en memoria de las amistades, para comprobarlas y contarlas sin consultar la base de datos.
+     */
+    @Autowired
+    private IndiceAmistadesServicio indiceAmistades;
+
+    /**
+     * Índice en memoria de los nombres de los usuarios, para buscarlos sin recorrer la tabla.
+     */
+    @Autowired
+    private IndiceNombresServicio indiceNombres;
+
+    /**
+     * Servicio que borra los usuarios junto con sus datos.
+     */
+    @Autowired
+    private BorradoUsuariosServicio borradoUsuarios;
+
     /**
      * {@inheritDoc}
      * <p>
@@ -49,6 +111,7 @@ public class UsuarioServicioImpl implements UsuarioServicio {
         Usuario nuevoUsuario = new Usuario(nombre, descripcion, mail, passwordEncoder.encode(pass), icono); // <-- Encriptar la contraseña
         nuevoUsuario.setRol("USER");
         usuarioRepositorio.save(nuevoUsuario);
+        indiceNombres.registrarUsuario(nuevoUsuario.getId(), nuevoUsuario.getNombre());
         return true;
     }
 
@@ -71,7 +134,8 @@ public class UsuarioServicioImpl implements UsuarioServicio {
 
 
         usuario.setRol("USER");
-        usuarioRepositorio.save(usuario);
+        Usuario guardado = usuarioRepositorio.save(usuario);
+        indiceNombres.registrarUsuario(guardado.getId(), guardado.getNombre());
         return true;
     }
 
@@ -89,11 +153,14 @@ public class UsuarioServicioImpl implements UsuarioServicio {
             return false; // El usuario ya existe
         }
 
+        // El hash se calcula fuera del try para que un rechazo por saturación llegue al controlador
+        String hash = passwordEncoder.encode(pass);
         try {
             // Crear nuevo usuario administrador
-            Usuario nuevoAdmin = new Usuario(nombre, descripcion, email, passwordEncoder.encode(pass), icono);
+            Usuario nuevoAdmin = new Usuario(nombre, descripcion, email, hash, icono);
             nuevoAdmin.setRol("ADMIN"); // Establecer rol como administrador
             usuarioRepositorio.save(nuevoAdmin);
+            indiceNombres.registrarUsuario(nuevoAdmin.getId(), nuevoAdmin.getNombre());
             return true;
         } catch (Exception e) {
             return false;
@@ -103,18 +170,13 @@ public class UsuarioServicioImpl implements UsuarioServicio {
     /**
      * {@inheritDoc}
      * <p>
-     * Esta implementación verifica la existencia del usuario antes de eliminarlo.
+     * Esta implementación delega en {@link BorradoUsuariosServicio}, que borra el usuario y todos sus datos
+     * con sentencias por conjuntos en una única transacción, sin cargarlos.
      * </p>
      */
     @Override
     public boolean borrar(Long idUsuario) {
-        // Verificar si el usuario existe
-        Optional<Usuario> usuario = usuarioRepositorio.findById(idUsuario);
-        if (usuario.isPresent()) {
-            usuarioRepositorio.delete(usuario.get());
-            return true; // Usuario eliminado exitosamente
-        }
-        return false; // El usuario no existe
+        return borradoUsuarios.borrar(idUsuario);
     }
 
     /**
@@ -141,8 +203,13 @@ public class UsuarioServicioImpl implements UsuarioServicio {
             usuario.setDescripcion(u.getDescripcion());
             usuario.setIcono(u.getIcono());
 
+            // Las credenciales cambian, por lo que se invalidan los tokens emitidos anteriormente
+            usuario.renovarSelloSeguridad();
+
             // Guardar el usuario actualizado
             usuarioRepositorio.save(usuario);
+            verificadorSello.invalidar(idUsuario);
+            indiceNombres.registrarUsuario(idUsuario, usuario.getNombre());
             return true; // Usuario modificado exitosamente
         }
         return false; // El usuario no existe
@@ -151,13 +218,29 @@ public class UsuarioServicioImpl implements UsuarioServicio {
     /**
      * {@inheritDoc}
      * <p>
-     * Esta implementación utiliza un método específico del repositorio para
-     * obtener directamente los DTO de usuario.
+     * Esta implementación pagina por clave, filtrando por ID mayor que el último devuelto,
+     * y obtiene directamente los DTO de usuario en una única consulta.
      * </p>
      */
     @Override
-    public List<UsuarioDTO> obtenerUsuarios() {
-        return usuarioRepositorio.findAllUsuariosDTO();
+    public List<UsuarioDTO> obtenerUsuarios(Long despues, int tamano) {
+        int tamanoValido = Math.max(1, Math.min(tamano, MAX_TAMANO_PAGINA_USUARIOS));
+        return usuarioRepositorio.findUsuariosDTODespuesDe(despues == null ? 0L : despues, Limit.of(tamanoValido));
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Esta implementación consume un flujo de la consulta de DTO dentro de una transacción de solo lectura.
+     * Los DTO no quedan en el contexto de persistencia, por lo que la memoria no crece con el número de usuarios.
+     * </p>
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public void recorrerUsuarios(Consumer<UsuarioDTO> consumidor) {
+        try (Stream<UsuarioDTO> usuarios = usuarioRepositorio.streamUsuariosDTO()) {
+            usuarios.forEach(consumidor);
+        }
     }
 
     /**
@@ -173,13 +256,76 @@ public class UsuarioServicioImpl implements UsuarioServicio {
                 .orElseThrow(() -> new IllegalArgumentException("Usuario no encontrado con el email: " + email));
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Esta implementación obtiene una proyección del usuario sin cargar la entidad.
+     * </p>
+     */
+    @Override
+    public Optional<CredencialesDTO> obtenerCredenciales(String email) {
+        return usuarioRepositorio.findCredencialesByEmail(email);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Esta implementación no modifica el sello de seguridad, ya que la contraseña no cambia.
+     * Si el ejecutor de hashes está saturado, la actualización se pospone al siguiente inicio de sesión.
+     * </p>
+     */
+    @Override
+    public boolean actualizarHashSiObsoleto(Long id, String hashActual, String pass) {
+        if (!passwordEncoder.upgradeEncoding(hashActual)) {
+            return false;
+        }
+        String hashNuevo;
+        try {
+            hashNuevo = passwordEncoder.encode(pass);
+        } catch (ServicioSaturadoException e) {
+            return false;
+        }
+        return usuarioRepositorio.actualizarHashContrasena(id, hashActual, hashNuevo) == 1;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Esta implementación agrupa los hashes en la base de datos por su prefijo y extrae el coste de BCrypt.
+     * </p>
+     */
+    @Override
+    public List<CosteHashDTO> obtenerDistribucionCostesHash() {
+        List<CosteHashDTO> distribucion = new ArrayList<>();
+        for (Object[] fila : usuarioRepositorio.contarPorPrefijoHash()) {
+            String prefijo = fila[0] == null ? "" : (String) fila[0];
+            int inicioHash = prefijo.indexOf('$');
+            int coste = inicioHash < 0 ? -1 : BCryptCosteAdaptativo.costeDe(prefijo.substring(inicioHash));
+            String formato;
+            if (coste < 0) {
+                formato = "desconocido";
+            } else if (inicioHash == 0) {
+                formato = "bcrypt (sin prefijo)";
+            } else {
+                formato = prefijo.substring(0, inicioHash).replace("{", "").replace("}", "");
+            }
+            distribucion.add(new CosteHashDTO(formato, coste < 0 ? null : coste, ((Number) fila[1]).longValue()));
+        }
+        distribucion.sort(Comparator.comparing(CosteHashDTO::getFormato)
+                .thenComparing(CosteHashDTO::getCoste, Comparator.nullsLast(Comparator.naturalOrder())));
+        return distribucion;
+    }
+
     // Implementación de métodos para gestión de amigos
 
     /**
      * {@inheritDoc}
      * <p>
-     * Esta implementación verifica que ambos usuarios existan y que no sean el mismo usuario
-     * antes de establecer la relación de amistad bidireccional.
+     * Esta implementación descarta con el índice de amistades a los usuarios que ya son amigos, bloquea las filas
+     * de ambos usuarios para serializar las solicitudes simultáneas sobre el mismo par e inserta ambos sentidos
+     * de la relación en la tabla usuario_amigos con una sola sentencia, sin cargar los usuarios ni sus colecciones
+     * de amigos. Los contadores de amigos se incrementan en la misma transacción y el índice se actualiza al
+     * confirmarse.
      * </p>
      */
     @Override
@@ -188,93 +334,182 @@ public class UsuarioServicioImpl implements UsuarioServicio {
         if (usuarioId.equals(amigoId)) {
             return false; // Un usuario no puede ser amigo de sí mismo
         }
-
-        Optional<Usuario> usuarioOpt = usuarioRepositorio.findById(usuarioId);
-        Optional<Usuario> amigoOpt = usuarioRepositorio.findById(amigoId);
-
-        if (usuarioOpt.isPresent() && amigoOpt.isPresent()) {
-            Usuario usuario = usuarioOpt.get();
-            Usuario amigo = amigoOpt.get();
-
-            if (!usuario.esAmigo(amigo)) {
-                usuario.agregarAmigo(amigo);
-                usuarioRepositorio.save(usuario);
-                return true;
-            }
+        if (indiceAmistades.sonAmigos(usuarioId, amigoId)) {
+            return false; // Ya son amigos
+        }
+        if (usuarioRepositorio.bloquearUsuarios(usuarioId, amigoId).size() < 2) {
+            return false; // Alguno de los usuarios no existe
         }
-        return false;
+        if (usuarioRepositorio.insertarAmistad(usuarioId, amigoId) == 0) {
+            return false; // Otra solicitud simultánea ya ha creado la amistad
+        }
+        usuarioRepositorio.sumarNumeroAmigos(usuarioId, amigoId, 1);
+        indiceAmistades.registrarAmistad(usuarioId, amigoId);
+        return true;
     }
 
     /**
      * {@inheritDoc}
      * <p>
-     * Esta implementación verifica que ambos usuarios existan antes de
-     * remover la relación de amistad bidireccional.
+     * Esta implementación comprueba con el índice de amistades que los usuarios sean amigos y elimina
+     * ambos sentidos de la relación con una sola sentencia, sin cargar los usuarios. Los contadores de amigos
+     * se decrementan en la misma transacción y el índice se actualiza al confirmarse.
      * </p>
      */
     @Override
     @Transactional
     public boolean removerAmigo(Long usuarioId, Long amigoId) {
-        Optional<Usuario> usuarioOpt = usuarioRepositorio.findById(usuarioId);
-        Optional<Usuario> amigoOpt = usuarioRepositorio.findById(amigoId);
-
-        if (usuarioOpt.isPresent() && amigoOpt.isPresent()) {
-            Usuario usuario = usuarioOpt.get();
-            Usuario amigo = amigoOpt.get();
-
-            if (usuario.esAmigo(amigo)) {
-                usuario.removerAmigo(amigo);
-                usuarioRepositorio.save(usuario);
-                return true;
-            }
+        if (!indiceAmistades.sonAmigos(usuarioId, amigoId)) {
+            return false; // No son amigos
         }
-        return false;
+        if (usuarioRepositorio.eliminarAmistad(usuarioId, amigoId) == 0) {
+            return false; // Otra solicitud simultánea ya ha eliminado la amistad
+        }
+        usuarioRepositorio.sumarNumeroAmigos(usuarioId, amigoId, -1);
+        indiceAmistades.eliminarAmistad(usuarioId, amigoId);
+        return true;
     }
 
     /**
      * {@inheritDoc}
      * <p>
      * Esta implementación utiliza un método específico del repositorio para
-     * obtener directamente los DTO de los amigos de un usuario.
+     * obtener directamente los DTO de los amigos de un usuario, y no consulta la base de datos
+     * si el índice de amistades indica que no tiene ninguno.
      * </p>
      */
     @Override
     public List<UsuarioDTO> obtenerAmigos(Long usuarioId) {
+        if (indiceAmistades.contarAmigos(usuarioId) == 0) {
+            return new ArrayList<>();
+        }
         return usuarioRepositorio.findAmigosByUsuarioId(usuarioId);
     }
 
     /**
      * {@inheritDoc}
      * <p>
-     * Esta implementación busca usuarios que coincidan con el nombre proporcionado
-     * y que no sean amigos del usuario actual.
+     * Esta implementación busca en el índice de nombres en memoria, que descarta a los amigos con el
+     * índice de amistades, y solo consulta la base de datos para obtener los usuarios encontrados.
+     * </p>
+     */
+    @Override
+    public List<UsuarioDTO> buscarUsuariosParaAgregar(Long usuarioId, String nombre, int limite) {
+        List<Long> ids = indiceNombres.buscar(usuarioId, nombre, limite);
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Map<Long, UsuarioDTO> usuarios = new HashMap<>();
+        for (UsuarioDTO usuario : usuarioRepositorio.findUsuariosDTOByIds(ids)) {
+            usuarios.put(usuario.getId(), usuario);
+        }
+        List<UsuarioDTO> encontrados = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            UsuarioDTO usuario = usuarios.get(id);
+            if (usuario != null) {
+                encontrados.add(usuario);
+            }
+        }
+        return encontrados;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Esta implementación obtiene la clasificación del índice de amistades en memoria y completa
+     * los datos de los usuarios sugeridos con una única consulta.
+     * </p>
+     */
+    @Override
+    public List<SugerenciaDTO> sugerirAmigos(Long usuarioId, int limite) {
+        List<IndiceAmistadesServicio.AmigoSugerido> sugeridos = indiceAmistades.sugerirAmigos(usuarioId, limite);
+        if (sugeridos.isEmpty()) {
+            return new ArrayList<>();
+        }
+        List<Long> ids = new ArrayList<>(sugeridos.size());
+        for (IndiceAmistadesServicio.AmigoSugerido sugerido : sugeridos) {
+            ids.add(sugerido.usuarioId());
+        }
+        Map<Long, UsuarioDTO> usuarios = new HashMap<>();
+        for (UsuarioDTO usuario : usuarioRepositorio.findUsuariosDTOByIds(ids)) {
+            usuarios.put(usuario.getId(), usuario);
+        }
+        List<SugerenciaDTO> sugerencias = new ArrayList<>(sugeridos.size());
+        for (IndiceAmistadesServicio.AmigoSugerido sugerido : sugeridos) {
+            UsuarioDTO usuario = usuarios.get(sugerido.usuarioId());
+            if (usuario != null) {
+                sugerencias.add(new SugerenciaDTO(usuario, sugerido.amigosComunes()));
+            }
+        }
+        return sugerencias;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Esta implementación interseca las listas de amigos del índice en memoria y solo consulta
+     * la base de datos para obtener los usuarios de la página, con una única consulta.
      * </p>
      */
     @Override
-    public List<UsuarioDTO> buscarUsuariosParaAgregar(Long usuarioId, String nombre) {
-        return usuarioRepositorio.findUsuariosNoAmigosByNombre(usuarioId, nombre);
+    public AmigosComunesDTO obtenerAmigosComunes(Long usuarioId, Long otroId, int pagina, int tamano) {
+        long[] comunes = indiceAmistades.obtenerAmigosComunes(usuarioId, otroId);
+        int paginaValida = Math.max(0, pagina);
+        int tamanoValido = Math.max(1, Math.min(tamano, MAX_TAMANO_PAGINA));
+        long desde = (long) paginaValida * tamanoValido;
+        List<UsuarioDTO> amigos = new ArrayList<>();
+        if (desde < comunes.length) {
+            int hasta = (int) Math.min(comunes.length, desde + tamanoValido);
+            List<Long> ids = new ArrayList<>(hasta - (int) desde);
+            for (int i = (int) desde; i < hasta; i++) {
+                ids.add(comunes[i]);
+            }
+            amigos.addAll(usuarioRepositorio.findUsuariosDTOByIds(ids));
+            amigos.sort(Comparator.comparing(UsuarioDTO::getId));
+        }
+        return new AmigosComunesDTO(comunes.length, paginaValida, tamanoValido, amigos);
     }
 
     /**
      * {@inheritDoc}
      * <p>
-     * Esta implementación verifica si existe una relación de amistad entre dos usuarios.
+     * Esta implementación consulta el índice de amistades en memoria, sin acceder a la base de datos.
      * </p>
      */
     @Override
     public boolean sonAmigos(Long usuarioId, Long amigoId) {
-        return usuarioRepositorio.sonAmigos(usuarioId, amigoId);
+        return indiceAmistades.sonAmigos(usuarioId, amigoId);
     }
 
     /**
      * {@inheritDoc}
      * <p>
-     * Esta implementación cuenta el número de amigos de un usuario específico.
+     * Esta implementación obtiene una sola vez la lista ordenada de amigos del índice en memoria
+     * y busca en ella cada candidato, sin acceder a la base de datos.
+     * </p>
+     */
+    @Override
+    public Map<Long, Boolean> verificarAmistades(Long usuarioId, List<Long> candidatos) {
+        long[] amigos = indiceAmistades.obtenerAmigos(usuarioId);
+        Map<Long, Boolean> resultado = new LinkedHashMap<>();
+        for (Long candidato : candidatos) {
+            if (candidato != null) {
+                resultado.put(candidato, Arrays.binarySearch(amigos, candidato) >= 0);
+            }
+        }
+        return resultado;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Esta implementación obtiene el número de amigos del índice de amistades en memoria,
+     * sin acceder a la base de datos.
      * </p>
      */
     @Override
     public long contarAmigos(Long usuarioId) {
-        return usuarioRepositorio.countAmigosByUsuarioId(usuarioId);
+        return indiceAmistades.contarAmigos(usuarioId);
     }
 
     /**
@@ -295,10 +530,49 @@ public class UsuarioServicioImpl implements UsuarioServicio {
         if (usuarioOpt.isPresent()) {
             Usuario usuario = usuarioOpt.get();
             usuario.setPass(passwordEncoder.encode(nuevaContrasena));
+            usuario.renovarSelloSeguridad();
             usuarioRepositorio.save(usuario);
+            verificadorSello.invalidar(id);
             return true;
         }
         throw new RuntimeException("Usuario no encontrado con ID: " + id);
     }
 
-}
\ No newline at end of file
+    /**
+     * Repara los contadores al arrancar la aplicación, antes de atender solicitudes. Los usuarios anteriores a las
+     * columnas de contadores empiezan con ellos a cero, y las lecturas y los decrementos se basan en su valor,
+     * así que no se puede esperar a la primera reparación periódica.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void repararContadoresAlArrancar() {
+        repararContadores();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Esta implementación se ejecuta al arrancar y después periódicamente. Cada lote obtiene los siguientes IDs y corrige sus contadores
+     * con una única sentencia que solo modifica los usuarios cuyos contadores difieren de las relaciones.
+     * </p>
+     */
+    @Override
+    @Scheduled(initialDelayString = "${usuarios.contadores.reparacion-ms:3600000}",
+            fixedDelayString = "${usuarios.contadores.reparacion-ms:3600000}")
+    public int repararContadores() {
+        int corregidos = 0;
+        long despues = 0;
+        List<Long> ids;
+        do {
+            ids = usuarioRepositorio.findIdsDespuesDe(despues, Limit.of(loteReparacion));
+            if (!ids.isEmpty()) {
+                long hasta = ids.get(ids.size() - 1);
+                corregidos += usuarioRepositorio.repararContadores(ids.get(0), hasta);
+                despues = hasta;
+            }
+        } while (ids.size() == loteReparacion);
+        if (corregidos > 0) {
+            LOG.warn("Corregidos los contadores de amistad de {} usuarios", corregidos);
+        }
+        return corregidos;
+    }
+}
@@ -0,0 +1,151 @@
+package es.tfg.tu_curso.servicio.implementaciones;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Arrays;
+
+/**
+ * Operaciones comunes de los índices en memoria: listas de IDs en arrays ordenados que no se modifican
+ * nunca, sino que se sustituyen por una copia con el cambio, su intersección, y cambios aplicados
+ * al confirmar la transacción.
+ */
+final class UtilidadesIndice {
+
+    static final long[] VACIO = new long[0];
+
+    /**
+     * Proporción entre los tamaños de dos listas a partir de la cual se intersecan con búsqueda exponencial
+     * en lugar de recorrer las dos.
+     */
+    private static final int PROPORCION_GALOPE = 32;
+
+    private UtilidadesIndice() {
+    }
+
+    /**
+     * Devuelve un array ordenado con el valor añadido, o el mismo array si ya lo contenía.
+     */
+    static long[] insertar(long[] ids, long id) {
+        if (ids == null) {
+            return new long[]{id};
+        }
+        int posicion = Arrays.binarySearch(ids, id);
+        if (posicion >= 0) {
+            return ids;
+        }
+        posicion = -posicion - 1;
+        long[] resultado = new long[ids.length + 1];
+        System.arraycopy(ids, 0, resultado, 0, posicion);
+        resultado[posicion] = id;
+        System.arraycopy(ids, posicion, resultado, posicion + 1, ids.length - posicion);
+        return resultado;
+    }
+
+    /**
+     * Devuelve un array ordenado sin el valor indicado, o null si queda vacío para eliminar la entrada.
+     */
+    static long[] quitar(long[] ids, long id) {
+        int posicion = Arrays.binarySearch(ids, id);
+        if (posicion < 0) {
+            return ids;
+        }
+        if (ids.length == 1) {
+            return null;
+        }
+        long[] resultado = new long[ids.length - 1];
+        System.arraycopy(ids, 0, resultado, 0, posicion);
+        System.arraycopy(ids, posicion + 1, resultado, posicion, ids.length - posicion - 1);
+        return resultado;
+    }
+
+    /**
+     * Interseca dos arrays ordenados. Si tienen un tamaño parecido los recorre a la vez; si uno es mucho mayor,
+     * busca cada elemento del menor en el mayor con búsqueda exponencial (galope) a partir de la última
+     * posición encontrada, con un coste proporcional al menor.
+     *
+     * @return Array ordenado con los elementos comunes
+     */
+    static long[] intersecar(long[] a, long[] b) {
+        if (a.length > b.length) {
+            long[] t = a;
+            a = b;
+            b = t;
+        }
+        if (a.length == 0) {
+            return VACIO;
+        }
+        long[] comunes = new long[a.length];
+        int n = b.length / a.length >= PROPORCION_GALOPE ? intersecarGalope(a, b, comunes) : intersecarLineal(a, b, comunes);
+        return n == 0 ? VACIO : Arrays.copyOf(comunes, n);
+    }
+
+    /**
+     * Interseca dos arrays ordenados recorriéndolos a la vez.
+     *
+     * @return Número de elementos comunes escritos en {@code destino}
+     */
+    private static int intersecarLineal(long[] a, long[] b, long[] destino) {
+        int i = 0, j = 0, n = 0;
+        while (i < a.length && j < b.length) {
+            long x = a[i], y = b[j];
+            if (x < y) {
+                i++;
+            } else if (x > y) {
+                j++;
+            } else {
+                destino[n++] = x;
+                i++;
+                j++;
+            }
+        }
+        return n;
+    }
+
+    /**
+     * Interseca un array ordenado pequeño con otro mucho mayor buscando cada elemento del pequeño
+     * en el grande: se avanza en saltos de tamaño doble desde la última posición y se termina
+     * con una búsqueda binaria dentro del último salto.
+     *
+     * @return Número de elementos comunes escritos en {@code destino}
+     */
+    private static int intersecarGalope(long[] pequeno, long[] grande, long[] destino) {
+        int desde = 0, n = 0;
+        for (long x : pequeno) {
+            int salto = 1;
+            int hasta = desde;
+            while (hasta < grande.length && grande[hasta] < x) {
+                desde = hasta + 1;
+                hasta += salto;
+                salto <<= 1;
+            }
+            int pos = Arrays.binarySearch(grande, desde, Math.min(hasta + 1, grande.length), x);
+            if (pos >= 0) {
+                destino[n++] = x;
+                desde = pos + 1;
+            } else {
+                desde = -pos - 1;
+            }
+            if (desde >= grande.length) {
+                break;
+            }
+        }
+        return n;
+    }
+
+    /**
+     * Ejecuta un cambio del índice cuando se confirma la transacción actual, o inmediatamente si no hay ninguna.
+     */
+    static void alConfirmar(Runnable cambio) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    cambio.run();
+                }
+            });
+        } else {
+            cambio.run();
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package es.tfg.tu_curso.servicio.interfaces;
+
+import es.tfg.tu_curso.dto.ProgresoBorradoDTO;
+
+import java.util.Optional;
+
+/**
+ * Interfaz que define el borrado de un usuario junto con todos sus datos: solicitudes de amistad, amistades,
+ * puntos de control, cursos y pomodoros. Los datos se borran con sentencias por conjuntos, en orden de
+ * dependencia, sin cargarlos, y se ajustan los contadores de amigos y solicitudes de los demás usuarios.
+ */
+public interface BorradoUsuariosServicio {
+
+    /**
+     * Estado de un borrado asíncrono que aún no ha terminado.
+     */
+    String EN_CURSO = "EN_CURSO";
+
+    /**
+     * Estado de un borrado asíncrono terminado correctamente.
+     */
+    String COMPLETADO = "COMPLETADO";
+
+    /**
+     * Estado de un borrado asíncrono interrumpido por un error; los datos ya borrados no se recuperan,
+     * pero el usuario se conserva, sin poder iniciar sesión, y el borrado se puede repetir.
+     */
+    String ERROR = "ERROR";
+
+    /**
+     * Borra un usuario y todos sus datos en una única transacción.
+     *
+     * @param usuarioId ID del usuario
+     * @return true si el usuario existía y se ha borrado
+     */
+    boolean borrar(Long usuarioId);
+
+    /**
+     * Inicia en segundo plano el borrado de un usuario con muchos datos. Antes de devolver el control, el usuario
+     * deja de poder iniciar sesión y sus tokens dejan de aceptarse. Los datos se borran por lotes, cada uno en su
+     * propia transacción, y el usuario se borra al final junto con lo que otros usuarios hayan creado entretanto.
+     *
+     * @param usuarioId ID del usuario
+     * @return Optional con el progreso inicial del borrado, vacío si el usuario no existe
+     */
+    Optional<ProgresoBorradoDTO> iniciarBorrado(Long usuarioId);
+
+    /**
+     * Obtiene el progreso de un borrado asíncrono.
+     *
+     * @param tarea Identificador devuelto al iniciar el borrado
+     * @return Optional con el progreso, vacío si la tarea no existe o terminó hace tiempo
+     */
+    Optional<ProgresoBorradoDTO> obtenerProgreso(String tarea);
+}
@@ -0,0 +1,54 @@
+package es.tfg.tu_curso.servicio.interfaces;
+
+import es.tfg.tu_curso.dto.ImportacionUsuariosDTO;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Interfaz que define la importación masiva de usuarios desde un fichero.
+ * Las filas se leen a medida que llegan y se crean por lotes; cada fila obtiene un resultado propio,
+ * de modo que una fila incorrecta no impide crear las demás.
+ */
+public interface ImportacionUsuariosServicio {
+
+    /**
+     * Resultado de una fila cuyo usuario se ha creado.
+     */
+    String CREADO = "CREADO";
+
+    /**
+     * Resultado de una fila cuyo email ya pertenece a un usuario o aparece en una fila anterior.
+     */
+    String DUPLICADO = "DUPLICADO";
+
+    /**
+     * Resultado de una fila a la que le falta el nombre, el email o la contraseña, o que no se puede leer.
+     */
+    String INVALIDO = "INVALIDO";
+
+    /**
+     * Resultado de una fila válida que no se ha podido guardar.
+     */
+    String ERROR = "ERROR";
+
+    /**
+     * Importa usuarios desde un fichero CSV con cabecera. Las columnas se identifican por su nombre en la cabecera:
+     * nombre, email y pass son obligatorias y descripcion e icono opcionales. Admite campos entre comillas dobles.
+     *
+     * @param entrada Contenido del fichero en UTF-8
+     * @return Informe con el resultado de cada fila
+     * @throws IOException Si no se puede leer la entrada
+     */
+    ImportacionUsuariosDTO importarCsv(InputStream entrada) throws IOException;
+
+    /**
+     * Importa usuarios desde un fichero NDJSON, con un objeto JSON por línea con los campos
+     * nombre, email, pass, descripcion e icono.
+     *
+     * @param entrada Contenido del fichero en UTF-8
+     * @return Informe con el resultado de cada fila
+     * @throws IOException Si no se puede leer la entrada
+     */
+    ImportacionUsuariosDTO importarNdjson(InputStream entrada) throws IOException;
+}
@@ -0,0 +1,112 @@
+package es.tfg.tu_curso.servicio.interfaces;
+
+import java.util.List;
+
+/**
+ * Interfaz que define un índice en memoria de las relaciones de amistad entre usuarios.
+ * Permite comprobar y contar amistades sin consultar la base de datos ni cargar entidades.
+ * Las modificaciones realizadas dentro de una transacción se aplican al índice cuando esta se confirma.
+ */
+public interface IndiceAmistadesServicio {
+
+    /**
+     * Número máximo de sugerencias que se calculan para un usuario.
+     */
+    int MAX_SUGERENCIAS = 50;
+
+    /**
+     * Usuario sugerido como amigo junto con el número de amigos en común.
+     *
+     * @param usuarioId     ID del usuario sugerido
+     * @param amigosComunes Número de amigos en común con el usuario que recibe la sugerencia
+     */
+    record AmigoSugerido(long usuarioId, int amigosComunes) {
+    }
+
+    /**
+     * Carga el índice completo a partir de la tabla de amistades.
+     */
+    void cargar();
+
+    /**
+     * Verifica si dos usuarios son amigos.
+     *
+     * @param usuarioId ID del primer usuario
+     * @param amigoId   ID del segundo usuario
+     * @return {@code true} si son amigos, {@code false} en caso contrario
+     */
+    boolean sonAmigos(long usuarioId, long amigoId);
+
+    /**
+     * Obtiene el número de amigos de un usuario.
+     *
+     * @param usuarioId ID del usuario
+     * @return Número de amigos del usuario
+     */
+    int contarAmigos(long usuarioId);
+
+    /**
+     * Obtiene los IDs de los amigos de un usuario, ordenados de menor a mayor.
+     * El array devuelto es compartido y no debe modificarse.
+     *
+     * @param usuarioId ID del usuario
+     * @return IDs de los amigos, vacío si no tiene ninguno
+     */
+    long[] obtenerAmigos(long usuarioId);
+
+    /**
+     * Obtiene los IDs de los amigos en común de dos usuarios, ordenados de menor a mayor.
+     *
+     * @param usuarioId ID del primer usuario
+     * @param otroId    ID del segundo usuario
+     * @return IDs de los amigos en común, vacío si no tienen ninguno
+     */
+    long[] obtenerAmigosComunes(long usuarioId, long otroId);
+
+    /**
+     * Obtiene los usuarios que no son amigos de un usuario ordenados por el número de amigos en común,
+     * y a igualdad por ID. Solo se consideran los amigos de sus amigos.
+     *
+     * @param usuarioId ID del usuario
+     * @param limite    Número máximo de sugerencias, como mucho {@link #MAX_SUGERENCIAS}
+     * @return Lista de sugerencias, vacía si el usuario no tiene amigos
+     */
+    List<AmigoSugerido> sugerirAmigos(long usuarioId, int limite);
+
+    /**
+     * Registra una amistad bidireccional entre dos usuarios.
+     *
+     * @param usuarioId ID del primer usuario
+     * @param amigoId   ID del segundo usuario
+     */
+    void registrarAmistad(long usuarioId, long amigoId);
+
+    /**
+     * Elimina la amistad bidireccional entre dos usuarios.
+     *
+     * @param usuarioId ID del primer usuario
+     * @param amigoId   ID del segundo usuario
+     */
+    void eliminarAmistad(long usuarioId, long amigoId);
+
+    /**
+     * Elimina un usuario del índice junto con todas sus amistades.
+     *
+     * @param usuarioId ID del usuario eliminado
+     */
+    void eliminarUsuario(long usuarioId);
+
+    /**
+     * Obtiene el número de usuarios con al menos un amigo.
+     *
+     * @return Número de usuarios en el índice
+     */
+    int contarUsuarios();
+
+    /**
+     * Obtiene el número de entradas de amistad del índice; cada amistad cuenta una vez por cada usuario.
+     *
+     * @return Número total de entradas
+     */
+    long contarEntradas();
+}
@@ -0,0 +1,63 @@
+package es.tfg.tu_curso.servicio.interfaces;
+
+import java.util.List;
+
+/**
+ * Interfaz que define un índice en memoria de los nombres de los usuarios para la búsqueda de amigos.
+ * Las búsquedas no distinguen mayúsculas ni acentos y no consultan la base de datos.
+ * Las modificaciones realizadas dentro de una transacción se aplican al índice cuando esta se confirma.
+ */
+public interface IndiceNombresServicio {
+
+    /**
+     * Número máximo de resultados de una búsqueda.
+     */
+    int MAX_RESULTADOS = 50;
+
+    /**
+     * Carga el índice completo a partir de la tabla de usuarios.
+     */
+    void cargar();
+
+    /**
+     * Busca usuarios cuyo nombre contenga el texto indicado, sin incluir al propio usuario ni a sus amigos.
+     * Con uno o dos caracteres solo se buscan nombres con alguna palabra que empiece por ellos.
+     * Los resultados se ordenan por coincidencia exacta, después por nombres que empiezan por el texto,
+     * por palabras que empiezan por el texto y por el resto, y a igualdad por el nombre más corto.
+     *
+     * @param usuarioId ID del usuario que busca
+     * @param consulta  Texto a buscar
+     * @param limite    Número máximo de resultados, como mucho {@link #MAX_RESULTADOS}
+     * @return IDs de los usuarios encontrados, del más al menos relevante
+     */
+    List<Long> buscar(long usuarioId, String consulta, int limite);
+
+    /**
+     * Registra el nombre de un usuario nuevo o sustituye el de uno existente.
+     *
+     * @param usuarioId ID del usuario
+     * @param nombre    Nombre del usuario
+     */
+    void registrarUsuario(long usuarioId, String nombre);
+
+    /**
+     * Elimina un usuario del índice.
+     *
+     * @param usuarioId ID del usuario eliminado
+     */
+    void eliminarUsuario(long usuarioId);
+
+    /**
+     * Obtiene el número de usuarios del índice.
+     *
+     * @return Número de usuarios indexados
+     */
+    int contarUsuarios();
+
+    /**
+     * Obtiene el número de trigramas distintos del índice.
+     *
+     * @return Número de trigramas
+     */
+    int contarTrigramas();
+}
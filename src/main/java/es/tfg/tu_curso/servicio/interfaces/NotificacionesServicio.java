@@ -0,0 +1,56 @@
+package es.tfg.tu_curso.servicio.interfaces;
+
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * Interfaz que define el registro de conexiones de eventos enviados por el servidor (SSE) de los usuarios
+ * autenticados y el envío de notificaciones a todas las conexiones de un usuario.
+ */
+public interface NotificacionesServicio {
+
+    /**
+     * Nombre del evento que notifica un cambio en una solicitud de amistad.
+     */
+    String EVENTO_SOLICITUD = "solicitud";
+
+    /**
+     * Registra una nueva conexión de un usuario. La conexión se elimina del registro al cerrarse,
+     * al caducar o al fallar un envío.
+     *
+     * @param usuarioId ID del usuario autenticado
+     * @return Emisor SSE que se devuelve como respuesta de la petición
+     */
+    SseEmitter suscribir(Long usuarioId);
+
+    /**
+     * Envía un evento a todas las conexiones de un usuario sin esperar a que se escriba.
+     * Si el buffer de una conexión está lleno se descarta su evento más antiguo.
+     *
+     * @param usuarioId ID del usuario destinatario
+     * @param evento    Nombre del evento
+     * @param datos     Datos del evento, que se envían en formato JSON
+     */
+    void publicar(Long usuarioId, String evento, Object datos);
+
+    /**
+     * Indica si un usuario tiene alguna conexión abierta.
+     *
+     * @param usuarioId ID del usuario
+     * @return {@code true} si tiene al menos una conexión
+     */
+    boolean tieneSuscriptores(Long usuarioId);
+
+    /**
+     * Obtiene el número de conexiones abiertas de todos los usuarios.
+     *
+     * @return Número de conexiones
+     */
+    int contarSuscriptores();
+
+    /**
+     * Obtiene el número de eventos descartados por tener lleno el buffer de su conexión.
+     *
+     * @return Número de eventos descartados
+     */
+    long getDescartados();
+}
@@ -3,6 +3,7 @@ package es.tfg.tu_curso.servicio.interfaces;
 import es.tfg.tu_curso.dto.SolicitudAmistadDTO;
 import es.tfg.tu_curso.modelo.SolicitudAmistad;
 
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -11,6 +12,26 @@ import java.util.List;
  */
 public interface SolicitudAmistadServicio {
 
+    /**
+     * Tipo de la notificación enviada al recibir una solicitud.
+     */
+    String RECIBIDA = "RECIBIDA";
+
+    /**
+     * Tipo de la notificación enviada al aceptar una solicitud.
+     */
+    String ACEPTADA = "ACEPTADA";
+
+    /**
+     * Tipo de la notificación enviada al rechazar una solicitud.
+     */
+    String RECHAZADA = "RECHAZADA";
+
+    /**
+     * Número máximo de solicitudes que se aceptan o rechazan en una sola operación.
+     */
+    int MAX_SOLICITUDES_LOTE = 500;
+
     /**
      * Envía una solicitud de amistad desde un usuario a otro.
      *
@@ -22,10 +43,11 @@ public interface SolicitudAmistadServicio {
 
     /**
      * Acepta una solicitud de amistad. Al aceptar, se eliminará la solicitud
-     * y se establecerá la relación de amistad entre ambos usuarios.
+     * y se establecerá la relación de amistad entre ambos usuarios. Si ya eran amigos,
+     * la solicitud se elimina igualmente y se considera aceptada, como en {@link #aceptarSolicitudes}.
      *
      * @param solicitudId ID de la solicitud a aceptar
-     * @return {@code true} si se aceptó exitosamente, {@code false} en caso contrario
+     * @return {@code true} si se aceptó exitosamente, {@code false} si la solicitud no existe
      */
     boolean aceptarSolicitud(Long solicitudId);
 
@@ -37,6 +59,26 @@ public interface SolicitudAmistadServicio {
      */
     boolean rechazarSolicitud(Long solicitudId);
 
+    /**
+     * Acepta en una sola operación varias solicitudes de amistad recibidas por un usuario, que pasa a ser
+     * amigo de sus emisores. Las solicitudes se eliminan del sistema.
+     *
+     * @param receptorId   ID del usuario que recibió las solicitudes
+     * @param solicitudIds IDs de las solicitudes, como mucho {@link #MAX_SOLICITUDES_LOTE}
+     * @return IDs de las solicitudes aceptadas; las que no existen o no recibió el usuario se ignoran
+     */
+    List<Long> aceptarSolicitudes(Long receptorId, Collection<Long> solicitudIds);
+
+    /**
+     * Rechaza en una sola operación varias solicitudes de amistad recibidas por un usuario.
+     * Las solicitudes se eliminan del sistema.
+     *
+     * @param receptorId   ID del usuario que recibió las solicitudes
+     * @param solicitudIds IDs de las solicitudes, como mucho {@link #MAX_SOLICITUDES_LOTE}
+     * @return IDs de las solicitudes rechazadas; las que no existen o no recibió el usuario se ignoran
+     */
+    List<Long> rechazarSolicitudes(Long receptorId, Collection<Long> solicitudIds);
+
     /**
      * Obtiene todas las solicitudes de amistad recibidas por un usuario.
      *
@@ -54,20 +96,36 @@ public interface SolicitudAmistadServicio {
     List<SolicitudAmistad> obtenerSolicitudesEnviadas(Long emisorId);
 
     /**
-     * Obtiene todas las solicitudes de amistad recibidas por un usuario en formato DTO.
+     * Número de solicitudes por página de los listados de solicitudes si no se indica otro.
+     */
+    int TAMANO_PAGINA_SOLICITUDES = 50;
+
+    /**
+     * Número máximo de solicitudes por página de los listados de solicitudes.
+     */
+    int MAX_TAMANO_PAGINA_SOLICITUDES = 200;
+
+    /**
+     * Obtiene una página de las solicitudes de amistad recibidas por un usuario en formato DTO, ordenadas por ID.
+     * La página siguiente se obtiene pasando el ID de la última solicitud de la actual.
      *
      * @param receptorId ID del usuario receptor
+     * @param despues    ID de la última solicitud de la página anterior, o {@code null} para la primera página
+     * @param tamano     Número de solicitudes de la página, como mucho {@link #MAX_TAMANO_PAGINA_SOLICITUDES}
      * @return Lista de solicitudes recibidas como DTO
      */
-    List<SolicitudAmistadDTO> obtenerSolicitudesRecibidasDTO(Long receptorId);
+    List<SolicitudAmistadDTO> obtenerSolicitudesRecibidasDTO(Long receptorId, Long despues, int tamano);
 
     /**
-     * Obtiene todas las solicitudes de amistad enviadas por un usuario en formato DTO.
+     * Obtiene una página de las solicitudes de amistad enviadas por un usuario en formato DTO, ordenadas por ID.
+     * La página siguiente se obtiene pasando el ID de la última solicitud de la actual.
      *
      * @param emisorId ID del usuario emisor
+     * @param despues  ID de la última solicitud de la página anterior, o {@code null} para la primera página
+     * @param tamano   Número de solicitudes de la página, como mucho {@link #MAX_TAMANO_PAGINA_SOLICITUDES}
      * @return Lista de solicitudes enviadas como DTO
      */
-    List<SolicitudAmistadDTO> obtenerSolicitudesEnviadasDTO(Long emisorId);
+    List<SolicitudAmistadDTO> obtenerSolicitudesEnviadasDTO(Long emisorId, Long despues, int tamano);
 
     /**
      * Verifica si existe una solicitud de amistad pendiente entre dos usuarios.
@@ -85,4 +143,19 @@ public interface SolicitudAmistadServicio {
      * @return Número de solicitudes recibidas
      */
     long contarSolicitudesRecibidas(Long receptorId);
-}
\ No newline at end of file
+
+    /**
+     * Elimina las solicitudes de amistad que superan el tiempo de caducidad sin haberse aceptado ni rechazado,
+     * por lotes y en una transacción por lote, y descuenta del contador de pendientes de sus receptores.
+     *
+     * @return Número de solicitudes eliminadas
+     */
+    int purgarCaducadas();
+
+    /**
+     * Obtiene el número total de solicitudes caducadas eliminadas desde el arranque de la aplicación.
+     *
+     * @return Número de solicitudes eliminadas por caducidad
+     */
+    long getSolicitudesPurgadas();
+}
@@ -1,9 +1,16 @@
 package es.tfg.tu_curso.servicio.interfaces;
 
+import es.tfg.tu_curso.dto.AmigosComunesDTO;
+import es.tfg.tu_curso.dto.CosteHashDTO;
+import es.tfg.tu_curso.dto.CredencialesDTO;
+import es.tfg.tu_curso.dto.SugerenciaDTO;
 import es.tfg.tu_curso.dto.UsuarioDTO;
 import es.tfg.tu_curso.modelo.Usuario;
 
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
 
 /**
  * Interfaz que define las operaciones relacionadas con la gestión de usuarios.
@@ -45,7 +52,8 @@ public interface UsuarioServicio {
                                String descripcion, String icono);
 
     /**
-     * Elimina un usuario existente.
+     * Elimina un usuario existente junto con sus cursos, puntos de control, pomodoros,
+     * amistades y solicitudes de amistad.
      *
      * @param idUsuario Identificador del usuario a eliminar
      * @return {@code true} si la eliminación fue exitosa, {@code false} en caso contrario
@@ -62,11 +70,32 @@ public interface UsuarioServicio {
     boolean modificar(Long idUsuario, Usuario u);
 
     /**
-     * Obtiene la lista de todos los usuarios registrados en el sistema.
+     * Número de usuarios por página del listado de usuarios si no se indica otro.
+     */
+    int TAMANO_PAGINA_USUARIOS = 50;
+
+    /**
+     * Número máximo de usuarios por página del listado de usuarios.
+     */
+    int MAX_TAMANO_PAGINA_USUARIOS = 200;
+
+    /**
+     * Obtiene una página del listado de usuarios registrados, ordenado por ID.
+     * La página siguiente se obtiene pasando el ID del último usuario de la actual.
+     *
+     * @param despues ID del último usuario de la página anterior, o {@code null} para la primera página
+     * @param tamano  Número de usuarios de la página, como mucho {@link #MAX_TAMANO_PAGINA_USUARIOS}
+     * @return Lista de DTOs con la información de los usuarios de la página
+     */
+    List<UsuarioDTO> obtenerUsuarios(Long despues, int tamano);
+
+    /**
+     * Recorre todos los usuarios registrados, ordenados por ID, entregándolos uno a uno a medida que se leen
+     * de la base de datos, sin reunirlos en memoria.
      *
-     * @return Lista de DTOs con la información de los usuarios
+     * @param consumidor Función que recibe cada usuario
      */
-    List<UsuarioDTO> obtenerUsuarios();
+    void recorrerUsuarios(Consumer<UsuarioDTO> consumidor);
 
     /**
      * Busca un usuario por su dirección de correo electrónico.
@@ -76,6 +105,32 @@ public interface UsuarioServicio {
      */
     Usuario obtenerPorEmail(String email);
 
+    /**
+     * Obtiene los datos necesarios para iniciar sesión con una única consulta.
+     *
+     * @param email Dirección de correo electrónico del usuario
+     * @return Optional con el id, el hash de la contraseña, el rol y el sello del usuario, vacío si no existe
+     */
+    Optional<CredencialesDTO> obtenerCredenciales(String email);
+
+    /**
+     * Vuelve a calcular el hash de la contraseña de un usuario si el hash guardado tiene un formato
+     * o un coste distinto del actual. Se invoca tras verificar la contraseña al iniciar sesión.
+     *
+     * @param id         ID del usuario
+     * @param hashActual Hash guardado con el que se ha verificado la contraseña
+     * @param pass       Contraseña en claro ya verificada
+     * @return true si el hash se ha actualizado, false en caso contrario
+     */
+    boolean actualizarHashSiObsoleto(Long id, String hashActual, String pass);
+
+    /**
+     * Obtiene la distribución de formatos y costes de los hashes de contraseña almacenados.
+     *
+     * @return Lista con el número de usuarios por formato y coste
+     */
+    List<CosteHashDTO> obtenerDistribucionCostesHash();
+
     // Métodos para gestión de amigos
 
     /**
@@ -105,13 +160,36 @@ public interface UsuarioServicio {
     List<UsuarioDTO> obtenerAmigos(Long usuarioId);
 
     /**
-     * Busca usuarios que no son amigos del usuario actual y que coincidan con el nombre.
+     * Busca usuarios que no son amigos del usuario actual y cuyo nombre contenga el texto indicado,
+     * sin distinguir mayúsculas ni acentos, ordenados por relevancia.
      *
      * @param usuarioId ID del usuario actual
      * @param nombre    Nombre a buscar
+     * @param limite    Número máximo de usuarios devueltos
      * @return Lista de usuarios potenciales para agregar como amigos
      */
-    List<UsuarioDTO> buscarUsuariosParaAgregar(Long usuarioId, String nombre);
+    List<UsuarioDTO> buscarUsuariosParaAgregar(Long usuarioId, String nombre, int limite);
+
+    /**
+     * Obtiene sugerencias de amistad para un usuario: usuarios que todavía no son sus amigos,
+     * ordenados por el número de amigos en común.
+     *
+     * @param usuarioId ID del usuario
+     * @param limite    Número máximo de sugerencias
+     * @return Lista de sugerencias con el número de amigos en común
+     */
+    List<SugerenciaDTO> sugerirAmigos(Long usuarioId, int limite);
+
+    /**
+     * Obtiene los amigos en común de dos usuarios, ordenados por ID y paginados.
+     *
+     * @param usuarioId ID del primer usuario
+     * @param otroId    ID del segundo usuario
+     * @param pagina    Número de página, empezando en 0
+     * @param tamano    Número de amigos por página
+     * @return Número total de amigos en común y los usuarios de la página solicitada
+     */
+    AmigosComunesDTO obtenerAmigosComunes(Long usuarioId, Long otroId, int pagina, int tamano);
 
     /**
      * Verifica si dos usuarios son amigos.
@@ -122,6 +200,15 @@ public interface UsuarioServicio {
      */
     boolean sonAmigos(Long usuarioId, Long amigoId);
 
+    /**
+     * Verifica en una sola operación si varios usuarios son amigos de un usuario.
+     *
+     * @param usuarioId  ID del usuario
+     * @param candidatos IDs de los usuarios a comprobar
+     * @return Mapa con cada ID candidato, en el orden recibido y sin repetidos, y si es amigo del usuario
+     */
+    Map<Long, Boolean> verificarAmistades(Long usuarioId, List<Long> candidatos);
+
     /**
      * Obtiene el número de amigos de un usuario.
      *
@@ -147,4 +234,12 @@ public interface UsuarioServicio {
      */
     boolean cambiarContrasena(Long id, String nuevaContrasena);
 
+    /**
+     * Corrige los contadores de amigos y de solicitudes pendientes de los usuarios que no coincidan con
+     * las relaciones almacenadas, recorriendo los usuarios por lotes de IDs, cada uno en su propia transacción.
+     *
+     * @return Número de usuarios corregidos
+     */
+    int repararContadores();
+
 }
\ No newline at end of file
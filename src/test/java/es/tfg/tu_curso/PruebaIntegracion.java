@@ -0,0 +1,60 @@
+package es.tfg.tu_curso;
+
+import es.tfg.tu_curso.servicio.interfaces.UsuarioServicio;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+/**
+ * Base de las pruebas de integración que se ejecutan contra una base de datos H2 en memoria.
+ * <p>
+ * Las clases que heredan de ella sin añadir propiedades comparten el mismo contexto de Spring y la misma base de
+ * datos, así que cada prueba crea sus propios usuarios, con emails que no se repiten entre clases, y no supone que
+ * las tablas están vacías. Las clases que necesitan otra configuración solo añaden las propiedades que cambian con
+ * {@link org.springframework.test.context.TestPropertySource}, lo que crea un contexto aparte con su propia base de datos.
+ * </p>
+ */
+@SpringBootTest(properties = {
+        // Sin URL, Spring Boot crea una base de datos en memoria con un nombre único para cada contexto
+        "spring.datasource.url=",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "seguridad.bcrypt.coste=4",
+        "logging.level.org.hibernate.engine.internal.StatisticalLoggingSessionEventListener=WARN"
+})
+public abstract class PruebaIntegracion {
+
+    @Autowired
+    protected UsuarioServicio usuarioServicio;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    /**
+     * Estadísticas de Hibernate del contexto, para contar las sentencias que ejecuta una operación.
+     */
+    protected Statistics obtenerEstadisticas() {
+        return entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    /**
+     * Crea un usuario cuyo nombre es la parte del email anterior a la arroba.
+     *
+     * @return ID del usuario creado
+     */
+    protected long crearUsuario(String email) {
+        return crearUsuario(email.substring(0, email.indexOf('@')), email);
+    }
+
+    /**
+     * Crea un usuario con la contraseña "secreta".
+     *
+     * @return ID del usuario creado
+     */
+    protected long crearUsuario(String nombre, String email) {
+        usuarioServicio.crear(nombre, email, "secreta", "", "");
+        return usuarioServicio.obtenerCredenciales(email).orElseThrow().getId();
+    }
+}
@@ -1,9 +1,11 @@
 package es.tfg.tu_curso.controlador;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import es.tfg.tu_curso.dto.CredencialesDTO;
 import es.tfg.tu_curso.dto.UsuarioDTO;
 import es.tfg.tu_curso.modelo.Usuario;
 import es.tfg.tu_curso.seguridad.JwtUtil;
+import es.tfg.tu_curso.seguridad.ServicioSaturadoException;
 import es.tfg.tu_curso.servicio.interfaces.UsuarioServicio;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -21,16 +23,26 @@ import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import org.springframework.web.context.WebApplicationContext;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Date;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
 
+import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.hasSize;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -131,6 +143,30 @@ public class ControladorUsuarioTest {
 
 
 
+    @Test
+    @Order(3)
+    @DisplayName("1.3 - Login rechazado con el servicio de hash saturado")
+    public void testLogin_ServicioSaturado() throws Exception {
+        // Preparar datos de prueba
+        Usuario loginRequest = new Usuario();
+        loginRequest.setEmail("test@example.com");
+        loginRequest.setPass("password123");
+
+        // Configurar mocks
+        when(usuarioServicio.obtenerCredenciales("test@example.com"))
+                .thenReturn(Optional.of(new CredencialesDTO(1L, "encodedPassword123", "USER", "")));
+        when(passwordEncoder.matches("password123", "encodedPassword123"))
+                .thenThrow(new ServicioSaturadoException("Demasiadas solicitudes de autenticación, inténtelo más tarde", 1));
+
+        // Ejecutar y verificar
+        mockMvc.perform(post("/usuarios/login")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(loginRequest)))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string("Retry-After", "1"))
+                .andExpect(jsonPath("$.error").exists());
+    }
+
     @Test
     @Order(4)
     @DisplayName("1.4 - Login fallido")
@@ -141,12 +177,8 @@ public class ControladorUsuarioTest {
         loginRequest.setPass("wrongpassword");
 
         // Configurar mocks
-        UserDetails userDetails = User.withUsername("test@example.com")
-                .password("encodedPassword123")
-                .authorities(Collections.emptyList())
-                .build();
-
-        when(userDetailsService.loadUserByUsername("test@example.com")).thenReturn(userDetails);
+        when(usuarioServicio.obtenerCredenciales("test@example.com"))
+                .thenReturn(Optional.of(new CredencialesDTO(1L, "encodedPassword123", "USER", "")));
         when(passwordEncoder.matches("wrongpassword", "encodedPassword123")).thenReturn(false);
 
         // Ejecutar y verificar
@@ -170,7 +202,7 @@ public class ControladorUsuarioTest {
         );
 
         // Configurar mock
-        when(usuarioServicio.obtenerUsuarios()).thenReturn(usuariosEsperados);
+        when(usuarioServicio.obtenerUsuarios(isNull(), eq(50))).thenReturn(usuariosEsperados);
 
         // Configurar validación del token
         when(jwtUtil.validateToken(anyString())).thenReturn(true);
@@ -309,7 +341,7 @@ public class ControladorUsuarioTest {
         );
 
         // Configurar mock
-        when(usuarioServicio.obtenerUsuarios()).thenReturn(usuariosEsperados);
+        when(usuarioServicio.obtenerUsuarios(isNull(), eq(50))).thenReturn(usuariosEsperados);
 
         // Configurar validación del token
         when(jwtUtil.validateToken(anyString())).thenReturn(true);
@@ -328,4 +360,98 @@ public class ControladorUsuarioTest {
                 .andExpect(jsonPath("$[0].pass").doesNotExist())
                 .andExpect(jsonPath("$[1].pass").doesNotExist());
     }
-}
\ No newline at end of file
+
+    @Test
+    @Order(16)
+    @DisplayName("2.12 - Verificar amistades en lote")
+    public void testVerificarAmistadesEnLote() throws Exception {
+        Map<Long, Boolean> estados = new LinkedHashMap<>();
+        estados.put(2L, true);
+        estados.put(7L, false);
+        when(usuarioServicio.verificarAmistades(eq(1L), eq(List.of(2L, 7L)))).thenReturn(estados);
+
+        mockMvc.perform(post("/usuarios/1/amigos/verificar")
+                        .header("Authorization", TOKEN_VALIDO)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[2, 7]"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.2").value(true))
+                .andExpect(jsonPath("$.7").value(false));
+    }
+
+    @Test
+    @Order(17)
+    @DisplayName("2.13 - Verificar amistades en lote con una lista vacía o demasiado larga")
+    public void testVerificarAmistadesEnLote_ListaInvalida() throws Exception {
+        mockMvc.perform(post("/usuarios/1/amigos/verificar")
+                        .header("Authorization", TOKEN_VALIDO)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[]"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").exists());
+
+        List<Long> demasiados = new ArrayList<>();
+        for (long i = 0; i <= 500; i++) {
+            demasiados.add(i);
+        }
+        mockMvc.perform(post("/usuarios/1/amigos/verificar")
+                        .header("Authorization", TOKEN_VALIDO)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(demasiados)))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @Order(18)
+    @DisplayName("2.14 - Obtener usuarios paginados por ID")
+    public void testObtenerUsuarios_Paginados() throws Exception {
+        when(usuarioServicio.obtenerUsuarios(eq(7L), eq(2))).thenReturn(Arrays.asList(
+                new UsuarioDTO(8L, "Usuario 8", "Descripción 8", "icono8.png"),
+                new UsuarioDTO(11L, "Usuario 11", "Descripción 11", "icono11.png")));
+        when(usuarioServicio.obtenerUsuarios(eq(11L), eq(2))).thenReturn(List.of(
+                new UsuarioDTO(12L, "Usuario 12", "Descripción 12", "icono12.png")));
+
+        // Página completa: se enlaza la siguiente a partir del último ID
+        mockMvc.perform(get("/usuarios").param("despues", "7").param("tamano", "2")
+                        .header("Authorization", TOKEN_VALIDO))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[1].id").value(11))
+                .andExpect(header().string("Link", containsString("despues=11")))
+                .andExpect(header().string("Link", containsString("rel=\"next\"")));
+
+        // Última página: sin enlace a la siguiente
+        mockMvc.perform(get("/usuarios").param("despues", "11").param("tamano", "2")
+                        .header("Authorization", TOKEN_VALIDO))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(header().doesNotExist("Link"));
+    }
+
+    @Test
+    @Order(19)
+    @DisplayName("2.15 - Exportar usuarios en formato NDJSON")
+    public void testExportarUsuarios_Ndjson() throws Exception {
+        doAnswer(invocacion -> {
+            Consumer<UsuarioDTO> consumidor = invocacion.getArgument(0);
+            consumidor.accept(new UsuarioDTO(1L, "Usuario 1", "Descripción 1", "icono1.png"));
+            consumidor.accept(new UsuarioDTO(2L, "Usuario 2", "Descripción 2", "icono2.png"));
+            return null;
+        }).when(usuarioServicio).recorrerUsuarios(any());
+
+        MvcResult resultado = mockMvc.perform(get("/usuarios")
+                        .header("Authorization", TOKEN_VALIDO)
+                        .accept("application/x-ndjson"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        String cuerpo = mockMvc.perform(asyncDispatch(resultado))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-ndjson"))
+                .andReturn().getResponse().getContentAsString();
+        String[] lineas = cuerpo.split("\n");
+        assertEquals(2, lineas.length);
+        assertEquals(2L, objectMapper.readValue(lineas[1], UsuarioDTO.class).getId());
+        assertFalse(cuerpo.contains("pass"));
+    }
+}
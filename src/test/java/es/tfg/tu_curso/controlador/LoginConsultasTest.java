@@ -0,0 +1,133 @@
+package es.tfg.tu_curso.controlador;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import es.tfg.tu_curso.PruebaIntegracion;
+import es.tfg.tu_curso.modelo.Usuario;
+import es.tfg.tu_curso.repositorio.RepositorioUsuario;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * Comprueba el número de sentencias SQL que ejecuta el inicio de sesión contra una base de datos en memoria.
+ */
+@TestPropertySource(properties = "seguridad.bcrypt.coste=5")
+public class LoginConsultasTest extends PruebaIntegracion {
+
+    private static final Logger LOG = LoggerFactory.getLogger(LoginConsultasTest.class);
+
+    private static final String EMAIL = "consultas@example.com";
+
+    @Autowired
+    private WebApplicationContext webApplicationContext;
+
+    @Autowired
+    private RepositorioUsuario usuarioRepositorio;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private MockMvc mockMvc;
+
+    private Statistics estadisticas;
+
+    @BeforeEach
+    public void setup() {
+        mockMvc = MockMvcBuilders.webAppContextSetup(webApplicationContext).build();
+        estadisticas = obtenerEstadisticas();
+        if (usuarioServicio.obtenerCredenciales(EMAIL).isEmpty()) {
+            usuarioServicio.crear("Consultas", EMAIL, "secreta", "", "");
+        }
+    }
+
+    @Test
+    @DisplayName("El login correcto ejecuta una única consulta")
+    public void testLogin_UnaConsulta() throws Exception {
+        Usuario loginRequest = new Usuario();
+        loginRequest.setEmail(EMAIL);
+        loginRequest.setPass("secreta");
+        String cuerpo = objectMapper.writeValueAsString(loginRequest);
+
+        estadisticas.clear();
+        long inicio = System.nanoTime();
+        mockMvc.perform(post("/usuarios/login")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(cuerpo))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.token").exists())
+                .andExpect(jsonPath("$.expiration").exists());
+        long duracion = System.nanoTime() - inicio;
+
+        LOG.info("Login: {} ms, {} sentencias SQL", duracion / 1_000_000, estadisticas.getPrepareStatementCount());
+        assertEquals(1, estadisticas.getPrepareStatementCount());
+        assertEquals(0, estadisticas.getEntityLoadCount());
+    }
+
+    @Test
+    @DisplayName("El login con contraseña incorrecta también ejecuta una única consulta")
+    public void testLoginFallido_UnaConsulta() throws Exception {
+        Usuario loginRequest = new Usuario();
+        loginRequest.setEmail(EMAIL);
+        loginRequest.setPass("incorrecta");
+        String cuerpo = objectMapper.writeValueAsString(loginRequest);
+
+        estadisticas.clear();
+        mockMvc.perform(post("/usuarios/login")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(cuerpo))
+                .andExpect(status().isUnauthorized())
+                .andExpect(jsonPath("$.error").value("Credenciales inválidas"));
+
+        assertEquals(1, estadisticas.getPrepareStatementCount());
+    }
+
+    @Test
+    @DisplayName("Un hash sin prefijo y con otro coste se actualiza al iniciar sesión sin cambiar el sello")
+    public void testLogin_ActualizaHashObsoleto() throws Exception {
+        String email = "legado@example.com";
+        Usuario legado = new Usuario("Legado", "", email, new BCryptPasswordEncoder(4).encode("secreta"), "");
+        legado.setRol("USER");
+        usuarioRepositorio.save(legado);
+        String sello = usuarioRepositorio.findSelloSeguridadById(legado.getId()).orElseThrow();
+
+        Usuario loginRequest = new Usuario();
+        loginRequest.setEmail(email);
+        loginRequest.setPass("secreta");
+        String cuerpo = objectMapper.writeValueAsString(loginRequest);
+
+        estadisticas.clear();
+        mockMvc.perform(post("/usuarios/login")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(cuerpo))
+                .andExpect(status().isOk());
+
+        // Consulta de credenciales y actualización condicional del hash
+        assertEquals(2, estadisticas.getPrepareStatementCount());
+        String hash = usuarioServicio.obtenerCredenciales(email).orElseThrow().getPass();
+        assertTrue(hash.startsWith("{bcrypt}$2a$05$"), hash);
+        assertEquals(sello, usuarioRepositorio.findSelloSeguridadById(legado.getId()).orElseThrow());
+
+        // El siguiente inicio de sesión ya no actualiza el hash
+        estadisticas.clear();
+        mockMvc.perform(post("/usuarios/login")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(cuerpo))
+                .andExpect(status().isOk());
+        assertEquals(1, estadisticas.getPrepareStatementCount());
+    }
+}
@@ -0,0 +1,116 @@
+package es.tfg.tu_curso.controlador;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import es.tfg.tu_curso.PruebaIntegracion;
+import es.tfg.tu_curso.modelo.Usuario;
+import es.tfg.tu_curso.servicio.interfaces.NotificacionesServicio;
+import es.tfg.tu_curso.servicio.interfaces.SolicitudAmistadServicio;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.security.test.web.servlet.setup.SecurityMockMvcConfigurers.springSecurity;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * Comprueba el canal SSE de notificaciones de solicitudes de amistad.
+ */
+@TestPropertySource(properties = "notificaciones.sse.max-por-usuario=2")
+public class NotificacionesSolicitudesTest extends PruebaIntegracion {
+
+    @Autowired
+    private WebApplicationContext webApplicationContext;
+
+    @Autowired
+    private SolicitudAmistadServicio solicitudServicio;
+
+    @Autowired
+    private NotificacionesServicio notificaciones;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    public void setup() {
+        mockMvc = MockMvcBuilders.webAppContextSetup(webApplicationContext).apply(springSecurity()).build();
+    }
+
+    @Test
+    @DisplayName("El receptor conectado recibe un evento con sus solicitudes pendientes al enviar y rechazar")
+    public void testEventosSolicitud() throws Exception {
+        long emisor = crearUsuario("emisor.sse@example.com");
+        long receptor = crearUsuario("receptor.sse@example.com");
+        String token = "Bearer " + login("receptor.sse@example.com");
+
+        MvcResult resultado = mockMvc.perform(get("/solicitudes-amistad/eventos").header("Authorization", token))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        assertTrue(notificaciones.tieneSuscriptores(receptor));
+
+        assertTrue(solicitudServicio.enviarSolicitud(emisor, receptor));
+        String contenido = esperarContenido(resultado.getResponse(), "\"tipo\":\"RECIBIDA\"");
+        assertTrue(contenido.contains("event:solicitud"));
+        assertTrue(contenido.contains("\"pendientes\":1"));
+
+        long solicitudId = solicitudServicio.obtenerSolicitudesRecibidas(receptor).get(0).getId();
+        assertTrue(solicitudServicio.rechazarSolicitud(solicitudId));
+        contenido = esperarContenido(resultado.getResponse(), "\"tipo\":\"RECHAZADA\"");
+        assertTrue(contenido.contains("\"pendientes\":0"));
+
+        // Al superar el máximo de conexiones se cierra la más antigua, que sale del registro, y su despacho
+        // asíncrono pasa la cadena de seguridad
+        int antes = notificaciones.contarSuscriptores();
+        notificaciones.suscribir(receptor);
+        notificaciones.suscribir(receptor);
+        assertEquals(antes + 1, notificaciones.contarSuscriptores());
+        mockMvc.perform(asyncDispatch(resultado)).andExpect(status().isOk());
+    }
+
+    @Test
+    @DisplayName("El canal exige autenticación")
+    public void testSinAutenticacion() throws Exception {
+        mockMvc.perform(get("/solicitudes-amistad/eventos")).andExpect(status().isUnauthorized());
+    }
+
+    /**
+     * Espera a que los eventos escritos en otro hilo contengan el texto indicado.
+     */
+    private static String esperarContenido(MockHttpServletResponse respuesta, String texto) throws Exception {
+        for (int i = 0; i < 100; i++) {
+            String contenido = respuesta.getContentAsString();
+            if (contenido.contains(texto)) {
+                return contenido;
+            }
+            Thread.sleep(20);
+        }
+        return fail("No se recibió el evento " + texto + ": " + respuesta.getContentAsString());
+    }
+
+    private String login(String email) throws Exception {
+        Usuario loginRequest = new Usuario();
+        loginRequest.setEmail(email);
+        loginRequest.setPass("secreta");
+        String respuesta = mockMvc.perform(post("/usuarios/login")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(loginRequest)))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        JsonNode json = objectMapper.readTree(respuesta);
+        return json.get("token").asText();
+    }
+}
@@ -0,0 +1,95 @@
+package es.tfg.tu_curso.controlador;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import es.tfg.tu_curso.PruebaIntegracion;
+import es.tfg.tu_curso.modelo.Usuario;
+import es.tfg.tu_curso.seguridad.ListaRevocacion;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.security.test.web.servlet.setup.SecurityMockMvcConfigurers.springSecurity;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * Comprueba el cierre de sesión y el refresco de tokens contra una base de datos en memoria.
+ */
+public class RevocacionTokensTest extends PruebaIntegracion {
+
+    private static final String EMAIL = "revocacion@example.com";
+
+    @Autowired
+    private WebApplicationContext webApplicationContext;
+
+    @Autowired
+    private ListaRevocacion listaRevocacion;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    public void setup() {
+        mockMvc = MockMvcBuilders.webAppContextSetup(webApplicationContext).apply(springSecurity()).build();
+        if (usuarioServicio.obtenerCredenciales(EMAIL).isEmpty()) {
+            usuarioServicio.crear("Revocacion", EMAIL, "secreta", "", "");
+        }
+    }
+
+    @Test
+    @DisplayName("Tras cerrar sesión el token deja de aceptarse")
+    public void testLogout_RevocaToken() throws Exception {
+        String token = "Bearer " + login();
+
+        mockMvc.perform(get("/usuarios").header("Authorization", token))
+                .andExpect(status().isOk());
+        mockMvc.perform(post("/usuarios/logout").header("Authorization", token))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.mensaje").value("Sesión cerrada correctamente"));
+
+        mockMvc.perform(get("/usuarios").header("Authorization", token))
+                .andExpect(status().isUnauthorized());
+        mockMvc.perform(post("/usuarios/logout").header("Authorization", token))
+                .andExpect(status().isUnauthorized());
+    }
+
+    @Test
+    @DisplayName("Un token refrescado queda revocado y el nuevo sí se acepta")
+    public void testRefresh_RevocaTokenAnterior() throws Exception {
+        String token = "Bearer " + login();
+        int revocadosAntes = listaRevocacion.getRevocados();
+
+        String nuevo = mockMvc.perform(post("/usuarios/refresh-token").header("Authorization", token))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        assertEquals(revocadosAntes + 1, listaRevocacion.getRevocados());
+        mockMvc.perform(post("/usuarios/refresh-token").header("Authorization", token))
+                .andExpect(status().isUnauthorized());
+        mockMvc.perform(get("/usuarios").header("Authorization", "Bearer " + nuevo))
+                .andExpect(status().isOk());
+    }
+
+    private String login() throws Exception {
+        Usuario loginRequest = new Usuario();
+        loginRequest.setEmail(EMAIL);
+        loginRequest.setPass("secreta");
+        String respuesta = mockMvc.perform(post("/usuarios/login")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(loginRequest)))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        JsonNode json = objectMapper.readTree(respuesta);
+        return json.get("token").asText();
+    }
+}
@@ -0,0 +1,74 @@
+package es.tfg.tu_curso.seguridad;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AuditoriaSeguridadTest {
+
+    private static final String TOKEN = "cabecera.contenido.firma";
+
+    private final Logger logger = (Logger) LoggerFactory.getLogger("es.tfg.tu_curso.seguridad.auditoria");
+    private final ListAppender<ILoggingEvent> eventos = new ListAppender<>();
+    private final MockHttpServletRequest request = new MockHttpServletRequest("GET", "/usuarios");
+    private AuditoriaSeguridad auditoria;
+
+    @BeforeEach
+    public void setUp() {
+        eventos.start();
+        logger.addAppender(eventos);
+        auditoria = new AuditoriaSeguridad();
+        ReflectionTestUtils.setField(auditoria, "muestreoAceptados", 10);
+        ReflectionTestUtils.setField(auditoria, "limitePorSegundo", 5);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        logger.detachAppender(eventos);
+    }
+
+    @Test
+    @DisplayName("Solo se registra una de cada N autenticaciones correctas")
+    public void testMuestreoAceptados() {
+        DatosToken datos = new DatosToken("ana@example.com", "USER", 7L, "s", Long.MAX_VALUE);
+
+        for (int i = 0; i < 30; i++) {
+            auditoria.tokenAceptado(request, TOKEN, datos);
+        }
+
+        assertEquals(3, eventos.list.size());
+        assertTrue(eventos.list.get(0).getFormattedMessage().startsWith("evento=TOKEN_ACEPTADO"));
+    }
+
+    @Test
+    @DisplayName("Cada tipo de evento se limita a un número de líneas por segundo")
+    public void testLimitePorSegundo() {
+        for (int i = 0; i < 50; i++) {
+            auditoria.tokenRechazado(request, TOKEN, "Token mal formado");
+        }
+
+        assertTrue(eventos.list.size() <= 10);
+        assertTrue(eventos.list.size() >= 5);
+    }
+
+    @Test
+    @DisplayName("Los eventos incluyen la huella del token y nunca el token")
+    public void testHuellaToken() {
+        auditoria.tokenRechazado(request, TOKEN, "La firma del token no es válida");
+
+        String mensaje = eventos.list.get(0).getFormattedMessage();
+        assertFalse(mensaje.contains(TOKEN));
+        assertTrue(mensaje.contains("huella=" + AuditoriaSeguridad.huella(TOKEN)));
+        assertEquals(12, AuditoriaSeguridad.huella(TOKEN).length());
+        assertEquals(AuditoriaSeguridad.huella(TOKEN), AuditoriaSeguridad.huella("Bearer " + TOKEN));
+    }
+}
@@ -0,0 +1,43 @@
+package es.tfg.tu_curso.seguridad;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BCryptCosteAdaptativoTest {
+
+    @Test
+    @DisplayName("Se consideran obsoletos los hashes con un coste menor o mayor que el actual")
+    public void testUpgradeEncoding() {
+        BCryptCosteAdaptativo encoder = new BCryptCosteAdaptativo(5);
+
+        assertFalse(encoder.upgradeEncoding(encoder.encode("secreta")));
+        assertTrue(encoder.upgradeEncoding(new BCryptPasswordEncoder(4).encode("secreta")));
+        assertTrue(encoder.upgradeEncoding(new BCryptPasswordEncoder(6).encode("secreta")));
+        assertFalse(encoder.upgradeEncoding("no-es-bcrypt"));
+    }
+
+    @Test
+    @DisplayName("El coste se extrae del hash BCrypt")
+    public void testCosteDe() {
+        assertEquals(12, BCryptCosteAdaptativo.costeDe("$2a$12$abcdefghijklmnopqrstuv"));
+        assertEquals(4, BCryptCosteAdaptativo.costeDe(new BCryptPasswordEncoder(4).encode("x")));
+        assertEquals(-1, BCryptCosteAdaptativo.costeDe("{bcrypt}$2a$12$abc"));
+        assertEquals(-1, BCryptCosteAdaptativo.costeDe(null));
+    }
+
+    @Test
+    @DisplayName("El calibrador respeta el coste fijo y los límites configurados")
+    public void testCalibrador() {
+        assertEquals(7, new CalibradorBCrypt(7, 250, 10, 14).getCoste());
+
+        CalibradorBCrypt calibrado = new CalibradorBCrypt(0, 1, 4, 6);
+        assertEquals(4, calibrado.getCoste());
+
+        CalibradorBCrypt maximo = new CalibradorBCrypt(0, 60_000, 4, 6);
+        assertEquals(6, maximo.getCoste());
+        assertTrue(maximo.getTiempoEstimadoMs() > 0);
+    }
+}
@@ -0,0 +1,80 @@
+package es.tfg.tu_curso.seguridad;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CodecTokenHmacTest {
+
+    private static final String SECRETO = "miClaveSecretaSuperSegura123";
+
+    private final CodecTokenHmac codec = new CodecTokenHmac(SECRETO);
+
+    @Test
+    @DisplayName("Un token firmado por el codec se verifica y conserva sus claims")
+    public void testFirmarYVerificar() {
+        long ahora = System.currentTimeMillis();
+        String token = codec.firmar("ana@example.com", "USER", 7L, "sello-1", ahora, ahora + 60_000);
+
+        DatosToken datos = codec.verificar(token);
+
+        assertEquals("ana@example.com", datos.getSubject());
+        assertEquals("USER", datos.getRol());
+        assertEquals(7L, datos.getUsuarioId());
+        assertEquals("sello-1", datos.getSelloSeguridad());
+        assertEquals((ahora + 60_000) / 1000 * 1000, datos.getExpiracion());
+    }
+
+    @Test
+    @DisplayName("Los tokens emitidos por jjwt siguen siendo válidos")
+    public void testVerificarTokenJjwt() {
+        String token = Jwts.builder()
+                .setSubject("ana@example.com")
+                .claim(JwtUtil.CLAIM_ROL, "ADMIN")
+                .claim(JwtUtil.CLAIM_USUARIO_ID, 3L)
+                .setIssuedAt(new Date())
+                .setExpiration(new Date(System.currentTimeMillis() + 60_000))
+                .signWith(SignatureAlgorithm.HS512, SECRETO)
+                .compact();
+
+        DatosToken datos = codec.verificar(token);
+
+        assertEquals("ana@example.com", datos.getSubject());
+        assertEquals("ADMIN", datos.getRol());
+        assertEquals(3L, datos.getUsuarioId());
+    }
+
+    @Test
+    @DisplayName("jjwt acepta los tokens emitidos por el codec")
+    public void testJjwtVerificaTokenCodec() {
+        long ahora = System.currentTimeMillis();
+        String token = codec.firmar("nombre \"con\" comillas", "USER", 9L, "s", ahora, ahora + 60_000);
+
+        Claims claims = Jwts.parser().setSigningKey(SECRETO).parseClaimsJws(token).getBody();
+
+        assertEquals("nombre \"con\" comillas", claims.getSubject());
+        assertEquals("USER", claims.get(JwtUtil.CLAIM_ROL, String.class));
+        assertEquals(9, claims.get(JwtUtil.CLAIM_USUARIO_ID, Number.class).intValue());
+    }
+
+    @Test
+    @DisplayName("Se rechazan tokens alterados, firmados con otra clave o expirados")
+    public void testTokensInvalidos() {
+        long ahora = System.currentTimeMillis();
+        String token = codec.firmar("ana@example.com", "USER", 7L, "s", ahora, ahora + 60_000);
+        String alterado = token.substring(0, token.length() - 2) + (token.endsWith("A") ? "BB" : "AA");
+        String otraClave = new CodecTokenHmac("otraClaveDistinta1234").firmar("ana@example.com", "USER", 7L, "s", ahora, ahora + 60_000);
+        String expirado = codec.firmar("ana@example.com", "USER", 7L, "s", ahora - 120_000, ahora - 60_000);
+
+        assertThrows(TokenInvalidoException.class, () -> codec.verificar(alterado));
+        assertThrows(TokenInvalidoException.class, () -> codec.verificar(otraClave));
+        assertThrows(TokenInvalidoException.class, () -> codec.verificar(expirado));
+        assertThrows(TokenInvalidoException.class, () -> codec.verificar("no.es-un.token.valido"));
+    }
+}
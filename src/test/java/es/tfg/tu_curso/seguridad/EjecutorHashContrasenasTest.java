@@ -0,0 +1,60 @@
+package es.tfg.tu_curso.seguridad;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EjecutorHashContrasenasTest {
+
+    private final EjecutorHashContrasenas ejecutor = new EjecutorHashContrasenas(1, 1, 2);
+
+    @AfterEach
+    public void tearDown() {
+        ejecutor.cerrar();
+    }
+
+    @Test
+    @DisplayName("El codificador acotado calcula y verifica hashes BCrypt en el ejecutor")
+    public void testCodificarYVerificar() {
+        PasswordEncoderAcotado encoder = new PasswordEncoderAcotado(new BCryptPasswordEncoder(4), ejecutor);
+
+        String hash = encoder.encode("secreta");
+
+        assertTrue(encoder.matches("secreta", hash));
+        assertFalse(encoder.matches("otra", hash));
+        assertEquals(3, ejecutor.getCompletadas());
+        assertTrue(ejecutor.getLatenciaMaximaMs() > 0);
+    }
+
+    @Test
+    @DisplayName("Con la cola llena las operaciones se rechazan inmediatamente")
+    public void testRechazoConColaLlena() throws Exception {
+        CountDownLatch enEjecucion = new CountDownLatch(1);
+        CountDownLatch liberar = new CountDownLatch(1);
+
+        CompletableFuture<Boolean> ocupada = CompletableFuture.supplyAsync(() -> ejecutor.ejecutar(() -> {
+            enEjecucion.countDown();
+            return liberar.await(10, TimeUnit.SECONDS);
+        }));
+        assertTrue(enEjecucion.await(10, TimeUnit.SECONDS));
+        CompletableFuture<Boolean> enCola = CompletableFuture.supplyAsync(() -> ejecutor.ejecutar(() -> true));
+        while (ejecutor.getEnCola() == 0) {
+            Thread.onSpinWait();
+        }
+
+        ServicioSaturadoException e = assertThrows(ServicioSaturadoException.class, () -> ejecutor.ejecutar(() -> true));
+
+        assertEquals(2, e.getReintentarEn());
+        assertEquals(1, ejecutor.getRechazadas());
+        liberar.countDown();
+        assertTrue(ocupada.get(10, TimeUnit.SECONDS));
+        assertTrue(enCola.get(10, TimeUnit.SECONDS));
+    }
+}
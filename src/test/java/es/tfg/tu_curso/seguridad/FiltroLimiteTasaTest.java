@@ -0,0 +1,82 @@
+package es.tfg.tu_curso.seguridad;
+
+import jakarta.servlet.FilterChain;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FiltroLimiteTasaTest {
+
+    private final List<String> cuerposRecibidos = new ArrayList<>();
+
+    private final FilterChain cadena = (request, response) ->
+            cuerposRecibidos.add(new String(request.getInputStream().readAllBytes(), StandardCharsets.UTF_8));
+
+    private MockHttpServletResponse enviar(FiltroLimiteTasa filtro, String metodo, String uri, String ip, String cuerpo)
+            throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest(metodo, uri);
+        request.setRemoteAddr(ip);
+        request.setContentType("application/json");
+        request.setContent(cuerpo.getBytes(StandardCharsets.UTF_8));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filtro.doFilter(request, response, cadena);
+        return response;
+    }
+
+    @Test
+    @DisplayName("Se limita por email aunque cambie la dirección y el cuerpo llega intacto al controlador")
+    public void testLimitePorEmail() throws Exception {
+        FiltroLimiteTasa filtro = new FiltroLimiteTasa(100, 60, 2, 1, 1000, new AuditoriaSeguridad());
+        String cuerpo = "{\"email\":\"Ana@Example.com\",\"pass\":\"secreta\"}";
+
+        assertEquals(200, enviar(filtro, "POST", "/usuarios/login", "10.0.0.1", cuerpo).getStatus());
+        assertEquals(200, enviar(filtro, "POST", "/usuarios/login", "10.0.0.2", cuerpo).getStatus());
+        MockHttpServletResponse rechazada = enviar(filtro, "POST", "/usuarios/login", "10.0.0.3",
+                "{\"email\":\"ana@example.com \",\"pass\":\"otra\"}");
+
+        assertEquals(429, rechazada.getStatus());
+        assertNotNull(rechazada.getHeader("Retry-After"));
+        assertEquals(List.of(cuerpo, cuerpo), cuerposRecibidos);
+    }
+
+    @Test
+    @DisplayName("Se limita por dirección y solo en los endpoints públicos de autenticación")
+    public void testLimitePorDireccion() throws Exception {
+        FiltroLimiteTasa filtro = new FiltroLimiteTasa(2, 1, 100, 60, 1000, new AuditoriaSeguridad());
+
+        assertEquals(200, enviar(filtro, "POST", "/usuarios/crear", "10.0.0.1", "{\"email\":\"a@x.com\"}").getStatus());
+        assertEquals(200, enviar(filtro, "POST", "/usuarios/crear", "10.0.0.1", "{\"email\":\"b@x.com\"}").getStatus());
+        assertEquals(429, enviar(filtro, "POST", "/usuarios/crear", "10.0.0.1", "no es json").getStatus());
+        assertEquals(200, enviar(filtro, "POST", "/usuarios/crear", "10.0.0.2", "{\"email\":\"a@x.com\"}").getStatus());
+        assertEquals(200, enviar(filtro, "GET", "/usuarios", "10.0.0.1", "").getStatus());
+        assertEquals(200, enviar(filtro, "POST", "/usuarios/refresh-token", "10.0.0.1", "").getStatus());
+    }
+
+    @Test
+    @DisplayName("Se rechazan los cuerpos demasiado grandes y los que no permiten identificar el email")
+    public void testCuerposSinEmailIdentificable() throws Exception {
+        FiltroLimiteTasa filtro = new FiltroLimiteTasa(100, 60, 1, 1, 1000, new AuditoriaSeguridad());
+        String relleno = " ".repeat(16 * 1024);
+
+        assertEquals(413, enviar(filtro, "POST", "/usuarios/login", "10.0.0.1",
+                "{\"email\":\"ana@example.com\",\"pass\":\"secreta\"}" + relleno).getStatus());
+        assertEquals(400, enviar(filtro, "POST", "/usuarios/login", "10.0.0.1", "no es json").getStatus());
+        assertEquals(400, enviar(filtro, "POST", "/usuarios/login", "10.0.0.1", "{\"pass\":\"secreta\"}").getStatus());
+        assertEquals(400, enviar(filtro, "POST", "/usuarios/login", "10.0.0.1", "{\"email\":5}").getStatus());
+        assertEquals(400, enviar(filtro, "POST", "/usuarios/login", "10.0.0.1",
+                "{\"email\":\"otro@example.com\",\"email\":\"ana@example.com\"}").getStatus());
+        assertTrue(cuerposRecibidos.isEmpty());
+
+        // Un campo grande delante del email no impide aplicar el límite por email
+        String cuerpo = "{\"relleno\":\"" + "x".repeat(8 * 1024) + "\",\"email\":\"ana@example.com\"}";
+        assertEquals(200, enviar(filtro, "POST", "/usuarios/login", "10.0.0.1", cuerpo).getStatus());
+        assertEquals(429, enviar(filtro, "POST", "/usuarios/login", "10.0.0.2", cuerpo).getStatus());
+    }
+}
@@ -0,0 +1,63 @@
+package es.tfg.tu_curso.seguridad;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LimitadorTasaTest {
+
+    private static final long SEGUNDO = 1_000_000_000L;
+
+    @Test
+    @DisplayName("Se admite una ráfaga igual a la capacidad y después se espera a la reposición")
+    public void testCapacidadYReposicion() {
+        // 3 seguidas, una ficha cada 10 segundos
+        LimitadorTasa limitador = new LimitadorTasa(3, 6, 100);
+        long ahora = 1_000 * SEGUNDO;
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, limitador.intentar("cliente", ahora));
+        }
+        long espera = limitador.intentar("cliente", ahora);
+        assertEquals(10 * SEGUNDO, espera);
+        assertEquals(0, limitador.intentar("otro", ahora));
+
+        assertTrue(limitador.intentar("cliente", ahora + 9 * SEGUNDO) > 0);
+        assertEquals(0, limitador.intentar("cliente", ahora + 10 * SEGUNDO));
+        assertEquals(2, limitador.getRechazadas());
+    }
+
+    @Test
+    @DisplayName("La purga elimina solo las claves con el cubo repuesto por completo")
+    public void testPurgarInactivas() {
+        LimitadorTasa limitador = new LimitadorTasa(2, 60, 100);
+        long ahora = 1_000 * SEGUNDO;
+
+        limitador.intentar("inactiva", ahora);
+        limitador.intentar("activa", ahora + 5 * SEGUNDO);
+
+        assertEquals(1, limitador.purgarInactivas(ahora + 2 * SEGUNDO));
+        assertEquals(1, limitador.getClaves());
+    }
+
+    @Test
+    @DisplayName("Con el mapa de claves lleno las claves nuevas se rechazan hasta que se purgan las inactivas")
+    public void testMaximoClaves() {
+        // Una ficha por minuto y dos claves como máximo
+        LimitadorTasa limitador = new LimitadorTasa(1, 1, 2);
+        long ahora = System.nanoTime();
+
+        assertEquals(0, limitador.intentar("relleno1", ahora));
+        assertEquals(0, limitador.intentar("relleno2", ahora));
+        assertEquals(60 * SEGUNDO, limitador.intentar("victima", ahora));
+        assertTrue(limitador.intentar("victima", ahora + SEGUNDO) > 0);
+        assertEquals(2, limitador.getClaves());
+
+        // Repuestos los cubos del relleno, la purga en línea deja sitio y la clave nueva se limita como las demás
+        long despues = ahora + 61 * SEGUNDO;
+        assertEquals(0, limitador.intentar("victima", despues));
+        assertTrue(limitador.intentar("victima", despues) > 0);
+        assertEquals(1, limitador.getClaves());
+    }
+}
@@ -0,0 +1,98 @@
+package es.tfg.tu_curso.seguridad;
+
+import es.tfg.tu_curso.modelo.TokenRevocado;
+import es.tfg.tu_curso.repositorio.RepositorioTokenRevocado;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class ListaRevocacionTest {
+
+    private final RepositorioTokenRevocado repositorio = mock(RepositorioTokenRevocado.class);
+
+    @Test
+    @DisplayName("Un token revocado se rechaza, se persiste y no puede revocarse dos veces")
+    public void testRevocar() {
+        ListaRevocacion lista = new ListaRevocacion(repositorio, 1000, 0.01);
+        long expiracion = System.currentTimeMillis() + 60_000;
+
+        assertFalse(lista.estaRevocado(42L));
+        assertTrue(lista.revocar(42L, 7L, expiracion));
+        assertFalse(lista.revocar(42L, 7L, expiracion));
+
+        assertTrue(lista.estaRevocado(42L));
+        assertFalse(lista.estaRevocado(43L));
+        assertFalse(lista.estaRevocado(0L));
+        verify(repositorio, times(1)).save(any(TokenRevocado.class));
+    }
+
+    @Test
+    @DisplayName("Al arrancar se cargan los tokens persistidos y la purga descarta los expirados")
+    public void testCargarYPurgar() {
+        when(repositorio.findByExpiracionAfter(any())).thenReturn(List.of(
+                new TokenRevocado(1L, 7L, LocalDateTime.now().plusHours(1))));
+        ListaRevocacion lista = new ListaRevocacion(repositorio, 1000, 0.01);
+        lista.cargar();
+        assertTrue(lista.estaRevocado(1L));
+
+        lista.revocar(2L, 7L, System.currentTimeMillis() - 1);
+        assertTrue(lista.estaRevocado(2L));
+
+        lista.purgarExpirados();
+        assertTrue(lista.estaRevocado(1L));
+        assertFalse(lista.estaRevocado(2L));
+        assertEquals(1, lista.getRevocados());
+        verify(repositorio).eliminarExpirados(any());
+    }
+
+    @Test
+    @DisplayName("Al superar la capacidad el filtro se redimensiona al revocar, sin esperar a la purga")
+    public void testRedimensionarAlRevocar() {
+        ListaRevocacion lista = new ListaRevocacion(repositorio, 100, 0.01);
+        long bitsIniciales = lista.getBitsFiltro();
+        long expiracion = System.currentTimeMillis() + 60_000;
+        for (long jti = 1; jti <= 1_000; jti++) {
+            assertTrue(lista.revocar(jti, 7L, expiracion));
+        }
+        assertTrue(lista.getBitsFiltro() >= 10 * bitsIniciales, "Bits del filtro: " + lista.getBitsFiltro());
+        for (long jti = 1; jti <= 1_000; jti++) {
+            assertTrue(lista.estaRevocado(jti));
+        }
+
+        // Con el filtro redimensionado, la tasa de falsos positivos sigue cerca de la configurada
+        ThreadLocalRandom aleatorio = ThreadLocalRandom.current();
+        for (int i = 0; i < 100_000; i++) {
+            lista.estaRevocado(aleatorio.nextLong(1_000_000, Long.MAX_VALUE));
+        }
+        assertTrue(lista.getFalsosPositivosFiltro() < 1_500, "Falsos positivos: " + lista.getFalsosPositivosFiltro());
+    }
+
+    @Test
+    @DisplayName("El filtro de Bloom no da falsos negativos y respeta la tasa de falsos positivos")
+    public void testFiltroBloom() {
+        FiltroBloom filtro = new FiltroBloom(10_000, 0.01);
+        ThreadLocalRandom aleatorio = ThreadLocalRandom.current();
+        long[] claves = aleatorio.longs(10_000).toArray();
+        for (long clave : claves) {
+            filtro.agregar(clave);
+        }
+        for (long clave : claves) {
+            assertTrue(filtro.puedeContener(clave));
+        }
+
+        int positivos = 0;
+        for (int i = 0; i < 100_000; i++) {
+            if (filtro.puedeContener(aleatorio.nextLong())) {
+                positivos++;
+            }
+        }
+        assertTrue(positivos < 1_000, "Falsos positivos: " + positivos);
+    }
+}
@@ -0,0 +1,53 @@
+package es.tfg.tu_curso.servicio;
+
+import es.tfg.tu_curso.servicio.implementaciones.IndiceAmistadesServicioImpl;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AmigosComunesTest {
+
+    @Test
+    @DisplayName("Los amigos en común se obtienen ordenados y sin incluir a los propios usuarios")
+    public void testAmigosComunes() {
+        IndiceAmistadesServicioImpl indice = new IndiceAmistadesServicioImpl();
+        indice.registrarAmistad(1, 4);
+        indice.registrarAmistad(1, 3);
+        indice.registrarAmistad(1, 2);
+        indice.registrarAmistad(2, 3);
+        indice.registrarAmistad(2, 4);
+
+        assertArrayEquals(new long[]{3, 4}, indice.obtenerAmigosComunes(1, 2));
+        assertArrayEquals(new long[]{3, 4}, indice.obtenerAmigosComunes(2, 1));
+        assertArrayEquals(new long[]{1, 2}, indice.obtenerAmigosComunes(3, 4));
+        assertEquals(0, indice.obtenerAmigosComunes(1, 99).length);
+    }
+
+    @Test
+    @DisplayName("El recorrido conjunto y la búsqueda exponencial coinciden con la intersección directa")
+    public void testInterseccionAleatoria() {
+        Random aleatorio = new Random(7);
+        IndiceAmistadesServicioImpl indice = new IndiceAmistadesServicioImpl();
+        // 0 tiene muchos amigos; 1 y 2 tienen pocos y parecidos, de modo que se prueban ambas estrategias
+        for (int i = 0; i < 5_000; i++) {
+            indice.registrarAmistad(0, 10 + aleatorio.nextInt(20_000));
+        }
+        for (int i = 0; i < 60; i++) {
+            indice.registrarAmistad(1, 10 + aleatorio.nextInt(20_000));
+            indice.registrarAmistad(2, 10 + aleatorio.nextInt(20_000));
+        }
+        for (long[] par : new long[][]{{0, 1}, {1, 0}, {1, 2}, {0, 2}}) {
+            assertArrayEquals(interseccionDirecta(indice.obtenerAmigos(par[0]), indice.obtenerAmigos(par[1])),
+                    indice.obtenerAmigosComunes(par[0], par[1]));
+        }
+        assertTrue(indice.obtenerAmigosComunes(0, 1).length > 0);
+    }
+
+    private static long[] interseccionDirecta(long[] a, long[] b) {
+        return Arrays.stream(a).filter(x -> Arrays.binarySearch(b, x) >= 0).toArray();
+    }
+}
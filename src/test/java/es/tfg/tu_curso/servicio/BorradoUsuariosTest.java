@@ -0,0 +1,220 @@
+package es.tfg.tu_curso.servicio;
+
+import es.tfg.tu_curso.PruebaIntegracion;
+import es.tfg.tu_curso.dto.ProgresoBorradoDTO;
+import es.tfg.tu_curso.repositorio.RepositorioUsuario;
+import es.tfg.tu_curso.servicio.interfaces.BorradoUsuariosServicio;
+import es.tfg.tu_curso.servicio.interfaces.CursoServicio;
+import es.tfg.tu_curso.servicio.interfaces.PomodoroServicio;
+import es.tfg.tu_curso.servicio.interfaces.PuntoDeControlServicio;
+import es.tfg.tu_curso.servicio.interfaces.SolicitudAmistadServicio;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.Date;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Comprueba el borrado de usuarios con sentencias por conjuntos, síncrono y por lotes en segundo plano.
+ */
+@TestPropertySource(properties = {
+        "usuarios.borrado.lote=2",
+        "spring.datasource.hikari.connection-init-sql=SET LOCK_TIMEOUT 10000"
+})
+public class BorradoUsuariosTest extends PruebaIntegracion {
+
+    @Autowired
+    private BorradoUsuariosServicio borradoServicio;
+
+    @Autowired
+    private SolicitudAmistadServicio solicitudServicio;
+
+    @Autowired
+    private CursoServicio cursoServicio;
+
+    @Autowired
+    private PuntoDeControlServicio puntoDeControlServicio;
+
+    @Autowired
+    private PomodoroServicio pomodoroServicio;
+
+    @Autowired
+    private RepositorioUsuario usuarioRepositorio;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private UserDetailsService userDetailsService;
+
+    @Test
+    @DisplayName("El borrado síncrono elimina todos los datos del usuario sin cargar entidades y ajusta los contadores")
+    public void testBorradoSincrono() {
+        long ana = crearUsuario("ana.borrado@example.com");
+        long bea = crearUsuario("bea.borrado@example.com");
+        long carla = crearUsuario("carla.borrado@example.com");
+        poblar(ana, bea, carla);
+        Statistics estadisticas = obtenerEstadisticas();
+
+        estadisticas.clear();
+        assertTrue(usuarioServicio.borrar(ana));
+        assertEquals(0, estadisticas.getEntityLoadCount());
+        assertEquals(0, estadisticas.getPrepareStatementCount());
+
+        assertEquals(0, filasDe(ana));
+        assertEquals(0, numeroAmigos(bea));
+        assertEquals(0, solicitudesPendientes(carla));
+        assertEquals(0, usuarioServicio.repararContadores());
+        assertFalse(usuarioServicio.borrar(ana));
+    }
+
+    @Test
+    @DisplayName("El borrado en segundo plano avanza por lotes hasta borrar todas las filas contadas")
+    public void testBorradoAsincrono() throws InterruptedException {
+        long dani = crearUsuario("dani.borrado@example.com");
+        long eva = crearUsuario("eva.borrado@example.com");
+        long fede = crearUsuario("fede.borrado@example.com");
+        poblar(dani, eva, fede);
+
+        ProgresoBorradoDTO progreso = borradoServicio.iniciarBorrado(dani).orElseThrow();
+        for (int i = 0; i < 100 && BorradoUsuariosServicio.EN_CURSO.equals(progreso.getEstado()); i++) {
+            Thread.sleep(50);
+            progreso = borradoServicio.obtenerProgreso(progreso.getTarea()).orElseThrow();
+        }
+
+        assertEquals(BorradoUsuariosServicio.COMPLETADO, progreso.getEstado());
+        assertEquals(progreso.getTotalFilas(), progreso.getFilasBorradas());
+        assertEquals(0, filasDe(dani));
+        assertEquals(0, usuarioServicio.repararContadores());
+        assertTrue(borradoServicio.iniciarBorrado(dani).isEmpty());
+        assertTrue(borradoServicio.obtenerProgreso("desconocida").isEmpty());
+    }
+
+    @Test
+    @DisplayName("Durante el borrado en segundo plano el usuario no puede entrar, el índice sigue a cada lote " +
+            "y lo que otros crean entretanto se borra al final")
+    public void testBorradoAsincronoConcurrente() throws Exception {
+        long gema = crearUsuario("gema.borrado@example.com");
+        long[] amigos = new long[3];
+        for (int i = 0; i < amigos.length; i++) {
+            amigos[i] = crearUsuario("amigo" + i + ".borrado@example.com");
+            assertTrue(usuarioServicio.agregarAmigo(gema, amigos[i]));
+        }
+        long hugo = crearUsuario("hugo.borrado@example.com");
+        long ines = crearUsuario("ines.borrado@example.com");
+
+        // Otra transacción bloquea la fila del último amigo, así que el segundo lote de amistades espera
+        CountDownLatch bloqueada = new CountDownLatch(1);
+        CountDownLatch liberar = new CountDownLatch(1);
+        ExecutorService ejecutor = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> bloqueo = ejecutor.submit(() -> transactionTemplate.executeWithoutResult(estado -> {
+                jdbcTemplate.queryForList("SELECT id FROM usuario WHERE id = ? FOR UPDATE", amigos[2]);
+                bloqueada.countDown();
+                try {
+                    liberar.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }));
+            assertTrue(bloqueada.await(5, TimeUnit.SECONDS));
+
+            ProgresoBorradoDTO progreso = borradoServicio.iniciarBorrado(gema).orElseThrow();
+            for (int i = 0; i < 100 && progreso.getFilasBorradas() < 2; i++) {
+                Thread.sleep(50);
+                progreso = borradoServicio.obtenerProgreso(progreso.getTarea()).orElseThrow();
+            }
+            assertEquals(2, progreso.getFilasBorradas());
+            assertEquals(BorradoUsuariosServicio.EN_CURSO, progreso.getEstado());
+
+            // La cuenta sigue existiendo, pero ya no se puede usar para iniciar sesión
+            assertEquals(1, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM usuario WHERE id = ?", Integer.class, gema));
+            assertTrue(usuarioServicio.obtenerCredenciales("gema.borrado@example.com").isEmpty());
+            assertThrows(UsernameNotFoundException.class,
+                    () -> userDetailsService.loadUserByUsername("gema.borrado@example.com"));
+
+            // El primer lote ya está confirmado: sus amistades han salido del índice a la vez que de los contadores
+            assertFalse(usuarioServicio.sonAmigos(amigos[0], gema));
+            assertEquals(0, usuarioServicio.contarAmigos(amigos[0]));
+            assertEquals(0, numeroAmigos(amigos[0]));
+            assertTrue(usuarioServicio.sonAmigos(amigos[2], gema));
+
+            // Otros usuarios siguen pudiendo relacionarse con ella mientras tanto
+            assertTrue(usuarioServicio.agregarAmigo(hugo, gema));
+            assertTrue(solicitudServicio.enviarSolicitud(ines, gema));
+
+            liberar.countDown();
+            bloqueo.get(5, TimeUnit.SECONDS);
+            for (int i = 0; i < 100 && BorradoUsuariosServicio.EN_CURSO.equals(progreso.getEstado()); i++) {
+                Thread.sleep(50);
+                progreso = borradoServicio.obtenerProgreso(progreso.getTarea()).orElseThrow();
+            }
+            assertEquals(BorradoUsuariosServicio.COMPLETADO, progreso.getEstado(), progreso.getError());
+        } finally {
+            liberar.countDown();
+            ejecutor.shutdown();
+        }
+
+        assertEquals(0, filasDe(gema));
+        assertFalse(usuarioServicio.sonAmigos(hugo, gema));
+        assertEquals(0, usuarioServicio.contarAmigos(hugo));
+        assertEquals(0, usuarioServicio.contarAmigos(amigos[2]));
+        assertEquals(0, usuarioServicio.repararContadores());
+    }
+
+    /**
+     * Crea cursos con puntos de control, pomodoros, amistades y solicitudes enviadas y recibidas para el usuario.
+     */
+    private void poblar(long usuario, long amigo, long otro) {
+        for (int i = 0; i < 3; i++) {
+            assertTrue(cursoServicio.crear("Curso " + i, "https://example.com/" + i, 10, false, "", usuario));
+            assertTrue(pomodoroServicio.crear(LocalDateTime.now(), LocalDateTime.now().plusMinutes(25), usuario));
+        }
+        cursoServicio.obtenerCursosPorUsuario(usuario).forEach(curso -> {
+            for (int i = 0; i < 2; i++) {
+                assertTrue(puntoDeControlServicio.crear("Punto " + i, new Date(), false, curso.getId()));
+            }
+        });
+        assertTrue(usuarioServicio.agregarAmigo(usuario, amigo));
+        assertTrue(solicitudServicio.enviarSolicitud(usuario, otro));
+        assertTrue(solicitudServicio.enviarSolicitud(otro, amigo));
+        assertEquals(1, numeroAmigos(amigo));
+        assertEquals(1, solicitudesPendientes(otro));
+    }
+
+    private long filasDe(long usuarioId) {
+        return jdbcTemplate.queryForObject(
+                "SELECT (SELECT COUNT(*) FROM usuario WHERE id = ?)" +
+                        " + (SELECT COUNT(*) FROM curso WHERE usuario_id = ?)" +
+                        " + (SELECT COUNT(*) FROM punto_de_control p JOIN curso c ON c.id = p.curso_id WHERE c.usuario_id = ?)" +
+                        " + (SELECT COUNT(*) FROM pomodoro WHERE usuario_id = ?)" +
+                        " + (SELECT COUNT(*) FROM usuario_amigos WHERE usuario_id = ? OR amigo_id = ?)" +
+                        " + (SELECT COUNT(*) FROM solicitud_amistad WHERE emisor_id = ? OR receptor_id = ?)",
+                Long.class, usuarioId, usuarioId, usuarioId, usuarioId, usuarioId, usuarioId, usuarioId, usuarioId);
+    }
+
+    private int numeroAmigos(long usuarioId) {
+        return usuarioRepositorio.findById(usuarioId).orElseThrow().getNumeroAmigos();
+    }
+
+    private int solicitudesPendientes(long usuarioId) {
+        return usuarioRepositorio.findById(usuarioId).orElseThrow().getSolicitudesPendientes();
+    }
+}
@@ -0,0 +1,62 @@
+package es.tfg.tu_curso.servicio;
+
+import es.tfg.tu_curso.PruebaIntegracion;
+import es.tfg.tu_curso.servicio.interfaces.SolicitudAmistadServicio;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Comprueba la purga por lotes de las solicitudes de amistad caducadas.
+ */
+@TestPropertySource(properties = {
+        "amistades.solicitudes.caducidad-dias=30",
+        "amistades.solicitudes.purga-lote=2",
+        "amistades.solicitudes.purga-pausa-ms=0"
+})
+public class CaducidadSolicitudesTest extends PruebaIntegracion {
+
+    @Autowired
+    private SolicitudAmistadServicio solicitudServicio;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    @DisplayName("La purga elimina por lotes solo las solicitudes caducadas y descuenta los contadores de pendientes")
+    public void testPurgarCaducadas() {
+        long ana = crearUsuario("ana.caducidad@example.com");
+        long bea = crearUsuario("bea.caducidad@example.com");
+        for (int i = 0; i < 4; i++) {
+            long emisor = crearUsuario("emisor" + i + ".caducidad@example.com");
+            assertTrue(solicitudServicio.enviarSolicitud(emisor, i < 3 ? ana : bea));
+        }
+        assertTrue(solicitudServicio.enviarSolicitud(ana, bea));
+        assertNotNull(solicitudServicio.obtenerSolicitudesRecibidas(ana).get(0).getFechaCreacion());
+
+        // Caducan las tres recibidas por ana y la que envió a bea
+        jdbcTemplate.update("UPDATE solicitud_amistad SET fecha_creacion = ? WHERE receptor_id = ? OR emisor_id = ?",
+                Timestamp.valueOf(LocalDateTime.now().minusDays(31)), ana, ana);
+        long antes = solicitudServicio.getSolicitudesPurgadas();
+        Statistics estadisticas = obtenerEstadisticas();
+        estadisticas.clear();
+
+        assertEquals(4, solicitudServicio.purgarCaducadas());
+        // Dos lotes completos y un último lote vacío, cada uno en su transacción
+        assertEquals(3, estadisticas.getTransactionCount());
+        assertEquals(antes + 4, solicitudServicio.getSolicitudesPurgadas());
+        assertEquals(0, solicitudServicio.contarSolicitudesRecibidas(ana));
+        assertEquals(1, solicitudServicio.contarSolicitudesRecibidas(bea));
+        assertEquals(1, solicitudServicio.obtenerSolicitudesRecibidas(bea).size());
+        assertEquals(0, usuarioServicio.repararContadores());
+        assertEquals(0, solicitudServicio.purgarCaducadas());
+    }
+}
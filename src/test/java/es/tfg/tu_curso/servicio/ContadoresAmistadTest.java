@@ -0,0 +1,88 @@
+package es.tfg.tu_curso.servicio;
+
+import es.tfg.tu_curso.PruebaIntegracion;
+import es.tfg.tu_curso.repositorio.RepositorioUsuario;
+import es.tfg.tu_curso.servicio.interfaces.SolicitudAmistadServicio;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.TestPropertySource;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Comprueba el mantenimiento y la reparación de los contadores de amigos y solicitudes pendientes.
+ */
+@TestPropertySource(properties = "usuarios.contadores.lote=2")
+public class ContadoresAmistadTest extends PruebaIntegracion {
+
+    @Autowired
+    private SolicitudAmistadServicio solicitudServicio;
+
+    @Autowired
+    private RepositorioUsuario usuarioRepositorio;
+
+    @Test
+    @DisplayName("Los contadores se actualizan al enviar, aceptar y rechazar solicitudes y al agregar y remover amigos")
+    public void testMantenimiento() {
+        long ana = crearUsuario("ana.contadores@example.com");
+        long bea = crearUsuario("bea.contadores@example.com");
+        long carla = crearUsuario("carla.contadores@example.com");
+
+        assertTrue(solicitudServicio.enviarSolicitud(bea, ana));
+        assertTrue(solicitudServicio.enviarSolicitud(carla, ana));
+        assertFalse(solicitudServicio.enviarSolicitud(carla, ana));
+        assertEquals(2, solicitudServicio.contarSolicitudesRecibidas(ana));
+        assertEquals(2, solicitudesPendientes(ana));
+
+        long deBea = solicitudServicio.obtenerSolicitudesRecibidas(ana).stream()
+                .filter(s -> s.getEmisor().getId() == bea).findFirst().orElseThrow().getId();
+        long deCarla = solicitudServicio.obtenerSolicitudesRecibidas(ana).stream()
+                .filter(s -> s.getEmisor().getId() == carla).findFirst().orElseThrow().getId();
+        assertTrue(solicitudServicio.aceptarSolicitud(deBea));
+        assertTrue(solicitudServicio.rechazarSolicitud(deCarla));
+        assertEquals(0, solicitudServicio.contarSolicitudesRecibidas(ana));
+        assertEquals(1, numeroAmigos(ana));
+        assertEquals(1, numeroAmigos(bea));
+
+        assertTrue(usuarioServicio.agregarAmigo(carla, ana));
+        assertFalse(usuarioServicio.agregarAmigo(ana, carla));
+        assertEquals(2, numeroAmigos(ana));
+        assertEquals(1, numeroAmigos(carla));
+
+        assertTrue(usuarioServicio.removerAmigo(ana, bea));
+        assertFalse(usuarioServicio.removerAmigo(bea, ana));
+        assertEquals(1, numeroAmigos(ana));
+        assertEquals(0, numeroAmigos(bea));
+        assertEquals(0, usuarioServicio.repararContadores());
+    }
+
+    @Test
+    @DisplayName("La reparación por lotes corrige solo los contadores que no coinciden con las relaciones")
+    public void testReparacion() {
+        long dani = crearUsuario("dani.contadores@example.com");
+        long eva = crearUsuario("eva.contadores@example.com");
+        long fede = crearUsuario("fede.contadores@example.com");
+        assertTrue(usuarioServicio.agregarAmigo(dani, eva));
+        assertTrue(solicitudServicio.enviarSolicitud(fede, dani));
+        assertEquals(0, usuarioServicio.repararContadores());
+
+        usuarioRepositorio.sumarNumeroAmigos(eva, fede, 3);
+        usuarioRepositorio.sumarSolicitudesPendientes(dani, -1);
+
+        assertEquals(3, usuarioServicio.repararContadores());
+        assertEquals(1, numeroAmigos(dani));
+        assertEquals(1, numeroAmigos(eva));
+        assertEquals(0, numeroAmigos(fede));
+        assertEquals(1, solicitudesPendientes(dani));
+        assertEquals(0, usuarioServicio.repararContadores());
+    }
+
+    private int numeroAmigos(long usuarioId) {
+        return usuarioRepositorio.findById(usuarioId).orElseThrow().getNumeroAmigos();
+    }
+
+    private int solicitudesPendientes(long usuarioId) {
+        return usuarioRepositorio.findById(usuarioId).orElseThrow().getSolicitudesPendientes();
+    }
+}
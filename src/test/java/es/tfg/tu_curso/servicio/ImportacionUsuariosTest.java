@@ -0,0 +1,120 @@
+package es.tfg.tu_curso.servicio;
+
+import es.tfg.tu_curso.PruebaIntegracion;
+import es.tfg.tu_curso.dto.CredencialesDTO;
+import es.tfg.tu_curso.dto.ImportacionUsuariosDTO;
+import es.tfg.tu_curso.dto.ResultadoImportacionDTO;
+import es.tfg.tu_curso.modelo.Usuario;
+import es.tfg.tu_curso.repositorio.RepositorioUsuario;
+import es.tfg.tu_curso.servicio.interfaces.ImportacionUsuariosServicio;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Comprueba la importación masiva de usuarios desde ficheros CSV y NDJSON.
+ */
+@TestPropertySource(properties = "usuarios.importacion.lote=3")
+public class ImportacionUsuariosTest extends PruebaIntegracion {
+
+    @Autowired
+    private ImportacionUsuariosServicio importacion;
+
+    @Autowired
+    private RepositorioUsuario usuarioRepositorio;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private WebApplicationContext webApplicationContext;
+
+    @Test
+    @DisplayName("La importación CSV crea las filas válidas por lotes e informa del resultado de cada fila")
+    public void testImportarCsv() throws Exception {
+        usuarioServicio.crear("Ya Existe", "existente.csv@example.com", "secreta", "", "");
+        String csv = "email,nombre,pass,descripcion\r\n" +
+                "ana.csv@example.com,Ana Importada,secreta1,\"Profesora, de \"\"mates\"\"\"\r\n" +
+                "existente.csv@example.com,Otra,secreta,\r\n" +
+                "ana.csv@example.com,Ana Repetida,secreta,\r\n" +
+                "\r\n" +
+                ",Sin Email,secreta,\r\n" +
+                "b.csv@example.com,Bruno,secreta2\r\n" +
+                "c.csv@example.com,Celia,secreta3,\r\n" +
+                "d.csv@example.com,Dario,secreta4,\r\n" +
+                "e.csv@example.com,Elena,secreta5,\"Dos\nlíneas\"\r\n";
+        Statistics estadisticas = obtenerEstadisticas();
+        estadisticas.clear();
+
+        ImportacionUsuariosDTO informe = importacion.importarCsv(entrada(csv));
+
+        assertEquals(8, informe.getProcesadas());
+        assertEquals(5, informe.getCreadas());
+        assertEquals(3, informe.getRechazadas());
+        assertEquals(List.of(1, 2, 3, 4, 5, 6, 7, 8), informe.getFilas().stream().map(ResultadoImportacionDTO::getFila).toList());
+        assertEquals(List.of("CREADO", "DUPLICADO", "DUPLICADO", "INVALIDO", "CREADO", "CREADO", "CREADO", "CREADO"),
+                informe.getFilas().stream().map(ResultadoImportacionDTO::getResultado).toList());
+        // Una consulta de emails y una sentencia de inserción por lote, no una por usuario
+        assertTrue(estadisticas.getPrepareStatementCount() < informe.getCreadas(),
+                "Sentencias preparadas: " + estadisticas.getPrepareStatementCount());
+
+        CredencialesDTO ana = usuarioServicio.obtenerCredenciales("ana.csv@example.com").orElseThrow();
+        assertTrue(passwordEncoder.matches("secreta1", ana.getPass()));
+        assertEquals("USER", ana.getRol());
+        assertFalse(ana.getSelloSeguridad().isEmpty());
+        Usuario anaCompleta = usuarioRepositorio.findById(ana.getId()).orElseThrow();
+        assertEquals("Profesora, de \"mates\"", anaCompleta.getDescripcion());
+        assertEquals("Dos\nlíneas", usuarioRepositorio.findByEmail("e.csv@example.com").orElseThrow().getDescripcion());
+
+        // Los usuarios importados se pueden buscar por nombre
+        long observador = usuarioServicio.obtenerCredenciales("existente.csv@example.com").orElseThrow().getId();
+        assertEquals(List.of(ana.getId()), usuarioServicio.buscarUsuariosParaAgregar(observador, "importada", 20)
+                .stream().map(u -> u.getId()).toList());
+    }
+
+    @Test
+    @DisplayName("La importación NDJSON invalida solo las líneas incorrectas y el endpoint elige el formato por su tipo")
+    public void testImportarNdjson() throws Exception {
+        String ndjson = "{\"nombre\":\"Fran\",\"email\":\"fran.ndjson@example.com\",\"pass\":\"secreta\"}\n" +
+                "{\"nombre\":\"Sin contraseña\",\"email\":\"sin.ndjson@example.com\"}\n" +
+                "esto no es json\n" +
+                "{\"nombre\":\"Gema\",\"email\":\"gema.ndjson@example.com\",\"pass\":\"secreta\",\"icono\":\"g.png\"}\n";
+
+        ImportacionUsuariosDTO informe = importacion.importarNdjson(entrada(ndjson));
+
+        assertEquals(List.of("CREADO", "INVALIDO", "INVALIDO", "CREADO"),
+                informe.getFilas().stream().map(ResultadoImportacionDTO::getResultado).toList());
+        assertEquals("g.png", usuarioRepositorio.findByEmail("gema.ndjson@example.com").orElseThrow().getIcono());
+
+        MockMvc mockMvc = MockMvcBuilders.webAppContextSetup(webApplicationContext).build();
+        mockMvc.perform(post("/admin/usuarios/importar").contentType("text/csv")
+                        .content("nombre,email,pass\nHugo,hugo.ndjson@example.com,secreta\nFran,fran.ndjson@example.com,x\n"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.creadas").value(1))
+                .andExpect(jsonPath("$.filas[1].resultado").value("DUPLICADO"));
+        mockMvc.perform(post("/admin/usuarios/importar").contentType("text/csv").content("nombre,correo\n"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").exists());
+        mockMvc.perform(post("/admin/usuarios/importar").contentType("application/json").content("[]"))
+                .andExpect(status().isBadRequest());
+    }
+
+    private static ByteArrayInputStream entrada(String contenido) {
+        return new ByteArrayInputStream(contenido.getBytes(StandardCharsets.UTF_8));
+    }
+}
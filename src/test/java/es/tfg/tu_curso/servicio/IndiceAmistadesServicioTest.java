@@ -0,0 +1,168 @@
+package es.tfg.tu_curso.servicio;
+
+import es.tfg.tu_curso.PruebaIntegracion;
+import es.tfg.tu_curso.dto.AmigosComunesDTO;
+import es.tfg.tu_curso.dto.UsuarioDTO;
+import es.tfg.tu_curso.servicio.interfaces.IndiceAmistadesServicio;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Comprueba que el índice de amistades refleja la tabla usuario_amigos sin consultar la base de datos.
+ */
+public class IndiceAmistadesServicioTest extends PruebaIntegracion {
+
+    @Autowired
+    private IndiceAmistadesServicio indiceAmistades;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private Statistics estadisticas;
+
+    @BeforeEach
+    public void setup() {
+        estadisticas = obtenerEstadisticas();
+    }
+
+    @Test
+    @DisplayName("Agregar y remover amigos actualiza el índice, que responde sin consultas")
+    public void testAgregarYRemover() {
+        long ana = crearUsuario("ana.indice@example.com");
+        long bea = crearUsuario("bea.indice@example.com");
+        long carlos = crearUsuario("carlos.indice@example.com");
+
+        assertTrue(usuarioServicio.agregarAmigo(ana, bea));
+        assertTrue(usuarioServicio.agregarAmigo(carlos, ana));
+        assertFalse(usuarioServicio.agregarAmigo(bea, ana));
+
+        estadisticas.clear();
+        assertTrue(usuarioServicio.sonAmigos(ana, bea));
+        assertTrue(usuarioServicio.sonAmigos(bea, ana));
+        assertFalse(usuarioServicio.sonAmigos(bea, carlos));
+        assertEquals(2, usuarioServicio.contarAmigos(ana));
+        assertEquals(List.of(true, false, true), List.copyOf(
+                usuarioServicio.verificarAmistades(ana, List.of(carlos, ana, bea, carlos)).values()));
+        assertEquals(0, estadisticas.getPrepareStatementCount());
+        assertArrayEquals(new long[]{Math.min(bea, carlos), Math.max(bea, carlos)}, indiceAmistades.obtenerAmigos(ana));
+
+        assertTrue(usuarioServicio.removerAmigo(bea, ana));
+        assertFalse(usuarioServicio.removerAmigo(bea, ana));
+        assertFalse(usuarioServicio.sonAmigos(ana, bea));
+        assertEquals(1, usuarioServicio.contarAmigos(ana));
+        assertEquals(0, usuarioServicio.contarAmigos(bea));
+
+        // El índice recargado desde la tabla coincide con el mantenido en memoria
+        indiceAmistades.cargar();
+        assertTrue(usuarioServicio.sonAmigos(ana, carlos));
+        assertFalse(usuarioServicio.sonAmigos(ana, bea));
+        assertEquals(1, usuarioServicio.contarAmigos(carlos));
+    }
+
+    @Test
+    @DisplayName("Agregar y remover amigos escribe en la tabla sin cargar usuarios y es idempotente en paralelo")
+    public void testEscrituraDirectaConcurrente() throws Exception {
+        long hugo = crearUsuario("hugo.indice@example.com");
+        long ines = crearUsuario("ines.indice@example.com");
+
+        estadisticas.clear();
+        assertFalse(usuarioServicio.agregarAmigo(hugo, 999_999L));
+        assertTrue(usuarioServicio.agregarAmigo(hugo, ines));
+        assertEquals(0, estadisticas.getEntityLoadCount());
+        assertEquals(0, estadisticas.getCollectionLoadCount());
+        assertEquals(2, contarFilas(hugo, ines));
+
+        assertTrue(usuarioServicio.removerAmigo(ines, hugo));
+        assertEquals(0, contarFilas(hugo, ines));
+        assertEquals(0, estadisticas.getEntityLoadCount());
+
+        // Varias solicitudes simultáneas para la misma amistad: solo una la crea
+        int hilos = 8;
+        ExecutorService ejecutor = Executors.newFixedThreadPool(hilos);
+        try {
+            CountDownLatch salida = new CountDownLatch(1);
+            List<Future<Boolean>> resultados = new ArrayList<>();
+            for (int i = 0; i < hilos; i++) {
+                long origen = i % 2 == 0 ? hugo : ines;
+                long destino = i % 2 == 0 ? ines : hugo;
+                resultados.add(ejecutor.submit(() -> {
+                    salida.await();
+                    return usuarioServicio.agregarAmigo(origen, destino);
+                }));
+            }
+            salida.countDown();
+            int creadas = 0;
+            for (Future<Boolean> resultado : resultados) {
+                creadas += resultado.get() ? 1 : 0;
+            }
+            assertEquals(1, creadas);
+        } finally {
+            ejecutor.shutdown();
+        }
+        assertEquals(2, contarFilas(hugo, ines));
+        assertTrue(usuarioServicio.sonAmigos(ines, hugo));
+    }
+
+    @Test
+    @DisplayName("Los amigos en común se paginan con una sola consulta")
+    public void testAmigosComunesPaginados() {
+        long fran = crearUsuario("fran.indice@example.com");
+        long gema = crearUsuario("gema.indice@example.com");
+        long[] comunes = new long[5];
+        for (int i = 0; i < comunes.length; i++) {
+            comunes[i] = crearUsuario("comun" + i + ".indice@example.com");
+            usuarioServicio.agregarAmigo(fran, comunes[i]);
+            usuarioServicio.agregarAmigo(gema, comunes[i]);
+        }
+        usuarioServicio.agregarAmigo(fran, gema);
+
+        estadisticas.clear();
+        AmigosComunesDTO pagina = usuarioServicio.obtenerAmigosComunes(fran, gema, 1, 2);
+        assertEquals(1, estadisticas.getPrepareStatementCount());
+        assertEquals(5, pagina.getTotal());
+        assertEquals(List.of(comunes[2], comunes[3]), pagina.getAmigos().stream().map(UsuarioDTO::getId).toList());
+
+        assertEquals(List.of(comunes[4]), usuarioServicio.obtenerAmigosComunes(gema, fran, 2, 2)
+                .getAmigos().stream().map(UsuarioDTO::getId).toList());
+        assertTrue(usuarioServicio.obtenerAmigosComunes(fran, gema, 3, 2).getAmigos().isEmpty());
+    }
+
+    @Test
+    @DisplayName("Una amistad agregada en una transacción revertida no llega al índice")
+    public void testTransaccionRevertida() {
+        long dani = crearUsuario("dani.indice@example.com");
+        long eva = crearUsuario("eva.indice@example.com");
+
+        transactionTemplate.executeWithoutResult(estado -> {
+            assertTrue(usuarioServicio.agregarAmigo(dani, eva));
+            estado.setRollbackOnly();
+        });
+
+        assertFalse(usuarioServicio.sonAmigos(dani, eva));
+        assertEquals(0, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM usuario_amigos WHERE usuario_id = ?", Integer.class, dani));
+    }
+
+    private int contarFilas(long usuarioId, long amigoId) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM usuario_amigos WHERE " +
+                "(usuario_id = ? AND amigo_id = ?) OR (usuario_id = ? AND amigo_id = ?)",
+                Integer.class, usuarioId, amigoId, amigoId, usuarioId);
+    }
+}
@@ -0,0 +1,93 @@
+package es.tfg.tu_curso.servicio;
+
+import es.tfg.tu_curso.PruebaIntegracion;
+import es.tfg.tu_curso.dto.UsuarioDTO;
+import es.tfg.tu_curso.modelo.Usuario;
+import es.tfg.tu_curso.servicio.interfaces.IndiceNombresServicio;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.annotation.DirtiesContext;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Comprueba la búsqueda de usuarios por nombre con el índice en memoria. Los resultados esperados suponen que no hay
+ * más usuarios que los de esta clase, así que no se reutiliza el contexto de otras pruebas.
+ */
+@DirtiesContext(classMode = DirtiesContext.ClassMode.BEFORE_CLASS)
+public class IndiceNombresServicioTest extends PruebaIntegracion {
+
+    @Autowired
+    private IndiceNombresServicio indiceNombres;
+
+    @Test
+    @DisplayName("La búsqueda ignora mayúsculas y acentos, ordena por relevancia y descarta a los amigos")
+    public void testBuscar() {
+        long yo = crearUsuario("Buscador", "buscador.nombres@example.com");
+        long maria = crearUsuario("María José", "maria.nombres@example.com");
+        long mariano = crearUsuario("Mariano", "mariano.nombres@example.com");
+        long rosa = crearUsuario("Rosa Marín", "rosa.nombres@example.com");
+        long omar = crearUsuario("OMAR", "omar.nombres@example.com");
+        long amiga = crearUsuario("Marina", "marina.nombres@example.com");
+        usuarioServicio.agregarAmigo(yo, amiga);
+
+        // A igual tipo de coincidencia, primero el nombre más corto
+        assertEquals(List.of(mariano, maria, rosa), ids(usuarioServicio.buscarUsuariosParaAgregar(yo, "MARI", 20)));
+        assertEquals(List.of(mariano, maria, rosa, omar), ids(usuarioServicio.buscarUsuariosParaAgregar(yo, "mar", 20)));
+        assertEquals(List.of(maria), ids(usuarioServicio.buscarUsuariosParaAgregar(yo, "jose", 20)));
+        assertEquals(List.of(mariano), ids(usuarioServicio.buscarUsuariosParaAgregar(yo, "mar", 1)));
+
+        // Con uno o dos caracteres solo se buscan palabras que empiezan por ellos
+        assertEquals(List.of(mariano, maria, rosa), ids(usuarioServicio.buscarUsuariosParaAgregar(yo, "Má", 20)));
+        assertTrue(usuarioServicio.buscarUsuariosParaAgregar(yo, "  ", 20).isEmpty());
+    }
+
+    @Test
+    @DisplayName("El índice se mantiene al crear, modificar y borrar usuarios y coincide con el recargado")
+    public void testMantenimiento() {
+        long yo = crearUsuario("Observador", "observador.nombres@example.com");
+        long pepe = crearUsuario("Pepe Gálvez", "pepe.nombres@example.com");
+        assertEquals(List.of(pepe), ids(usuarioServicio.buscarUsuariosParaAgregar(yo, "galv", 20)));
+
+        Usuario cambios = new Usuario("Pepa Núñez", "", "pepe.nombres@example.com", "secreta", "");
+        assertTrue(usuarioServicio.modificar(pepe, cambios));
+        assertTrue(usuarioServicio.buscarUsuariosParaAgregar(yo, "galv", 20).isEmpty());
+        assertEquals(List.of(pepe), ids(usuarioServicio.buscarUsuariosParaAgregar(yo, "nunez", 20)));
+
+        indiceNombres.cargar();
+        assertEquals(List.of(pepe), ids(usuarioServicio.buscarUsuariosParaAgregar(yo, "nunez", 20)));
+
+        assertTrue(usuarioServicio.borrar(pepe));
+        assertTrue(usuarioServicio.buscarUsuariosParaAgregar(yo, "nunez", 20).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Las búsquedas sucesivas mientras se escribe dan el mismo resultado que una búsqueda nueva")
+    public void testBusquedaIncremental() {
+        long yo = crearUsuario("Tecleador", "tecleador.nombres@example.com");
+        long lucia = crearUsuario("Lucía Ortega", "lucia.nombres@example.com");
+        long luciano = crearUsuario("Luciano", "luciano.nombres@example.com");
+        long lucas = crearUsuario("Lucas", "lucas.nombres@example.com");
+        Statistics estadisticas = obtenerEstadisticas();
+
+        List<List<Long>> esperados = List.of(
+                List.of(lucas, luciano, lucia), List.of(lucas, luciano, lucia),
+                List.of(lucas, luciano, lucia), List.of(luciano, lucia), List.of(luciano));
+        String[] textos = {"l", "lu", "luc", "luci", "lucian"};
+        for (int i = 0; i < textos.length; i++) {
+            assertEquals(esperados.get(i), ids(usuarioServicio.buscarUsuariosParaAgregar(yo, textos[i], 20)));
+        }
+        // Otro usuario busca lo mismo sin búsquedas previas
+        estadisticas.clear();
+        assertEquals(List.of(luciano), ids(usuarioServicio.buscarUsuariosParaAgregar(lucas, "lucian", 20)));
+        assertEquals(1, estadisticas.getPrepareStatementCount());
+    }
+
+    private static List<Long> ids(List<UsuarioDTO> usuarios) {
+        return usuarios.stream().map(UsuarioDTO::getId).toList();
+    }
+}
@@ -0,0 +1,75 @@
+package es.tfg.tu_curso.servicio;
+
+import es.tfg.tu_curso.PruebaIntegracion;
+import es.tfg.tu_curso.dto.SolicitudAmistadDTO;
+import es.tfg.tu_curso.servicio.interfaces.SolicitudAmistadServicio;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Comprueba que los listados de solicitudes de amistad se obtienen con una sola consulta por página.
+ */
+public class ListadoSolicitudesTest extends PruebaIntegracion {
+
+    @Autowired
+    private SolicitudAmistadServicio solicitudServicio;
+
+    @Test
+    @DisplayName("Cada página de solicitudes recibidas y enviadas cuesta una consulta e incluye emisor y receptor")
+    public void testListadosUnaConsulta() {
+        long receptor = crearUsuario("Receptor", "receptor.listado@example.com");
+        List<Long> emisores = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            long emisor = crearUsuario("Emisor " + i, "emisor" + i + ".listado@example.com");
+            assertTrue(solicitudServicio.enviarSolicitud(emisor, receptor));
+            emisores.add(emisor);
+        }
+        Statistics estadisticas = obtenerEstadisticas();
+
+        estadisticas.clear();
+        List<SolicitudAmistadDTO> recibidas = solicitudServicio.obtenerSolicitudesRecibidasDTO(receptor, null, 50);
+        assertEquals(1, estadisticas.getPrepareStatementCount());
+        assertEquals(0, estadisticas.getEntityLoadCount());
+        assertEquals(emisores, recibidas.stream().map(s -> s.getEmisor().getId()).toList());
+        assertEquals("Emisor 0", recibidas.get(0).getEmisor().getNombre());
+        assertEquals("Receptor", recibidas.get(0).getReceptor().getNombre());
+
+        estadisticas.clear();
+        List<SolicitudAmistadDTO> enviadas = solicitudServicio.obtenerSolicitudesEnviadasDTO(emisores.get(2), null, 50);
+        assertEquals(1, estadisticas.getPrepareStatementCount());
+        assertEquals(1, enviadas.size());
+        assertEquals("Emisor 2", enviadas.get(0).getEmisor().getNombre());
+        assertEquals(receptor, enviadas.get(0).getReceptor().getId());
+    }
+
+    @Test
+    @DisplayName("Las páginas por clave recorren todas las solicitudes sin repetir ni saltar ninguna")
+    public void testPaginacion() {
+        long receptor = crearUsuario("Paginado", "paginado.listado@example.com");
+        for (int i = 0; i < 5; i++) {
+            long emisor = crearUsuario("Remitente " + i, "remitente" + i + ".listado@example.com");
+            assertTrue(solicitudServicio.enviarSolicitud(emisor, receptor));
+        }
+        List<Long> todas = solicitudServicio.obtenerSolicitudesRecibidasDTO(receptor, null, 50).stream()
+                .map(SolicitudAmistadDTO::getId).toList();
+
+        List<Long> recorridas = new ArrayList<>();
+        Long despues = null;
+        List<SolicitudAmistadDTO> pagina;
+        do {
+            pagina = solicitudServicio.obtenerSolicitudesRecibidasDTO(receptor, despues, 2);
+            pagina.forEach(s -> recorridas.add(s.getId()));
+            despues = pagina.isEmpty() ? despues : pagina.get(pagina.size() - 1).getId();
+        } while (pagina.size() == 2);
+
+        assertEquals(5, todas.size());
+        assertEquals(todas, recorridas);
+    }
+}
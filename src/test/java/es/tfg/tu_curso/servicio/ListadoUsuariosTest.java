@@ -0,0 +1,66 @@
+package es.tfg.tu_curso.servicio;
+
+import es.tfg.tu_curso.PruebaIntegracion;
+import es.tfg.tu_curso.dto.UsuarioDTO;
+import es.tfg.tu_curso.servicio.interfaces.UsuarioServicio;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Comprueba el listado de usuarios paginado por clave y su recorrido completo como flujo.
+ */
+public class ListadoUsuariosTest extends PruebaIntegracion {
+
+    @Test
+    @DisplayName("Las páginas por clave y el recorrido completo devuelven los mismos usuarios ordenados por ID")
+    public void testPaginasYRecorrido() {
+        List<Long> creados = new ArrayList<>();
+        for (int i = 0; i < 7; i++) {
+            creados.add(crearUsuario("Listado " + i, "listado" + i + "@example.com"));
+        }
+        Statistics estadisticas = obtenerEstadisticas();
+
+        // Cada página es una única consulta, y la siguiente empieza tras el último ID de la anterior
+        estadisticas.clear();
+        List<Long> paginados = new ArrayList<>();
+        int paginas = 0;
+        Long despues = null;
+        List<UsuarioDTO> pagina;
+        do {
+            pagina = usuarioServicio.obtenerUsuarios(despues, 3);
+            assertTrue(pagina.size() <= 3);
+            pagina.forEach(usuario -> paginados.add(usuario.getId()));
+            paginas++;
+            if (!pagina.isEmpty()) {
+                despues = pagina.get(pagina.size() - 1).getId();
+            }
+        } while (pagina.size() == 3);
+        assertEquals(paginas, estadisticas.getPrepareStatementCount());
+        assertTrue(paginados.containsAll(creados));
+        assertEquals(paginados.stream().sorted().toList(), paginados);
+
+        estadisticas.clear();
+        List<Long> recorridos = new ArrayList<>();
+        usuarioServicio.recorrerUsuarios(usuario -> recorridos.add(usuario.getId()));
+        assertEquals(paginados, recorridos);
+        assertEquals(1, estadisticas.getPrepareStatementCount());
+        assertEquals(0, estadisticas.getEntityLoadCount());
+    }
+
+    @Test
+    @DisplayName("El tamaño de página se limita al máximo permitido y a un mínimo de un usuario")
+    public void testTamanoLimitado() {
+        usuarioServicio.crear("Limite", "limite.listado@example.com", "secreta", "", "");
+
+        assertEquals(1, usuarioServicio.obtenerUsuarios(null, 0).size());
+        assertTrue(usuarioServicio.obtenerUsuarios(null, 10_000).size() <= UsuarioServicio.MAX_TAMANO_PAGINA_USUARIOS);
+        assertTrue(usuarioServicio.obtenerUsuarios(Long.MAX_VALUE, 10).isEmpty());
+    }
+}
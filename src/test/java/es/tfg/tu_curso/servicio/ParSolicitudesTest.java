@@ -0,0 +1,84 @@
+package es.tfg.tu_curso.servicio;
+
+import es.tfg.tu_curso.PruebaIntegracion;
+import es.tfg.tu_curso.repositorio.RepositorioUsuario;
+import es.tfg.tu_curso.servicio.interfaces.SolicitudAmistadServicio;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Comprueba que el índice único del par de usuarios impide las solicitudes repetidas en cualquier sentido.
+ */
+public class ParSolicitudesTest extends PruebaIntegracion {
+
+    @Autowired
+    private SolicitudAmistadServicio solicitudServicio;
+
+    @Autowired
+    private RepositorioUsuario usuarioRepositorio;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    @DisplayName("Un envío repetido o en sentido contrario se rechaza y la comprobación cuesta una consulta")
+    public void testParUnico() {
+        long ana = crearUsuario("ana.par@example.com");
+        long bea = crearUsuario("bea.par@example.com");
+        Statistics estadisticas = obtenerEstadisticas();
+
+        assertTrue(solicitudServicio.enviarSolicitud(bea, ana));
+        assertFalse(solicitudServicio.enviarSolicitud(bea, ana));
+        assertFalse(solicitudServicio.enviarSolicitud(ana, bea));
+        assertFalse(solicitudServicio.enviarSolicitud(ana, -1L));
+        assertEquals(1, usuarioRepositorio.findById(ana).orElseThrow().getSolicitudesPendientes());
+        assertEquals(0, usuarioRepositorio.findById(bea).orElseThrow().getSolicitudesPendientes());
+
+        estadisticas.clear();
+        assertTrue(solicitudServicio.existeSolicitudPendiente(ana, bea));
+        assertTrue(solicitudServicio.existeSolicitudPendiente(bea, ana));
+        assertEquals(2, estadisticas.getPrepareStatementCount());
+    }
+
+    @Test
+    @DisplayName("De varios envíos simultáneos entre dos usuarios solo se guarda uno")
+    public void testEnviosSimultaneos() throws Exception {
+        long carla = crearUsuario("carla.par@example.com");
+        long dani = crearUsuario("dani.par@example.com");
+        ExecutorService ejecutor = Executors.newFixedThreadPool(8);
+        CountDownLatch salida = new CountDownLatch(1);
+        List<Future<Boolean>> resultados = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            boolean directo = i % 2 == 0;
+            resultados.add(ejecutor.submit(() -> {
+                salida.await();
+                return directo ? solicitudServicio.enviarSolicitud(carla, dani) : solicitudServicio.enviarSolicitud(dani, carla);
+            }));
+        }
+        salida.countDown();
+        int aceptados = 0;
+        for (Future<Boolean> resultado : resultados) {
+            aceptados += resultado.get() ? 1 : 0;
+        }
+        ejecutor.shutdown();
+
+        assertEquals(1, aceptados);
+        assertEquals(1, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM solicitud_amistad WHERE usuario_menor_id = ? AND usuario_mayor_id = ?",
+                Integer.class, Math.min(carla, dani), Math.max(carla, dani)));
+        assertEquals(1, usuarioRepositorio.findById(carla).orElseThrow().getSolicitudesPendientes()
+                + usuarioRepositorio.findById(dani).orElseThrow().getSolicitudesPendientes());
+    }
+}
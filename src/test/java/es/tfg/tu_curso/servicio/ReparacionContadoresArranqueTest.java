@@ -0,0 +1,42 @@
+package es.tfg.tu_curso.servicio;
+
+import es.tfg.tu_curso.PruebaIntegracion;
+import es.tfg.tu_curso.repositorio.RepositorioUsuario;
+import es.tfg.tu_curso.servicio.interfaces.SolicitudAmistadServicio;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.TestPropertySource;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Comprueba que los contadores de usuarios anteriores a su introducción se reparan al arrancar,
+ * sin esperar a la reparación periódica.
+ */
+@TestPropertySource(properties = {
+        "spring.jpa.defer-datasource-initialization=true",
+        "spring.sql.init.mode=always",
+        "spring.sql.init.data-locations=classpath:contadores-sin-reparar.sql"
+})
+public class ReparacionContadoresArranqueTest extends PruebaIntegracion {
+
+    @Autowired
+    private SolicitudAmistadServicio solicitudServicio;
+
+    @Autowired
+    private RepositorioUsuario usuarioRepositorio;
+
+    @Test
+    @DisplayName("Tras arrancar, los contadores a cero de los usuarios existentes reflejan sus relaciones")
+    public void testReparacionAlArrancar() {
+        assertEquals(1, solicitudServicio.contarSolicitudesRecibidas(900001L));
+        assertEquals(1, usuarioRepositorio.findById(900001L).orElseThrow().getNumeroAmigos());
+        assertEquals(1, usuarioRepositorio.findById(900003L).orElseThrow().getNumeroAmigos());
+        assertEquals(0, usuarioServicio.repararContadores());
+
+        // Rechazar la solicitud antigua deja el contador en cero, no en negativo
+        assertTrue(solicitudServicio.rechazarSolicitud(900001L));
+        assertEquals(0, usuarioRepositorio.findById(900001L).orElseThrow().getSolicitudesPendientes());
+    }
+}
@@ -0,0 +1,104 @@
+package es.tfg.tu_curso.servicio;
+
+import es.tfg.tu_curso.PruebaIntegracion;
+import es.tfg.tu_curso.repositorio.RepositorioUsuario;
+import es.tfg.tu_curso.servicio.interfaces.SolicitudAmistadServicio;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Comprueba la aceptación y el rechazo de varias solicitudes de amistad en una sola operación.
+ */
+public class SolicitudesLoteTest extends PruebaIntegracion {
+
+    @Autowired
+    private SolicitudAmistadServicio solicitudServicio;
+
+    @Autowired
+    private RepositorioUsuario usuarioRepositorio;
+
+    @Test
+    @DisplayName("Aceptar un lote crea las amistades con un número fijo de sentencias e ignora las solicitudes ajenas")
+    public void testAceptarLote() {
+        long receptor = crearUsuario("receptor.lote@example.com");
+        long otro = crearUsuario("otro.lote@example.com");
+        List<Long> emisores = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            long emisor = crearUsuario("emisor" + i + ".lote@example.com");
+            assertTrue(solicitudServicio.enviarSolicitud(emisor, receptor));
+            emisores.add(emisor);
+        }
+        assertTrue(solicitudServicio.enviarSolicitud(emisores.get(0), otro));
+        // El último emisor ya es amigo del receptor cuando se acepta su solicitud
+        assertTrue(usuarioServicio.agregarAmigo(emisores.get(5), receptor));
+
+        List<Long> recibidas = solicitudServicio.obtenerSolicitudesRecibidas(receptor).stream()
+                .map(s -> s.getId()).sorted().toList();
+        long ajena = solicitudServicio.obtenerSolicitudesRecibidas(otro).get(0).getId();
+        List<Long> pedidas = new ArrayList<>(recibidas);
+        pedidas.add(ajena);
+        pedidas.add(-1L);
+
+        Statistics estadisticas = obtenerEstadisticas();
+        estadisticas.clear();
+        assertEquals(recibidas, solicitudServicio.aceptarSolicitudes(receptor, pedidas));
+        // Propiedad, bloqueo, borrado, contador de pendientes y contadores de amigos de emisores y receptor;
+        // las amistades se insertan con un lote JDBC fuera de Hibernate
+        assertEquals(6, estadisticas.getPrepareStatementCount());
+        assertEquals(0, estadisticas.getEntityLoadCount());
+
+        for (long emisor : emisores) {
+            assertTrue(usuarioServicio.sonAmigos(receptor, emisor));
+        }
+        assertEquals(6, usuarioRepositorio.findById(receptor).orElseThrow().getNumeroAmigos());
+        assertEquals(0, solicitudServicio.contarSolicitudesRecibidas(receptor));
+        assertEquals(1, solicitudServicio.contarSolicitudesRecibidas(otro));
+        assertEquals(0, usuarioServicio.repararContadores());
+        assertTrue(solicitudServicio.aceptarSolicitudes(receptor, recibidas).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Aceptar una sola solicitud de un usuario que ya es amigo la elimina, igual que en un lote")
+    public void testAceptarSolicitudDeAmigo() {
+        long receptor = crearUsuario("individual.lote@example.com");
+        long emisor = crearUsuario("amigo.individual.lote@example.com");
+        assertTrue(solicitudServicio.enviarSolicitud(emisor, receptor));
+        assertTrue(usuarioServicio.agregarAmigo(receptor, emisor));
+        long solicitud = solicitudServicio.obtenerSolicitudesRecibidas(receptor).get(0).getId();
+
+        assertTrue(solicitudServicio.aceptarSolicitud(solicitud));
+        assertEquals(0, solicitudServicio.contarSolicitudesRecibidas(receptor));
+        assertEquals(0, usuarioRepositorio.findById(receptor).orElseThrow().getSolicitudesPendientes());
+        assertEquals(1, usuarioRepositorio.findById(receptor).orElseThrow().getNumeroAmigos());
+        assertTrue(usuarioServicio.sonAmigos(receptor, emisor));
+        assertEquals(0, usuarioServicio.repararContadores());
+        assertFalse(solicitudServicio.aceptarSolicitud(solicitud));
+    }
+
+    @Test
+    @DisplayName("Rechazar un lote elimina solo las solicitudes recibidas por el usuario")
+    public void testRechazarLote() {
+        long receptor = crearUsuario("rechazo.lote@example.com");
+        long emisor1 = crearUsuario("rechazado1.lote@example.com");
+        long emisor2 = crearUsuario("rechazado2.lote@example.com");
+        assertTrue(solicitudServicio.enviarSolicitud(emisor1, receptor));
+        assertTrue(solicitudServicio.enviarSolicitud(emisor2, receptor));
+        assertTrue(solicitudServicio.enviarSolicitud(receptor, crearUsuario("destino.lote@example.com")));
+        List<Long> recibidas = solicitudServicio.obtenerSolicitudesRecibidas(receptor).stream()
+                .map(s -> s.getId()).sorted().toList();
+        long enviada = solicitudServicio.obtenerSolicitudesEnviadas(receptor).get(0).getId();
+
+        assertEquals(recibidas, solicitudServicio.rechazarSolicitudes(receptor, List.of(recibidas.get(0), recibidas.get(1), enviada)));
+        assertEquals(0, solicitudServicio.contarSolicitudesRecibidas(receptor));
+        assertFalse(usuarioServicio.sonAmigos(receptor, emisor1));
+        assertEquals(1, solicitudServicio.obtenerSolicitudesEnviadas(receptor).size());
+        assertEquals(0, usuarioServicio.repararContadores());
+    }
+}
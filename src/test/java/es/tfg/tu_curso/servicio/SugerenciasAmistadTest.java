@@ -0,0 +1,88 @@
+package es.tfg.tu_curso.servicio;
+
+import es.tfg.tu_curso.servicio.implementaciones.IndiceAmistadesServicioImpl;
+import es.tfg.tu_curso.servicio.interfaces.IndiceAmistadesServicio.AmigoSugerido;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SugerenciasAmistadTest {
+
+    private static IndiceAmistadesServicioImpl crearIndice(int umbralParalelo) {
+        IndiceAmistadesServicioImpl indice = new IndiceAmistadesServicioImpl();
+        ReflectionTestUtils.setField(indice, "maxVisitas", 1_000_000);
+        ReflectionTestUtils.setField(indice, "umbralParalelo", umbralParalelo);
+        ReflectionTestUtils.setField(indice, "cacheMaximo", 1_000);
+        return indice;
+    }
+
+    @Test
+    @DisplayName("Se sugieren los amigos de amigos por amigos en común, sin el usuario ni sus amigos")
+    public void testOrdenSugerencias() {
+        IndiceAmistadesServicioImpl indice = crearIndice(512);
+        // 1 es amigo de 2, 3 y 4; 5 es amigo de 2 y 3; 6 y 7 son amigos de 4
+        indice.registrarAmistad(1, 2);
+        indice.registrarAmistad(1, 3);
+        indice.registrarAmistad(1, 4);
+        indice.registrarAmistad(5, 2);
+        indice.registrarAmistad(5, 3);
+        indice.registrarAmistad(7, 4);
+        indice.registrarAmistad(6, 4);
+        indice.registrarAmistad(2, 3);
+
+        assertEquals(List.of(new AmigoSugerido(5, 2), new AmigoSugerido(6, 1), new AmigoSugerido(7, 1)),
+                indice.sugerirAmigos(1, 10));
+        assertEquals(List.of(new AmigoSugerido(5, 2)), indice.sugerirAmigos(1, 1));
+        assertTrue(indice.sugerirAmigos(99, 10).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Las sugerencias guardadas se descartan cuando cambia una amistad que les afecta")
+    public void testInvalidacion() {
+        IndiceAmistadesServicioImpl indice = crearIndice(512);
+        indice.registrarAmistad(1, 2);
+        indice.registrarAmistad(2, 3);
+        assertEquals(List.of(new AmigoSugerido(3, 1)), indice.sugerirAmigos(1, 10));
+
+        // Un nuevo amigo de 2 pasa a ser sugerencia de 1
+        indice.registrarAmistad(2, 4);
+        assertEquals(List.of(new AmigoSugerido(3, 1), new AmigoSugerido(4, 1)), indice.sugerirAmigos(1, 10));
+
+        // Si 1 y 3 se hacen amigos, 3 deja de ser sugerencia
+        indice.registrarAmistad(1, 3);
+        assertEquals(List.of(new AmigoSugerido(4, 1)), indice.sugerirAmigos(1, 10));
+
+        indice.eliminarUsuario(4);
+        assertTrue(indice.sugerirAmigos(1, 10).isEmpty());
+    }
+
+    @Test
+    @DisplayName("El cálculo en paralelo coincide con el secuencial")
+    public void testParaleloIgualSecuencial() {
+        IndiceAmistadesServicioImpl secuencial = crearIndice(Integer.MAX_VALUE);
+        IndiceAmistadesServicioImpl paralelo = crearIndice(8);
+        Random aleatorio = new Random(42);
+        for (int i = 0; i < 20_000; i++) {
+            long a = aleatorio.nextInt(2_000);
+            long b = aleatorio.nextInt(2_000);
+            if (a != b) {
+                secuencial.registrarAmistad(a, b);
+                paralelo.registrarAmistad(a, b);
+            }
+            // Un usuario con muchos amigos
+            if (i % 10 == 0) {
+                secuencial.registrarAmistad(5_000, b);
+                paralelo.registrarAmistad(5_000, b);
+            }
+        }
+
+        assertTrue(paralelo.contarAmigos(5_000) > 8);
+        assertEquals(secuencial.sugerirAmigos(5_000, 50), paralelo.sugerirAmigos(5_000, 50));
+        assertEquals(secuencial.sugerirAmigos(7, 50), paralelo.sugerirAmigos(7, 50));
+    }
+}
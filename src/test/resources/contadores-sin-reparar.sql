@@ -0,0 +1,8 @@
+-- Usuarios anteriores a las columnas de contadores: tienen relaciones, pero sus contadores valen 0
+INSERT INTO usuario (id, nombre, email, pass, rol, sello_seguridad) VALUES
+    (900001, 'Antigua', 'antigua.arranque@example.com', 'x', 'USER', 's1'),
+    (900002, 'Emisora', 'emisora.arranque@example.com', 'x', 'USER', 's2'),
+    (900003, 'Amiga', 'amiga.arranque@example.com', 'x', 'USER', 's3');
+INSERT INTO solicitud_amistad (id, emisor_id, receptor_id, usuario_menor_id, usuario_mayor_id) VALUES
+    (900001, 900002, 900001, 900001, 900002);
+INSERT INTO usuario_amigos (usuario_id, amigo_id) VALUES (900001, 900003), (900003, 900001);